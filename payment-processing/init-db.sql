@@ -3,12 +3,27 @@
 
 -- Create extensions
 CREATE EXTENSION IF NOT EXISTS "uuid-ossp";
+CREATE EXTENSION IF NOT EXISTS "pgcrypto";
 
--- Note: Tables are created by JPA/Hibernate based on entity definitions
--- This file can be used for additional initialization or seed data
+-- UUIDv7 for an existing timestamp (48-bit Unix millis, version 7, random tail).
+-- Used to optionally rekey historical rows; new ids are generated by the application.
+CREATE OR REPLACE FUNCTION uuid_v7_from_timestamp(ts TIMESTAMPTZ)
+RETURNS UUID AS $$
+DECLARE
+    millis_hex TEXT := lpad(to_hex((extract(epoch FROM ts) * 1000)::BIGINT), 12, '0');
+    rand_hex TEXT := encode(gen_random_bytes(10), 'hex');
+BEGIN
+    RETURN (
+        substr(millis_hex, 1, 8) || '-' || substr(millis_hex, 9, 4) || '-' ||
+        '7' || substr(rand_hex, 1, 3) || '-' ||
+        to_hex((get_byte(decode(substr(rand_hex, 4, 2), 'hex'), 0) & 63) | 128) || substr(rand_hex, 6, 2) || '-' ||
+        substr(rand_hex, 8, 12)
+    )::UUID;
+END;
+$$ LANGUAGE plpgsql VOLATILE;
 
--- Create indexes for better query performance (if not created by JPA)
--- These will be skipped if already exist from JPA annotations
+-- Note: Tables are created by Flyway (src/main/resources/db/migration/postgresql) on startup
+-- This file can be used for additional initialization or seed data
 
 -- Sample data for testing (commented out by default)
 -- INSERT INTO users (id, username, password, email, roles, created_at, updated_at, version)
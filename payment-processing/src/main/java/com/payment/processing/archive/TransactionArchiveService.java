@@ -0,0 +1,214 @@
+package com.payment.processing.archive;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.entity.TransactionArchiveEntry;
+import com.payment.processing.domain.entity.TransactionArchiveSegment;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.repository.TransactionArchiveEntryRepository;
+import com.payment.processing.repository.TransactionArchiveSegmentRepository;
+import com.payment.processing.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves settled transactions past {@code archive.transactions.min-age-days} out of {@code transactions}
+ * into compressed segments, keeping the hot table and its indexes small. A payment is archived together
+ * with all its refunds, and only once every one of them is eligible, so a hierarchy is never split
+ * between the live table and the archive.
+ * <p>
+ * A segment stores one JSON array per column (rows share an index across arrays), gzip-compressed;
+ * repeated values such as status, currency and card brand compress far better column by column than
+ * row by row. {@code transaction_archive_entries} maps each transaction id to its segment and row so
+ * {@link #findArchived(UUID)} only inflates a single segment.
+ */
+@Service
+@Slf4j
+public class TransactionArchiveService {
+
+    static final String FORMAT = "gzip-columnar-json-v1";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionArchiveSegmentRepository segmentRepository;
+    private final TransactionArchiveEntryRepository entryRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate segmentTransaction;
+    private final ObjectMapper archiveMapper;
+    private final Counter archivedCounter;
+    private final Counter lookupHitCounter;
+    private final Counter lookupMissCounter;
+
+    @Value("${archive.transactions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${archive.transactions.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${archive.transactions.statuses:CAPTURED,PARTIALLY_REFUNDED,REFUNDED,VOIDED}")
+    private Set<TransactionStatus> statuses;
+
+    @Value("${archive.transactions.segment-size:1000}")
+    private int segmentSize;
+
+    @Value("${archive.transactions.max-segments-per-run:500}")
+    private int maxSegmentsPerRun;
+
+    public TransactionArchiveService(TransactionRepository transactionRepository,
+                                     TransactionArchiveSegmentRepository segmentRepository,
+                                     TransactionArchiveEntryRepository entryRepository, EntityManager entityManager,
+                                     PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.segmentRepository = segmentRepository;
+        this.entryRepository = entryRepository;
+        this.entityManager = entityManager;
+        this.segmentTransaction = new TransactionTemplate(transactionManager);
+
+        // Exact decimals keep amounts at their stored scale through the tree round trip.
+        this.archiveMapper = objectMapper.copy()
+                .setNodeFactory(JsonNodeFactory.withExactBigDecimals(true))
+                .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        this.archivedCounter = Counter.builder("transaction.archive.rows").register(meterRegistry);
+        this.lookupHitCounter = Counter.builder("transaction.archive.lookups").tag("result", "hit").register(meterRegistry);
+        this.lookupMissCounter = Counter.builder("transaction.archive.lookups").tag("result", "miss").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${archive.transactions.cron:0 0 3 * * *}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * Archives eligible payments and their refunds one segment per database transaction, oldest first.
+     * A run stops at the first segment whose rows changed after they were read; the next run retries it.
+     *
+     * @return number of transactions archived
+     */
+    public int archive() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(minAgeDays));
+        int total = 0;
+        for (int i = 0; i < maxSegmentsPerRun; i++) {
+            Integer archived;
+            try {
+                archived = segmentTransaction.execute(status -> archiveSegment(cutoff));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                log.warn("Archival stopped: a transaction changed while its segment was written", e);
+                break;
+            }
+            if (archived == null || archived == 0) break;
+            total += archived;
+        }
+        if (total > 0) {
+            log.info("Archived {} transactions created before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    public Optional<Transaction> findArchived(UUID transactionId) {
+        Optional<Transaction> archived = entryRepository.findById(transactionId)
+                .flatMap(entry -> segmentRepository.findById(entry.getSegmentId())
+                        .map(segment -> readRow(segment, entry.getRowIndex())));
+        (archived.isPresent() ? lookupHitCounter : lookupMissCounter).increment();
+        return archived;
+    }
+
+    private int archiveSegment(Instant cutoff) {
+        List<Transaction> roots = transactionRepository.findArchivableRoots(statuses, cutoff, PageRequest.of(0, segmentSize));
+        if (roots.isEmpty()) {
+            return 0;
+        }
+        List<Transaction> rows = new ArrayList<>(roots);
+        rows.addAll(transactionRepository.findByParentTransactionIdIn(roots.stream().map(Transaction::getId).toList()));
+
+        TransactionArchiveSegment segment = segmentRepository.save(TransactionArchiveSegment.builder()
+                .fromCreatedAt(rows.stream().map(Transaction::getCreatedAt).min(Comparator.naturalOrder()).orElseThrow())
+                .toCreatedAt(rows.stream().map(Transaction::getCreatedAt).max(Comparator.naturalOrder()).orElseThrow())
+                .rowCount(rows.size())
+                .format(FORMAT)
+                .data(encode(rows))
+                .build());
+
+        for (int i = 0; i < rows.size(); i++) {
+            // persist, not save: the id is assigned, and merge would issue a SELECT per row.
+            entityManager.persist(TransactionArchiveEntry.builder()
+                    .transactionId(rows.get(i).getId())
+                    .segmentId(segment.getId())
+                    .rowIndex(i)
+                    .build());
+        }
+        // Versioned deletes: a payment a lane updated since it was read fails the segment instead of
+        // archiving a stale copy.
+        transactionRepository.deleteAll(rows);
+        transactionRepository.flush();
+        archivedCounter.increment(rows.size());
+        return rows.size();
+    }
+
+    byte[] encode(List<Transaction> rows) {
+        ObjectNode columns = archiveMapper.createObjectNode();
+        for (Transaction row : rows) {
+            Iterator<Map.Entry<String, JsonNode>> fields = archiveMapper.<ObjectNode>valueToTree(row).fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                ArrayNode column = columns.has(field.getKey())
+                        ? (ArrayNode) columns.get(field.getKey()) : columns.putArray(field.getKey());
+                column.add(field.getValue());
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            archiveMapper.writeValue(out, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to encode archive segment", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    Transaction readRow(TransactionArchiveSegment segment, int rowIndex) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(segment.getData()))) {
+            JsonNode columns = archiveMapper.readTree(in);
+            ObjectNode row = archiveMapper.createObjectNode();
+            columns.fields().forEachRemaining(column -> row.set(column.getKey(), column.getValue().get(rowIndex)));
+            return archiveMapper.treeToValue(row, Transaction.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read archive segment " + segment.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.payment.processing.billing;
+
+import com.payment.processing.domain.entity.Subscription;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.PaymentMethodType;
+import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.SubscriptionRepository;
+import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.rollup.PaymentRollupRecorder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs billing cycles for subscriptions billed by this service: those created with
+ * {@code localBilling}, which have a stored payment profile and no gateway ARB schedule. ARB
+ * subscriptions are charged by Authorize.Net itself.
+ * <p>
+ * Every node runs the same loop: claim a chunk of due subscriptions with {@code FOR UPDATE SKIP LOCKED}
+ * and lease them via {@code next_billing_attempt_at}, commit, charge them through {@link PaymentGateway}
+ * on a bounded pool, then write all results for the chunk in one batched transaction. Nodes never see
+ * each other's claimed rows, and a node that dies mid-chunk only delays its subscriptions until the
+ * lease expires.
+ * <p>
+ * Each successful charge is stored under the idempotency key {@code subscription:<id>:<cycle>}. If the
+ * subscription itself cannot be updated, the charge is still recorded on its own; the next claim finds
+ * the key and completes the cycle instead of charging the card again.
+ */
+@Component
+@Slf4j
+public class SubscriptionBillingScheduler {
+
+    private static final Set<SubscriptionStatus> BILLABLE_STATUSES =
+            EnumSet.of(SubscriptionStatus.ACTIVE, SubscriptionStatus.TRIAL);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final TransactionRepository transactionRepository;
+    private final PaymentGateway paymentGateway;
+    private final PaymentRollupRecorder rollupRecorder;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService chargeExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${subscription.billing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${subscription.billing.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${subscription.billing.lease-minutes:15}")
+    private long leaseMinutes;
+
+    @Value("${subscription.billing.retry-delay-hours:24}")
+    private long retryDelayHours;
+
+    @Value("${subscription.billing.max-failed-cycles:3}")
+    private int maxFailedCycles;
+
+    public SubscriptionBillingScheduler(SubscriptionRepository subscriptionRepository,
+                                        TransactionRepository transactionRepository, PaymentGateway paymentGateway,
+                                        PaymentRollupRecorder rollupRecorder, PlatformTransactionManager transactionManager,
+                                        @Value("${subscription.billing.parallelism:16}") int parallelism,
+                                        MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.transactionRepository = transactionRepository;
+        this.paymentGateway = paymentGateway;
+        this.rollupRecorder = rollupRecorder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chargeExecutor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "subscription-billing");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chargeExecutor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${subscription.billing.interval-ms:60000}")
+    public void billDueSubscriptions() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate billingDate = LocalDate.now(ZoneOffset.UTC);
+        int billed = 0;
+        Claim claim;
+        while ((claim = claim(billingDate)).claimed() > 0) {
+            record(charge(claim.charges()));
+            billed += claim.claimed();
+        }
+        if (billed > 0) {
+            log.info("Processed {} subscription billing cycles for {}", billed, billingDate);
+        }
+    }
+
+    /**
+     * Leases a chunk of due subscriptions. Cycles whose charge was already recorded are completed here
+     * rather than charged again.
+     */
+    private Claim claim(LocalDate billingDate) {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            Instant leaseUntil = now.plus(Duration.ofMinutes(leaseMinutes));
+            List<Subscription> due = subscriptionRepository.claimDueForBilling(
+                    BILLABLE_STATUSES, billingDate, now, PageRequest.of(0, chunkSize));
+            if (due.isEmpty()) {
+                return new Claim(List.of(), 0);
+            }
+            Set<String> charged = new HashSet<>(transactionRepository.findExistingIdempotencyKeys(
+                    due.stream().map(subscription -> cycleKey(subscription.getId(), subscription.getCompletedCycles() + 1)).toList()));
+            List<Charge> charges = new ArrayList<>(due.size());
+            for (Subscription subscription : due) {
+                int cycle = subscription.getCompletedCycles() + 1;
+                if (charged.contains(cycleKey(subscription.getId(), cycle))) {
+                    log.info("Cycle {} of subscription {} was already charged, completing it", cycle, subscription.getId());
+                    markCharged(subscription, subscription.getNextBillingDate());
+                    count("recovered");
+                    continue;
+                }
+                subscription.setNextBillingAttemptAt(leaseUntil);
+                charges.add(new Charge(subscription.getId(), subscription.getGatewayCustomerProfileId(),
+                        subscription.getGatewayPaymentProfileId(), subscription.getAmount(),
+                        cycle, subscription.getNextBillingDate()));
+            }
+            return new Claim(charges, due.size());
+        });
+    }
+
+    private List<ChargeResult> charge(List<Charge> chunk) {
+        List<Future<GatewayResponse>> futures = new ArrayList<>(chunk.size());
+        for (Charge charge : chunk) {
+            futures.add(chargeExecutor.submit(() -> paymentGateway.chargeCustomerProfile(
+                    charge.customerProfileId(), charge.paymentProfileId(), charge.amount(),
+                    "Subscription " + charge.subscriptionId() + " cycle " + charge.cycle())));
+        }
+        List<ChargeResult> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                results.add(new ChargeResult(chunk.get(i), futures.get(i).get()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Subscription billing interrupted", e);
+            } catch (ExecutionException e) {
+                // Outcome unknown: leave the lease in place and retry once it expires.
+                log.warn("Charge for subscription {} failed: {}", chunk.get(i).subscriptionId(), e.getCause().getMessage());
+                count("error");
+            }
+        }
+        return results;
+    }
+
+    private void record(List<ChargeResult> results) {
+        if (results.isEmpty()) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(results));
+        } catch (RuntimeException e) {
+            log.warn("Batch billing update failed, recording {} results individually", results.size(), e);
+            for (ChargeResult result : results) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply(List.of(result)));
+                } catch (RuntimeException single) {
+                    log.warn("Could not update subscription {} after charge {}",
+                            result.charge().subscriptionId(), result.response().getTransactionId(), single);
+                    if (result.response().isSuccess()) {
+                        recordChargeOnly(result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores a successful charge without touching its subscription, so the next claim of the
+     * subscription completes the cycle instead of charging it again.
+     */
+    private void recordChargeOnly(ChargeResult result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> subscriptionRepository
+                    .findById(result.charge().subscriptionId())
+                    .map(subscription -> transactionRepository.save(toTransaction(subscription, result, Instant.now())))
+                    .ifPresent(rollupRecorder::record));
+            count("recorded_only");
+        } catch (RuntimeException e) {
+            log.error("Could not record charge {} for subscription {} cycle {}; it may be charged again once the lease expires",
+                    result.response().getTransactionId(), result.charge().subscriptionId(), result.charge().cycle(), e);
+        }
+    }
+
+    private void apply(List<ChargeResult> results) {
+        Map<UUID, Subscription> subscriptions = subscriptionRepository.findAllById(
+                        results.stream().map(result -> result.charge().subscriptionId()).toList())
+                .stream().collect(Collectors.toMap(Subscription::getId, Function.identity()));
+        List<Transaction> transactions = new ArrayList<>(results.size());
+        Instant now = Instant.now();
+
+        for (ChargeResult result : results) {
+            Subscription subscription = subscriptions.get(result.charge().subscriptionId());
+            if (subscription == null) continue;
+            GatewayResponse response = result.response();
+            transactions.add(toTransaction(subscription, result, now));
+
+            if (response.isSuccess()) {
+                markCharged(subscription, result.charge().dueDate());
+                count("charged");
+            } else {
+                subscription.setFailedCycles(subscription.getFailedCycles() + 1);
+                if (subscription.getFailedCycles() >= maxFailedCycles) {
+                    subscription.setStatus(SubscriptionStatus.SUSPENDED);
+                    subscription.setNextBillingAttemptAt(null);
+                    log.warn("Subscription {} suspended after {} failed charges", subscription.getId(),
+                            subscription.getFailedCycles());
+                } else {
+                    subscription.setNextBillingAttemptAt(now.plus(Duration.ofHours(retryDelayHours)));
+                }
+                count("declined");
+            }
+        }
+        transactionRepository.saveAll(transactions).forEach(rollupRecorder::record);
+    }
+
+    private void markCharged(Subscription subscription, LocalDate dueDate) {
+        subscription.setCompletedCycles(subscription.getCompletedCycles() + 1);
+        subscription.setLastBillingDate(dueDate);
+        subscription.setNextBillingAttemptAt(null);
+        advance(subscription);
+    }
+
+    /**
+     * Moves the next billing date to cycle {@code completedCycles + 1}, counted from the first billing
+     * date so month-end dates do not drift, and expires the subscription when it runs out of cycles.
+     */
+    private void advance(Subscription subscription) {
+        LocalDate anchor = subscription.getTrialEndDate() != null ? subscription.getTrialEndDate() : subscription.getStartDate();
+        long periods = (long) subscription.getCompletedCycles() * subscription.getIntervalCount();
+        LocalDate next = switch (subscription.getBillingInterval()) {
+            case DAILY -> anchor.plusDays(periods);
+            case WEEKLY -> anchor.plusWeeks(periods);
+            case MONTHLY -> anchor.plusMonths(periods);
+            case YEARLY -> anchor.plusYears(periods);
+        };
+        boolean cyclesDone = subscription.getTotalCycles() != null
+                && subscription.getCompletedCycles() >= subscription.getTotalCycles();
+        boolean ended = subscription.getEndDate() != null && next.isAfter(subscription.getEndDate());
+        if (cyclesDone || ended) {
+            subscription.setStatus(SubscriptionStatus.EXPIRED);
+            subscription.setNextBillingDate(null);
+        } else {
+            subscription.setStatus(SubscriptionStatus.ACTIVE);
+            subscription.setNextBillingDate(next);
+        }
+    }
+
+    private Transaction toTransaction(Subscription subscription, ChargeResult result, Instant now) {
+        GatewayResponse response = result.response();
+        boolean success = response.isSuccess();
+        return Transaction.builder()
+                .orderId("subscription-" + subscription.getId())
+                .customerId(subscription.getCustomerId())
+                .customerEmail(subscription.getCustomerEmail())
+                .type(TransactionType.PURCHASE)
+                .status(success ? TransactionStatus.CAPTURED : TransactionStatus.DECLINED)
+                .amount(result.charge().amount())
+                .currency(subscription.getCurrency())
+                .authorizedAmount(success ? result.charge().amount() : null)
+                .capturedAmount(success ? result.charge().amount() : null)
+                .gatewayTransactionId(response.getTransactionId())
+                .gatewayAuthCode(response.getAuthCode())
+                .gatewayResponseCode(success ? response.getResponseCode() : response.getErrorCode())
+                .gatewayResponseMessage(success ? response.getResponseMessage() : response.getErrorMessage())
+                .paymentMethodType(PaymentMethodType.CREDIT_CARD)
+                .cardLastFour(subscription.getCardLastFour())
+                .cardBrand(subscription.getCardBrand())
+                .cardExpMonth(subscription.getCardExpMonth())
+                .cardExpYear(subscription.getCardExpYear())
+                .billingFirstName(subscription.getBillingFirstName())
+                .billingLastName(subscription.getBillingLastName())
+                .billingAddress(subscription.getBillingAddress())
+                .billingCity(subscription.getBillingCity())
+                .billingState(subscription.getBillingState())
+                .billingZip(subscription.getBillingZip())
+                .billingCountry(subscription.getBillingCountry())
+                .authorizedAt(success ? now : null)
+                .capturedAt(success ? now : null)
+                // One successful charge per cycle; a duplicate would fail the unique key instead of double-recording.
+                .subscriptionId(subscription.getId())
+                .idempotencyKey(success ? cycleKey(subscription.getId(), result.charge().cycle()) : null)
+                .correlationId(subscription.getCorrelationId())
+                .build();
+    }
+
+    private static String cycleKey(UUID subscriptionId, int cycle) {
+        return "subscription:" + subscriptionId + ":" + cycle;
+    }
+
+    private void count(String outcome) {
+        Counter.builder("subscription.billing").tag("outcome", outcome).register(meterRegistry).increment();
+    }
+
+    private record Claim(List<Charge> charges, int claimed) {
+    }
+
+    private record Charge(UUID subscriptionId, String customerProfileId, String paymentProfileId,
+                          BigDecimal amount, int cycle, LocalDate dueDate) {
+    }
+
+    private record ChargeResult(Charge charge, GatewayResponse response) {
+    }
+}
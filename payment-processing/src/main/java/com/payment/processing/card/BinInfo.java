@@ -0,0 +1,16 @@
+package com.payment.processing.card;
+
+import com.payment.processing.domain.enums.CardFundingType;
+import com.payment.processing.domain.enums.PaymentMethodType;
+
+/**
+ * What a card's BIN says about it. Instances are created when an index is loaded and shared by all lookups.
+ */
+public record BinInfo(String brand, CardFundingType funding, String issuer, String country) {
+
+    public static final BinInfo UNKNOWN = new BinInfo("UNKNOWN", CardFundingType.UNKNOWN, null, null);
+
+    public PaymentMethodType paymentMethodType() {
+        return funding == CardFundingType.DEBIT ? PaymentMethodType.DEBIT_CARD : PaymentMethodType.CREDIT_CARD;
+    }
+}
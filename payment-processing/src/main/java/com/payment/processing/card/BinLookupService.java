@@ -0,0 +1,113 @@
+package com.payment.processing.card;
+
+import com.payment.processing.domain.enums.CardFundingType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Card brand, funding type, issuer and country by BIN.
+ * <p>
+ * The built-in network ranges ({@code card/bin-ranges.csv}) are always loaded; ranges from
+ * {@code bin.ranges-file}, typically an issuer BIN table, are layered on top and win where they are
+ * more specific. The file is checked for changes every {@code bin.reload-interval-ms} and swapped in
+ * atomically; a file that fails to parse leaves the current index in place.
+ * <p>
+ * File format: {@code lowPrefix,highPrefix,brand[,funding[,issuer[,country]]]}, with {@code #} comments.
+ */
+@Component
+@Slf4j
+public class BinLookupService {
+
+    private static final String BUILT_IN_RANGES = "card/bin-ranges.csv";
+
+    private final Path rangesFile;
+    private volatile BinRangeIndex index;
+    private volatile long loadedModifiedAt;
+
+    public BinLookupService(@Value("${bin.ranges-file:}") String rangesFile) {
+        this.rangesFile = rangesFile.isBlank() ? null : Path.of(rangesFile);
+        this.index = load();
+    }
+
+    public BinInfo lookup(CharSequence cardNumber) {
+        return index.lookup(cardNumber);
+    }
+
+    @Scheduled(fixedDelayString = "${bin.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        if (rangesFile == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(rangesFile).toMillis() != loadedModifiedAt) {
+                index = load();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to reload BIN ranges from {}; keeping current index", rangesFile, e);
+        }
+    }
+
+    private BinRangeIndex load() {
+        BinRangeIndex.Builder builder = BinRangeIndex.builder();
+        Map<String, String> strings = new HashMap<>();
+        try (Reader reader = new InputStreamReader(new ClassPathResource(BUILT_IN_RANGES).getInputStream(), StandardCharsets.UTF_8)) {
+            read(reader, builder, strings);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read " + BUILT_IN_RANGES, e);
+        }
+        if (rangesFile != null) {
+            try {
+                long modifiedAt = Files.getLastModifiedTime(rangesFile).toMillis();
+                try (Reader reader = Files.newBufferedReader(rangesFile, StandardCharsets.UTF_8)) {
+                    read(reader, builder, strings);
+                }
+                loadedModifiedAt = modifiedAt;
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read BIN ranges from " + rangesFile, e);
+            }
+        }
+        BinRangeIndex loaded = builder.build();
+        log.info("Loaded BIN index with {} intervals", loaded.size());
+        return loaded;
+    }
+
+    private void read(Reader source, BinRangeIndex.Builder builder, Map<String, String> strings) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split(",", -1);
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("Invalid BIN range at line " + lineNumber + ": " + line);
+            }
+            // Brand, issuer and country repeat across many ranges; share one String instance each.
+            BinInfo info = new BinInfo(
+                    intern(strings, fields[2].trim().toUpperCase()),
+                    fields.length > 3 && !fields[3].isBlank()
+                            ? CardFundingType.valueOf(fields[3].trim().toUpperCase()) : CardFundingType.UNKNOWN,
+                    fields.length > 4 && !fields[4].isBlank() ? intern(strings, fields[4].trim()) : null,
+                    fields.length > 5 && !fields[5].isBlank() ? intern(strings, fields[5].trim().toUpperCase()) : null);
+            builder.add(fields[0], fields[1], info);
+        }
+    }
+
+    private static String intern(Map<String, String> strings, String value) {
+        return strings.computeIfAbsent(value, v -> v);
+    }
+}
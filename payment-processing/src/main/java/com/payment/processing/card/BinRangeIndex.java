@@ -0,0 +1,136 @@
+package com.payment.processing.card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable BIN range table. Ranges are given as digit prefixes of any length and normalized to
+ * {@value #KEY_DIGITS}-digit keys; overlaps are resolved at build time (the narrower range wins), so
+ * the table is a flat array of disjoint interval starts. A lookup reads the first digits of the PAN
+ * into a {@code long} and binary-searches that array: O(log n) and allocation-free.
+ */
+public final class BinRangeIndex {
+
+    static final int KEY_DIGITS = 8;
+
+    private final long[] starts;
+    private final BinInfo[] values;
+
+    private BinRangeIndex(long[] starts, BinInfo[] values) {
+        this.starts = starts;
+        this.values = values;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * @return the entry covering the card number's BIN, or {@link BinInfo#UNKNOWN}
+     */
+    public BinInfo lookup(CharSequence cardNumber) {
+        long key = key(cardNumber);
+        if (key < 0) {
+            return BinInfo.UNKNOWN;
+        }
+        int i = Arrays.binarySearch(starts, key);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        if (i < 0 || values[i] == null) {
+            return BinInfo.UNKNOWN;
+        }
+        return values[i];
+    }
+
+    /** First {@value #KEY_DIGITS} digits as a number, right-padded with zeros; -1 if there are no digits. */
+    private static long key(CharSequence cardNumber) {
+        if (cardNumber == null) {
+            return -1;
+        }
+        long key = 0;
+        int digits = 0;
+        for (int i = 0; i < cardNumber.length() && digits < KEY_DIGITS; i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                key = key * 10 + (c - '0');
+                digits++;
+            } else if (c != ' ' && c != '-') {
+                return -1;
+            }
+        }
+        if (digits == 0) {
+            return -1;
+        }
+        for (; digits < KEY_DIGITS; digits++) {
+            key *= 10;
+        }
+        return key;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private record Range(long low, long high, BinInfo info) {
+        }
+
+        private final List<Range> ranges = new ArrayList<>();
+
+        /**
+         * Adds the range from {@code lowPrefix} to {@code highPrefix} inclusive, e.g. {@code 51}-{@code 55}
+         * or {@code 222100}-{@code 272099}.
+         */
+        public Builder add(String lowPrefix, String highPrefix, BinInfo info) {
+            long low = pad(lowPrefix, '0');
+            long high = pad(highPrefix, '9');
+            if (low > high) {
+                throw new IllegalArgumentException("BIN range " + lowPrefix + "-" + highPrefix + " is empty");
+            }
+            ranges.add(new Range(low, high, info));
+            return this;
+        }
+
+        public BinRangeIndex build() {
+            // Paint widest ranges first so narrower (more specific) ones overwrite them.
+            List<Range> ordered = new ArrayList<>(ranges);
+            ordered.sort(Comparator.comparingLong((Range r) -> r.high() - r.low()).reversed());
+
+            TreeMap<Long, BinInfo> boundaries = new TreeMap<>();
+            for (Range range : ordered) {
+                Map.Entry<Long, BinInfo> after = boundaries.floorEntry(range.high() + 1);
+                BinInfo resume = after != null ? after.getValue() : null;
+                boundaries.subMap(range.low(), true, range.high() + 1, true).clear();
+                boundaries.put(range.low(), range.info());
+                boundaries.put(range.high() + 1, resume);
+            }
+
+            long[] starts = new long[boundaries.size()];
+            BinInfo[] values = new BinInfo[boundaries.size()];
+            int i = 0;
+            for (Map.Entry<Long, BinInfo> boundary : boundaries.entrySet()) {
+                starts[i] = boundary.getKey();
+                values[i++] = boundary.getValue();
+            }
+            return new BinRangeIndex(starts, values);
+        }
+
+        private static long pad(String prefix, char fill) {
+            String digits = prefix.trim();
+            if (digits.isEmpty() || digits.length() > KEY_DIGITS || !digits.chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException("Invalid BIN prefix: " + prefix);
+            }
+            StringBuilder key = new StringBuilder(digits);
+            while (key.length() < KEY_DIGITS) {
+                key.append(fill);
+            }
+            return Long.parseLong(key.toString());
+        }
+    }
+}
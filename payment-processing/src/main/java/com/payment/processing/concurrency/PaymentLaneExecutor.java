@@ -0,0 +1,366 @@
+package com.payment.processing.concurrency;
+
+import com.payment.processing.exception.ConcurrentUpdateException;
+import com.payment.processing.exception.PaymentException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single writer per payment: every mutation for a key is routed to one of a fixed number of lanes,
+ * each drained by one thread, so state transitions for a payment apply one at a time and in arrival
+ * order without database row locks.
+ * <p>
+ * Consecutive queued tasks for the same key run in one database transaction, so repeated updates to
+ * the same row collapse into a single flush. If anything in a batch fails, the batch is rolled back
+ * and its tasks run again individually through {@link TransactionConflictResolver}: tasks that already
+ * completed use their {@code onConflict} step, which re-applies a gateway-accepted change to a fresh
+ * copy without calling the gateway again. The same step handles optimistic-lock conflicts with writers
+ * in other instances.
+ * <p>
+ * Mutations that call the gateway do so between transactions: the row is checked in a short
+ * transaction of its own and the gateway is called with no transaction open, so a slow gateway holds
+ * no database connection. Its result then joins the lane's batch. A batch holds at most one gateway
+ * result, as its first task, since the next check must see the previous result committed.
+ * <p>
+ * Callers that already hold a transaction run inline, since a lane thread cannot see their
+ * uncommitted rows.
+ */
+@Component
+@Slf4j
+public class PaymentLaneExecutor {
+
+    private final Lane[] lanes;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionConflictResolver conflictResolver;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSize;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    @Value("${payment.lanes.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${payment.lanes.running-timeout-ms:60000}")
+    private long runningTimeoutMs;
+
+    @Value("${payment.lanes.max-batch:16}")
+    private int maxBatch;
+
+    public PaymentLaneExecutor(@Value("${payment.lanes.count:16}") int laneCount,
+                               @Value("${payment.lanes.queue-capacity:1000}") int queueCapacity,
+                               PlatformTransactionManager transactionManager,
+                               TransactionConflictResolver conflictResolver, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.conflictResolver = conflictResolver;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = DistributionSummary.builder("payment.lanes.batch.size").register(meterRegistry);
+        Gauge.builder("payment.lanes.queued", queued, AtomicInteger::get).register(meterRegistry);
+
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+            lanes[i].start();
+        }
+    }
+
+    public <T> T execute(String operation, Object key, Supplier<T> action) {
+        return execute(operation, key, action, action);
+    }
+
+    /**
+     * Runs {@code action} on the key's lane and waits for the result.
+     *
+     * @param onConflict runs instead of {@code action} when an already executed attempt has to be
+     *                   redone in a fresh transaction
+     */
+    public <T> T execute(String operation, Object key, Supplier<T> action, Supplier<T> onConflict) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        return submit(new Task<>(operation, key, action, onConflict, null));
+    }
+
+    /**
+     * Runs a mutation that calls the gateway on the key's lane and waits for the result.
+     *
+     * @param check loads and validates the row, in a short transaction of its own
+     * @param call  calls the gateway with no transaction open; runs once per mutation
+     * @param apply records the gateway result in the lane's transaction; runs again on a fresh row
+     *              when the transaction is rolled back or conflicts, so it must reload what it changes
+     */
+    public <C, G, T> T execute(String operation, Object key, Supplier<C> check, Function<C, G> call,
+                               Function<G, T> apply) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return apply.apply(call.apply(check.get()));
+        }
+        Supplier<Supplier<T>> gatewayStep = () -> {
+            G result = call.apply(transactionTemplate.execute(status -> check.get()));
+            return () -> apply.apply(result);
+        };
+        return submit(new Task<>(operation, key, null, null, gatewayStep));
+    }
+
+    private <T> T submit(Task<T> task) {
+        Lane lane = lanes[Math.floorMod(task.key.hashCode(), lanes.length)];
+        if (!lane.queue.offer(task)) {
+            conflictResolver.record(task.operation, "lane_full");
+            throw new ConcurrentUpdateException(task.key.toString());
+        }
+        queued.incrementAndGet();
+        return task.await();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.interrupt();
+        }
+    }
+
+    /**
+     * Runs consecutive tasks for one key, starting a new batch before each gateway call so that its
+     * check sees everything queued before it committed.
+     */
+    private void runTasks(List<Task<?>> tasks) {
+        List<Task<?>> batch = new ArrayList<>();
+        for (Task<?> task : tasks) {
+            if (task.gatewayStep != null) {
+                if (!batch.isEmpty()) {
+                    runBatch(batch);
+                    batch = new ArrayList<>();
+                }
+                if (!task.callGateway()) continue;
+            }
+            batch.add(task);
+        }
+        if (!batch.isEmpty()) {
+            runBatch(batch);
+        }
+    }
+
+    private void runBatch(List<Task<?>> batch) {
+        batchSize.record(batch.size());
+        if (batch.size() == 1) {
+            runIndividually(batch.get(0), false);
+            return;
+        }
+
+        boolean conflict = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Task<?> task : batch) {
+                    if (!task.runAction()) {
+                        status.setRollbackOnly();
+                        return;
+                    }
+                }
+            });
+        } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+            conflict = true;
+        } catch (RuntimeException e) {
+            log.warn("Batched commit for {} failed, retrying tasks individually: {}", batch.get(0).key, e.getMessage());
+        }
+
+        boolean committed = !conflict && batch.stream().allMatch(task -> task.state == TaskState.SUCCEEDED);
+        if (committed) {
+            batch.forEach(Task::complete);
+            return;
+        }
+        if (conflict) {
+            conflictResolver.record(batch.get(0).operation, "retried");
+        }
+        for (Task<?> task : batch) {
+            switch (task.state) {
+                case FAILED -> task.complete();
+                case SUCCEEDED -> runIndividually(task, true);
+                case PENDING -> runIndividually(task, false);
+            }
+        }
+    }
+
+    private <T> void runIndividually(Task<T> task, boolean alreadyExecuted) {
+        Supplier<T> step = alreadyExecuted ? task.onConflict : task.action;
+        try {
+            task.future.complete(conflictResolver.execute(task.operation, task.key,
+                    () -> task.withCallerContext(step), () -> task.withCallerContext(task.onConflict)));
+        } catch (RuntimeException e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    private enum TaskState { PENDING, SUCCEEDED, FAILED }
+
+    private final class Task<T> {
+        final String operation;
+        final Object key;
+        // Set by callGateway for gateway mutations, whose action is known only after the call.
+        Supplier<T> action;
+        Supplier<T> onConflict;
+        final Supplier<Supplier<T>> gatewayStep;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final SecurityContext securityContext = SecurityContextHolder.getContext();
+        final Map<String, String> mdc = MDC.getCopyOfContextMap();
+        final long enqueuedAt = System.nanoTime();
+        // Set by whichever comes first: the lane starting the task or the caller withdrawing it.
+        final AtomicBoolean claimed = new AtomicBoolean();
+        TaskState state = TaskState.PENDING;
+        T result;
+        RuntimeException failure;
+
+        Task(String operation, Object key, Supplier<T> action, Supplier<T> onConflict,
+             Supplier<Supplier<T>> gatewayStep) {
+            this.operation = operation;
+            this.key = key;
+            this.action = action;
+            this.onConflict = onConflict;
+            this.gatewayStep = gatewayStep;
+        }
+
+        /** Checks the row and calls the gateway, outside any transaction; false if either failed. */
+        boolean callGateway() {
+            try {
+                Supplier<T> applyResult = withCallerContext(gatewayStep);
+                action = applyResult;
+                onConflict = applyResult;
+                return true;
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return false;
+            }
+        }
+
+        /** Runs the action inside the current batch transaction; false if it failed. */
+        boolean runAction() {
+            try {
+                result = withCallerContext(action);
+                state = TaskState.SUCCEEDED;
+            } catch (RuntimeException e) {
+                failure = e;
+                state = TaskState.FAILED;
+            }
+            return state == TaskState.SUCCEEDED;
+        }
+
+        void complete() {
+            if (state == TaskState.FAILED) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        <R> R withCallerContext(Supplier<R> step) {
+            SecurityContext previousContext = SecurityContextHolder.getContext();
+            SecurityContextHolder.setContext(securityContext);
+            if (mdc != null) MDC.setContextMap(mdc);
+            try {
+                return step.get();
+            } finally {
+                SecurityContextHolder.setContext(previousContext);
+                MDC.clear();
+            }
+        }
+
+        /**
+         * Waits for the lane. A task still queued at the timeout is withdrawn. One that has started
+         * may already have reached the gateway, so it is waited for up to
+         * {@code payment.lanes.running-timeout-ms} more; after that it keeps running and the caller is
+         * told to check the payment before retrying.
+         */
+        T await() {
+            try {
+                try {
+                    return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (claimed.compareAndSet(false, true)) {
+                        conflictResolver.record(operation, "lane_timeout");
+                        throw new ConcurrentUpdateException(key.toString());
+                    }
+                }
+                try {
+                    return future.get(runningTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    conflictResolver.record(operation, "running_timeout");
+                    throw new PaymentException("OPERATION_PENDING", "The " + operation + " of " + key
+                            + " is still being processed; check the transaction before retrying");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConcurrentUpdateException(key.toString());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private final class Lane extends Thread {
+        final BlockingQueue<Task<?>> queue;
+
+        Lane(int index, int capacity) {
+            super("payment-lane-" + index);
+            setDaemon(true);
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                try {
+                    Task<?> first = queue.take();
+                    List<Task<?>> batch = new ArrayList<>();
+                    collect(first, batch);
+                    while (batch.size() < maxBatch && queue.peek() != null && first.key.equals(queue.peek().key)) {
+                        collect(queue.poll(), batch);
+                    }
+                    if (!batch.isEmpty()) {
+                        runTasks(batch);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Unexpected error in {}", getName(), e);
+                }
+            }
+        }
+
+        private void collect(Task<?> task, List<Task<?>> batch) {
+            queued.decrementAndGet();
+            Timer.builder("payment.lanes.wait").tag("operation", task.operation).register(meterRegistry)
+                    .record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+            // Skipped if a caller timed out and withdrew it while it was queued.
+            if (task.claimed.compareAndSet(false, true)) {
+                batch.add(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.payment.processing.concurrency;
+
+import com.payment.processing.exception.ConcurrentUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Resolves optimistic-lock conflicts on a payment, typically with a writer in another instance.
+ * <p>
+ * The action runs in its own transaction. If the commit fails on a version check, the conflict
+ * handler runs in a fresh transaction: callers pass the same action when it is safe to repeat, or a
+ * reapply step that reloads the row and repeats only the state change (e.g. adding a refund amount)
+ * when the first attempt already reached the gateway. Once {@code payment.conflict.max-attempts}
+ * attempts have conflicted the caller gets {@link ConcurrentUpdateException} (409).
+ */
+@Component
+@Slf4j
+public class TransactionConflictResolver {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.conflict.max-attempts:3}")
+    private int maxAttempts;
+
+    public TransactionConflictResolver(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T execute(String operation, Object key, Supplier<T> action, Supplier<T> onConflict) {
+        Supplier<T> attempt = action;
+        for (int i = 1; ; i++) {
+            Supplier<T> step = attempt;
+            try {
+                return transactionTemplate.execute(status -> step.get());
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (i >= maxAttempts) {
+                    record(operation, "exhausted");
+                    log.warn("Giving up on {} for {} after {} conflicting attempts", operation, key, i);
+                    throw new ConcurrentUpdateException(key.toString());
+                }
+                record(operation, "retried");
+                log.info("Optimistic lock conflict on {} for {}, retrying (attempt {})", operation, key, i + 1);
+                attempt = onConflict;
+            }
+        }
+    }
+
+    void record(String operation, String outcome) {
+        Counter.builder("transaction.conflicts")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
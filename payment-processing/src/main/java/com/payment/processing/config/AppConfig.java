@@ -3,6 +3,7 @@ package com.payment.processing.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -30,5 +31,22 @@ public class AppConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Runs webhook replay jobs. A job holds its worker until it completes, so the pool bounds how many
+     * run at once; jobs beyond the queue are rejected. Running jobs are interrupted on shutdown and
+     * resume from their last checkpoint.
+     */
+    @Bean(name = "webhookReplayExecutor")
+    public Executor webhookReplayExecutor(@Value("${webhook.replay.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                          @Value("${webhook.replay.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("webhook-replay-");
+        executor.initialize();
+        return executor;
+    }
 }
 
@@ -0,0 +1,45 @@
+package com.payment.processing.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "fraud.velocity")
+@Data
+public class FraudProperties {
+    private boolean enabled = false;
+    /** Width of one counter bucket; windows are rounded up to whole buckets. */
+    private Duration bucket = Duration.ofMinutes(1);
+    /** Buckets per counter, i.e. the longest window a rule can use. */
+    private int buckets = 60;
+    /** Approximate heap available for tracked keys across all dimensions. */
+    private long memoryBudgetMb = 64;
+    /** Keys not seen for this long are dropped. */
+    private Duration idleTimeout = Duration.ofHours(1);
+    private List<Rule> rules = new ArrayList<>();
+
+    public enum Dimension {
+        CARD,
+        CUSTOMER,
+        IP,
+        EMAIL,
+        BIN
+    }
+
+    @Data
+    public static class Rule {
+        private String name;
+        private Dimension dimension;
+        private Duration window;
+        /** Maximum attempts in the window, including the one being screened. */
+        private Long maxCount;
+        /** Maximum attempted amount in the window, including the one being screened. */
+        private BigDecimal maxAmount;
+    }
+}
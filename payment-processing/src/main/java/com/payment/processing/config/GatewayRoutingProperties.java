@@ -0,0 +1,60 @@
+package com.payment.processing.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "gateway.routing")
+@Data
+public class GatewayRoutingProperties {
+    /**
+     * Gateway for everything except card payments: payment profiles, subscriptions, webhooks, and
+     * follow-up operations on payments recorded without a gateway.
+     */
+    private String primary = "authorize_net";
+    /** Candidates, in order of preference, for payments no rule matches. Empty means the primary gateway. */
+    private List<String> defaultGateways = new ArrayList<>();
+    /** Added to a candidate's score for each place it is down the preference list. */
+    private Duration preferencePenalty = Duration.ofMillis(500);
+    /** Weight of the newest call in the moving latency and error averages. */
+    private double smoothing = 0.2;
+    /** Score multiplier at a 100% error average; a gateway failing half its calls scores {@code 1 + penalty/2} times its latency. */
+    private double errorPenalty = 4.0;
+    private Circuit circuit = new Circuit();
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Circuit {
+        /** Share of failed calls within the window that opens the circuit. */
+        private double failureRateThreshold = 0.5;
+        /** Calls needed within the window before the failure share is considered. */
+        private int minimumCalls = 20;
+        private Duration window = Duration.ofMinutes(1);
+        /** How long an open circuit turns calls away before a single probe call is let through. */
+        private Duration openDuration = Duration.ofSeconds(30);
+        /** Gateway error codes counted as failures, in addition to exceptions. Declines never count. */
+        private List<String> failureCodes = new ArrayList<>(List.of("NULL_RESPONSE", "E00001"));
+    }
+
+    /**
+     * Gateways for card payments matching every condition given; the first matching rule applies.
+     */
+    @Data
+    public static class Rule {
+        private String name;
+        private List<String> currencies = new ArrayList<>();
+        /** Issuing country of the card, from the BIN table or the vaulted card. */
+        private List<String> cardCountries = new ArrayList<>();
+        private List<String> merchants = new ArrayList<>();
+        private BigDecimal minAmount;
+        private BigDecimal maxAmount;
+        /** Candidates in order of preference. */
+        private List<String> gateways = new ArrayList<>();
+    }
+}
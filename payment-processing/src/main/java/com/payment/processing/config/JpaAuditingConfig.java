@@ -0,0 +1,14 @@
+package com.payment.processing.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * Fills {@code created_at} and {@code updated_at} on {@code BaseEntity} through its
+ * {@code AuditingEntityListener}; without it both columns stay null. Kept off the application class so
+ * test slices without JPA still start; {@code @DataJpaTest} classes import it.
+ */
+@Configuration
+@EnableJpaAuditing
+public class JpaAuditingConfig {
+}
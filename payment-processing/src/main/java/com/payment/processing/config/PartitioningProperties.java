@@ -0,0 +1,22 @@
+package com.payment.processing.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "partitioning")
+@Data
+public class PartitioningProperties {
+    private boolean enabled = false;
+    private int monthsAhead = 3;
+    private boolean dropDetached = false;
+    /** Months of partitions kept attached per table; 0 keeps everything. */
+    private Map<String, Integer> retentionMonths = new LinkedHashMap<>(Map.of(
+            "transactions", 0,
+            "audit_logs", 84,
+            "webhook_events", 12));
+}
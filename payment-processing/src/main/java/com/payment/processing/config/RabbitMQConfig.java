@@ -9,9 +9,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabbitMQConfig {
 
+    public static final String WEBHOOK_ROUTING_KEY = "webhook.event";
+    public static final String WEBHOOK_RETRY_ROUTING_KEY_PREFIX = "webhook.retry.";
+
     @Value("${queue.webhook.name:payment.webhook.events}")
     private String webhookQueueName;
 
@@ -21,6 +27,12 @@ public class RabbitMQConfig {
     @Value("${queue.webhook.exchange:payment.exchange}")
     private String exchangeName;
 
+    @Value("${queue.webhook.retry-exchange:payment.retry.exchange}")
+    private String retryExchangeName;
+
+    @Value("${queue.webhook.retry-delays-ms:5000,30000,300000}")
+    private long[] retryDelaysMs;
+
     @Bean
     public Queue webhookQueue() {
         return QueueBuilder.durable(webhookQueueName)
@@ -41,7 +53,31 @@ public class RabbitMQConfig {
 
     @Bean
     public Binding webhookBinding(Queue webhookQueue, DirectExchange exchange) {
-        return BindingBuilder.bind(webhookQueue).to(exchange).with("webhook.event");
+        return BindingBuilder.bind(webhookQueue).to(exchange).with(WEBHOOK_ROUTING_KEY);
+    }
+
+    @Bean
+    public DirectExchange retryExchange() {
+        return new DirectExchange(retryExchangeName);
+    }
+
+    /**
+     * One delay queue per retry tier. Messages sit out the tier's TTL and are then
+     * dead-lettered back onto the main webhook queue.
+     */
+    @Bean
+    public Declarables webhookRetryQueues(DirectExchange retryExchange) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int tier = 1; tier <= retryDelaysMs.length; tier++) {
+            Queue retryQueue = QueueBuilder.durable(webhookQueueName + ".retry." + tier)
+                    .ttl((int) retryDelaysMs[tier - 1])
+                    .deadLetterExchange(exchangeName)
+                    .deadLetterRoutingKey(WEBHOOK_ROUTING_KEY)
+                    .build();
+            declarables.add(retryQueue);
+            declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).with(WEBHOOK_RETRY_ROUTING_KEY_PREFIX + tier));
+        }
+        return new Declarables(declarables);
     }
 
     @Bean
@@ -0,0 +1,77 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.domain.entity.CardToken;
+import com.payment.processing.dto.request.TokenizeRequest;
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.dto.response.CardTokenResponse;
+import com.payment.processing.vault.CardVaultService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Card vault: the only endpoint besides the legacy payment requests that accepts a raw card number.
+ */
+@RestController
+@RequestMapping("/tokens")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Card Tokens", description = "Card tokenization")
+@SecurityRequirement(name = "bearerAuth")
+public class CardTokenController {
+
+    private final CardVaultService cardVaultService;
+
+    @PostMapping
+    @Operation(summary = "Tokenize a card", description = "Vault a card and return a token usable in place of the card number")
+    public ResponseEntity<ApiResponse<CardTokenResponse>> tokenize(@Valid @RequestBody TokenizeRequest request) {
+        log.info("Tokenizing card for customer: {}", request.getCustomerId());
+        CardToken token = cardVaultService.tokenize(
+                request.getCustomerId(), request.getCardNumber(), request.getExpMonth(), request.getExpYear());
+        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(mapToResponse(token), "Card tokenized successfully"));
+    }
+
+    @GetMapping("/customer/{customerId}")
+    @Operation(summary = "Get tokens by customer", description = "List the cards a customer has vaulted")
+    public ResponseEntity<ApiResponse<List<CardTokenResponse>>> getTokensByCustomer(
+            @Parameter(description = "Customer ID") @PathVariable String customerId) {
+        List<CardTokenResponse> response = cardVaultService.getTokens(customerId).stream()
+                .map(this::mapToResponse)
+                .toList();
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @DeleteMapping("/{token}")
+    @Operation(summary = "Delete a token", description = "Remove a vaulted card")
+    public ResponseEntity<ApiResponse<Void>> deleteToken(
+            @Parameter(description = "Card token") @PathVariable String token,
+            @RequestParam String customerId) {
+        log.info("Deleting card token for customer: {}", customerId);
+        cardVaultService.delete(token, customerId);
+        return ResponseEntity.ok(ApiResponse.success(null, "Card token deleted"));
+    }
+
+    private CardTokenResponse mapToResponse(CardToken token) {
+        return CardTokenResponse.builder()
+                .token(token.getToken())
+                .customerId(token.getCustomerId())
+                .paymentMethodType(token.getPaymentMethodType())
+                .cardLastFour(token.getCardLastFour())
+                .cardBrand(token.getCardBrand())
+                .cardCountry(token.getCardCountry())
+                .cardExpMonth(token.getCardExpMonth())
+                .cardExpYear(token.getCardExpYear())
+                .createdAt(token.getCreatedAt())
+                .lastUsedAt(token.getLastUsedAt())
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.export.AuditLogExportFilter;
+import com.payment.processing.export.ExportFormat;
+import com.payment.processing.export.ExportService;
+import com.payment.processing.export.TransactionExportFilter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/admin/exports")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Exports", description = "Streaming CSV/NDJSON exports for finance")
+@SecurityRequirement(name = "bearerAuth")
+public class ExportAdminController {
+
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+
+    private final ExportService exportService;
+
+    @GetMapping("/transactions")
+    @Operation(summary = "Export transactions", description = "Streams transactions created in [from, to) as CSV or NDJSON, gzip compressed if the client accepts it")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String gateway,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        checkRange(from, to);
+        TransactionExportFilter filter = new TransactionExportFilter(from, to, customerId, status, type, currency, gateway);
+        log.info("Exporting transactions {} as {}", filter, format);
+        return stream("transactions", from, to, format, acceptEncoding,
+                out -> exportService.exportTransactions(filter, format, out));
+    }
+
+    @GetMapping("/audit-logs")
+    @Operation(summary = "Export audit logs", description = "Streams audit entries created in [from, to) as CSV or NDJSON, gzip compressed if the client accepts it")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String entityId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String userId,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        checkRange(from, to);
+        AuditLogExportFilter filter = new AuditLogExportFilter(from, to, entityType, entityId, action, userId);
+        log.info("Exporting audit logs {} as {}", filter, format);
+        return stream("audit-logs", from, to, format, acceptEncoding,
+                out -> exportService.exportAuditLogs(filter, format, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String name, Instant from, Instant to, ExportFormat format,
+                                                         String acceptEncoding, Function<OutputStream, Long> export) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        String filename = (name + "-" + from + "-" + to).replace(":", "") + "." + format.extension();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_BYTES);
+                export.apply(compressed);
+                compressed.finish();
+            } else {
+                export.apply(out);
+            }
+        });
+    }
+
+    private static void checkRange(Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new PaymentException("INVALID_EXPORT_RANGE", "from must be before to");
+        }
+    }
+}
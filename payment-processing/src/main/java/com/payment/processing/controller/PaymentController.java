@@ -2,8 +2,13 @@ package com.payment.processing.controller;
 
 import com.payment.processing.dto.request.*;
 import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.dto.response.TimelineEntryResponse;
 import com.payment.processing.dto.response.TransactionResponse;
+import com.payment.processing.dto.response.TransactionTreeResponse;
+import com.payment.processing.exception.PaymentException;
 import com.payment.processing.service.PaymentService;
+import com.payment.processing.service.TransactionTreeService;
+import com.payment.processing.timeline.CustomerTimelineService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,6 +21,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -27,6 +34,8 @@ import java.util.UUID;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final CustomerTimelineService customerTimelineService;
+    private final TransactionTreeService transactionTreeService;
 
     @PostMapping("/purchase")
     @Operation(summary = "Process a purchase", description = "Single-step authorization and capture")
@@ -100,6 +109,15 @@ public class PaymentController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
 
+    @GetMapping("/customer/{customerId}/timeline")
+    @Operation(summary = "Get a customer's payment timeline", description = "Payments newest first, each with its refunds embedded")
+    public ResponseEntity<ApiResponse<Page<TimelineEntryResponse>>> getCustomerTimeline(
+            @PathVariable String customerId, Pageable pageable) {
+        log.info("Fetching timeline for customer: {}", customerId);
+        Page<TimelineEntryResponse> response = customerTimelineService.getTimeline(customerId, pageable);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
     @GetMapping("/order/{orderId}")
     @Operation(summary = "Get transactions by order")
     public ResponseEntity<ApiResponse<Page<TransactionResponse>>> getTransactionsByOrder(
@@ -108,5 +126,28 @@ public class PaymentController {
         Page<TransactionResponse> response = paymentService.getTransactionsByOrder(orderId, pageable);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
+
+    @GetMapping("/order/{orderId}/tree")
+    @Operation(summary = "Get an order's payments with their refunds", description = "Payments as trees of refunds, with refunded and refundable totals")
+    public ResponseEntity<ApiResponse<List<TransactionTreeResponse>>> getOrderTree(@PathVariable String orderId) {
+        log.info("Fetching transaction tree for order: {}", orderId);
+        List<TransactionTreeResponse> response = transactionTreeService.loadByOrderIds(List.of(orderId))
+                .getOrDefault(orderId, List.of());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    @GetMapping("/trees")
+    @Operation(summary = "Get payment trees for several orders or customers", description = "Pass either orderIds or customerIds (at most 100); one query loads every payment and refund")
+    public ResponseEntity<ApiResponse<Map<String, List<TransactionTreeResponse>>>> getTrees(
+            @RequestParam(required = false) List<String> orderIds,
+            @RequestParam(required = false) List<String> customerIds) {
+        if ((orderIds == null) == (customerIds == null)) {
+            throw new PaymentException("INVALID_TREE_QUERY", "Pass either orderIds or customerIds");
+        }
+        Map<String, List<TransactionTreeResponse>> response = orderIds != null
+                ? transactionTreeService.loadByOrderIds(orderIds)
+                : transactionTreeService.loadByCustomerIds(customerIds);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
 }
 
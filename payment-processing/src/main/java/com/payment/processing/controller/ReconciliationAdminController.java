@@ -0,0 +1,94 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.domain.entity.ReconciliationMismatch;
+import com.payment.processing.domain.entity.ReconciliationRun;
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.dto.response.ReconciliationMismatchResponse;
+import com.payment.processing.dto.response.ReconciliationRunResponse;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.reconciliation.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin/reconciliation")
+@RequiredArgsConstructor
+@Slf4j
+@Validated
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Settlement Reconciliation", description = "Gateway settlement batch reconciliation")
+@SecurityRequirement(name = "bearerAuth")
+public class ReconciliationAdminController {
+
+    private final ReconciliationService reconciliationService;
+
+    @PostMapping("/runs")
+    @Operation(summary = "Reconcile a settlement day", description = "Compares the gateway's settled batches for a UTC day with local transactions")
+    public ResponseEntity<ApiResponse<ReconciliationRunResponse>> startRun(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (!date.isBefore(LocalDate.now(ZoneOffset.UTC))) {
+            throw new PaymentException("INVALID_SETTLEMENT_DATE", "Settlement date must be in the past");
+        }
+        log.info("Starting settlement reconciliation for {}", date);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(mapToResponse(reconciliationService.startReconciliation(date)), "Reconciliation started"));
+    }
+
+    @GetMapping("/runs/{runId}")
+    @Operation(summary = "Get reconciliation run progress")
+    public ResponseEntity<ApiResponse<ReconciliationRunResponse>> getRun(@PathVariable UUID runId) {
+        return ResponseEntity.ok(ApiResponse.success(mapToResponse(reconciliationService.getRun(runId))));
+    }
+
+    @GetMapping("/runs/{runId}/mismatches")
+    @Operation(summary = "List mismatches found by a reconciliation run")
+    public ResponseEntity<ApiResponse<Page<ReconciliationMismatchResponse>>> getMismatches(
+            @PathVariable UUID runId, Pageable pageable) {
+        return ResponseEntity.ok(ApiResponse.success(
+                reconciliationService.getMismatches(runId, pageable).map(this::mapToResponse)));
+    }
+
+    private ReconciliationRunResponse mapToResponse(ReconciliationRun run) {
+        return ReconciliationRunResponse.builder()
+                .id(run.getId())
+                .settlementDate(run.getSettlementDate())
+                .status(run.getStatus())
+                .gatewayCount(run.getGatewayCount())
+                .localCount(run.getLocalCount())
+                .matchedCount(run.getMatchedCount())
+                .mismatchCount(run.getMismatchCount())
+                .lastError(run.getLastError())
+                .createdAt(run.getCreatedAt())
+                .completedAt(run.getCompletedAt())
+                .build();
+    }
+
+    private ReconciliationMismatchResponse mapToResponse(ReconciliationMismatch mismatch) {
+        return ReconciliationMismatchResponse.builder()
+                .id(mismatch.getId())
+                .type(mismatch.getType())
+                .gatewayTransactionId(mismatch.getGatewayTransactionId())
+                .transactionId(mismatch.getTransactionId())
+                .batchId(mismatch.getBatchId())
+                .localStatus(mismatch.getLocalStatus())
+                .gatewayStatus(mismatch.getGatewayStatus())
+                .localAmount(mismatch.getLocalAmount())
+                .gatewayAmount(mismatch.getGatewayAmount())
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.rollup.PaymentRollupRebuilder;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/admin/reports")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Reports", description = "Payment metrics served from pre-aggregated rollups")
+@SecurityRequirement(name = "bearerAuth")
+public class ReportAdminController {
+
+    private final PaymentRollupRebuilder rollupRebuilder;
+
+    @PostMapping("/rollups/rebuild")
+    @Operation(summary = "Rebuild payment rollups", description = "Recomputes the closed hourly and daily rollups in [from, to) from transactions in the background, e.g. to backfill history")
+    public ResponseEntity<ApiResponse<Void>> rebuildRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        if (!from.isBefore(to)) {
+            throw new PaymentException("INVALID_REPORT_RANGE", "from must be before to");
+        }
+        log.info("Starting rollup rebuild for [{}, {})", from, to);
+        rollupRebuilder.startRebuild(from, to);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(null, "Rollup rebuild started"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.dto.response.PaymentSummaryResponse;
+import com.payment.processing.rollup.PaymentReportService;
+import com.payment.processing.rollup.RollupGranularity;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Reports", description = "Payment metrics served from pre-aggregated rollups")
+@SecurityRequirement(name = "bearerAuth")
+public class ReportController {
+
+    private final PaymentReportService reportService;
+
+    @GetMapping("/summary")
+    @Operation(summary = "Payment summary", description = "Volume, approval rate and refund rate per hour or day, currency and card brand for buckets starting in [from, to)")
+    public ResponseEntity<ApiResponse<PaymentSummaryResponse>> getSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "HOUR") RollupGranularity granularity,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) String cardBrand) {
+        return ResponseEntity.ok(ApiResponse.success(reportService.summarize(from, to, granularity, currency, cardBrand)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.timeline.CustomerTimelineProjector;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/admin/timeline")
+@RequiredArgsConstructor
+@Slf4j
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Customer Timeline", description = "Customer timeline read model maintenance")
+@SecurityRequirement(name = "bearerAuth")
+public class TimelineAdminController {
+
+    private final CustomerTimelineProjector timelineProjector;
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Re-project timeline entries", description = "Re-projects payments created in [from, to) from transactions in the background, to backfill or repair the read model")
+    public ResponseEntity<ApiResponse<Void>> rebuild(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        if (!from.isBefore(to)) {
+            throw new PaymentException("INVALID_TIMELINE_RANGE", "from must be before to");
+        }
+        log.info("Starting timeline rebuild for [{}, {})", from, to);
+        timelineProjector.startRebuild(from, to);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(null, "Timeline rebuild started"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.payment.processing.controller;
+
+import com.payment.processing.domain.entity.WebhookReplayJob;
+import com.payment.processing.dto.request.WebhookReplayRequest;
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.dto.response.WebhookReplayJobResponse;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.queue.WebhookRedriveService;
+import com.payment.processing.webhook.WebhookReplayService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/admin/webhooks")
+@RequiredArgsConstructor
+@Slf4j
+@Validated
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Webhook Administration", description = "Quarantined webhook inspection and replay")
+@SecurityRequirement(name = "bearerAuth")
+public class WebhookAdminController {
+
+    private final WebhookRedriveService redriveService;
+    private final WebhookReplayService replayService;
+
+    @GetMapping("/quarantined/count")
+    @Operation(summary = "Count quarantined webhook events")
+    public ResponseEntity<ApiResponse<Long>> countQuarantined() {
+        return ResponseEntity.ok(ApiResponse.success(redriveService.countQuarantined()));
+    }
+
+    @PostMapping("/quarantined/replay")
+    @Operation(summary = "Replay quarantined webhook events", description = "Re-queues quarantined events at a bounded rate")
+    public ResponseEntity<ApiResponse<Long>> replayQuarantined(
+            @RequestParam(defaultValue = "1000") @Min(1) @Max(100000) int limit,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(1000) int ratePerSecond) {
+        long pending = Math.min(limit, redriveService.countQuarantined());
+        log.info("Replaying up to {} quarantined webhook events at {}/s", pending, ratePerSecond);
+        redriveService.replayQuarantined(limit, ratePerSecond);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(pending, "Replay started"));
+    }
+
+    @PostMapping("/replay")
+    @Operation(summary = "Start a webhook replay", description = "Reprocesses stored events in a time range with partitioned, rate-limited workers")
+    public ResponseEntity<ApiResponse<WebhookReplayJobResponse>> startReplay(@Valid @RequestBody WebhookReplayRequest request) {
+        if (!request.getFrom().isBefore(request.getTo())) {
+            throw new PaymentException("INVALID_REPLAY_RANGE", "Replay 'from' must be before 'to'");
+        }
+        log.info("Starting webhook replay {} - {} type: {}", request.getFrom(), request.getTo(), request.getEventType());
+        WebhookReplayJob job = replayService.startReplay(request.getFrom(), request.getTo(), request.getEventType(),
+                request.getPartitions(), request.getRatePerSecond());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(mapToResponse(job), "Replay started"));
+    }
+
+    @PostMapping("/replay/{jobId}/resume")
+    @Operation(summary = "Resume a webhook replay from its last checkpoint", description = "Only failed jobs, or running jobs that stopped checkpointing, can be resumed")
+    public ResponseEntity<ApiResponse<WebhookReplayJobResponse>> resumeReplay(@PathVariable UUID jobId) {
+        log.info("Resuming webhook replay job: {}", jobId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(mapToResponse(replayService.resumeReplay(jobId)), "Replay resumed"));
+    }
+
+    @GetMapping("/replay/{jobId}")
+    @Operation(summary = "Get webhook replay progress")
+    public ResponseEntity<ApiResponse<WebhookReplayJobResponse>> getReplay(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(ApiResponse.success(mapToResponse(replayService.getJob(jobId))));
+    }
+
+    private WebhookReplayJobResponse mapToResponse(WebhookReplayJob job) {
+        return WebhookReplayJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus())
+                .from(job.getFromTime())
+                .to(job.getToTime())
+                .eventType(job.getEventType())
+                .partitions(job.getPartitions())
+                .ratePerSecond(job.getRatePerSecond())
+                .checkpoint(job.getCheckpointCreatedAt())
+                .processedCount(job.getProcessedCount())
+                .failedCount(job.getFailedCount())
+                .lastError(job.getLastError())
+                .createdAt(job.getCreatedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+}
@@ -0,0 +1,6 @@
+package com.payment.processing.datasource;
+
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,60 @@
+package com.payment.processing.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when each client last opened a read-write transaction, so its reads stay on the primary
+ * until the replica has had time to catch up. Clients are identified by the authenticated principal;
+ * unauthenticated work (consumers, schedulers) is not tracked and reads from the replica.
+ */
+public class ReadYourWritesTracker {
+
+    private final Map<String, Long> lastWriteAt = new ConcurrentHashMap<>();
+    private final long windowMillis;
+
+    public ReadYourWritesTracker(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public void recordWrite() {
+        String client = currentClient();
+        if (client != null) {
+            lastWriteAt.put(client, System.currentTimeMillis());
+        }
+    }
+
+    public boolean recentlyWrote() {
+        String client = currentClient();
+        if (client == null) {
+            return false;
+        }
+        Long writtenAt = lastWriteAt.get(client);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt < windowMillis) {
+            return true;
+        }
+        lastWriteAt.remove(client, writtenAt);
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        lastWriteAt.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+
+    private String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
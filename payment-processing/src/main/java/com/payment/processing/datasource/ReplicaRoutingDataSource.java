@@ -0,0 +1,51 @@
+package com.payment.processing.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the target is chosen
+ * once the transaction's read-only flag is known rather than when it begins.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final Counter primaryCounter;
+    private final Counter replicaCounter;
+    private final Counter readYourWritesCounter;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReadYourWritesTracker readYourWritesTracker, MeterRegistry meterRegistry) {
+        this.readYourWritesTracker = readYourWritesTracker;
+        setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+
+        this.primaryCounter = Counter.builder("datasource.routing").tag("target", "primary").register(meterRegistry);
+        this.replicaCounter = Counter.builder("datasource.routing").tag("target", "replica").register(meterRegistry);
+        this.readYourWritesCounter = Counter.builder("datasource.routing").tag("target", "primary-read-your-writes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWritesTracker.recordWrite();
+            }
+            primaryCounter.increment();
+            return DataSourceRole.PRIMARY;
+        }
+        if (readYourWritesTracker.recentlyWrote()) {
+            readYourWritesCounter.increment();
+            return DataSourceRole.PRIMARY;
+        }
+        replicaCounter.increment();
+        return DataSourceRole.REPLICA;
+    }
+}
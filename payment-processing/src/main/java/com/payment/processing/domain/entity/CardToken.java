@@ -0,0 +1,79 @@
+package com.payment.processing.domain.entity;
+
+import com.payment.processing.domain.enums.PaymentMethodType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLock;
+
+import java.time.Instant;
+
+/**
+ * A vaulted card. The PAN is only held encrypted; everything else is what may be shown or
+ * stored alongside a payment (first six, last four, expiry).
+ * <p>
+ * Updates only write changed columns and {@link #lastUsedAt} is not version checked, so concurrent
+ * payments with one token do not conflict with each other or with profile provisioning.
+ */
+@Entity
+@Table(name = "card_tokens", indexes = {
+    @Index(name = "idx_card_token_customer_fingerprint", columnList = "customer_id, fingerprint", unique = true)
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@DynamicUpdate
+public class CardToken extends BaseEntity {
+
+    public static final String PREFIX = "tok_";
+
+    @Column(name = "customer_id", nullable = false, length = 100)
+    private String customerId;
+
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "encrypted_pan", nullable = false)
+    private byte[] encryptedPan;
+
+    @Column(name = "card_bin", nullable = false, length = 6)
+    private String cardBin;
+
+    @Column(name = "card_last_four", nullable = false, length = 4)
+    private String cardLastFour;
+
+    @Column(name = "card_brand", length = 30)
+    private String cardBrand;
+
+    @Column(name = "card_country", length = 3)
+    private String cardCountry;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_method_type", length = 30)
+    private PaymentMethodType paymentMethodType;
+
+    @Column(name = "card_exp_month", nullable = false, length = 2)
+    private String cardExpMonth;
+
+    @Column(name = "card_exp_year", nullable = false, length = 4)
+    private String cardExpYear;
+
+    @Column(name = "gateway_customer_profile_id", length = 100)
+    private String gatewayCustomerProfileId;
+
+    @Column(name = "gateway_payment_profile_id", length = 100)
+    private String gatewayPaymentProfileId;
+
+    @OptimisticLock(excluded = true)
+    @Column(name = "last_used_at")
+    private Instant lastUsedAt;
+
+    /**
+     * The token handed to clients: the row id without dashes, so resolving it is a primary key lookup.
+     */
+    public String getToken() {
+        return PREFIX + getId().toString().replace("-", "");
+    }
+}
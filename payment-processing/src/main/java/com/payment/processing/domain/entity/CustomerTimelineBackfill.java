@@ -0,0 +1,32 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Completed backfill of the customer timeline: every payment created before {@link #backfilledTo}
+ * has been projected. Until one exists, timelines are built from {@code transactions}. Written by
+ * {@code CustomerTimelineProjector} with plain SQL.
+ */
+@Entity
+@Table(name = "customer_timeline_backfills")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerTimelineBackfill {
+
+    @Id
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "backfilled_to", nullable = false)
+    private Instant backfilledTo;
+
+    @Column(name = "completed_at", nullable = false)
+    private Instant completedAt;
+}
@@ -0,0 +1,45 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read model row of the customer timeline: one payment with its refunds, serialized as
+ * {@code TimelineEntryResponse} JSON. Written by {@code CustomerTimelineProjector} with plain SQL.
+ */
+@Entity
+@Table(name = "customer_timeline_entries", indexes = {
+    @Index(name = "idx_customer_timeline_customer", columnList = "customer_id, created_at DESC, transaction_id DESC")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerTimelineEntry {
+
+    @Id
+    @Column(name = "transaction_id", updatable = false, nullable = false)
+    private UUID transactionId;
+
+    @Column(name = "customer_id", nullable = false, length = 100)
+    private String customerId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Latest {@code updated_at} of the payment and its refunds; older projections never overwrite newer ones.
+     */
+    @Column(name = "source_updated_at", nullable = false)
+    private Instant sourceUpdatedAt;
+
+    @Column(name = "projected_at", nullable = false)
+    private Instant projectedAt;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+}
@@ -0,0 +1,39 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Payment measures of one rollup bucket. Rows are written with plain SQL by the rollup jobs
+ * (additive upserts and rebuilds) and only read through JPA.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+@NoArgsConstructor
+public abstract class PaymentRollup {
+
+    @EmbeddedId
+    private PaymentRollupKey id;
+
+    @Column(name = "payment_count", nullable = false)
+    private Long paymentCount;
+
+    @Column(name = "approved_count", nullable = false)
+    private Long approvedCount;
+
+    @Column(name = "approved_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal approvedAmount;
+
+    @Column(name = "refund_count", nullable = false)
+    private Long refundCount;
+
+    @Column(name = "refunded_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal refundedAmount;
+}
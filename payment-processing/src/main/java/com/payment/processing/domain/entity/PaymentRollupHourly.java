@@ -0,0 +1,9 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "payment_rollup_hourly")
+public class PaymentRollupHourly extends PaymentRollup {
+}
@@ -0,0 +1,31 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Bucket of a payment rollup: the UTC hour or day it starts at, currency and card brand
+ * ({@code UNKNOWN} when the brand is not known).
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class PaymentRollupKey implements Serializable {
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "currency", nullable = false, length = 3)
+    private String currency;
+
+    @Column(name = "card_brand", nullable = false, length = 30)
+    private String cardBrand;
+}
@@ -0,0 +1,51 @@
+package com.payment.processing.domain.entity;
+
+import com.payment.processing.domain.enums.MismatchType;
+import com.payment.processing.domain.enums.TransactionStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Entity
+@Table(name = "reconciliation_mismatches", indexes = {
+    @Index(name = "idx_reconciliation_mismatch_run", columnList = "run_id"),
+    @Index(name = "idx_reconciliation_mismatch_gateway_id", columnList = "gateway_transaction_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationMismatch extends BaseEntity {
+
+    @Column(name = "run_id", nullable = false)
+    private UUID runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private MismatchType type;
+
+    @Column(name = "gateway_transaction_id", nullable = false, length = 100)
+    private String gatewayTransactionId;
+
+    @Column(name = "transaction_id")
+    private UUID transactionId;
+
+    @Column(name = "batch_id", length = 50)
+    private String batchId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "local_status", length = 30)
+    private TransactionStatus localStatus;
+
+    @Column(name = "gateway_status", length = 50)
+    private String gatewayStatus;
+
+    @Column(name = "local_amount", precision = 19, scale = 4)
+    private BigDecimal localAmount;
+
+    @Column(name = "gateway_amount", precision = 19, scale = 4)
+    private BigDecimal gatewayAmount;
+}
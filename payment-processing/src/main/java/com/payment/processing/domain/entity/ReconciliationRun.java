@@ -0,0 +1,61 @@
+package com.payment.processing.domain.entity;
+
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "reconciliation_runs", indexes = {
+    @Index(name = "idx_reconciliation_settlement_date", columnList = "settlement_date")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationRun extends BaseEntity {
+
+    @Column(name = "settlement_date", nullable = false)
+    private LocalDate settlementDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private ReconciliationRunStatus status = ReconciliationRunStatus.RUNNING;
+
+    @Column(name = "gateway_count", nullable = false)
+    @Builder.Default
+    private Long gatewayCount = 0L;
+
+    @Column(name = "local_count", nullable = false)
+    @Builder.Default
+    private Long localCount = 0L;
+
+    @Column(name = "matched_count", nullable = false)
+    @Builder.Default
+    private Long matchedCount = 0L;
+
+    @Column(name = "mismatch_count", nullable = false)
+    @Builder.Default
+    private Long mismatchCount = 0L;
+
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public void markCompleted() {
+        this.status = ReconciliationRunStatus.COMPLETED;
+        this.completedAt = Instant.now();
+    }
+
+    public void markFailed(String error) {
+        this.status = ReconciliationRunStatus.FAILED;
+        this.lastError = error;
+        this.completedAt = Instant.now();
+    }
+}
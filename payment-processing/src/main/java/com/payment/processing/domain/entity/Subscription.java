@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
@@ -13,6 +14,7 @@ import java.time.LocalDate;
     @Index(name = "idx_subscription_customer_id", columnList = "customer_id"),
     @Index(name = "idx_subscription_gateway_id", columnList = "gateway_subscription_id"),
     @Index(name = "idx_subscription_status", columnList = "status"),
+    @Index(name = "idx_subscription_billing_due", columnList = "status, next_billing_date"),
     @Index(name = "idx_subscription_idempotency_key", columnList = "idempotency_key", unique = true)
 })
 @Getter
@@ -75,6 +77,10 @@ public class Subscription extends BaseEntity {
     @Column(name = "last_billing_date")
     private LocalDate lastBillingDate;
 
+    /** Set while a billing node holds the subscription, and after a failed charge until the retry. */
+    @Column(name = "next_billing_attempt_at")
+    private Instant nextBillingAttemptAt;
+
     @Column(name = "total_cycles")
     private Integer totalCycles;
 
@@ -95,6 +101,9 @@ public class Subscription extends BaseEntity {
     @Column(name = "gateway_payment_profile_id", length = 100)
     private String gatewayPaymentProfileId;
 
+    @Column(name = "card_token", length = 36)
+    private String cardToken;
+
     @Column(name = "card_last_four", length = 4)
     private String cardLastFour;
 
@@ -0,0 +1,59 @@
+package com.payment.processing.domain.entity;
+
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "subscription_sync_sweeps", indexes = {
+    @Index(name = "idx_subscription_sync_status", columnList = "status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SubscriptionSyncSweep extends BaseEntity {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private ReconciliationRunStatus status = ReconciliationRunStatus.RUNNING;
+
+    @Column(name = "checkpoint_subscription_id")
+    private UUID checkpointSubscriptionId;
+
+    @Column(name = "leased_until")
+    private Instant leasedUntil;
+
+    @Column(name = "scanned_count", nullable = false)
+    @Builder.Default
+    private Long scannedCount = 0L;
+
+    @Column(name = "changed_count", nullable = false)
+    @Builder.Default
+    private Long changedCount = 0L;
+
+    @Column(name = "failed_count", nullable = false)
+    @Builder.Default
+    private Long failedCount = 0L;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public void advanceCheckpoint(UUID lastSubscriptionId, long scanned, long changed, long failed) {
+        this.checkpointSubscriptionId = lastSubscriptionId;
+        this.scannedCount += scanned;
+        this.changedCount += changed;
+        this.failedCount += failed;
+    }
+
+    public void markCompleted() {
+        this.status = ReconciliationRunStatus.COMPLETED;
+        this.leasedUntil = null;
+        this.completedAt = Instant.now();
+    }
+}
@@ -60,6 +60,9 @@ public class Transaction extends BaseEntity {
     @Builder.Default
     private BigDecimal refundedAmount = BigDecimal.ZERO;
 
+    @Column(name = "gateway", length = 30)
+    private String gateway;
+
     @Column(name = "gateway_transaction_id", length = 100)
     private String gatewayTransactionId;
 
@@ -82,12 +85,18 @@ public class Transaction extends BaseEntity {
     @Column(name = "payment_method_type", length = 30)
     private PaymentMethodType paymentMethodType;
 
+    @Column(name = "card_token", length = 36)
+    private String cardToken;
+
     @Column(name = "card_last_four", length = 4)
     private String cardLastFour;
 
     @Column(name = "card_brand", length = 30)
     private String cardBrand;
 
+    @Column(name = "card_country", length = 3)
+    private String cardCountry;
+
     @Column(name = "card_exp_month", length = 2)
     private String cardExpMonth;
 
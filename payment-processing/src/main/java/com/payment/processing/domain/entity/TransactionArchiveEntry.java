@@ -0,0 +1,31 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Locates an archived transaction inside its {@link TransactionArchiveSegment}.
+ */
+@Entity
+@Table(name = "transaction_archive_entries", indexes = {
+    @Index(name = "idx_archive_entry_segment", columnList = "segment_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionArchiveEntry {
+
+    @Id
+    @Column(name = "transaction_id", updatable = false, nullable = false)
+    private UUID transactionId;
+
+    @Column(name = "segment_id", nullable = false)
+    private UUID segmentId;
+
+    @Column(name = "row_index", nullable = false)
+    private Integer rowIndex;
+}
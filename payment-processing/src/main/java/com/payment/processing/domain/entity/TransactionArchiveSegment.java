@@ -0,0 +1,38 @@
+package com.payment.processing.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.Length;
+
+import java.time.Instant;
+
+/**
+ * A block of archived transactions stored column by column and gzip-compressed.
+ * {@code createdAt} is the archival time; the archived rows span {@code fromCreatedAt..toCreatedAt}.
+ */
+@Entity
+@Table(name = "transaction_archive_segments", indexes = {
+    @Index(name = "idx_archive_segment_from", columnList = "from_created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionArchiveSegment extends BaseEntity {
+
+    @Column(name = "from_created_at", nullable = false)
+    private Instant fromCreatedAt;
+
+    @Column(name = "to_created_at", nullable = false)
+    private Instant toCreatedAt;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    @Column(name = "format", nullable = false, length = 30)
+    private String format;
+
+    @Column(name = "data", nullable = false, length = Length.LONG32)
+    private byte[] data;
+}
@@ -10,7 +10,8 @@ import java.time.Instant;
 @Table(name = "webhook_events", indexes = {
     @Index(name = "idx_webhook_event_id", columnList = "event_id", unique = true),
     @Index(name = "idx_webhook_event_type", columnList = "event_type"),
-    @Index(name = "idx_webhook_processed", columnList = "processed")
+    @Index(name = "idx_webhook_processed", columnList = "processed"),
+    @Index(name = "idx_webhook_quarantined", columnList = "quarantined")
 })
 @Getter
 @Setter
@@ -49,6 +50,16 @@ public class WebhookEvent extends BaseEntity {
     @Column(name = "processing_error", length = 2000)
     private String processingError;
 
+    @Column(name = "last_attempt_at")
+    private Instant lastAttemptAt;
+
+    @Column(name = "quarantined", nullable = false)
+    @Builder.Default
+    private Boolean quarantined = false;
+
+    @Column(name = "quarantined_at")
+    private Instant quarantinedAt;
+
     @Column(name = "transaction_id", length = 100)
     private String transactionId;
 
@@ -65,7 +76,19 @@ public class WebhookEvent extends BaseEntity {
 
     public void recordFailure(String error) {
         this.processingAttempts++;
+        this.lastAttemptAt = Instant.now();
         this.processingError = error != null && error.length() > 2000 ? error.substring(0, 2000) : error;
     }
+
+    public void quarantine() {
+        this.quarantined = true;
+        this.quarantinedAt = Instant.now();
+    }
+
+    public void resetForReplay() {
+        this.quarantined = false;
+        this.quarantinedAt = null;
+        this.processingAttempts = 0;
+    }
 }
 
@@ -0,0 +1,79 @@
+package com.payment.processing.domain.entity;
+
+import com.payment.processing.domain.enums.ReplayJobStatus;
+import com.payment.processing.domain.enums.WebhookEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "webhook_replay_jobs", indexes = {
+    @Index(name = "idx_webhook_replay_status", columnList = "status")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookReplayJob extends BaseEntity {
+
+    @Column(name = "from_time", nullable = false)
+    private Instant fromTime;
+
+    @Column(name = "to_time", nullable = false)
+    private Instant toTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 100)
+    private WebhookEventType eventType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private ReplayJobStatus status = ReplayJobStatus.RUNNING;
+
+    @Column(name = "partitions", nullable = false)
+    private Integer partitions;
+
+    @Column(name = "rate_per_second", nullable = false)
+    private Integer ratePerSecond;
+
+    @Column(name = "checkpoint_created_at")
+    private Instant checkpointCreatedAt;
+
+    @Column(name = "checkpoint_event_id")
+    private UUID checkpointEventId;
+
+    @Column(name = "processed_count", nullable = false)
+    @Builder.Default
+    private Long processedCount = 0L;
+
+    @Column(name = "failed_count", nullable = false)
+    @Builder.Default
+    private Long failedCount = 0L;
+
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public void advanceCheckpoint(WebhookEvent lastEvent, long processed, long failed) {
+        this.checkpointCreatedAt = lastEvent.getCreatedAt();
+        this.checkpointEventId = lastEvent.getId();
+        this.processedCount += processed;
+        this.failedCount += failed;
+    }
+
+    public void markCompleted() {
+        this.status = ReplayJobStatus.COMPLETED;
+        this.completedAt = Instant.now();
+    }
+
+    public void markFailed(String error) {
+        this.status = ReplayJobStatus.FAILED;
+        this.lastError = error != null && error.length() > 2000 ? error.substring(0, 2000) : error;
+    }
+}
@@ -0,0 +1,8 @@
+package com.payment.processing.domain.enums;
+
+public enum CardFundingType {
+    CREDIT,
+    DEBIT,
+    PREPAID,
+    UNKNOWN
+}
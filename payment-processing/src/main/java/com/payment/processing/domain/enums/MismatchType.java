@@ -0,0 +1,10 @@
+package com.payment.processing.domain.enums;
+
+public enum MismatchType {
+    /** Settled at the gateway, no local transaction with that gateway id. */
+    MISSING_LOCALLY,
+    /** Local transaction expected to settle in the window but absent from the settlement report. */
+    MISSING_AT_GATEWAY,
+    AMOUNT_MISMATCH,
+    STATUS_DRIFT
+}
@@ -0,0 +1,7 @@
+package com.payment.processing.domain.enums;
+
+public enum ReplayJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
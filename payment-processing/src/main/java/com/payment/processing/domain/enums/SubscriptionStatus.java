@@ -8,6 +8,21 @@ public enum SubscriptionStatus {
     CANCELED,
     EXPIRED,
     TERMINATED,
-    FAILED
+    FAILED;
+
+    /**
+     * Maps an Authorize.Net ARB status ({@code active}, {@code suspended}, ...); null if unknown.
+     */
+    public static SubscriptionStatus fromArbStatus(String arbStatus) {
+        if (arbStatus == null) return null;
+        return switch (arbStatus.toLowerCase()) {
+            case "active" -> ACTIVE;
+            case "suspended" -> SUSPENDED;
+            case "canceled", "cancelled" -> CANCELED;
+            case "expired" -> EXPIRED;
+            case "terminated" -> TERMINATED;
+            default -> null;
+        };
+    }
 }
 
@@ -0,0 +1,42 @@
+package com.payment.processing.domain.id;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * RFC 9562 version 7 UUIDs: a 48-bit Unix millisecond timestamp followed by a 12-bit sequence
+ * and 62 random bits. Ids generated by one JVM are strictly increasing, so new rows append to
+ * the right edge of the primary key index instead of splitting random pages.
+ */
+public final class UuidV7 {
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    private static final UuidV7 SYSTEM = new UuidV7(System::currentTimeMillis);
+
+    private final LongSupplier clock;
+    // Last issued (timestamp << 12 | sequence); a full sequence rolls into the next millisecond.
+    private final AtomicLong last = new AtomicLong();
+
+    UuidV7(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static UUID next() {
+        return SYSTEM.generate();
+    }
+
+    UUID generate() {
+        long now = clock.getAsLong() << SEQUENCE_BITS;
+        long state = last.updateAndGet(previous -> Math.max(now, previous + 1));
+        long msb = ((state >>> SEQUENCE_BITS) << 16) | VERSION | (state & SEQUENCE_MASK);
+        long lsb = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+        return new UUID(msb, lsb);
+    }
+}
@@ -1,5 +1,6 @@
 package com.payment.processing.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -30,16 +31,14 @@ public class PaymentRequest {
     @NotBlank(message = "Currency is required")
     private String currency;
 
-    @NotBlank(message = "Card number is required")
-    private String cardNumber;
+    /**
+     * Vaulted card from {@code POST /tokens}; replaces the card number, expiry and CVV.
+     */
+    private String cardToken;
 
-    @NotBlank(message = "Expiration month is required")
+    private String cardNumber;
     private String expMonth;
-
-    @NotBlank(message = "Expiration year is required")
     private String expYear;
-
-    @NotBlank(message = "CVV is required")
     private String cvv;
 
     private String billingFirstName;
@@ -51,5 +50,29 @@ public class PaymentRequest {
     private String billingCountry;
     private String description;
     private String metadata;
+
+    /**
+     * Sub-merchant or storefront the payment is taken for; only used to pick a gateway.
+     */
+    private String merchantId;
+
+    /**
+     * Issuing country of the card, filled in from the BIN table or the vaulted card before routing.
+     */
+    @JsonIgnore
+    private String cardCountry;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either a card token or card number, expiration month, expiration year and CVV are required")
+    public boolean isCardSourceValid() {
+        if (cardToken != null) {
+            return cardNumber == null;
+        }
+        return isPresent(cardNumber) && isPresent(expMonth) && isPresent(expYear) && isPresent(cvv);
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.isBlank();
+    }
 }
 
@@ -1,6 +1,7 @@
 package com.payment.processing.dto.request;
 
 import com.payment.processing.domain.enums.BillingInterval;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -44,16 +45,14 @@ public class SubscriptionRequest {
     private LocalDate endDate;
     private Integer totalCycles;
 
-    @NotBlank(message = "Card number is required")
-    private String cardNumber;
+    /**
+     * Vaulted card from {@code POST /tokens}; replaces the card number, expiry and CVV.
+     */
+    private String cardToken;
 
-    @NotBlank(message = "Expiration month is required")
+    private String cardNumber;
     private String expMonth;
-
-    @NotBlank(message = "Expiration year is required")
     private String expYear;
-
-    @NotBlank(message = "CVV is required")
     private String cvv;
 
     private String billingFirstName;
@@ -63,4 +62,30 @@ public class SubscriptionRequest {
     private String billingState;
     private String billingZip;
     private String billingCountry;
+
+    /**
+     * Charge each cycle from this service with the card token's payment profile instead of creating an
+     * Authorize.Net ARB schedule. Requires {@code cardToken}.
+     */
+    @Builder.Default
+    private Boolean localBilling = false;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either a card token or card number, expiration month, expiration year and CVV are required")
+    public boolean isCardSourceValid() {
+        if (cardToken != null) {
+            return cardNumber == null;
+        }
+        return isPresent(cardNumber) && isPresent(expMonth) && isPresent(expYear) && isPresent(cvv);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Locally billed subscriptions require a card token")
+    public boolean isLocalBillingValid() {
+        return !Boolean.TRUE.equals(localBilling) || cardToken != null;
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.isBlank();
+    }
 }
@@ -21,6 +21,7 @@ public class SubscriptionUpdateRequest {
     private Integer intervalCount;
     private LocalDate endDate;
     private Integer totalCycles;
+    private String cardToken;
     private String cardNumber;
     private String expMonth;
     private String expYear;
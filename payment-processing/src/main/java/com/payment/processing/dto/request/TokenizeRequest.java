@@ -0,0 +1,26 @@
+package com.payment.processing.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TokenizeRequest {
+
+    @NotBlank(message = "Customer ID is required")
+    private String customerId;
+
+    @NotBlank(message = "Card number is required")
+    private String cardNumber;
+
+    @NotBlank(message = "Expiration month is required")
+    private String expMonth;
+
+    @NotBlank(message = "Expiration year is required")
+    private String expYear;
+}
@@ -0,0 +1,34 @@
+package com.payment.processing.dto.request;
+
+import com.payment.processing.domain.enums.WebhookEventType;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookReplayRequest {
+
+    @NotNull(message = "From time is required")
+    private Instant from;
+
+    @NotNull(message = "To time is required")
+    private Instant to;
+
+    private WebhookEventType eventType;
+
+    @Min(value = 1, message = "At least one partition is required")
+    @Max(value = 64, message = "At most 64 partitions are allowed")
+    @Builder.Default
+    private int partitions = 4;
+
+    @Min(value = 1, message = "Rate must be at least 1 event per second")
+    @Builder.Default
+    private int ratePerSecond = 200;
+}
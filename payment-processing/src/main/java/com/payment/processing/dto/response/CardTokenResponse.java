@@ -0,0 +1,26 @@
+package com.payment.processing.dto.response;
+
+import com.payment.processing.domain.enums.PaymentMethodType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardTokenResponse {
+    private String token;
+    private String customerId;
+    private PaymentMethodType paymentMethodType;
+    private String cardLastFour;
+    private String cardBrand;
+    private String cardCountry;
+    private String cardExpMonth;
+    private String cardExpYear;
+    private Instant createdAt;
+    private Instant lastUsedAt;
+}
@@ -0,0 +1,22 @@
+package com.payment.processing.dto.response;
+
+import com.payment.processing.rollup.RollupGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentSummaryResponse {
+    private Instant from;
+    private Instant to;
+    private RollupGranularity granularity;
+    private List<PaymentSummaryRow> totals;
+    private List<PaymentSummaryRow> buckets;
+}
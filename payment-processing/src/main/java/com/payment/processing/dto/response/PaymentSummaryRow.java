@@ -0,0 +1,26 @@
+package com.payment.processing.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentSummaryRow {
+    private Instant bucketStart;
+    private String currency;
+    private String cardBrand;
+    private Long paymentCount;
+    private Long approvedCount;
+    private BigDecimal approvedAmount;
+    private BigDecimal approvalRate;
+    private Long refundCount;
+    private BigDecimal refundedAmount;
+    private BigDecimal refundRate;
+}
@@ -0,0 +1,27 @@
+package com.payment.processing.dto.response;
+
+import com.payment.processing.domain.enums.MismatchType;
+import com.payment.processing.domain.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationMismatchResponse {
+    private UUID id;
+    private MismatchType type;
+    private String gatewayTransactionId;
+    private UUID transactionId;
+    private String batchId;
+    private TransactionStatus localStatus;
+    private String gatewayStatus;
+    private BigDecimal localAmount;
+    private BigDecimal gatewayAmount;
+}
@@ -0,0 +1,28 @@
+package com.payment.processing.dto.response;
+
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationRunResponse {
+    private UUID id;
+    private LocalDate settlementDate;
+    private ReconciliationRunStatus status;
+    private Long gatewayCount;
+    private Long localCount;
+    private Long matchedCount;
+    private Long mismatchCount;
+    private String lastError;
+    private Instant createdAt;
+    private Instant completedAt;
+}
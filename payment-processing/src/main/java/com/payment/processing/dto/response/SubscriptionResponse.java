@@ -39,6 +39,7 @@ public class SubscriptionResponse {
     private Integer failedCycles;
     private Integer remainingCycles;
     private String gatewaySubscriptionId;
+    private String cardToken;
     private String cardLastFour;
     private String cardBrand;
     private String cardExpMonth;
@@ -0,0 +1,17 @@
+package com.payment.processing.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimelineEntryResponse {
+    private TransactionResponse payment;
+    private List<TransactionResponse> refunds;
+}
@@ -29,6 +29,7 @@ public class TransactionResponse {
     private BigDecimal capturedAmount;
     private BigDecimal refundedAmount;
     private BigDecimal refundableAmount;
+    private String gateway;
     private String gatewayTransactionId;
     private String gatewayAuthCode;
     private String gatewayAvsResult;
@@ -36,8 +37,10 @@ public class TransactionResponse {
     private String gatewayResponseCode;
     private String gatewayResponseMessage;
     private PaymentMethodType paymentMethodType;
+    private String cardToken;
     private String cardLastFour;
     private String cardBrand;
+    private String cardCountry;
     private String cardExpMonth;
     private String cardExpYear;
     private String billingFirstName;
@@ -0,0 +1,20 @@
+package com.payment.processing.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionTreeResponse {
+    private TransactionResponse transaction;
+    private BigDecimal refundedTotal;
+    private BigDecimal refundableAmount;
+    private List<TransactionTreeResponse> children;
+}
@@ -0,0 +1,31 @@
+package com.payment.processing.dto.response;
+
+import com.payment.processing.domain.enums.ReplayJobStatus;
+import com.payment.processing.domain.enums.WebhookEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookReplayJobResponse {
+    private UUID id;
+    private ReplayJobStatus status;
+    private Instant from;
+    private Instant to;
+    private WebhookEventType eventType;
+    private Integer partitions;
+    private Integer ratePerSecond;
+    private Instant checkpoint;
+    private Long processedCount;
+    private Long failedCount;
+    private String lastError;
+    private Instant createdAt;
+    private Instant completedAt;
+}
@@ -0,0 +1,12 @@
+package com.payment.processing.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ConcurrentUpdateException extends RuntimeException {
+    private final String errorCode = "CONCURRENT_UPDATE";
+
+    public ConcurrentUpdateException(String transactionId) {
+        super("Transaction is being modified concurrently, please retry: " + transactionId);
+    }
+}
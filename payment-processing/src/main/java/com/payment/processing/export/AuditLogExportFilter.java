@@ -0,0 +1,10 @@
+package com.payment.processing.export;
+
+import java.time.Instant;
+
+/**
+ * Audit entries created in {@code [from, to)}; null criteria match everything.
+ */
+public record AuditLogExportFilter(Instant from, Instant to, String entityType, String entityId, String action,
+                                   String userId) {
+}
@@ -0,0 +1,70 @@
+package com.payment.processing.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * RFC 4180 CSV with a header row. Text that a spreadsheet would evaluate as a formula
+ * ({@code = + - @}) is prefixed with a quote; numbers are written as they are.
+ */
+final class CsvRowWriter implements RowWriter {
+
+    private final Writer out;
+    private final int columns;
+
+    CsvRowWriter(Writer out, String[] header) throws IOException {
+        this.out = out;
+        this.columns = header.length;
+        for (int i = 0; i < header.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(header[i]);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        for (int i = 1; i <= columns; i++) {
+            if (i > 1) out.write(',');
+            Object value = rs.getObject(i);
+            if (value == null) {
+                continue;
+            }
+            String text = ExportValues.text(value);
+            if (value instanceof String) {
+                writeText(text);
+            } else {
+                out.write(text);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void writeText(String text) throws IOException {
+        boolean formula = !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0;
+        boolean quote = formula;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        if (formula) out.write('\'');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,27 @@
+package com.payment.processing.export;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+
+final class ExportValues {
+
+    private ExportValues() {
+    }
+
+    /**
+     * Text form of a JDBC value: timestamps as ISO-8601 UTC instants, decimals without exponent.
+     */
+    static String text(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant().toString();
+        }
+        if (value instanceof OffsetDateTime dateTime) {
+            return dateTime.toInstant().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+}
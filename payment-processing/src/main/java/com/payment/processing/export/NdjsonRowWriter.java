@@ -0,0 +1,52 @@
+package com.payment.processing.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * One JSON object per line, keyed by column name. Amounts are JSON numbers with the stored scale.
+ */
+final class NdjsonRowWriter implements RowWriter {
+
+    private final JsonGenerator generator;
+    private final String[] names;
+
+    NdjsonRowWriter(JsonFactory factory, Writer out, String[] names) throws IOException {
+        this.generator = factory.createGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(null);
+        this.names = names;
+    }
+
+    @Override
+    public void writeRow(ResultSet rs) throws SQLException, IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < names.length; i++) {
+            Object value = rs.getObject(i + 1);
+            if (value == null) {
+                generator.writeNullField(names[i]);
+            } else if (value instanceof BigDecimal decimal) {
+                generator.writeNumberField(names[i], decimal);
+            } else if (value instanceof Boolean bool) {
+                generator.writeBooleanField(names[i], bool);
+            } else if (value instanceof Long || value instanceof Integer) {
+                generator.writeNumberField(names[i], ((Number) value).longValue());
+            } else {
+                generator.writeStringField(names[i], ExportValues.text(value));
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.flush();
+    }
+}
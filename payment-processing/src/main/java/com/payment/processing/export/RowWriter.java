@@ -0,0 +1,18 @@
+package com.payment.processing.export;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes the current row of a result set; one instance per export.
+ */
+interface RowWriter {
+
+    void writeRow(ResultSet rs) throws SQLException, IOException;
+
+    /**
+     * Writes anything still buffered. The underlying stream is left open.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.payment.processing.export;
+
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+
+import java.time.Instant;
+
+/**
+ * Transactions created in {@code [from, to)}; null criteria match everything.
+ */
+public record TransactionExportFilter(Instant from, Instant to, String customerId, TransactionStatus status,
+                                      TransactionType type, String currency, String gateway) {
+}
@@ -0,0 +1,57 @@
+package com.payment.processing.fraud;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding-window sum over a ring of fixed-width time buckets.
+ * <p>
+ * Each slot packs the bucket's epoch tag (high {@value #TAG_BITS} bits) with its running total, so a
+ * single CAS both claims a recycled slot for the current bucket and adds to it; no increment is lost
+ * when a slot rolls over. The window is {@code buckets * bucketMillis} wide at most.
+ */
+final class SlidingWindowCounter {
+
+    private static final int TAG_BITS = 20;
+    private static final int VALUE_BITS = Long.SIZE - TAG_BITS;
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final long bucketMillis;
+
+    SlidingWindowCounter(int buckets, long bucketMillis) {
+        this.slots = new AtomicLongArray(buckets);
+        this.bucketMillis = bucketMillis;
+    }
+
+    void add(long nowMillis, long delta) {
+        long epoch = nowMillis / bucketMillis;
+        int index = (int) (epoch % slots.length());
+        long tag = epoch & TAG_MASK;
+        while (true) {
+            long current = slots.get(index);
+            long next = (current >>> VALUE_BITS) == tag
+                    ? (tag << VALUE_BITS) | Math.min(VALUE_MASK, (current & VALUE_MASK) + delta)
+                    : (tag << VALUE_BITS) | Math.min(VALUE_MASK, delta);
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Total over the buckets overlapping the last {@code windowMillis}, including the current one.
+     */
+    long sum(long nowMillis, long windowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        long buckets = Math.min(slots.length(), (windowMillis + bucketMillis - 1) / bucketMillis);
+        long total = 0;
+        for (long e = epoch; e > epoch - buckets; e--) {
+            long slot = slots.get((int) (e % slots.length()));
+            if ((slot >>> VALUE_BITS) == (e & TAG_MASK)) {
+                total += slot & VALUE_MASK;
+            }
+        }
+        return total;
+    }
+}
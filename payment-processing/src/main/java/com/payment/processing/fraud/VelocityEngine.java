@@ -0,0 +1,215 @@
+package com.payment.processing.fraud;
+
+import com.payment.processing.config.FraudProperties;
+import com.payment.processing.config.FraudProperties.Dimension;
+import com.payment.processing.config.FraudProperties.Rule;
+import com.payment.processing.dto.request.PaymentRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-memory velocity screening run before a card is sent to the gateway.
+ * <p>
+ * Attempts are counted per card fingerprint, customer, client IP, email and BIN in
+ * {@link SlidingWindowCounter}s and checked against the configured {@link Rule}s. Counters are per
+ * instance, so limits apply per node; with N nodes behind a round-robin balancer the effective limit
+ * is up to N times the configured one. Cards are keyed by the vault fingerprint, so a card counts the
+ * same whether it arrives as a number or as a token.
+ */
+@Component
+@Slf4j
+public class VelocityEngine {
+
+    // Rough per-key footprint: map node, key string, counters and their slot arrays.
+    private static final int ESTIMATED_KEY_OVERHEAD_BYTES = 200;
+
+    private final FraudProperties properties;
+    private final Map<Dimension, Map<String, Tracked>> tracked = new EnumMap<>(Dimension.class);
+    private final Queue<TrackedKey> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final Set<Dimension> amountDimensions = EnumSet.noneOf(Dimension.class);
+    private final long bucketMillis;
+    private final int maxKeys;
+    private final Counter passedCounter;
+    private final MeterRegistry meterRegistry;
+
+    public VelocityEngine(FraudProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.bucketMillis = properties.getBucket().toMillis();
+        long windowLimit = bucketMillis * properties.getBuckets();
+        for (Rule rule : properties.getRules()) {
+            if (rule.getWindow().toMillis() > windowLimit) {
+                throw new IllegalStateException("Fraud rule " + rule.getName() + " window exceeds "
+                        + properties.getBuckets() + " buckets of " + properties.getBucket());
+            }
+            if (rule.getMaxAmount() != null) {
+                amountDimensions.add(rule.getDimension());
+            }
+        }
+        for (Dimension dimension : Dimension.values()) {
+            Map<String, Tracked> keys = new ConcurrentHashMap<>();
+            tracked.put(dimension, keys);
+            Gauge.builder("fraud.velocity.keys", keys, Map::size).tag("dimension", dimension.name()).register(meterRegistry);
+        }
+        long bytesPerKey = ESTIMATED_KEY_OVERHEAD_BYTES + 8L * properties.getBuckets() * 2;
+        this.maxKeys = (int) Math.min(Integer.MAX_VALUE, properties.getMemoryBudgetMb() * 1024 * 1024 / bytesPerKey);
+        this.passedCounter = Counter.builder("fraud.screening").tag("outcome", "passed").register(meterRegistry);
+    }
+
+    /**
+     * Records the attempt and checks it against the rules.
+     *
+     * @param cardFingerprint keyed fingerprint of the card, see {@code CardVaultService#fingerprint}
+     * @param bin             first six digits of the card
+     * @return the first rule the attempt violates, or empty if it may proceed
+     */
+    public Optional<Rule> screen(PaymentRequest request, String cardFingerprint, String bin) {
+        if (!properties.isEnabled() || properties.getRules().isEmpty()) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        long amountCents = request.getAmount() != null ? request.getAmount().movePointRight(2).longValue() : 0;
+
+        EnumMap<Dimension, Tracked> counters = new EnumMap<>(Dimension.class);
+        for (Dimension dimension : Dimension.values()) {
+            String key = key(dimension, request, cardFingerprint, bin);
+            if (key != null) {
+                Tracked counter = counter(dimension, key, now);
+                counter.record(now, amountCents);
+                counters.put(dimension, counter);
+            }
+        }
+
+        for (Rule rule : properties.getRules()) {
+            Tracked counter = counters.get(rule.getDimension());
+            if (counter == null) continue;
+            long window = rule.getWindow().toMillis();
+            boolean countExceeded = rule.getMaxCount() != null && counter.count.sum(now, window) > rule.getMaxCount();
+            boolean amountExceeded = rule.getMaxAmount() != null && counter.amount != null
+                    && BigDecimal.valueOf(counter.amount.sum(now, window), 2).compareTo(rule.getMaxAmount()) > 0;
+            if (countExceeded || amountExceeded) {
+                Counter.builder("fraud.screening").tag("outcome", "blocked").tag("rule", rule.getName())
+                        .register(meterRegistry).increment();
+                log.warn("Payment for order {} blocked by velocity rule {}", request.getOrderId(), rule.getName());
+                return Optional.of(rule);
+            }
+        }
+        passedCounter.increment();
+        return Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${fraud.velocity.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        long cutoff = System.currentTimeMillis() - properties.getIdleTimeout().toMillis();
+        int purged = 0;
+        for (Map<String, Tracked> keys : tracked.values()) {
+            Iterator<Tracked> it = keys.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().lastSeen < cutoff) {
+                    it.remove();
+                    purged++;
+                }
+            }
+        }
+        if (purged > 0) {
+            insertionOrder.removeIf(TrackedKey::isStale);
+            log.debug("Purged {} idle velocity keys", purged);
+        }
+    }
+
+    private Tracked counter(Dimension dimension, String key, long now) {
+        Map<String, Tracked> keys = tracked.get(dimension);
+        Tracked counter = keys.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        Tracked created = new Tracked(properties.getBuckets(), bucketMillis, amountDimensions.contains(dimension), now);
+        counter = keys.putIfAbsent(key, created);
+        if (counter != null) {
+            return counter;
+        }
+        insertionOrder.add(new TrackedKey(keys, key, created));
+        evictOverflow();
+        return created;
+    }
+
+    private void evictOverflow() {
+        int total = 0;
+        for (Map<String, Tracked> keys : tracked.values()) {
+            total += keys.size();
+        }
+        while (total > maxKeys) {
+            TrackedKey eldest = insertionOrder.poll();
+            if (eldest == null) break;
+            // A purged key may have been created again; only the counter this entry was queued for goes.
+            if (eldest.keys().remove(eldest.key(), eldest.counter())) {
+                total--;
+            }
+        }
+    }
+
+    private static String key(Dimension dimension, PaymentRequest request, String cardFingerprint, String bin) {
+        return switch (dimension) {
+            case CARD -> cardFingerprint;
+            case CUSTOMER -> request.getCustomerId();
+            case IP -> clientIp();
+            case EMAIL -> request.getCustomerEmail() != null ? request.getCustomerEmail().trim().toLowerCase() : null;
+            case BIN -> bin;
+        };
+    }
+
+    /**
+     * The client address as resolved by the server: {@code X-Forwarded-For} is applied only for
+     * trusted proxies ({@code server.forward-headers-strategy}), so clients cannot pick their own key.
+     */
+    private static String clientIp() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        return servletAttributes.getRequest().getRemoteAddr();
+    }
+
+    /**
+     * A queued key and the counter it was queued with. Tracked compares by identity, so a counter
+     * created again under the same key does not match an older entry.
+     */
+    private record TrackedKey(Map<String, Tracked> keys, String key, Tracked counter) {
+
+        boolean isStale() {
+            return keys.get(key) != counter;
+        }
+    }
+
+    private static final class Tracked {
+        final SlidingWindowCounter count;
+        final SlidingWindowCounter amount;
+        volatile long lastSeen;
+
+        Tracked(int buckets, long bucketMillis, boolean trackAmount, long now) {
+            this.count = new SlidingWindowCounter(buckets, bucketMillis);
+            this.amount = trackAmount ? new SlidingWindowCounter(buckets, bucketMillis) : null;
+            this.lastSeen = now;
+        }
+
+        void record(long now, long amountCents) {
+            count.add(now, 1);
+            if (amount != null) {
+                amount.add(now, amountCents);
+            }
+            lastSeen = now;
+        }
+    }
+}
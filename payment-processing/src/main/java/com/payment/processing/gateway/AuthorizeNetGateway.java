@@ -5,6 +5,7 @@ import com.payment.processing.dto.request.PaymentRequest;
 import com.payment.processing.dto.request.SubscriptionRequest;
 import com.payment.processing.dto.request.SubscriptionUpdateRequest;
 import com.payment.processing.exception.GatewayException;
+import com.payment.processing.vault.CardVaultService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -17,34 +18,48 @@ import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Component
 @Slf4j
 public class AuthorizeNetGateway implements PaymentGateway {
 
+    public static final String NAME = "authorize_net";
+
+    private static final int MERCHANT_CUSTOMER_ID_LENGTH = 20;
+    private static final String DUPLICATE_RECORD = "E00039";
+    private static final Pattern DUPLICATE_ID = Pattern.compile("ID (\\d+)");
+
     private final AuthorizeNetProperties properties;
+    private final WebhookSignatureVerifier signatureVerifier;
+    private final CardVaultService cardVault;
     private final Counter transactionCounter;
     private final Timer gatewayTimer;
 
-    public AuthorizeNetGateway(AuthorizeNetProperties properties, MeterRegistry meterRegistry) {
+    public AuthorizeNetGateway(AuthorizeNetProperties properties, WebhookSignatureVerifier signatureVerifier,
+                               CardVaultService cardVault, MeterRegistry meterRegistry) {
         this.properties = properties;
+        this.signatureVerifier = signatureVerifier;
+        this.cardVault = cardVault;
         this.transactionCounter = Counter.builder("gateway.transactions")
-                .tag("gateway", "authorize_net")
+                .tag("gateway", NAME)
                 .register(meterRegistry);
         this.gatewayTimer = Timer.builder("gateway.response_time")
-                .tag("gateway", "authorize_net")
+                .tag("gateway", NAME)
                 .register(meterRegistry);
 
         Environment env = properties.isSandbox() ? Environment.SANDBOX : Environment.PRODUCTION;
         ApiOperationBase.setEnvironment(env);
     }
 
+    @Override
+    public String name() {
+        return NAME;
+    }
+
     private MerchantAuthenticationType getMerchantAuth() {
         MerchantAuthenticationType merchantAuth = new MerchantAuthenticationType();
         merchantAuth.setName(properties.getApiLoginId());
@@ -52,13 +67,25 @@ public class AuthorizeNetGateway implements PaymentGateway {
         return merchantAuth;
     }
 
+    /**
+     * Card data for a request. A vaulted card is decrypted here, so the number only exists for the
+     * duration of the gateway call.
+     */
+    private CreditCardType creditCard(String cardToken, String cardNumber, String expMonth, String expYear, String cvv) {
+        CreditCardType creditCard = new CreditCardType();
+        creditCard.setCardNumber(cardToken != null ? cardVault.detokenize(cardToken) : cardNumber);
+        creditCard.setExpirationDate(expYear + "-" + expMonth);
+        if (cvv != null) creditCard.setCardCode(cvv);
+        return creditCard;
+    }
+
     @Retryable(value = GatewayException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
     @Override
     public GatewayResponse purchase(PaymentRequest request) {
         log.info("Processing purchase for order: {}", request.getOrderId());
         return gatewayTimer.record(() -> {
             transactionCounter.increment();
-            return executeTransaction(request, TransactionTypeEnum.AUTH_CAPTURE_TRANSACTION);
+            return executeTransaction(request, TransactionTypeEnum.AUTH_CAPTURE_TRANSACTION, null);
         });
     }
 
@@ -68,43 +95,67 @@ public class AuthorizeNetGateway implements PaymentGateway {
         log.info("Processing authorization for order: {}", request.getOrderId());
         return gatewayTimer.record(() -> {
             transactionCounter.increment();
-            return executeTransaction(request, TransactionTypeEnum.AUTH_ONLY_TRANSACTION);
+            return executeTransaction(request, TransactionTypeEnum.AUTH_ONLY_TRANSACTION, null);
         });
     }
 
-    private GatewayResponse executeTransaction(PaymentRequest request, TransactionTypeEnum transactionType) {
-        CreditCardType creditCard = new CreditCardType();
-        creditCard.setCardNumber(request.getCardNumber());
-        creditCard.setExpirationDate(request.getExpYear() + "-" + request.getExpMonth());
-        creditCard.setCardCode(request.getCvv());
+    @Retryable(value = GatewayException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
+    @Override
+    public GatewayResponse purchaseWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+        log.info("Processing profile purchase for order: {}", request.getOrderId());
+        return gatewayTimer.record(() -> {
+            transactionCounter.increment();
+            return executeTransaction(request, TransactionTypeEnum.AUTH_CAPTURE_TRANSACTION, profile);
+        });
+    }
 
-        PaymentType payment = new PaymentType();
-        payment.setCreditCard(creditCard);
+    @Retryable(value = GatewayException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
+    @Override
+    public GatewayResponse authorizeWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+        log.info("Processing profile authorization for order: {}", request.getOrderId());
+        return gatewayTimer.record(() -> {
+            transactionCounter.increment();
+            return executeTransaction(request, TransactionTypeEnum.AUTH_ONLY_TRANSACTION, profile);
+        });
+    }
 
+    /**
+     * With a stored profile the request carries only the profile ids (and the CVV, if given);
+     * card data, billing address and customer details are already on file at Authorize.Net.
+     */
+    private GatewayResponse executeTransaction(PaymentRequest request, TransactionTypeEnum transactionType,
+                                               CustomerProfileRef storedProfile) {
         OrderType order = new OrderType();
         order.setInvoiceNumber(request.getOrderId());
         order.setDescription(request.getDescription());
 
-        CustomerAddressType billingAddress = new CustomerAddressType();
-        billingAddress.setFirstName(request.getBillingFirstName());
-        billingAddress.setLastName(request.getBillingLastName());
-        billingAddress.setAddress(request.getBillingAddress());
-        billingAddress.setCity(request.getBillingCity());
-        billingAddress.setState(request.getBillingState());
-        billingAddress.setZip(request.getBillingZip());
-        billingAddress.setCountry(request.getBillingCountry());
-
-        CustomerDataType customerData = new CustomerDataType();
-        customerData.setId(request.getCustomerId());
-        customerData.setEmail(request.getCustomerEmail());
-
         TransactionRequestType transactionRequest = new TransactionRequestType();
         transactionRequest.setTransactionType(transactionType.value());
         transactionRequest.setAmount(request.getAmount().setScale(2, RoundingMode.HALF_UP));
-        transactionRequest.setPayment(payment);
         transactionRequest.setOrder(order);
-        transactionRequest.setBillTo(billingAddress);
-        transactionRequest.setCustomer(customerData);
+
+        if (storedProfile != null) {
+            PaymentProfile paymentProfile = new PaymentProfile();
+            paymentProfile.setPaymentProfileId(storedProfile.paymentProfileId());
+            if (request.getCvv() != null) paymentProfile.setCardCode(request.getCvv());
+
+            CustomerProfilePaymentType profile = new CustomerProfilePaymentType();
+            profile.setCustomerProfileId(storedProfile.customerProfileId());
+            profile.setPaymentProfile(paymentProfile);
+            transactionRequest.setProfile(profile);
+        } else {
+            PaymentType payment = new PaymentType();
+            payment.setCreditCard(creditCard(request.getCardToken(), request.getCardNumber(),
+                    request.getExpMonth(), request.getExpYear(), request.getCvv()));
+
+            CustomerDataType customerData = new CustomerDataType();
+            customerData.setId(request.getCustomerId());
+            customerData.setEmail(request.getCustomerEmail());
+
+            transactionRequest.setPayment(payment);
+            transactionRequest.setBillTo(billingAddress(request));
+            transactionRequest.setCustomer(customerData);
+        }
 
         CreateTransactionRequest apiRequest = new CreateTransactionRequest();
         apiRequest.setMerchantAuthentication(getMerchantAuth());
@@ -116,6 +167,112 @@ public class AuthorizeNetGateway implements PaymentGateway {
         return parseTransactionResponse(controller.getApiResponse());
     }
 
+    private static CustomerAddressType billingAddress(PaymentRequest request) {
+        CustomerAddressType billingAddress = new CustomerAddressType();
+        billingAddress.setFirstName(request.getBillingFirstName());
+        billingAddress.setLastName(request.getBillingLastName());
+        billingAddress.setAddress(request.getBillingAddress());
+        billingAddress.setCity(request.getBillingCity());
+        billingAddress.setState(request.getBillingState());
+        billingAddress.setZip(request.getBillingZip());
+        billingAddress.setCountry(request.getBillingCountry());
+        return billingAddress;
+    }
+
+    /**
+     * Stores the request's card as a CIM payment profile, creating the customer profile first when
+     * {@code customerProfileId} is null. Authorize.Net rejects a second profile for the same customer
+     * or card as a duplicate; both cases resolve to the existing profile.
+     */
+    @Override
+    public GatewayResponse createPaymentProfile(String customerProfileId, PaymentRequest request) {
+        log.info("Creating payment profile for customer: {}", request.getCustomerId());
+        return gatewayTimer.record(() -> {
+            CustomerPaymentProfileType paymentProfile = new CustomerPaymentProfileType();
+            PaymentType payment = new PaymentType();
+            payment.setCreditCard(creditCard(request.getCardToken(), request.getCardNumber(),
+                    request.getExpMonth(), request.getExpYear(), null));
+            paymentProfile.setPayment(payment);
+            paymentProfile.setBillTo(billingAddress(request));
+
+            String profileId = customerProfileId;
+            if (profileId == null) {
+                CustomerProfileType customerProfile = new CustomerProfileType();
+                if (request.getCustomerId().length() <= MERCHANT_CUSTOMER_ID_LENGTH) {
+                    customerProfile.setMerchantCustomerId(request.getCustomerId());
+                } else {
+                    customerProfile.setDescription(request.getCustomerId());
+                }
+                customerProfile.setEmail(request.getCustomerEmail());
+                customerProfile.getPaymentProfiles().add(paymentProfile);
+
+                CreateCustomerProfileRequest apiRequest = new CreateCustomerProfileRequest();
+                apiRequest.setMerchantAuthentication(getMerchantAuth());
+                apiRequest.setProfile(customerProfile);
+                apiRequest.setValidationMode(ValidationModeEnum.NONE);
+
+                CreateCustomerProfileController controller = new CreateCustomerProfileController(apiRequest);
+                controller.execute();
+
+                CreateCustomerProfileResponse response = controller.getApiResponse();
+                if (response != null && response.getMessages().getResultCode() == MessageTypeEnum.OK
+                        && response.getCustomerPaymentProfileIdList() != null
+                        && !response.getCustomerPaymentProfileIdList().getNumericString().isEmpty()) {
+                    return GatewayResponse.builder()
+                            .success(true)
+                            .customerProfileId(response.getCustomerProfileId())
+                            .paymentProfileId(response.getCustomerPaymentProfileIdList().getNumericString().get(0))
+                            .build();
+                }
+                profileId = duplicateRecordId(response);
+                if (profileId == null) {
+                    return messagesFailure(response);
+                }
+            }
+
+            CreateCustomerPaymentProfileRequest apiRequest = new CreateCustomerPaymentProfileRequest();
+            apiRequest.setMerchantAuthentication(getMerchantAuth());
+            apiRequest.setCustomerProfileId(profileId);
+            apiRequest.setPaymentProfile(paymentProfile);
+            apiRequest.setValidationMode(ValidationModeEnum.NONE);
+
+            CreateCustomerPaymentProfileController controller = new CreateCustomerPaymentProfileController(apiRequest);
+            controller.execute();
+
+            // A duplicate payment profile is reported as an error that still carries the existing id.
+            CreateCustomerPaymentProfileResponse response = controller.getApiResponse();
+            if (response != null && response.getCustomerPaymentProfileId() != null) {
+                return GatewayResponse.builder()
+                        .success(true)
+                        .customerProfileId(profileId)
+                        .paymentProfileId(response.getCustomerPaymentProfileId())
+                        .build();
+            }
+            return messagesFailure(response);
+        });
+    }
+
+    private static String duplicateRecordId(ANetApiResponse response) {
+        if (response == null || response.getMessages().getMessage() == null) {
+            return null;
+        }
+        for (MessagesType.Message message : response.getMessages().getMessage()) {
+            if (DUPLICATE_RECORD.equals(message.getCode())) {
+                Matcher matcher = DUPLICATE_ID.matcher(message.getText());
+                return matcher.find() ? matcher.group(1) : null;
+            }
+        }
+        return null;
+    }
+
+    private static GatewayResponse messagesFailure(ANetApiResponse response) {
+        String errorCode = response != null && response.getMessages().getMessage() != null
+                ? response.getMessages().getMessage().get(0).getCode() : "UNKNOWN";
+        String errorMessage = response != null && response.getMessages().getMessage() != null
+                ? response.getMessages().getMessage().get(0).getText() : "Unknown error";
+        return GatewayResponse.failure(errorCode, errorMessage);
+    }
+
     @Override
     @Retryable(value = GatewayException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
     public GatewayResponse capture(String transactionId, BigDecimal amount) {
@@ -194,6 +351,44 @@ public class AuthorizeNetGateway implements PaymentGateway {
         });
     }
 
+    /**
+     * Charges a stored customer payment profile. Not retried automatically: a timeout may still have
+     * charged the card, so the caller decides when to try again.
+     */
+    @Override
+    public GatewayResponse chargeCustomerProfile(String customerProfileId, String paymentProfileId,
+                                                 BigDecimal amount, String description) {
+        log.info("Charging customer profile: {}", customerProfileId);
+        return gatewayTimer.record(() -> {
+            transactionCounter.increment();
+
+            PaymentProfile paymentProfile = new PaymentProfile();
+            paymentProfile.setPaymentProfileId(paymentProfileId);
+
+            CustomerProfilePaymentType profile = new CustomerProfilePaymentType();
+            profile.setCustomerProfileId(customerProfileId);
+            profile.setPaymentProfile(paymentProfile);
+
+            OrderType order = new OrderType();
+            order.setDescription(description);
+
+            TransactionRequestType transactionRequest = new TransactionRequestType();
+            transactionRequest.setTransactionType(TransactionTypeEnum.AUTH_CAPTURE_TRANSACTION.value());
+            transactionRequest.setAmount(amount.setScale(2, RoundingMode.HALF_UP));
+            transactionRequest.setProfile(profile);
+            transactionRequest.setOrder(order);
+
+            CreateTransactionRequest apiRequest = new CreateTransactionRequest();
+            apiRequest.setMerchantAuthentication(getMerchantAuth());
+            apiRequest.setTransactionRequest(transactionRequest);
+
+            CreateTransactionController controller = new CreateTransactionController(apiRequest);
+            controller.execute();
+
+            return parseTransactionResponse(controller.getApiResponse());
+        });
+    }
+
     @Override
     public GatewayResponse createSubscription(SubscriptionRequest request) {
         log.info("Creating subscription for customer: {}", request.getCustomerId());
@@ -223,10 +418,8 @@ public class AuthorizeNetGateway implements PaymentGateway {
 
             schedule.setTotalOccurrences((short) (request.getTotalCycles() != null ? request.getTotalCycles() : 9999));
 
-            CreditCardType creditCard = new CreditCardType();
-            creditCard.setCardNumber(request.getCardNumber());
-            creditCard.setExpirationDate(request.getExpYear() + "-" + request.getExpMonth());
-            creditCard.setCardCode(request.getCvv());
+            CreditCardType creditCard = creditCard(request.getCardToken(), request.getCardNumber(),
+                    request.getExpMonth(), request.getExpYear(), request.getCvv());
 
             PaymentType payment = new PaymentType();
             payment.setCreditCard(creditCard);
@@ -274,11 +467,9 @@ public class AuthorizeNetGateway implements PaymentGateway {
             if (request.getName() != null) subscription.setName(request.getName());
             if (request.getAmount() != null) subscription.setAmount(request.getAmount().setScale(2, RoundingMode.HALF_UP));
 
-            if (request.getCardNumber() != null) {
-                CreditCardType creditCard = new CreditCardType();
-                creditCard.setCardNumber(request.getCardNumber());
-                creditCard.setExpirationDate(request.getExpYear() + "-" + request.getExpMonth());
-                if (request.getCvv() != null) creditCard.setCardCode(request.getCvv());
+            if (request.getCardToken() != null || request.getCardNumber() != null) {
+                CreditCardType creditCard = creditCard(request.getCardToken(), request.getCardNumber(),
+                        request.getExpMonth(), request.getExpYear(), request.getCvv());
                 PaymentType payment = new PaymentType();
                 payment.setCreditCard(creditCard);
                 subscription.setPayment(payment);
@@ -349,20 +540,37 @@ public class AuthorizeNetGateway implements PaymentGateway {
         return GatewayResponse.failure("UNKNOWN", "Failed to get subscription status");
     }
 
+    /**
+     * Looks up a transaction; {@code referenceTransactionId} is the original transaction of a refund.
+     */
     @Override
-    public boolean validateWebhookSignature(String payload, String signature) {
-        if (properties.getSignatureKey() == null || properties.getSignatureKey().isEmpty()) {
-            log.warn("Webhook signature key not configured, skipping validation");
-            return true;
+    public GatewayResponse getTransactionDetails(String transactionId) {
+        GetTransactionDetailsRequest apiRequest = new GetTransactionDetailsRequest();
+        apiRequest.setMerchantAuthentication(getMerchantAuth());
+        apiRequest.setTransId(transactionId);
+
+        GetTransactionDetailsController controller = new GetTransactionDetailsController(apiRequest);
+        controller.execute();
+
+        GetTransactionDetailsResponse response = controller.getApiResponse();
+        if (response != null && response.getMessages().getResultCode() == MessageTypeEnum.OK
+                && response.getTransaction() != null) {
+            TransactionDetailsType details = response.getTransaction();
+            return GatewayResponse.builder()
+                    .success(true)
+                    .transactionId(details.getTransId())
+                    .referenceTransactionId(details.getRefTransId())
+                    .responseCode(String.valueOf(details.getResponseCode()))
+                    .responseMessage(details.getTransactionStatus())
+                    .build();
         }
+        return GatewayResponse.failure("UNKNOWN", "Failed to get transaction details");
+    }
+
+    @Override
+    public boolean validateWebhookSignature(byte[] payload, String signature) {
         try {
-            Mac hmac = Mac.getInstance("HmacSHA512");
-            SecretKeySpec secretKey = new SecretKeySpec(
-                    properties.getSignatureKey().getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-            hmac.init(secretKey);
-            byte[] hash = hmac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
-            String computedSignature = Base64.getEncoder().encodeToString(hash);
-            return computedSignature.equals(signature);
+            return signatureVerifier.verify(payload, signature);
         } catch (Exception e) {
             log.error("Error validating webhook signature", e);
             return false;
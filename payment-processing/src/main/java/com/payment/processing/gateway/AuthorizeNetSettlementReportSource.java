@@ -0,0 +1,112 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.config.AuthorizeNetProperties;
+import com.payment.processing.exception.GatewayException;
+import com.payment.processing.reconciliation.SettledTransaction;
+import com.payment.processing.reconciliation.SettlementReportSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.authorize.api.contract.v1.*;
+import net.authorize.api.controller.GetSettledBatchListController;
+import net.authorize.api.controller.GetTransactionListController;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Settlement reports from the Authorize.Net Transaction Reporting API.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "reconciliation.source", havingValue = "authorize-net", matchIfMissing = true)
+public class AuthorizeNetSettlementReportSource implements SettlementReportSource {
+
+    private final AuthorizeNetProperties properties;
+
+    @Override
+    public List<String> settledBatchIds(Instant from, Instant to) {
+        GetSettledBatchListRequest apiRequest = new GetSettledBatchListRequest();
+        apiRequest.setMerchantAuthentication(getMerchantAuth());
+        apiRequest.setFirstSettlementDate(toXml(from));
+        apiRequest.setLastSettlementDate(toXml(to));
+
+        GetSettledBatchListController controller = new GetSettledBatchListController(apiRequest);
+        controller.execute();
+
+        GetSettledBatchListResponse response = controller.getApiResponse();
+        checkResponse(response, "settled batch list");
+        if (response.getBatchList() == null) {
+            return List.of();
+        }
+        return response.getBatchList().getBatch().stream().map(BatchDetailsType::getBatchId).toList();
+    }
+
+    @Override
+    public List<SettledTransaction> batchTransactions(String batchId, int page, int pageSize) {
+        TransactionListSorting sorting = new TransactionListSorting();
+        sorting.setOrderBy(TransactionListOrderFieldEnum.ID);
+        sorting.setOrderDescending(false);
+
+        Paging paging = new Paging();
+        paging.setLimit(pageSize);
+        paging.setOffset(page);
+
+        GetTransactionListRequest apiRequest = new GetTransactionListRequest();
+        apiRequest.setMerchantAuthentication(getMerchantAuth());
+        apiRequest.setBatchId(batchId);
+        apiRequest.setSorting(sorting);
+        apiRequest.setPaging(paging);
+
+        GetTransactionListController controller = new GetTransactionListController(apiRequest);
+        controller.execute();
+
+        GetTransactionListResponse response = controller.getApiResponse();
+        checkResponse(response, "transaction list for batch " + batchId);
+        if (response.getTransactions() == null) {
+            return List.of();
+        }
+        return response.getTransactions().getTransaction().stream()
+                .map(summary -> new SettledTransaction(
+                        summary.getTransId(),
+                        batchId,
+                        summary.getTransactionStatus(),
+                        summary.getSettleAmount(),
+                        summary.getSubmitTimeUTC() != null ? summary.getSubmitTimeUTC().toGregorianCalendar().toInstant() : null))
+                .toList();
+    }
+
+    private void checkResponse(ANetApiResponse response, String what) {
+        if (response == null || response.getMessages().getResultCode() != MessageTypeEnum.OK) {
+            String errorCode = response != null && !response.getMessages().getMessage().isEmpty()
+                    ? response.getMessages().getMessage().get(0).getCode() : "UNKNOWN";
+            String errorMessage = response != null && !response.getMessages().getMessage().isEmpty()
+                    ? response.getMessages().getMessage().get(0).getText() : "No response";
+            log.error("Failed to fetch {}: {} - {}", what, errorCode, errorMessage);
+            throw new GatewayException(errorCode, errorMessage);
+        }
+    }
+
+    private MerchantAuthenticationType getMerchantAuth() {
+        MerchantAuthenticationType merchantAuth = new MerchantAuthenticationType();
+        merchantAuth.setName(properties.getApiLoginId());
+        merchantAuth.setTransactionKey(properties.getTransactionKey());
+        return merchantAuth;
+    }
+
+    private static XMLGregorianCalendar toXml(Instant instant) {
+        try {
+            return DatatypeFactory.newInstance()
+                    .newXMLGregorianCalendar(GregorianCalendar.from(instant.atZone(ZoneOffset.UTC)));
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.payment.processing.gateway;
+
+/**
+ * A stored Authorize.Net CIM payment profile, charged in place of card data.
+ */
+public record CustomerProfileRef(String customerProfileId, String paymentProfileId) {
+}
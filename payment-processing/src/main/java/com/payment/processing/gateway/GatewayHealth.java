@@ -0,0 +1,128 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.config.GatewayRoutingProperties;
+
+/**
+ * Circuit breaker and moving latency/error averages for one gateway.
+ * <p>
+ * Failures are counted over a tumbling window; once {@code minimum-calls} calls have been seen and
+ * the failure share reaches the threshold the circuit opens and calls are turned away for
+ * {@code open-duration}. After that a single probe is let through (half-open): its success closes
+ * the circuit, its failure opens it again. State changes are rare next to a gateway round trip, so
+ * the methods simply synchronize.
+ */
+final class GatewayHealth {
+
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long windowMillis;
+    private final long openMillis;
+    private final double smoothing;
+
+    private State state = State.CLOSED;
+    private long windowStart;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+    private volatile double latencyMillis;
+    private volatile double errorRate;
+
+    GatewayHealth(GatewayRoutingProperties.Circuit circuit, double smoothing) {
+        this.failureRateThreshold = circuit.getFailureRateThreshold();
+        this.minimumCalls = circuit.getMinimumCalls();
+        this.windowMillis = circuit.getWindow().toMillis();
+        this.openMillis = circuit.getOpenDuration().toMillis();
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * Whether a call would currently be let through, without claiming the half-open probe.
+     */
+    synchronized boolean isAvailable(long nowMillis) {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> !probing;
+            case OPEN -> nowMillis - openedAt >= openMillis;
+        };
+    }
+
+    /**
+     * Claims permission for one call. Every successful acquire must be followed by {@link #record}.
+     */
+    synchronized boolean tryAcquire(long nowMillis) {
+        if (state == State.OPEN) {
+            if (nowMillis - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probing) {
+                return false;
+            }
+            probing = true;
+        }
+        return true;
+    }
+
+    synchronized void record(long nowMillis, long elapsedMillis, boolean failed) {
+        latencyMillis = latencyMillis == 0 ? elapsedMillis : latencyMillis + smoothing * (elapsedMillis - latencyMillis);
+        errorRate += smoothing * ((failed ? 1 : 0) - errorRate);
+
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            if (failed) {
+                open(nowMillis);
+            } else {
+                state = State.CLOSED;
+                resetWindow(nowMillis);
+            }
+            return;
+        }
+        if (nowMillis - windowStart >= windowMillis) {
+            resetWindow(nowMillis);
+        }
+        calls++;
+        if (failed) {
+            failures++;
+        }
+        if (state == State.CLOSED && calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+            open(nowMillis);
+        }
+    }
+
+    /**
+     * Lower is better: the latency average, inflated by the error average.
+     */
+    double score(double errorPenalty) {
+        return latencyMillis * (1 + errorPenalty * errorRate);
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    double latencyMillis() {
+        return latencyMillis;
+    }
+
+    private void open(long nowMillis) {
+        state = State.OPEN;
+        openedAt = nowMillis;
+        resetWindow(nowMillis);
+    }
+
+    private void resetWindow(long nowMillis) {
+        windowStart = nowMillis;
+        calls = 0;
+        failures = 0;
+    }
+}
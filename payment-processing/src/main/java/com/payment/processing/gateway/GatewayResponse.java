@@ -10,6 +10,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 public class GatewayResponse {
+    /** Error code of a call that no gateway could take, e.g. because every candidate's circuit is open. */
+    public static final String UNAVAILABLE = "GATEWAY_UNAVAILABLE";
+
     private boolean success;
     private String transactionId;
     private String subscriptionId;
@@ -22,6 +25,9 @@ public class GatewayResponse {
     private String errorMessage;
     private String customerProfileId;
     private String paymentProfileId;
+    private String referenceTransactionId;
+    /** Name of the gateway that handled the call; set when the call was routed. */
+    private String gateway;
 
     public static GatewayResponse success(String transactionId, String authCode) {
         return GatewayResponse.builder()
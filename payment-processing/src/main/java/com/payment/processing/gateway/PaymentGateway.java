@@ -11,17 +11,35 @@ import org.springframework.retry.annotation.Retryable;
 import java.math.BigDecimal;
 
 public interface PaymentGateway {
+    /**
+     * Identifier recorded on the payments this gateway processes.
+     */
+    String name();
+
+    /**
+     * The gateway that processed an earlier payment, for its capture, void or refund. A gateway
+     * that does not route returns itself.
+     */
+    default PaymentGateway processorOf(String gatewayName) {
+        return this;
+    }
+
     GatewayResponse authorize(PaymentRequest request);
 
     @Retryable(value = GatewayException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000, multiplier = 2))
     GatewayResponse purchase(com.payment.processing.dto.request.PaymentRequest request);
 
+    GatewayResponse authorizeWithProfile(PaymentRequest request, CustomerProfileRef profile);
+    GatewayResponse purchaseWithProfile(PaymentRequest request, CustomerProfileRef profile);
+    GatewayResponse createPaymentProfile(String customerProfileId, PaymentRequest request);
     GatewayResponse capture(String transactionId, BigDecimal amount);
     GatewayResponse voidTransaction(String transactionId);
     GatewayResponse refund(String transactionId, BigDecimal amount, String cardLastFour);
+    GatewayResponse chargeCustomerProfile(String customerProfileId, String paymentProfileId, BigDecimal amount, String description);
     GatewayResponse createSubscription(SubscriptionRequest request);
     GatewayResponse updateSubscription(String subscriptionId, SubscriptionUpdateRequest request);
     GatewayResponse cancelSubscription(String subscriptionId);
     GatewayResponse getSubscriptionStatus(String subscriptionId);
-    boolean validateWebhookSignature(String payload, String signature);
+    GatewayResponse getTransactionDetails(String transactionId);
+    boolean validateWebhookSignature(byte[] payload, String signature);
 }
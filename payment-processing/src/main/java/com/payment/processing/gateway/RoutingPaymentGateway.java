@@ -0,0 +1,406 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.config.GatewayRoutingProperties;
+import com.payment.processing.dto.request.PaymentRequest;
+import com.payment.processing.dto.request.SubscriptionRequest;
+import com.payment.processing.dto.request.SubscriptionUpdateRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The {@link PaymentGateway} the services see. Card payments go to one of several gateways, chosen
+ * per request; everything else goes to the primary gateway, or for capture, void and refund, to the
+ * gateway that processed the payment.
+ * <p>
+ * The first {@code gateway.routing.rules} entry matching currency, card country, merchant and amount
+ * names the candidates in order of preference. Candidates whose circuit is open are skipped, and the
+ * rest are ranked by moving latency (inflated by the error average) plus a penalty per place down the
+ * list, so a slow or failing preferred gateway sheds traffic before its circuit opens. Nothing is
+ * retried on another gateway once a request was sent: the first may have charged the card.
+ */
+@Component
+@Primary
+@Slf4j
+public class RoutingPaymentGateway implements PaymentGateway {
+
+    public static final String NAME = "routing";
+
+    private final GatewayRoutingProperties properties;
+    private final Map<String, Route> routes = new HashMap<>();
+    private final Set<String> failureCodes;
+    private final Route primary;
+    private final List<Route> defaultCandidates;
+    private final Map<GatewayRoutingProperties.Rule, List<Route>> ruleCandidates = new HashMap<>();
+    private final long preferencePenaltyMillis;
+    private final Counter unavailableCounter;
+
+    public RoutingPaymentGateway(List<PaymentGateway> gateways, GatewayRoutingProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.failureCodes = new HashSet<>(properties.getCircuit().getFailureCodes());
+        this.preferencePenaltyMillis = properties.getPreferencePenalty().toMillis();
+
+        for (PaymentGateway gateway : gateways) {
+            if (gateway instanceof RoutingPaymentGateway) {
+                continue;
+            }
+            Route route = new Route(gateway, new GatewayHealth(properties.getCircuit(), properties.getSmoothing()), meterRegistry);
+            if (routes.put(gateway.name(), route) != null) {
+                throw new IllegalStateException("Duplicate payment gateway name: " + gateway.name());
+            }
+        }
+        this.primary = route(properties.getPrimary(), "gateway.routing.primary");
+        this.defaultCandidates = properties.getDefaultGateways().isEmpty()
+                ? List.of(primary)
+                : candidates(properties.getDefaultGateways(), "gateway.routing.default-gateways");
+        for (GatewayRoutingProperties.Rule rule : properties.getRules()) {
+            ruleCandidates.put(rule, candidates(rule.getGateways(), "gateway.routing.rules[" + rule.getName() + "]"));
+        }
+        this.unavailableCounter = Counter.builder("gateway.routing").tag("gateway", "none").tag("outcome", "unavailable")
+                .register(meterRegistry);
+        log.info("Payment gateways: {} (primary {}), {} routing rules", routes.keySet(), primary.name(), properties.getRules().size());
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public PaymentGateway processorOf(String gatewayName) {
+        if (gatewayName == null) {
+            return primary.pinned;
+        }
+        Route route = routes.get(gatewayName);
+        if (route == null) {
+            throw new IllegalStateException("Payment was processed by an unknown gateway: " + gatewayName);
+        }
+        return route.pinned;
+    }
+
+    @Override
+    public GatewayResponse authorize(PaymentRequest request) {
+        return routeCardPayment(request, gateway -> gateway.authorize(request));
+    }
+
+    @Override
+    public GatewayResponse purchase(PaymentRequest request) {
+        return routeCardPayment(request, gateway -> gateway.purchase(request));
+    }
+
+    // Payment profiles, subscriptions and webhooks belong to the primary gateway.
+
+    @Override
+    public GatewayResponse authorizeWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+        return primary.pinned.authorizeWithProfile(request, profile);
+    }
+
+    @Override
+    public GatewayResponse purchaseWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+        return primary.pinned.purchaseWithProfile(request, profile);
+    }
+
+    @Override
+    public GatewayResponse createPaymentProfile(String customerProfileId, PaymentRequest request) {
+        return primary.pinned.createPaymentProfile(customerProfileId, request);
+    }
+
+    @Override
+    public GatewayResponse capture(String transactionId, BigDecimal amount) {
+        return primary.pinned.capture(transactionId, amount);
+    }
+
+    @Override
+    public GatewayResponse voidTransaction(String transactionId) {
+        return primary.pinned.voidTransaction(transactionId);
+    }
+
+    @Override
+    public GatewayResponse refund(String transactionId, BigDecimal amount, String cardLastFour) {
+        return primary.pinned.refund(transactionId, amount, cardLastFour);
+    }
+
+    @Override
+    public GatewayResponse chargeCustomerProfile(String customerProfileId, String paymentProfileId, BigDecimal amount,
+                                                 String description) {
+        return primary.pinned.chargeCustomerProfile(customerProfileId, paymentProfileId, amount, description);
+    }
+
+    @Override
+    public GatewayResponse createSubscription(SubscriptionRequest request) {
+        return primary.pinned.createSubscription(request);
+    }
+
+    @Override
+    public GatewayResponse updateSubscription(String subscriptionId, SubscriptionUpdateRequest request) {
+        return primary.pinned.updateSubscription(subscriptionId, request);
+    }
+
+    @Override
+    public GatewayResponse cancelSubscription(String subscriptionId) {
+        return primary.pinned.cancelSubscription(subscriptionId);
+    }
+
+    @Override
+    public GatewayResponse getSubscriptionStatus(String subscriptionId) {
+        return primary.pinned.getSubscriptionStatus(subscriptionId);
+    }
+
+    @Override
+    public GatewayResponse getTransactionDetails(String transactionId) {
+        return primary.pinned.getTransactionDetails(transactionId);
+    }
+
+    @Override
+    public boolean validateWebhookSignature(byte[] payload, String signature) {
+        return primary.gateway.validateWebhookSignature(payload, signature);
+    }
+
+    GatewayHealth.State circuitState(String gatewayName) {
+        return routes.get(gatewayName).health.state();
+    }
+
+    private GatewayResponse routeCardPayment(PaymentRequest request, Function<PaymentGateway, GatewayResponse> call) {
+        List<Route> candidates = candidatesFor(request);
+        long now = System.currentTimeMillis();
+        List<Ranked> ranked = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Route route = candidates.get(i);
+            if (route.health.isAvailable(now)) {
+                ranked.add(new Ranked(route, route.health.score(properties.getErrorPenalty()) + i * preferencePenaltyMillis));
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(Ranked::score));
+
+        for (int i = 0; i < ranked.size(); i++) {
+            Route route = ranked.get(i).route();
+            // Loses to a concurrent caller when the circuit just went half-open and the probe is taken.
+            if (!route.health.tryAcquire(now)) {
+                continue;
+            }
+            if (route != candidates.get(0)) {
+                route.failoverCounter.increment();
+            }
+            return route.invoke(call);
+        }
+        unavailableCounter.increment();
+        log.warn("No payment gateway available for order {}; candidates {}", request.getOrderId(),
+                candidates.stream().map(Route::name).toList());
+        return GatewayResponse.failure(GatewayResponse.UNAVAILABLE, "No payment gateway is currently available");
+    }
+
+    private List<Route> candidatesFor(PaymentRequest request) {
+        for (GatewayRoutingProperties.Rule rule : properties.getRules()) {
+            if (matches(rule, request)) {
+                return ruleCandidates.get(rule);
+            }
+        }
+        return defaultCandidates;
+    }
+
+    private static boolean matches(GatewayRoutingProperties.Rule rule, PaymentRequest request) {
+        return anyOf(rule.getCurrencies(), request.getCurrency())
+                && anyOf(rule.getCardCountries(), request.getCardCountry())
+                && anyOf(rule.getMerchants(), request.getMerchantId())
+                && (rule.getMinAmount() == null || request.getAmount().compareTo(rule.getMinAmount()) >= 0)
+                && (rule.getMaxAmount() == null || request.getAmount().compareTo(rule.getMaxAmount()) <= 0);
+    }
+
+    private static boolean anyOf(List<String> allowed, String value) {
+        if (allowed.isEmpty()) {
+            return true;
+        }
+        if (value == null) {
+            return false;
+        }
+        for (String candidate : allowed) {
+            if (candidate.equalsIgnoreCase(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Route> candidates(List<String> names, String property) {
+        if (names.isEmpty()) {
+            throw new IllegalStateException(property + " must name at least one gateway");
+        }
+        return names.stream().map(name -> route(name, property)).toList();
+    }
+
+    private Route route(String name, String property) {
+        Route route = routes.get(name);
+        if (route == null) {
+            throw new IllegalStateException(property + " names unknown payment gateway '" + name + "'; known: " + routes.keySet());
+        }
+        return route;
+    }
+
+    private record Ranked(Route route, double score) {
+    }
+
+    /**
+     * One gateway with its circuit and meters. {@link #pinned} sends every call to this gateway,
+     * subject to its circuit.
+     */
+    private final class Route {
+
+        private final PaymentGateway gateway;
+        private final GatewayHealth health;
+        private final Counter routedCounter;
+        private final Counter failoverCounter;
+        private final Counter rejectedCounter;
+        private final PaymentGateway pinned;
+
+        Route(PaymentGateway gateway, GatewayHealth health, MeterRegistry meterRegistry) {
+            this.gateway = gateway;
+            this.health = health;
+            this.routedCounter = Counter.builder("gateway.routing").tag("gateway", gateway.name()).tag("outcome", "routed")
+                    .register(meterRegistry);
+            this.failoverCounter = Counter.builder("gateway.routing").tag("gateway", gateway.name()).tag("outcome", "failover")
+                    .register(meterRegistry);
+            this.rejectedCounter = Counter.builder("gateway.routing").tag("gateway", gateway.name()).tag("outcome", "rejected")
+                    .register(meterRegistry);
+            Gauge.builder("gateway.circuit.state", health, h -> h.state().ordinal())
+                    .tag("gateway", gateway.name())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.latency.average", health, GatewayHealth::latencyMillis)
+                    .tag("gateway", gateway.name())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            this.pinned = new PinnedGateway(this);
+        }
+
+        String name() {
+            return gateway.name();
+        }
+
+        GatewayResponse invoke(Function<PaymentGateway, GatewayResponse> call) {
+            routedCounter.increment();
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                GatewayResponse response = call.apply(gateway);
+                failed = response == null || (!response.isSuccess() && failureCodes.contains(response.getErrorCode()));
+                if (response != null) {
+                    response.setGateway(name());
+                }
+                return response;
+            } finally {
+                health.record(System.currentTimeMillis(), (System.nanoTime() - start) / 1_000_000, failed);
+            }
+        }
+
+        GatewayResponse invokeIfAvailable(Function<PaymentGateway, GatewayResponse> call) {
+            if (!health.tryAcquire(System.currentTimeMillis())) {
+                rejectedCounter.increment();
+                return GatewayResponse.failure(GatewayResponse.UNAVAILABLE, "Payment gateway " + name() + " is unavailable");
+            }
+            return invoke(call);
+        }
+    }
+
+    private static final class PinnedGateway implements PaymentGateway {
+
+        private final Route route;
+
+        PinnedGateway(Route route) {
+            this.route = route;
+        }
+
+        @Override
+        public String name() {
+            return route.name();
+        }
+
+        @Override
+        public GatewayResponse authorize(PaymentRequest request) {
+            return route.invokeIfAvailable(gateway -> gateway.authorize(request));
+        }
+
+        @Override
+        public GatewayResponse purchase(PaymentRequest request) {
+            return route.invokeIfAvailable(gateway -> gateway.purchase(request));
+        }
+
+        @Override
+        public GatewayResponse authorizeWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+            return route.invokeIfAvailable(gateway -> gateway.authorizeWithProfile(request, profile));
+        }
+
+        @Override
+        public GatewayResponse purchaseWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+            return route.invokeIfAvailable(gateway -> gateway.purchaseWithProfile(request, profile));
+        }
+
+        @Override
+        public GatewayResponse createPaymentProfile(String customerProfileId, PaymentRequest request) {
+            return route.invokeIfAvailable(gateway -> gateway.createPaymentProfile(customerProfileId, request));
+        }
+
+        @Override
+        public GatewayResponse capture(String transactionId, BigDecimal amount) {
+            return route.invokeIfAvailable(gateway -> gateway.capture(transactionId, amount));
+        }
+
+        @Override
+        public GatewayResponse voidTransaction(String transactionId) {
+            return route.invokeIfAvailable(gateway -> gateway.voidTransaction(transactionId));
+        }
+
+        @Override
+        public GatewayResponse refund(String transactionId, BigDecimal amount, String cardLastFour) {
+            return route.invokeIfAvailable(gateway -> gateway.refund(transactionId, amount, cardLastFour));
+        }
+
+        @Override
+        public GatewayResponse chargeCustomerProfile(String customerProfileId, String paymentProfileId, BigDecimal amount,
+                                                     String description) {
+            return route.invokeIfAvailable(gateway -> gateway.chargeCustomerProfile(customerProfileId, paymentProfileId, amount, description));
+        }
+
+        @Override
+        public GatewayResponse createSubscription(SubscriptionRequest request) {
+            return route.invokeIfAvailable(gateway -> gateway.createSubscription(request));
+        }
+
+        @Override
+        public GatewayResponse updateSubscription(String subscriptionId, SubscriptionUpdateRequest request) {
+            return route.invokeIfAvailable(gateway -> gateway.updateSubscription(subscriptionId, request));
+        }
+
+        @Override
+        public GatewayResponse cancelSubscription(String subscriptionId) {
+            return route.invokeIfAvailable(gateway -> gateway.cancelSubscription(subscriptionId));
+        }
+
+        @Override
+        public GatewayResponse getSubscriptionStatus(String subscriptionId) {
+            return route.invokeIfAvailable(gateway -> gateway.getSubscriptionStatus(subscriptionId));
+        }
+
+        @Override
+        public GatewayResponse getTransactionDetails(String transactionId) {
+            return route.invokeIfAvailable(gateway -> gateway.getTransactionDetails(transactionId));
+        }
+
+        @Override
+        public boolean validateWebhookSignature(byte[] payload, String signature) {
+            return route.gateway.validateWebhookSignature(payload, signature);
+        }
+    }
+}
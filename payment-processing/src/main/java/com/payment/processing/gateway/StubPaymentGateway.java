@@ -0,0 +1,147 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.dto.request.PaymentRequest;
+import com.payment.processing.dto.request.SubscriptionRequest;
+import com.payment.processing.dto.request.SubscriptionUpdateRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local second provider for routing, for development and tests. Card payments are approved unless
+ * the card number ends in {@value #DECLINED_SUFFIX}; capture, void and refund always succeed. Payment
+ * profiles, subscriptions and webhooks are not supported, so the stub can never be the primary gateway.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "gateway.stub.enabled", havingValue = "true")
+public class StubPaymentGateway implements PaymentGateway {
+
+    public static final String NAME = "stub";
+    static final String DECLINED_SUFFIX = "0002";
+
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+    private final long latencyMillis;
+
+    public StubPaymentGateway(@Value("${gateway.stub.latency-ms:0}") long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public GatewayResponse authorize(PaymentRequest request) {
+        return charge(request);
+    }
+
+    @Override
+    public GatewayResponse purchase(PaymentRequest request) {
+        return charge(request);
+    }
+
+    @Override
+    public GatewayResponse authorizeWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse purchaseWithProfile(PaymentRequest request, CustomerProfileRef profile) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse createPaymentProfile(String customerProfileId, PaymentRequest request) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse capture(String transactionId, BigDecimal amount) {
+        return approved();
+    }
+
+    @Override
+    public GatewayResponse voidTransaction(String transactionId) {
+        return approved();
+    }
+
+    @Override
+    public GatewayResponse refund(String transactionId, BigDecimal amount, String cardLastFour) {
+        return approved();
+    }
+
+    @Override
+    public GatewayResponse chargeCustomerProfile(String customerProfileId, String paymentProfileId, BigDecimal amount,
+                                                 String description) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse createSubscription(SubscriptionRequest request) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse updateSubscription(String subscriptionId, SubscriptionUpdateRequest request) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse cancelSubscription(String subscriptionId) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse getSubscriptionStatus(String subscriptionId) {
+        return unsupported();
+    }
+
+    @Override
+    public GatewayResponse getTransactionDetails(String transactionId) {
+        return unsupported();
+    }
+
+    @Override
+    public boolean validateWebhookSignature(byte[] payload, String signature) {
+        return false;
+    }
+
+    private GatewayResponse charge(PaymentRequest request) {
+        log.info("Stub gateway processing order: {}", request.getOrderId());
+        if (request.getCardNumber() != null && request.getCardNumber().endsWith(DECLINED_SUFFIX)) {
+            pause();
+            return GatewayResponse.failure("2", "This transaction has been declined");
+        }
+        return approved();
+    }
+
+    private GatewayResponse approved() {
+        pause();
+        long id = sequence.incrementAndGet();
+        GatewayResponse response = GatewayResponse.success("stub-" + id, String.format("S%05d", id % 100000));
+        response.setResponseCode("1");
+        response.setResponseMessage("Transaction approved");
+        return response;
+    }
+
+    private GatewayResponse unsupported() {
+        return GatewayResponse.failure("NOT_SUPPORTED", "Not supported by the stub gateway");
+    }
+
+    private void pause() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
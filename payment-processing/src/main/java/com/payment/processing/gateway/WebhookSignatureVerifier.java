@@ -0,0 +1,98 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.config.AuthorizeNetProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Verifies Authorize.Net webhook signatures (HMAC-SHA512 over the raw request body).
+ * Each thread keeps its own pre-keyed {@link Mac}, so verification does not look up
+ * the provider or rebuild the key per request.
+ */
+@Component
+@Slf4j
+public class WebhookSignatureVerifier {
+
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final String SIGNATURE_PREFIX = "sha512=";
+    private static final int DIGEST_LENGTH = 64;
+
+    private final boolean enabled;
+    private final ThreadLocal<Mac> macs;
+
+    public WebhookSignatureVerifier(AuthorizeNetProperties properties) {
+        String signatureKey = properties.getSignatureKey();
+        this.enabled = signatureKey != null && !signatureKey.isEmpty();
+        if (enabled) {
+            SecretKeySpec key = new SecretKeySpec(signatureKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+            this.macs = ThreadLocal.withInitial(() -> newMac(key));
+        } else {
+            this.macs = null;
+        }
+    }
+
+    public boolean verify(byte[] payload, String signature) {
+        if (!enabled) {
+            log.warn("Webhook signature key not configured, skipping validation");
+            return true;
+        }
+        byte[] expected = decodeSignature(signature);
+        if (expected == null || payload == null) {
+            return false;
+        }
+        Mac mac = macs.get();
+        mac.update(payload);
+        return MessageDigest.isEqual(mac.doFinal(), expected);
+    }
+
+    /**
+     * Authorize.Net sends {@code sha512=<HEX>}; a bare hex or Base64 digest is accepted as well.
+     */
+    private byte[] decodeSignature(String signature) {
+        if (signature == null || signature.isEmpty()) {
+            return null;
+        }
+        int start = signature.regionMatches(true, 0, SIGNATURE_PREFIX, 0, SIGNATURE_PREFIX.length())
+                ? SIGNATURE_PREFIX.length() : 0;
+        int length = signature.length() - start;
+        if (length == DIGEST_LENGTH * 2) {
+            return decodeHex(signature, start);
+        }
+        try {
+            byte[] decoded = Base64.getDecoder().decode(signature.substring(start));
+            return decoded.length == DIGEST_LENGTH ? decoded : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] decodeHex(String signature, int start) {
+        byte[] out = new byte[DIGEST_LENGTH];
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            int hi = Character.digit(signature.charAt(start + 2 * i), 16);
+            int lo = Character.digit(signature.charAt(start + 2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return null;
+            }
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.payment.processing.maintenance;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Runs Flyway, first moving a schema that Hibernate built with {@code ddl-auto} out of the way.
+ * Such a database has the application tables but no Flyway history, and its {@code transactions}
+ * table is a plain table rather than a partitioned one. Those tables are moved into the
+ * {@code legacy} schema, the migrations then build the partitioned schema, and
+ * {@code V13__import_legacy_schema} copies the rows across.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "spring.flyway", name = "enabled", havingValue = "true")
+public class LegacySchemaCutover implements FlywayMigrationStrategy {
+
+    static final String LEGACY_SCHEMA = "legacy";
+
+    // Tables that existed before Flyway owned the schema.
+    static final List<String> LEGACY_TABLES = List.of(
+            "users", "idempotency_keys", "subscriptions", "transactions",
+            "audit_logs", "webhook_events", "webhook_replay_jobs");
+
+    @Override
+    public void migrate(Flyway flyway) {
+        DataSource dataSource = flyway.getConfiguration().getDataSource();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (isLegacySchema(jdbcTemplate, flyway.getConfiguration().getTable())) {
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                    .executeWithoutResult(status -> moveToLegacySchema(jdbcTemplate));
+        }
+        flyway.migrate();
+    }
+
+    private boolean isLegacySchema(JdbcTemplate jdbcTemplate, String historyTable) {
+        Boolean hasHistory = jdbcTemplate.queryForObject(
+                "SELECT to_regclass(quote_ident(?)) IS NOT NULL", Boolean.class, historyTable);
+        if (Boolean.TRUE.equals(hasHistory)) return false;
+
+        List<String> kind = jdbcTemplate.queryForList("""
+                SELECT c.relkind::TEXT
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = current_schema() AND c.relname = 'transactions'
+                """, String.class);
+        return kind.equals(List.of("r"));
+    }
+
+    private void moveToLegacySchema(JdbcTemplate jdbcTemplate) {
+        Boolean legacyExists = jdbcTemplate.queryForObject(
+                "SELECT to_regnamespace(?) IS NOT NULL", Boolean.class, LEGACY_SCHEMA);
+        if (Boolean.TRUE.equals(legacyExists)) {
+            throw new IllegalStateException("Schema " + LEGACY_SCHEMA
+                    + " already exists; finish or undo the previous cutover before starting again");
+        }
+
+        jdbcTemplate.execute("CREATE SCHEMA " + LEGACY_SCHEMA);
+        for (String table : LEGACY_TABLES) {
+            Boolean exists = jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(quote_ident(?)) IS NOT NULL", Boolean.class, table);
+            if (Boolean.TRUE.equals(exists)) {
+                jdbcTemplate.execute("ALTER TABLE " + table + " SET SCHEMA " + LEGACY_SCHEMA);
+                log.warn("Moved Hibernate-managed table {} to schema {} for import", table, LEGACY_SCHEMA);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.payment.processing.maintenance;
+
+import com.payment.processing.config.PartitioningProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the monthly partitions of {@code transactions}, {@code audit_logs} and {@code webhook_events}
+ * rolling: creates partitions ahead of time and detaches (optionally drops) partitions that have
+ * aged out of their retention window, so purges never run as row-by-row deletes. Rows that landed
+ * in a table's DEFAULT partition because their month was missing are moved into a partition for
+ * that month.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "partitioning", name = "enabled", havingValue = "true")
+public class PartitionMaintenanceJob {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Global unique keys of partitioned tables live in these side tables and expire with their partition.
+    private static final Map<String, String> KEY_TABLES = Map.of(
+            "transactions", "transaction_idempotency_keys",
+            "webhook_events", "webhook_event_keys");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PartitioningProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLong> defaultRows = new ConcurrentHashMap<>();
+
+    public PartitionMaintenanceJob(JdbcTemplate jdbcTemplate, PartitioningProperties properties,
+                                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        properties.getRetentionMonths().keySet().forEach(this::defaultRows);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${partitioning.cron:0 30 2 * * *}")
+    public void maintainPartitions() {
+        maintainPartitions(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void maintainPartitions(YearMonth current) {
+        properties.getRetentionMonths().forEach((table, retentionMonths) -> {
+            try {
+                createFuturePartitions(table, current);
+                drainDefaultPartition(table);
+                if (retentionMonths > 0) {
+                    detachExpiredPartitions(table, current.minusMonths(retentionMonths));
+                }
+            } catch (Exception e) {
+                log.error("Partition maintenance failed for {}", table, e);
+            }
+        });
+    }
+
+    private void createFuturePartitions(String table, YearMonth current) {
+        for (int i = 0; i <= properties.getMonthsAhead(); i++) {
+            LocalDate monthStart = current.plusMonths(i).atDay(1);
+            jdbcTemplate.queryForObject("SELECT create_monthly_partition(?, ?)", String.class, table, monthStart);
+        }
+    }
+
+    /**
+     * Creates the partitions for months that only exist in the DEFAULT partition, which moves their
+     * rows out of it. Any row found there means the job missed a month, so it is reported as an error.
+     */
+    private void drainDefaultPartition(String table) {
+        String defaultPartition = table + "_default";
+        long found = countRows(defaultPartition);
+        defaultRows(table).set(found);
+        if (found > 0) {
+            log.error("{} rows of {} landed in {}; creating their monthly partitions", found, table, defaultPartition);
+            List<LocalDate> months = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT date_trunc('month', created_at AT TIME ZONE 'UTC')::DATE FROM " + defaultPartition,
+                    LocalDate.class);
+            for (LocalDate monthStart : months) {
+                jdbcTemplate.queryForObject("SELECT create_monthly_partition(?, ?)", String.class, table, monthStart);
+            }
+            long remaining = countRows(defaultPartition);
+            Counter.builder("partitions.default.rows.moved").tag("table", table).register(meterRegistry)
+                    .increment(found - remaining);
+            defaultRows(table).set(remaining);
+        }
+    }
+
+    private long countRows(String partition) {
+        Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition, Long.class);
+        return rows == null ? 0 : rows;
+    }
+
+    private AtomicLong defaultRows(String table) {
+        return defaultRows.computeIfAbsent(table, t -> {
+            AtomicLong rows = new AtomicLong();
+            Gauge.builder("partitions.default.rows", rows, AtomicLong::get).tag("table", t).register(meterRegistry);
+            return rows;
+        });
+    }
+
+    /**
+     * Detaches every partition whose month ends on or before {@code oldestRetained}.
+     */
+    private void detachExpiredPartitions(String table, YearMonth oldestRetained) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT child.relname
+                FROM pg_inherits
+                JOIN pg_class parent ON pg_inherits.inhparent = parent.oid
+                JOIN pg_class child ON pg_inherits.inhrelid = child.oid
+                WHERE parent.relname = ?
+                ORDER BY child.relname
+                """, String.class, table);
+
+        String prefix = table + "_p";
+        for (String partition : partitions) {
+            if (!partition.startsWith(prefix)) continue;
+            YearMonth month = YearMonth.parse(partition.substring(prefix.length()), PARTITION_SUFFIX);
+            if (!month.isBefore(oldestRetained)) continue;
+
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+            purgeKeys(table, month);
+            if (properties.isDropDetached()) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped expired partition {}", partition);
+            } else {
+                log.info("Detached expired partition {}", partition);
+            }
+        }
+    }
+
+    private void purgeKeys(String table, YearMonth month) {
+        String keyTable = KEY_TABLES.get(table);
+        if (keyTable == null) return;
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM " + keyTable + " WHERE created_at >= ? AND created_at < ?",
+                Timestamp.from(month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC)),
+                Timestamp.from(month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC)));
+        log.info("Removed {} unique keys of {} for {}", deleted, table, month);
+    }
+}
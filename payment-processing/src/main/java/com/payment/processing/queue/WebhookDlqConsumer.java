@@ -0,0 +1,45 @@
+package com.payment.processing.queue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Drains the webhook dead-letter queue. Messages that still point at a stored event are
+ * quarantined so they can be replayed; anything else is logged and dropped.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WebhookDlqConsumer {
+
+    private final WebhookRedriveService redriveService;
+    private final ObjectMapper objectMapper;
+
+    @RabbitListener(queues = "${queue.webhook.dlq-name:payment.webhook.events.dlq}")
+    public void onDeadLetter(Message message) {
+        UUID webhookEventId = resolveWebhookEventId(message.getBody());
+        if (webhookEventId == null) {
+            log.error("Dropping unreadable dead-lettered webhook message: {}", message.getMessageProperties());
+            return;
+        }
+        redriveService.quarantine(webhookEventId, "Dead-lettered by " + message.getMessageProperties().getConsumerQueue());
+    }
+
+    private UUID resolveWebhookEventId(byte[] body) {
+        try {
+            JsonNode node = objectMapper.readTree(body);
+            String id = node.isTextual() ? node.asText()
+                    : node.hasNonNull("webhookEventId") ? node.get("webhookEventId").asText() : null;
+            return id != null ? UUID.fromString(id) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
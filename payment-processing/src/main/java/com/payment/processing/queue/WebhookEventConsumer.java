@@ -1,5 +1,8 @@
 package com.payment.processing.queue;
 
+import com.payment.processing.concurrency.PaymentLaneExecutor;
+import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.webhook.WebhookEnvelope;
 import com.payment.processing.webhook.WebhookProcessor;
 import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
@@ -9,30 +12,68 @@ import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.UUID;
+
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class WebhookEventConsumer {
 
     private final WebhookProcessor webhookProcessor;
+    private final WebhookRedriveService redriveService;
+    private final PaymentLaneExecutor paymentLanes;
+    private final TransactionRepository transactionRepository;
 
     @RabbitListener(queues = "${queue.webhook.name:payment.webhook.events}")
-    public void processWebhookEvent(String webhookEventId, Channel channel,
+    public void processWebhookEvent(WebhookEnvelope received, Channel channel,
                                     @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        UUID webhookEventId = received.webhookEventId();
         log.info("Received webhook event from queue: {}", webhookEventId);
 
+        WebhookEnvelope envelope = received;
         try {
-            webhookProcessor.processWebhookEvent(webhookEventId);
+            if (isRefund(envelope) && envelope.refTransId() == null) {
+                envelope = envelope.toBuilder().refTransId(webhookProcessor.refundParentId(envelope)).build();
+            }
+            WebhookEnvelope resolved = envelope;
+            if (paymentLanes.execute("webhook", laneKey(resolved), () -> webhookProcessor.processWebhookEvent(resolved))) {
+                log.info("Webhook event processed and acknowledged: {}", webhookEventId);
+            } else {
+                redriveService.scheduleRetry(envelope);
+            }
             channel.basicAck(deliveryTag, false);
-            log.info("Webhook event processed and acknowledged: {}", webhookEventId);
         } catch (Exception e) {
             log.error("Error processing webhook event: {}", webhookEventId, e);
             try {
-                channel.basicNack(deliveryTag, false, false);
+                if (redriveService.recordFailure(envelope, e)) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    channel.basicNack(deliveryTag, false, false);
+                }
             } catch (Exception ex) {
                 log.error("Error rejecting message", ex);
             }
         }
     }
-}
 
+    /**
+     * Events for a known payment share its lane with API capture/void/refund calls; refunds use the lane
+     * of the refunded payment, so an API refund still in flight is recorded before its webhook is seen.
+     * Anything else, subscription events included, is keyed by the webhook event itself.
+     */
+    private UUID laneKey(WebhookEnvelope envelope) {
+        String gatewayTransactionId = isRefund(envelope) ? envelope.refTransId() : envelope.id();
+        if (gatewayTransactionId != null) {
+            List<UUID> transactionIds = transactionRepository.findIdsByGatewayTransactionId(gatewayTransactionId);
+            if (!transactionIds.isEmpty()) {
+                return transactionIds.get(0);
+            }
+        }
+        return envelope.webhookEventId();
+    }
+
+    private boolean isRefund(WebhookEnvelope envelope) {
+        return "net.authorize.payment.refund.created".equalsIgnoreCase(envelope.eventType());
+    }
+}
@@ -0,0 +1,223 @@
+package com.payment.processing.queue;
+
+import com.payment.processing.config.RabbitMQConfig;
+import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.repository.WebhookEventRepository;
+import com.payment.processing.webhook.WebhookEnvelope;
+import com.payment.processing.webhook.WebhookEnvelopeParser;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Moves failed webhook events through the delayed retry tiers declared in {@link RabbitMQConfig}
+ * and quarantines them once they run out of attempts. Quarantined events stay in
+ * {@code webhook_events} until an operator replays them.
+ */
+@Service
+@Slf4j
+public class WebhookRedriveService {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final WebhookEnvelopeParser envelopeParser;
+    private final RabbitTemplate rabbitTemplate;
+    private final Executor asyncExecutor;
+    private final TransactionTemplate writeTransaction;
+    private final Counter retriedCounter;
+    private final Counter quarantinedCounter;
+    private final Counter replayedCounter;
+
+    @Value("${queue.webhook.exchange:payment.exchange}")
+    private String exchangeName;
+
+    @Value("${queue.webhook.retry-exchange:payment.retry.exchange}")
+    private String retryExchangeName;
+
+    @Value("${queue.webhook.retry-delays-ms:5000,30000,300000}")
+    private long[] retryDelaysMs;
+
+    @Value("${queue.webhook.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${queue.webhook.replay-batch-size:100}")
+    private int replayBatchSize;
+
+    public WebhookRedriveService(WebhookEventRepository webhookEventRepository, WebhookEnvelopeParser envelopeParser,
+                                 RabbitTemplate rabbitTemplate, @Qualifier("asyncExecutor") Executor asyncExecutor,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.envelopeParser = envelopeParser;
+        this.rabbitTemplate = rabbitTemplate;
+        this.asyncExecutor = asyncExecutor;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retriedCounter = Counter.builder("webhook.redrive").tag("outcome", "retried").register(meterRegistry);
+        this.quarantinedCounter = Counter.builder("webhook.redrive").tag("outcome", "quarantined").register(meterRegistry);
+        this.replayedCounter = Counter.builder("webhook.redrive").tag("outcome", "replayed").register(meterRegistry);
+    }
+
+    /**
+     * Schedules the next attempt for an event whose failure the processor has already recorded.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void scheduleRetry(WebhookEnvelope envelope) {
+        webhookEventRepository.findById(envelope.webhookEventId())
+                .ifPresent(event -> redrive(event, envelope));
+    }
+
+    /**
+     * Records a failure that escaped the processor (e.g. a rolled back transaction) and schedules the next attempt.
+     *
+     * @return false if the event does not exist and the message should be dead-lettered
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean recordFailure(WebhookEnvelope envelope, Exception error) {
+        if (envelope.webhookEventId() == null) {
+            return false;
+        }
+        return webhookEventRepository.findById(envelope.webhookEventId())
+                .map(event -> {
+                    event.recordFailure(error.getMessage());
+                    redrive(event, envelope);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void quarantine(UUID webhookEventId, String reason) {
+        webhookEventRepository.findById(webhookEventId).ifPresent(event -> {
+            if (!event.getProcessed() && !event.getQuarantined()) {
+                event.recordFailure(reason);
+                event.quarantine();
+                webhookEventRepository.save(event);
+                quarantinedCounter.increment();
+                log.warn("Webhook event quarantined: {} - {}", webhookEventId, reason);
+            }
+        });
+    }
+
+    public long countQuarantined() {
+        return webhookEventRepository.countByQuarantinedTrue();
+    }
+
+    /**
+     * Releases up to {@code limit} quarantined events back onto the main queue, publishing at most
+     * {@code ratePerSecond} events per second so a large replay cannot starve live traffic.
+     * Runs in the background; progress is visible through the {@code webhook.redrive} metrics.
+     */
+    public void replayQuarantined(int limit, int ratePerSecond) {
+        asyncExecutor.execute(() -> replay(limit, ratePerSecond));
+    }
+
+    private void replay(int limit, int ratePerSecond) {
+        Bucket bucket = Bucket.builder()
+                .addLimit(Bandwidth.classic(ratePerSecond, Refill.greedy(ratePerSecond, Duration.ofSeconds(1))))
+                .build();
+        int replayed = 0;
+        // Keyset over quarantined ids, so events that stay quarantined (unparseable ones) are read once.
+        UUID after = FIRST_ID;
+        try {
+            while (replayed < limit) {
+                List<WebhookEvent> batch = webhookEventRepository.findQuarantinedAfter(after,
+                        PageRequest.of(0, Math.min(replayBatchSize, limit - replayed)));
+                if (batch.isEmpty()) break;
+                after = batch.get(batch.size() - 1).getId();
+
+                for (WebhookEvent event : batch) {
+                    bucket.asBlocking().consume(1);
+                    if (replayOne(event)) {
+                        replayedCounter.increment();
+                        replayed++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Quarantine replay interrupted after {} events", replayed);
+            return;
+        } catch (AmqpException e) {
+            log.error("Quarantine replay stopped after {} events, the remaining events stay quarantined", replayed, e);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Quarantine replay failed after {} events", replayed, e);
+            return;
+        }
+        log.info("Replayed {} quarantined webhook events", replayed);
+    }
+
+    /**
+     * Releases one event from quarantine and publishes it. The release is a conditional update, so
+     * concurrent replays publish each event once; if publishing fails the event goes back into quarantine.
+     *
+     * @return false if the event was skipped
+     * @throws AmqpException if publishing failed, after the event was put back
+     */
+    private boolean replayOne(WebhookEvent event) {
+        WebhookEnvelope envelope;
+        try {
+            envelope = toEnvelope(event);
+        } catch (IOException e) {
+            log.warn("Quarantined webhook event {} cannot be parsed and stays quarantined", event.getId(), e);
+            return false;
+        }
+        Integer released = writeTransaction.execute(status ->
+                webhookEventRepository.releaseFromQuarantine(event.getId(), Instant.now()));
+        if (released == null || released == 0) {
+            return false;
+        }
+        try {
+            rabbitTemplate.convertAndSend(exchangeName, RabbitMQConfig.WEBHOOK_ROUTING_KEY, envelope);
+            return true;
+        } catch (AmqpException e) {
+            writeTransaction.executeWithoutResult(status ->
+                    webhookEventRepository.requarantine(event.getId(), event.getProcessingAttempts(), Instant.now()));
+            throw e;
+        }
+    }
+
+    private void redrive(WebhookEvent event, WebhookEnvelope envelope) {
+        int attempts = event.getProcessingAttempts();
+        if (attempts >= maxAttempts) {
+            event.quarantine();
+            quarantinedCounter.increment();
+            log.warn("Webhook event quarantined after {} attempts: {}", attempts, event.getId());
+        } else {
+            int tier = Math.max(1, Math.min(attempts, retryDelaysMs.length));
+            rabbitTemplate.convertAndSend(retryExchangeName, RabbitMQConfig.WEBHOOK_RETRY_ROUTING_KEY_PREFIX + tier, envelope);
+            retriedCounter.increment();
+            log.info("Webhook event {} scheduled for retry tier {} (attempt {})", event.getId(), tier, attempts);
+        }
+        webhookEventRepository.save(event);
+    }
+
+    private WebhookEnvelope toEnvelope(WebhookEvent event) throws IOException {
+        return envelopeParser.parse(event.getPayload()).toBuilder()
+                .webhookEventId(event.getId())
+                .notificationId(event.getEventId())
+                .build();
+    }
+}
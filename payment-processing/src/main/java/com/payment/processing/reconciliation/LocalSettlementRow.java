@@ -0,0 +1,23 @@
+package com.payment.processing.reconciliation;
+
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The columns of a local transaction that reconciliation compares; read instead of entities so
+ * the persistence context does not grow with the day's volume.
+ */
+public record LocalSettlementRow(
+        String gatewayTransactionId,
+        UUID id,
+        TransactionType type,
+        TransactionStatus status,
+        BigDecimal amount,
+        BigDecimal capturedAmount,
+        Instant capturedAt,
+        Instant createdAt) {
+}
@@ -0,0 +1,379 @@
+package com.payment.processing.reconciliation;
+
+import com.payment.processing.domain.entity.ReconciliationMismatch;
+import com.payment.processing.domain.entity.ReconciliationRun;
+import com.payment.processing.domain.enums.MismatchType;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.ReconciliationMismatchRepository;
+import com.payment.processing.repository.ReconciliationRunRepository;
+import com.payment.processing.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * End-of-day settlement reconciliation: compares the gateway's settled batches for a day with the
+ * local {@code transactions} rows by gateway transaction id.
+ * <p>
+ * Both sides are read in the same order and joined with a sorted merge. The gateway side is a k-way
+ * merge of the day's batches, each fetched one page at a time. The local side is read in keyset pages
+ * of a projection, each in its own short read-only transaction, so no transaction stays open while
+ * gateway pages are fetched. Mismatches are written in chunks, so memory stays bounded by page size
+ * and batch count regardless of daily volume.
+ */
+@Service
+@Slf4j
+public class ReconciliationService {
+
+    /** Gateway transaction ids are numeric strings; shorter sorts first, then lexically. */
+    public static final Comparator<String> GATEWAY_ID_ORDER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    private static final Set<TransactionStatus> SETTLING_STATUSES = EnumSet.of(
+            TransactionStatus.CAPTURED, TransactionStatus.SETTLED,
+            TransactionStatus.REFUNDED, TransactionStatus.PARTIALLY_REFUNDED);
+    private static final Set<String> GATEWAY_FAILED_STATUSES = Set.of(
+            "declined", "expired", "generalError", "settlementError", "failedReview", "communicationError");
+
+    private final SettlementReportSource reportSource;
+    private final TransactionRepository transactionRepository;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final Executor asyncExecutor;
+    private final TransactionTemplate writeTransaction;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${reconciliation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${reconciliation.page-size:1000}")
+    private int pageSize;
+
+    @Value("${reconciliation.lookback-days:30}")
+    private int lookbackDays;
+
+    @Value("${reconciliation.settlement-grace-hours:6}")
+    private int settlementGraceHours;
+
+    @Value("${reconciliation.write-chunk-size:500}")
+    private int writeChunkSize;
+
+    /** Settlement reports come from the primary gateway; payments routed elsewhere are not in them. */
+    @Value("${gateway.routing.primary:authorize_net}")
+    private String primaryGateway;
+
+    public ReconciliationService(SettlementReportSource reportSource, TransactionRepository transactionRepository,
+                                 ReconciliationRunRepository runRepository,
+                                 ReconciliationMismatchRepository mismatchRepository,
+                                 @Qualifier("asyncExecutor") Executor asyncExecutor,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.reportSource = reportSource;
+        this.transactionRepository = transactionRepository;
+        this.runRepository = runRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.asyncExecutor = asyncExecutor;
+        this.meterRegistry = meterRegistry;
+
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(cron = "${reconciliation.cron:0 0 6 * * *}", zone = "UTC")
+    public void reconcileYesterday() {
+        if (enabled) {
+            reconcile(LocalDate.now(ZoneOffset.UTC).minusDays(1));
+        }
+    }
+
+    /**
+     * Starts reconciliation of one UTC settlement day in the background.
+     */
+    public ReconciliationRun startReconciliation(LocalDate settlementDate) {
+        ReconciliationRun run = runRepository.save(ReconciliationRun.builder().settlementDate(settlementDate).build());
+        asyncExecutor.execute(() -> execute(run));
+        return run;
+    }
+
+    public ReconciliationRun reconcile(LocalDate settlementDate) {
+        return execute(runRepository.save(ReconciliationRun.builder().settlementDate(settlementDate).build()));
+    }
+
+    public ReconciliationRun getRun(UUID runId) {
+        return runRepository.findById(runId)
+                .orElseThrow(() -> new PaymentException("RECONCILIATION_RUN_NOT_FOUND", "Reconciliation run not found: " + runId));
+    }
+
+    public Page<ReconciliationMismatch> getMismatches(UUID runId, Pageable pageable) {
+        return mismatchRepository.findByRunId(runId, pageable);
+    }
+
+    private ReconciliationRun execute(ReconciliationRun run) {
+        Instant from = run.getSettlementDate().atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant to = from.plus(Duration.ofDays(1));
+        log.info("Reconciling settlements for {}", run.getSettlementDate());
+        try {
+            Merge merge = new Merge(run, from, to);
+            merge.run();
+            merge.flush();
+            run.markCompleted();
+            log.info("Reconciliation for {} completed: {} gateway, {} local, {} matched, {} mismatches",
+                    run.getSettlementDate(), run.getGatewayCount(), run.getLocalCount(),
+                    run.getMatchedCount(), run.getMismatchCount());
+        } catch (Exception e) {
+            log.error("Reconciliation for {} failed", run.getSettlementDate(), e);
+            run.markFailed(e.getMessage());
+        }
+        return writeTransaction.execute(status -> runRepository.save(run));
+    }
+
+    /** State of one sorted-merge pass. */
+    private final class Merge {
+        private final ReconciliationRun run;
+        private final Instant from;
+        private final Instant to;
+        private final Instant settledBefore;
+        private final Instant localFrom;
+        private final List<ReconciliationMismatch> pending = new ArrayList<>();
+
+        Merge(ReconciliationRun run, Instant from, Instant to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+            this.settledBefore = to.minus(Duration.ofHours(settlementGraceHours));
+            this.localFrom = from.minus(Duration.ofDays(lookbackDays));
+        }
+
+        void run() {
+            Iterator<SettledTransaction> gateway = gatewayStream(from, to);
+            Iterator<LocalSettlementRow> local = new LocalRows(localFrom, to);
+            LocalSettlementRow l = nextOrNull(local);
+            SettledTransaction g = nextOrNull(gateway);
+            while (l != null || g != null) {
+                int cmp = l == null ? 1 : g == null ? -1
+                        : GATEWAY_ID_ORDER.compare(l.gatewayTransactionId(), g.transactionId());
+                if (cmp == 0) {
+                    compare(l, g);
+                    l = nextOrNull(local);
+                    g = nextOrNull(gateway);
+                } else if (cmp < 0) {
+                    localOnly(l);
+                    l = nextOrNull(local);
+                } else {
+                    gatewayOnly(g);
+                    g = nextOrNull(gateway);
+                }
+            }
+        }
+
+        private void compare(LocalSettlementRow local, SettledTransaction settled) {
+            run.setLocalCount(run.getLocalCount() + 1);
+            run.setGatewayCount(run.getGatewayCount() + 1);
+            if (!statusMatches(local, settled.status())) {
+                record(MismatchType.STATUS_DRIFT, local, settled);
+            } else if (isSettled(settled.status()) && settled.settleAmount() != null
+                    && expectedAmount(local).compareTo(settled.settleAmount()) != 0) {
+                record(MismatchType.AMOUNT_MISMATCH, local, settled);
+            } else {
+                run.setMatchedCount(run.getMatchedCount() + 1);
+            }
+        }
+
+        /**
+         * The lookback only finds rows created before the day that settle on it; rows that settle on
+         * another day are not expected in this report and are not counted.
+         */
+        private void localOnly(LocalSettlementRow local) {
+            Instant settlesAt = local.capturedAt() != null ? local.capturedAt() : local.createdAt();
+            if (settlesAt.isBefore(from) || !settlesAt.isBefore(to)) {
+                return;
+            }
+            run.setLocalCount(run.getLocalCount() + 1);
+            if (SETTLING_STATUSES.contains(local.status()) && settlesAt.isBefore(settledBefore)) {
+                record(MismatchType.MISSING_AT_GATEWAY, local, null);
+            }
+        }
+
+        private void gatewayOnly(SettledTransaction settled) {
+            run.setGatewayCount(run.getGatewayCount() + 1);
+            record(MismatchType.MISSING_LOCALLY, null, settled);
+        }
+
+        private void record(MismatchType type, LocalSettlementRow local, SettledTransaction settled) {
+            run.setMismatchCount(run.getMismatchCount() + 1);
+            Counter.builder("reconciliation.mismatches").tag("type", type.name()).register(meterRegistry).increment();
+            pending.add(ReconciliationMismatch.builder()
+                    .runId(run.getId())
+                    .type(type)
+                    .gatewayTransactionId(local != null ? local.gatewayTransactionId() : settled.transactionId())
+                    .transactionId(local != null ? local.id() : null)
+                    .batchId(settled != null ? settled.batchId() : null)
+                    .localStatus(local != null ? local.status() : null)
+                    .gatewayStatus(settled != null ? settled.status() : null)
+                    .localAmount(local != null ? expectedAmount(local) : null)
+                    .gatewayAmount(settled != null ? settled.settleAmount() : null)
+                    .build());
+            if (pending.size() >= writeChunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) return;
+            List<ReconciliationMismatch> chunk = new ArrayList<>(pending);
+            pending.clear();
+            writeTransaction.executeWithoutResult(status -> mismatchRepository.saveAll(chunk));
+        }
+    }
+
+    /**
+     * All batches settled in the window merged into one stream ordered by {@link #GATEWAY_ID_ORDER}.
+     * Holds at most one page per batch.
+     */
+    private Iterator<SettledTransaction> gatewayStream(Instant from, Instant to) {
+        PriorityQueue<PagedBatch> heads = new PriorityQueue<>(
+                Comparator.comparing((PagedBatch batch) -> batch.peek().transactionId(), GATEWAY_ID_ORDER));
+        for (String batchId : reportSource.settledBatchIds(from, to)) {
+            PagedBatch batch = new PagedBatch(batchId);
+            if (batch.peek() != null) {
+                heads.add(batch);
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public SettledTransaction next() {
+                PagedBatch batch = heads.poll();
+                if (batch == null) throw new NoSuchElementException();
+                SettledTransaction next = batch.poll();
+                if (batch.peek() != null) {
+                    heads.add(batch);
+                }
+                return next;
+            }
+        };
+    }
+
+    /** Local rows created in {@code [from, to)} in {@link #GATEWAY_ID_ORDER}, one keyset page at a time. */
+    private final class LocalRows implements Iterator<LocalSettlementRow> {
+        private final Instant from;
+        private final Instant to;
+        private Iterator<LocalSettlementRow> current = Collections.emptyIterator();
+        private LocalSettlementRow last;
+        private boolean exhausted;
+
+        LocalRows(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!current.hasNext() && !exhausted) {
+                List<LocalSettlementRow> page = last == null
+                        ? transactionRepository.findForReconciliation(primaryGateway, from, to,
+                                -1, "", new UUID(0, 0), Pageable.ofSize(pageSize))
+                        : transactionRepository.findForReconciliation(primaryGateway, from, to,
+                                last.gatewayTransactionId().length(), last.gatewayTransactionId(), last.id(),
+                                Pageable.ofSize(pageSize));
+                exhausted = page.size() < pageSize;
+                current = page.iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public LocalSettlementRow next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            last = current.next();
+            return last;
+        }
+    }
+
+    private final class PagedBatch {
+        private final String batchId;
+        private int page = 0;
+        private boolean exhausted;
+        private Iterator<SettledTransaction> current = Collections.emptyIterator();
+        private SettledTransaction head;
+
+        PagedBatch(String batchId) {
+            this.batchId = batchId;
+            advance();
+        }
+
+        SettledTransaction peek() {
+            return head;
+        }
+
+        SettledTransaction poll() {
+            SettledTransaction result = head;
+            advance();
+            return result;
+        }
+
+        private void advance() {
+            if (!current.hasNext() && !exhausted) {
+                List<SettledTransaction> next = reportSource.batchTransactions(batchId, ++page, pageSize);
+                exhausted = next.size() < pageSize;
+                current = next.iterator();
+            }
+            head = current.hasNext() ? current.next() : null;
+        }
+    }
+
+    private static <T> T nextOrNull(Iterator<T> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static boolean isSettled(String gatewayStatus) {
+        return "settledSuccessfully".equals(gatewayStatus) || "refundSettledSuccessfully".equals(gatewayStatus);
+    }
+
+    private static boolean statusMatches(LocalSettlementRow local, String gatewayStatus) {
+        if ("settledSuccessfully".equals(gatewayStatus)) {
+            return local.type() != TransactionType.REFUND && SETTLING_STATUSES.contains(local.status());
+        }
+        if ("refundSettledSuccessfully".equals(gatewayStatus)) {
+            return local.type() == TransactionType.REFUND && local.status() == TransactionStatus.REFUNDED;
+        }
+        if ("voided".equals(gatewayStatus)) {
+            return local.status() == TransactionStatus.VOIDED;
+        }
+        if (GATEWAY_FAILED_STATUSES.contains(gatewayStatus)) {
+            return local.status() == TransactionStatus.FAILED || local.status() == TransactionStatus.DECLINED
+                    || local.status() == TransactionStatus.EXPIRED;
+        }
+        // Other statuses (pending settlement, under review) are not final; nothing to compare yet.
+        return true;
+    }
+
+    private static BigDecimal expectedAmount(LocalSettlementRow local) {
+        if (local.type() != TransactionType.REFUND && local.capturedAmount() != null) {
+            return local.capturedAmount();
+        }
+        return local.amount();
+    }
+}
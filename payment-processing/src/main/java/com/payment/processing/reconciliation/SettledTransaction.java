@@ -0,0 +1,17 @@
+package com.payment.processing.reconciliation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One transaction line of a gateway settlement batch.
+ *
+ * @param status gateway status string, e.g. {@code settledSuccessfully}, {@code refundSettledSuccessfully}, {@code voided}
+ */
+public record SettledTransaction(
+        String transactionId,
+        String batchId,
+        String status,
+        BigDecimal settleAmount,
+        Instant submittedAt) {
+}
@@ -0,0 +1,19 @@
+package com.payment.processing.reconciliation;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Read access to the gateway's settlement reports.
+ */
+public interface SettlementReportSource {
+
+    /** Ids of the batches settled in {@code [from, to)}. */
+    List<String> settledBatchIds(Instant from, Instant to);
+
+    /**
+     * One page (1-based) of a batch's transactions in ascending gateway transaction id order
+     * ({@link ReconciliationService#GATEWAY_ID_ORDER}); an empty or short page ends the batch.
+     */
+    List<SettledTransaction> batchTransactions(String batchId, int page, int pageSize);
+}
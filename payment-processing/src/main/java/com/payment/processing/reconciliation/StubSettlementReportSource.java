@@ -0,0 +1,87 @@
+package com.payment.processing.reconciliation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Local stand-in for the gateway's settlement reports, for development and load tests.
+ * Reads {@code batchId,transactionId,status,settleAmount[,submittedAt]} lines from
+ * {@code reconciliation.stub.file}; every batch in the file counts as settled in any window.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "reconciliation.source", havingValue = "stub")
+public class StubSettlementReportSource implements SettlementReportSource {
+
+    private final Path file;
+    private volatile Map<String, List<SettledTransaction>> batches;
+    private volatile long loadedModifiedAt;
+
+    public StubSettlementReportSource(@Value("${reconciliation.stub.file}") Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public List<String> settledBatchIds(Instant from, Instant to) {
+        return List.copyOf(load().keySet());
+    }
+
+    @Override
+    public List<SettledTransaction> batchTransactions(String batchId, int page, int pageSize) {
+        List<SettledTransaction> batch = load().getOrDefault(batchId, List.of());
+        int start = (page - 1) * pageSize;
+        if (start >= batch.size()) {
+            return List.of();
+        }
+        return batch.subList(start, Math.min(start + pageSize, batch.size()));
+    }
+
+    private Map<String, List<SettledTransaction>> load() {
+        try {
+            long modifiedAt = Files.getLastModifiedTime(file).toMillis();
+            if (batches == null || modifiedAt != loadedModifiedAt) {
+                batches = read();
+                loadedModifiedAt = modifiedAt;
+                log.info("Loaded settlement stub {} with {} batches", file, batches.size());
+            }
+            return batches;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read settlement stub " + file, e);
+        }
+    }
+
+    private Map<String, List<SettledTransaction>> read() throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return lines
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .map(this::parse)
+                    .sorted(Comparator.comparing(SettledTransaction::transactionId, ReconciliationService.GATEWAY_ID_ORDER))
+                    .collect(Collectors.groupingBy(SettledTransaction::batchId, TreeMap::new, Collectors.toList()));
+        }
+    }
+
+    private SettledTransaction parse(String line) {
+        String[] fields = line.split(",");
+        return new SettledTransaction(
+                fields[1].trim(),
+                fields[0].trim(),
+                fields[2].trim(),
+                new BigDecimal(fields[3].trim()),
+                fields.length > 4 ? Instant.parse(fields[4].trim()) : null);
+    }
+}
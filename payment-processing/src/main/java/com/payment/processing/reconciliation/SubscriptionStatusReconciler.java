@@ -0,0 +1,261 @@
+package com.payment.processing.reconciliation;
+
+import com.payment.processing.domain.entity.SubscriptionSyncSweep;
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.SubscriptionRepository;
+import com.payment.processing.repository.SubscriptionSyncSweepRepository;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Background sweep that brings {@code Subscription.status} in line with Authorize.Net ARB.
+ * <p>
+ * Subscriptions are scanned in id (keyset) order a page at a time. Each page is queried with at most
+ * {@code subscription.sync.concurrency} requests in flight and {@code rate-per-second} overall; the
+ * resulting status changes and the sweep checkpoint commit together, so a restarted node resumes
+ * after the last applied page. A lease on the sweep row keeps other nodes from running it concurrently,
+ * and a partial unique index allows only one RUNNING sweep, so nodes starting a sweep at the same time
+ * end up sharing it.
+ */
+@Component
+@Slf4j
+public class SubscriptionStatusReconciler {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+    private static final Set<SubscriptionStatus> SYNCED_STATUSES =
+            EnumSet.of(SubscriptionStatus.ACTIVE, SubscriptionStatus.TRIAL, SubscriptionStatus.SUSPENDED);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionSyncSweepRepository sweepRepository;
+    private final PaymentGateway paymentGateway;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService statusExecutor;
+    private final Bucket rateLimit;
+    private final Counter unchangedCounter;
+    private final Counter changedCounter;
+    private final Counter failedCounter;
+
+    @Value("${subscription.sync.enabled:false}")
+    private boolean enabled;
+
+    @Value("${subscription.sync.page-size:500}")
+    private int pageSize;
+
+    @Value("${subscription.sync.sweep-interval-hours:24}")
+    private long sweepIntervalHours;
+
+    @Value("${subscription.sync.lease-minutes:10}")
+    private long leaseMinutes;
+
+    public SubscriptionStatusReconciler(SubscriptionRepository subscriptionRepository,
+                                        SubscriptionSyncSweepRepository sweepRepository, PaymentGateway paymentGateway,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${subscription.sync.concurrency:8}") int concurrency,
+                                        @Value("${subscription.sync.rate-per-second:20}") int ratePerSecond,
+                                        MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.sweepRepository = sweepRepository;
+        this.paymentGateway = paymentGateway;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.statusExecutor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "subscription-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rateLimit = Bucket.builder()
+                .addLimit(Bandwidth.classic(ratePerSecond, Refill.greedy(ratePerSecond, Duration.ofSeconds(1))))
+                .build();
+        this.unchangedCounter = Counter.builder("subscription.sync").tag("outcome", "unchanged").register(meterRegistry);
+        this.changedCounter = Counter.builder("subscription.sync").tag("outcome", "changed").register(meterRegistry);
+        this.failedCounter = Counter.builder("subscription.sync").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        statusExecutor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${subscription.sync.poll-interval-ms:300000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        SubscriptionSyncSweep sweep = currentOrNextSweep();
+        if (sweep == null) {
+            return;
+        }
+        Instant lease = acquireLease(sweep.getId(), null);
+        if (lease == null) {
+            log.debug("Subscription sync sweep {} is held by another node", sweep.getId());
+            return;
+        }
+        log.info("Running subscription sync sweep {} from {}", sweep.getId(), sweep.getCheckpointSubscriptionId());
+        try {
+            UUID afterId = sweep.getCheckpointSubscriptionId() != null ? sweep.getCheckpointSubscriptionId() : MIN_UUID;
+            List<SubscriptionStatusRow> page;
+            while (!(page = subscriptionRepository.findStatusSweepPage(afterId, SYNCED_STATUSES,
+                    PageRequest.of(0, pageSize))).isEmpty()) {
+                Map<SubscriptionStatusRow, SubscriptionStatus> remote = queryGateway(page);
+                UUID lastId = page.get(page.size() - 1).id();
+                lease = applyPage(sweep.getId(), lease, page, remote, lastId);
+                if (lease == null) {
+                    log.warn("Lost lease on subscription sync sweep {}", sweep.getId());
+                    return;
+                }
+                afterId = lastId;
+            }
+            transactionTemplate.executeWithoutResult(status -> sweepRepository.findById(sweep.getId()).ifPresent(done -> {
+                done.markCompleted();
+                log.info("Subscription sync sweep {} completed: {} scanned, {} changed, {} failed",
+                        done.getId(), done.getScannedCount(), done.getChangedCount(), done.getFailedCount());
+            }));
+        } catch (RuntimeException e) {
+            // The sweep stays RUNNING; the next poll resumes from the checkpoint once the lease expires.
+            log.error("Subscription sync sweep {} interrupted", sweep.getId(), e);
+        }
+    }
+
+    private SubscriptionSyncSweep currentOrNextSweep() {
+        try {
+            return startOrResumeSweep();
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Another node started a subscription sync sweep first");
+            return transactionTemplate.execute(status -> sweepRepository
+                    .findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.RUNNING).orElse(null));
+        }
+    }
+
+    private SubscriptionSyncSweep startOrResumeSweep() {
+        return transactionTemplate.execute(status -> {
+            Optional<SubscriptionSyncSweep> running =
+                    sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.RUNNING);
+            if (running.isPresent()) {
+                return running.get();
+            }
+            Instant due = Instant.now().minus(Duration.ofHours(sweepIntervalHours));
+            boolean recent = sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.COMPLETED)
+                    .map(last -> last.getCompletedAt().isAfter(due))
+                    .orElse(false);
+            return recent ? null : sweepRepository.saveAndFlush(SubscriptionSyncSweep.builder().build());
+        });
+    }
+
+    /** Lease ends are kept at millisecond precision so they compare equal after a database round trip. */
+    private Instant acquireLease(UUID sweepId, Instant held) {
+        Instant now = Instant.now();
+        Instant until = now.plus(Duration.ofMinutes(leaseMinutes)).truncatedTo(ChronoUnit.MILLIS);
+        Integer updated = transactionTemplate.execute(status -> sweepRepository.acquireLease(sweepId, held, now, until));
+        return updated != null && updated > 0 ? until : null;
+    }
+
+    /**
+     * Gateway status for each row of the page; rows whose lookup failed are absent.
+     */
+    private Map<SubscriptionStatusRow, SubscriptionStatus> queryGateway(List<SubscriptionStatusRow> page) {
+        List<Future<GatewayResponse>> futures = new ArrayList<>(page.size());
+        for (SubscriptionStatusRow row : page) {
+            consumeRateLimit();
+            futures.add(statusExecutor.submit(() -> paymentGateway.getSubscriptionStatus(row.gatewaySubscriptionId())));
+        }
+        Map<SubscriptionStatusRow, SubscriptionStatus> remote = new HashMap<>();
+        for (int i = 0; i < page.size(); i++) {
+            SubscriptionStatusRow row = page.get(i);
+            try {
+                GatewayResponse response = futures.get(i).get();
+                SubscriptionStatus status = response.isSuccess() ? SubscriptionStatus.fromArbStatus(response.getResponseMessage()) : null;
+                if (status != null) {
+                    remote.put(row, status);
+                } else {
+                    log.warn("No ARB status for subscription {}: {}", row.id(), response.getErrorMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Subscription sync interrupted", e);
+            } catch (ExecutionException e) {
+                log.warn("ARB status lookup failed for subscription {}: {}", row.id(), e.getCause().getMessage());
+            }
+        }
+        return remote;
+    }
+
+    private Instant applyPage(UUID sweepId, Instant lease, List<SubscriptionStatusRow> page,
+                              Map<SubscriptionStatusRow, SubscriptionStatus> remote, UUID lastId) {
+        Instant now = Instant.now();
+        Instant until = now.plus(Duration.ofMinutes(leaseMinutes)).truncatedTo(ChronoUnit.MILLIS);
+        return transactionTemplate.execute(status -> {
+            if (sweepRepository.acquireLease(sweepId, lease, now, until) == 0) {
+                return null;
+            }
+            // One UPDATE per (old, new) status pair rather than one per subscription.
+            Map<SubscriptionStatus, Map<SubscriptionStatus, List<UUID>>> transitions = new EnumMap<>(SubscriptionStatus.class);
+            remote.forEach((row, target) -> {
+                if (!matches(row.status(), target)) {
+                    transitions.computeIfAbsent(row.status(), k -> new EnumMap<>(SubscriptionStatus.class))
+                            .computeIfAbsent(target, k -> new ArrayList<>())
+                            .add(row.id());
+                }
+            });
+            long changed = 0;
+            for (var from : transitions.entrySet()) {
+                for (var to : from.getValue().entrySet()) {
+                    changed += transition(to.getValue(), from.getKey(), to.getKey(), now);
+                }
+            }
+            long failed = page.size() - remote.size();
+            unchangedCounter.increment(remote.size() - changed);
+            changedCounter.increment(changed);
+            failedCounter.increment(failed);
+
+            SubscriptionSyncSweep sweep = sweepRepository.findById(sweepId).orElseThrow();
+            sweep.advanceCheckpoint(lastId, page.size(), changed, failed);
+            return until;
+        });
+    }
+
+    /**
+     * Canceled and terminated subscriptions also stop billing and get an end date, as on the webhook path.
+     */
+    private int transition(List<UUID> ids, SubscriptionStatus from, SubscriptionStatus to, Instant now) {
+        if (to == SubscriptionStatus.CANCELED || to == SubscriptionStatus.TERMINATED) {
+            return subscriptionRepository.endSubscriptions(ids, from, to, now, LocalDate.ofInstant(now, ZoneOffset.UTC));
+        }
+        return subscriptionRepository.transitionStatus(ids, from, to, now);
+    }
+
+    private void consumeRateLimit() {
+        try {
+            rateLimit.asBlocking().consume(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Subscription sync interrupted", e);
+        }
+    }
+
+    private static boolean matches(SubscriptionStatus local, SubscriptionStatus remote) {
+        // ARB reports trials as active.
+        return local == remote || (local == SubscriptionStatus.TRIAL && remote == SubscriptionStatus.ACTIVE);
+    }
+}
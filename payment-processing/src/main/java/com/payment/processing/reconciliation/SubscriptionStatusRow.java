@@ -0,0 +1,11 @@
+package com.payment.processing.reconciliation;
+
+import com.payment.processing.domain.enums.SubscriptionStatus;
+
+import java.util.UUID;
+
+/**
+ * The columns of a subscription that the ARB status sweep compares.
+ */
+public record SubscriptionStatusRow(UUID id, String gatewaySubscriptionId, SubscriptionStatus status) {
+}
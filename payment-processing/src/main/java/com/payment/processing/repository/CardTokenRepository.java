@@ -0,0 +1,35 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.CardToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface CardTokenRepository extends JpaRepository<CardToken, UUID> {
+    Optional<CardToken> findByCustomerIdAndFingerprint(String customerId, String fingerprint);
+
+    List<CardToken> findByCustomerIdOrderByCreatedAtDesc(String customerId);
+
+    Optional<CardToken> findFirstByCustomerIdAndGatewayCustomerProfileIdIsNotNull(String customerId);
+
+    /**
+     * Records the gateway profile of a token unless another node already did.
+     */
+    @Modifying
+    @Query("UPDATE CardToken t SET t.gatewayCustomerProfileId = :customerProfileId, " +
+           "t.gatewayPaymentProfileId = :paymentProfileId WHERE t.id = :id AND t.gatewayPaymentProfileId IS NULL")
+    int attachGatewayProfile(@Param("id") UUID id, @Param("customerProfileId") String customerProfileId,
+                             @Param("paymentProfileId") String paymentProfileId);
+
+    @Modifying
+    @Query("UPDATE CardToken t SET t.gatewayCustomerProfileId = NULL, t.gatewayPaymentProfileId = NULL " +
+           "WHERE t.customerId = :customerId AND t.fingerprint = :fingerprint")
+    int clearGatewayProfile(@Param("customerId") String customerId, @Param("fingerprint") String fingerprint);
+}
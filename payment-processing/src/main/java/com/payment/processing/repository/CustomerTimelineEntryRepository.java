@@ -0,0 +1,14 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.CustomerTimelineEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface CustomerTimelineEntryRepository extends JpaRepository<CustomerTimelineEntry, UUID> {
+    Page<CustomerTimelineEntry> findByCustomerId(String customerId, Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.PaymentRollupHourly;
+import com.payment.processing.domain.entity.PaymentRollupKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PaymentRollupHourlyRepository extends JpaRepository<PaymentRollupHourly, PaymentRollupKey> {
+
+    @Query("SELECT r FROM PaymentRollupHourly r WHERE r.id.bucketStart >= :from AND r.id.bucketStart < :to " +
+           "AND (:currency IS NULL OR r.id.currency = :currency) AND (:cardBrand IS NULL OR r.id.cardBrand = :cardBrand) " +
+           "ORDER BY r.id.bucketStart, r.id.currency, r.id.cardBrand")
+    List<PaymentRollupHourly> findBuckets(@Param("from") Instant from, @Param("to") Instant to,
+                                          @Param("currency") String currency, @Param("cardBrand") String cardBrand);
+}
@@ -0,0 +1,14 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.ReconciliationMismatch;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, UUID> {
+    Page<ReconciliationMismatch> findByRunId(UUID runId, Pageable pageable);
+}
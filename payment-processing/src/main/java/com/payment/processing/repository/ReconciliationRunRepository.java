@@ -0,0 +1,11 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, UUID> {
+}
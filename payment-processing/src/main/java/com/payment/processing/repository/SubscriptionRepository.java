@@ -2,19 +2,78 @@ package com.payment.processing.repository;
 
 import com.payment.processing.domain.entity.Subscription;
 import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.reconciliation.SubscriptionStatusRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface SubscriptionRepository extends JpaRepository<Subscription, UUID> {
     Optional<Subscription> findByGatewaySubscriptionId(String gatewaySubscriptionId);
+
+    @Query("SELECT s.id FROM Subscription s WHERE s.gatewaySubscriptionId = :gatewaySubscriptionId")
+    List<UUID> findIdsByGatewaySubscriptionId(@Param("gatewaySubscriptionId") String gatewaySubscriptionId);
     boolean existsByIdempotencyKey(String idempotencyKey);
     Page<Subscription> findByCustomerId(String customerId, Pageable pageable);
     Page<Subscription> findByStatus(SubscriptionStatus status, Pageable pageable);
-}
 
+    /**
+     * Locally billed subscriptions due on or before {@code billingDate}, locked with
+     * {@code FOR UPDATE SKIP LOCKED} so concurrent billing nodes claim disjoint rows.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM Subscription s WHERE s.status IN :statuses AND s.nextBillingDate <= :billingDate " +
+           "AND s.gatewaySubscriptionId IS NULL AND s.gatewayPaymentProfileId IS NOT NULL " +
+           "AND (s.nextBillingAttemptAt IS NULL OR s.nextBillingAttemptAt <= :now) " +
+           "ORDER BY s.nextBillingDate, s.id")
+    List<Subscription> claimDueForBilling(@Param("statuses") Collection<SubscriptionStatus> statuses,
+                                          @Param("billingDate") LocalDate billingDate,
+                                          @Param("now") Instant now, Pageable pageable);
+
+    /**
+     * Gateway-managed subscriptions after {@code afterId} in id order, for the ARB status sweep.
+     */
+    @Query("SELECT new com.payment.processing.reconciliation.SubscriptionStatusRow(s.id, s.gatewaySubscriptionId, s.status) " +
+           "FROM Subscription s WHERE s.id > :afterId AND s.status IN :statuses AND s.gatewaySubscriptionId IS NOT NULL " +
+           "ORDER BY s.id")
+    List<SubscriptionStatusRow> findStatusSweepPage(@Param("afterId") UUID afterId,
+                                                    @Param("statuses") Collection<SubscriptionStatus> statuses,
+                                                    Pageable pageable);
+
+    /**
+     * Moves subscriptions still in {@code from} to {@code to}; rows changed meanwhile are left alone.
+     */
+    @Modifying
+    @Query("UPDATE Subscription s SET s.status = :to, s.updatedAt = :now, s.version = s.version + 1 " +
+           "WHERE s.id IN :ids AND s.status = :from")
+    int transitionStatus(@Param("ids") Collection<UUID> ids, @Param("from") SubscriptionStatus from,
+                         @Param("to") SubscriptionStatus to, @Param("now") Instant now);
+
+    /**
+     * Like {@link #transitionStatus} for a terminal {@code to}: also stops billing and sets the end date
+     * to {@code today} unless one is set, as the webhook path does.
+     */
+    @Modifying
+    @Query("UPDATE Subscription s SET s.status = :to, s.nextBillingDate = NULL, " +
+           "s.endDate = COALESCE(s.endDate, :today), s.updatedAt = :now, s.version = s.version + 1 " +
+           "WHERE s.id IN :ids AND s.status = :from")
+    int endSubscriptions(@Param("ids") Collection<UUID> ids, @Param("from") SubscriptionStatus from,
+                         @Param("to") SubscriptionStatus to, @Param("now") Instant now,
+                         @Param("today") LocalDate today);
+}
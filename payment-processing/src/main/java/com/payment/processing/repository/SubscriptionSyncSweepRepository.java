@@ -0,0 +1,27 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.SubscriptionSyncSweep;
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SubscriptionSyncSweepRepository extends JpaRepository<SubscriptionSyncSweep, UUID> {
+    Optional<SubscriptionSyncSweep> findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus status);
+
+    /**
+     * Takes or renews the sweep lease; returns 0 if another node holds an unexpired lease.
+     */
+    @Modifying
+    @Query("UPDATE SubscriptionSyncSweep s SET s.leasedUntil = :until " +
+           "WHERE s.id = :id AND (s.leasedUntil IS NULL OR s.leasedUntil < :now OR s.leasedUntil = :held)")
+    int acquireLease(@Param("id") UUID id, @Param("held") Instant held, @Param("now") Instant now,
+                     @Param("until") Instant until);
+}
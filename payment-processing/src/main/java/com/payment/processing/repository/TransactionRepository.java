@@ -2,22 +2,74 @@ package com.payment.processing.repository;
 
 import com.payment.processing.domain.entity.Transaction;
 import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.reconciliation.LocalSettlementRow;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
     Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
     Optional<Transaction> findByGatewayTransactionId(String gatewayTransactionId);
     List<Transaction> findByOrderId(String orderId);
+    List<Transaction> findByOrderIdIn(Collection<String> orderIds);
+    List<Transaction> findByCustomerIdIn(Collection<String> customerIds, Pageable pageable);
     Page<Transaction> findByCustomerId(String customerId, Pageable pageable);
+    Page<Transaction> findByCustomerIdAndParentTransactionIdIsNull(String customerId, Pageable pageable);
+    List<Transaction> findByParentTransactionIdIn(Collection<UUID> parentTransactionIds);
     Page<Transaction> findByStatus(TransactionStatus status, Pageable pageable);
     boolean existsByIdempotencyKey(String idempotencyKey);
+
+    @Query("SELECT t.idempotencyKey FROM Transaction t WHERE t.idempotencyKey IN :keys")
+    List<String> findExistingIdempotencyKeys(@Param("keys") Collection<String> keys);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.gatewayTransactionId = :gatewayTransactionId")
+    List<UUID> findIdsByGatewayTransactionId(@Param("gatewayTransactionId") String gatewayTransactionId);
+
+    /**
+     * One page of the given gateway's transactions created in {@code [from, to)}, ordered like gateway
+     * settlement reports (by numeric transaction id, i.e. by length, then lexically; then by row id) and
+     * starting after the given row. Pass an {@code afterLength} of -1 for the first page. Rows recorded
+     * before routing have no gateway and belong to the primary one.
+     */
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    @Query("SELECT new com.payment.processing.reconciliation.LocalSettlementRow(" +
+           "t.gatewayTransactionId, t.id, t.type, t.status, t.amount, t.capturedAmount, t.capturedAt, t.createdAt) " +
+           "FROM Transaction t WHERE t.gatewayTransactionId IS NOT NULL AND t.createdAt >= :from AND t.createdAt < :to " +
+           "AND (t.gateway IS NULL OR t.gateway = :primary) " +
+           "AND (LENGTH(t.gatewayTransactionId) > :afterLength OR (LENGTH(t.gatewayTransactionId) = :afterLength " +
+           "AND (t.gatewayTransactionId > :afterId OR (t.gatewayTransactionId = :afterId AND t.id > :afterRowId)))) " +
+           "ORDER BY LENGTH(t.gatewayTransactionId), t.gatewayTransactionId, t.id")
+    List<LocalSettlementRow> findForReconciliation(@Param("primary") String primaryGateway,
+                                                   @Param("from") Instant from, @Param("to") Instant to,
+                                                   @Param("afterLength") int afterLength,
+                                                   @Param("afterId") String afterId,
+                                                   @Param("afterRowId") UUID afterRowId, Pageable pageable);
+
+    /**
+     * Payments that can be archived together with all their refunds: the payment and every child are
+     * older than {@code cutoff} and in one of {@code statuses}, or the child failed or was declined.
+     */
+    @Query("SELECT t FROM Transaction t WHERE t.parentTransactionId IS NULL AND t.status IN :statuses " +
+           "AND t.createdAt < :cutoff AND NOT EXISTS (SELECT c.id FROM Transaction c " +
+           "WHERE c.parentTransactionId = t.id AND (c.createdAt >= :cutoff OR (c.status NOT IN :statuses " +
+           "AND c.status NOT IN (com.payment.processing.domain.enums.TransactionStatus.FAILED, " +
+           "com.payment.processing.domain.enums.TransactionStatus.DECLINED)))) " +
+           "ORDER BY t.createdAt, t.id")
+    List<Transaction> findArchivableRoots(@Param("statuses") Collection<TransactionStatus> statuses,
+                                          @Param("cutoff") Instant cutoff, Pageable pageable);
 }
 
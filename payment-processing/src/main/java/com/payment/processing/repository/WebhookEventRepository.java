@@ -1,15 +1,66 @@
 package com.payment.processing.repository;
 
 import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.enums.WebhookEventType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface WebhookEventRepository extends JpaRepository<WebhookEvent, UUID> {
     Optional<WebhookEvent> findByEventId(String eventId);
     boolean existsByEventId(String eventId);
+    long countByQuarantinedTrue();
+
+    @Query("SELECT e FROM WebhookEvent e WHERE e.quarantined = true AND e.id > :afterId ORDER BY e.id")
+    List<WebhookEvent> findQuarantinedAfter(@Param("afterId") UUID afterId, Pageable pageable);
+
+    /**
+     * Takes an event out of quarantine for replay; returns 0 if it is no longer quarantined (another
+     * replay took it).
+     */
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.quarantined = false, e.quarantinedAt = NULL, e.processingAttempts = 0, " +
+           "e.updatedAt = :now, e.version = e.version + 1 WHERE e.id = :id AND e.quarantined = true")
+    int releaseFromQuarantine(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Puts a released event back into quarantine with its previous attempt count.
+     */
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.quarantined = true, e.quarantinedAt = :now, e.processingAttempts = :attempts, " +
+           "e.updatedAt = :now, e.version = e.version + 1 WHERE e.id = :id AND e.processed = false")
+    int requarantine(@Param("id") UUID id, @Param("attempts") int attempts, @Param("now") Instant now);
+
+    /**
+     * Forward-only cursor over events in {@code (afterCreatedAt, afterId)} keyset order up to {@code to}.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM WebhookEvent e WHERE e.createdAt < :to " +
+           "AND (e.createdAt > :afterCreatedAt OR (e.createdAt = :afterCreatedAt AND e.id > :afterId)) " +
+           "AND (:eventType IS NULL OR e.eventType = :eventType) " +
+           "ORDER BY e.createdAt, e.id")
+    Stream<WebhookEvent> streamForReplay(@Param("afterCreatedAt") Instant afterCreatedAt,
+                                         @Param("afterId") UUID afterId,
+                                         @Param("to") Instant to,
+                                         @Param("eventType") WebhookEventType eventType);
 }
 
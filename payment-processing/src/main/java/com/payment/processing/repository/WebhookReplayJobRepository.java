@@ -0,0 +1,28 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.domain.entity.WebhookReplayJob;
+import com.payment.processing.domain.enums.ReplayJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface WebhookReplayJobRepository extends JpaRepository<WebhookReplayJob, UUID> {
+
+    /**
+     * Marks a failed job, or a running job whose worker has not checkpointed since {@code staleBefore},
+     * as running again; returns 0 if the job is owned by a live worker or already completed.
+     */
+    @Modifying
+    @Query("UPDATE WebhookReplayJob j SET j.status = :running, j.lastError = NULL, j.updatedAt = :now, " +
+           "j.version = j.version + 1 " +
+           "WHERE j.id = :id AND (j.status = :failed OR (j.status = :running AND j.updatedAt < :staleBefore))")
+    int claimForResume(@Param("id") UUID id, @Param("running") ReplayJobStatus running,
+                       @Param("failed") ReplayJobStatus failed, @Param("now") Instant now,
+                       @Param("staleBefore") Instant staleBefore);
+}
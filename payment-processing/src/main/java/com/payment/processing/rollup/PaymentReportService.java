@@ -0,0 +1,110 @@
+package com.payment.processing.rollup;
+
+import com.payment.processing.domain.entity.PaymentRollup;
+import com.payment.processing.dto.response.PaymentSummaryResponse;
+import com.payment.processing.dto.response.PaymentSummaryRow;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.PaymentRollupDailyRepository;
+import com.payment.processing.repository.PaymentRollupHourlyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Payment volume, approval rate and refund rate, read from the rollup tables only; a summary never
+ * touches {@code transactions}. The current hour lags by up to one flush interval.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class PaymentReportService {
+
+    private static final int RATE_SCALE = 4;
+
+    private final PaymentRollupHourlyRepository hourlyRepository;
+    private final PaymentRollupDailyRepository dailyRepository;
+
+    /**
+     * Summarizes the buckets starting in {@code [from, to)}, optionally for one currency and card brand.
+     * Totals are per currency (amounts in different currencies are never added up).
+     */
+    public PaymentSummaryResponse summarize(Instant from, Instant to, RollupGranularity granularity,
+                                            String currency, String cardBrand) {
+        if (!from.isBefore(to)) {
+            throw new PaymentException("INVALID_REPORT_RANGE", "from must be before to");
+        }
+        if (Duration.between(from, to).compareTo(granularity.maxRange()) > 0) {
+            throw new PaymentException("INVALID_REPORT_RANGE",
+                    granularity + " summaries cover at most " + granularity.maxRange().toDays() + " days");
+        }
+
+        List<? extends PaymentRollup> rollups = granularity == RollupGranularity.HOUR
+                ? hourlyRepository.findBuckets(from, to, currency, cardBrand)
+                : dailyRepository.findBuckets(from, to, currency, cardBrand);
+
+        List<PaymentSummaryRow> buckets = new ArrayList<>(rollups.size());
+        Map<String, PaymentSummaryRow> totals = new TreeMap<>();
+        for (PaymentRollup rollup : rollups) {
+            buckets.add(withRates(PaymentSummaryRow.builder()
+                    .bucketStart(rollup.getId().getBucketStart())
+                    .currency(rollup.getId().getCurrency())
+                    .cardBrand(rollup.getId().getCardBrand())
+                    .paymentCount(rollup.getPaymentCount())
+                    .approvedCount(rollup.getApprovedCount())
+                    .approvedAmount(rollup.getApprovedAmount())
+                    .refundCount(rollup.getRefundCount())
+                    .refundedAmount(rollup.getRefundedAmount())
+                    .build()));
+            totals.merge(rollup.getId().getCurrency(), PaymentSummaryRow.builder()
+                    .currency(rollup.getId().getCurrency())
+                    .cardBrand(cardBrand)
+                    .paymentCount(rollup.getPaymentCount())
+                    .approvedCount(rollup.getApprovedCount())
+                    .approvedAmount(rollup.getApprovedAmount())
+                    .refundCount(rollup.getRefundCount())
+                    .refundedAmount(rollup.getRefundedAmount())
+                    .build(), PaymentReportService::add);
+        }
+        totals.values().forEach(PaymentReportService::withRates);
+
+        return PaymentSummaryResponse.builder()
+                .from(from)
+                .to(to)
+                .granularity(granularity)
+                .totals(new ArrayList<>(totals.values()))
+                .buckets(buckets)
+                .build();
+    }
+
+    private static PaymentSummaryRow add(PaymentSummaryRow total, PaymentSummaryRow row) {
+        total.setPaymentCount(total.getPaymentCount() + row.getPaymentCount());
+        total.setApprovedCount(total.getApprovedCount() + row.getApprovedCount());
+        total.setApprovedAmount(total.getApprovedAmount().add(row.getApprovedAmount()));
+        total.setRefundCount(total.getRefundCount() + row.getRefundCount());
+        total.setRefundedAmount(total.getRefundedAmount().add(row.getRefundedAmount()));
+        return total;
+    }
+
+    /**
+     * Approval rate is approvals per attempt; refund rate is refunded over approved amount in the same
+     * buckets, so a period's refunds of older payments can push it above one.
+     */
+    private static PaymentSummaryRow withRates(PaymentSummaryRow row) {
+        row.setApprovalRate(ratio(BigDecimal.valueOf(row.getApprovedCount()), BigDecimal.valueOf(row.getPaymentCount())));
+        row.setRefundRate(ratio(row.getRefundedAmount(), row.getApprovedAmount()));
+        return row;
+    }
+
+    private static BigDecimal ratio(BigDecimal numerator, BigDecimal denominator) {
+        return denominator.signum() == 0 ? null : numerator.divide(denominator, RATE_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,181 @@
+package com.payment.processing.rollup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Recomputes closed rollup buckets from {@code transactions}, correcting whatever the incremental
+ * path got wrong (a node that died with unflushed counts, a flush applied twice).
+ * <p>
+ * Every hour the last {@code rollup.rebuild.lookback-hours} hours that ended at least
+ * {@code rollup.rebuild.delay-minutes} ago are recomputed, so each hour is rebuilt several times and
+ * a later run repairs a race with a late flush. Each hour is one {@code GROUP BY} over a one-hour
+ * {@code created_at} range, read in a read-only transaction (the replica when configured); its rows
+ * are then replaced on the primary. A day is rebuilt from its hourly rows once it has closed.
+ * Archived transactions are no longer in the table, so ranges older than the archive age must not be
+ * rebuilt.
+ */
+@Component
+@Slf4j
+public class PaymentRollupRebuilder {
+
+    // Mirrors RollupDelta.of(Transaction).
+    private static final String AGGREGATE_HOUR = """
+            SELECT currency, COALESCE(card_brand, 'UNKNOWN') AS card_brand,
+                   SUM(CASE WHEN type IN ('PURCHASE', 'AUTHORIZE') THEN 1 ELSE 0 END) AS payment_count,
+                   SUM(CASE WHEN type IN ('PURCHASE', 'AUTHORIZE') AND authorized_at IS NOT NULL THEN 1 ELSE 0 END) AS approved_count,
+                   SUM(CASE WHEN type IN ('PURCHASE', 'AUTHORIZE') AND authorized_at IS NOT NULL THEN amount ELSE 0 END) AS approved_amount,
+                   SUM(CASE WHEN type = 'REFUND' THEN 1 ELSE 0 END) AS refund_count,
+                   SUM(CASE WHEN type = 'REFUND' THEN amount ELSE 0 END) AS refunded_amount
+            FROM transactions
+            WHERE created_at >= ? AND created_at < ?
+              AND (type IN ('PURCHASE', 'AUTHORIZE') OR (type = 'REFUND' AND status = 'REFUNDED'))
+            GROUP BY currency, COALESCE(card_brand, 'UNKNOWN')
+            """;
+
+    private static final String INSERT_HOUR = """
+            INSERT INTO payment_rollup_hourly (bucket_start, currency, card_brand, payment_count, approved_count,
+                approved_amount, refund_count, refunded_amount)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_DAY = """
+            INSERT INTO payment_rollup_daily (bucket_start, currency, card_brand, payment_count, approved_count,
+                approved_amount, refund_count, refunded_amount)
+            SELECT CAST(? AS TIMESTAMP WITH TIME ZONE), currency, card_brand, SUM(payment_count), SUM(approved_count),
+                   SUM(approved_amount), SUM(refund_count), SUM(refunded_amount)
+            FROM payment_rollup_hourly
+            WHERE bucket_start >= ? AND bucket_start < ?
+            GROUP BY currency, card_brand
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final Executor asyncExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Duration delay;
+    private final int lookbackHours;
+
+    public PaymentRollupRebuilder(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  @Value("${rollup.rebuild.delay-minutes:15}") long delayMinutes,
+                                  @Value("${rollup.rebuild.lookback-hours:3}") int lookbackHours,
+                                  @Qualifier("asyncExecutor") Executor asyncExecutor,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.asyncExecutor = asyncExecutor;
+        this.meterRegistry = meterRegistry;
+        this.delay = Duration.ofMinutes(delayMinutes);
+        this.lookbackHours = lookbackHours;
+    }
+
+    @Scheduled(cron = "${rollup.rebuild.cron:0 20 * * * *}", zone = "UTC")
+    public void rebuildRecent() {
+        Instant closedUntil = closedUntil();
+        rebuild(closedUntil.minus(Duration.ofHours(lookbackHours)), closedUntil);
+    }
+
+    /**
+     * Starts a rebuild (e.g. a backfill after deployment) in the background.
+     */
+    public void startRebuild(Instant from, Instant to) {
+        asyncExecutor.execute(() -> rebuild(from, to));
+    }
+
+    /**
+     * Rebuilds every closed hour in {@code [from, to)}, widened to whole hours, and every closed day
+     * those hours touch.
+     *
+     * @return the number of hours rebuilt
+     */
+    public int rebuild(Instant from, Instant to) {
+        Instant end = min(to.plus(Duration.ofHours(1)).minusNanos(1).truncatedTo(ChronoUnit.HOURS), closedUntil());
+        int hours = 0;
+        TreeSet<Instant> days = new TreeSet<>();
+        for (Instant hour = from.truncatedTo(ChronoUnit.HOURS); hour.isBefore(end); hour = hour.plus(Duration.ofHours(1))) {
+            try {
+                rebuildHour(hour);
+                days.add(hour.truncatedTo(ChronoUnit.DAYS));
+                hours++;
+                count("hour", "success");
+            } catch (RuntimeException e) {
+                count("hour", "failure");
+                log.warn("Rollup rebuild of hour {} failed", hour, e);
+            }
+        }
+        for (Instant day : days) {
+            if (day.plus(Duration.ofDays(1)).isAfter(end)) {
+                // Still open: its row keeps receiving flushes and is rebuilt once the day has closed.
+                continue;
+            }
+            try {
+                rebuildDay(day);
+                count("day", "success");
+            } catch (RuntimeException e) {
+                count("day", "failure");
+                log.warn("Rollup rebuild of day {} failed", day, e);
+            }
+        }
+        log.info("Rebuilt {} hourly rollups in [{}, {})", hours, from, end);
+        return hours;
+    }
+
+    private void rebuildHour(Instant hour) {
+        Timestamp start = Timestamp.from(hour);
+        Timestamp end = Timestamp.from(hour.plus(Duration.ofHours(1)));
+        List<Object[]> rows = readTransaction.execute(status -> jdbcTemplate.query(AGGREGATE_HOUR,
+                (rs, rowNum) -> new Object[]{start, rs.getString("currency"), rs.getString("card_brand"),
+                        rs.getLong("payment_count"), rs.getLong("approved_count"), rs.getBigDecimal("approved_amount"),
+                        rs.getLong("refund_count"), rs.getBigDecimal("refunded_amount")},
+                start, end));
+
+        writeTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM payment_rollup_hourly WHERE bucket_start = ?", start);
+            jdbcTemplate.batchUpdate(INSERT_HOUR, rows);
+        });
+    }
+
+    private void rebuildDay(Instant day) {
+        Timestamp start = Timestamp.from(day);
+        Timestamp end = Timestamp.from(day.plus(Duration.ofDays(1)));
+        writeTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM payment_rollup_daily WHERE bucket_start = ?", start);
+            jdbcTemplate.update(INSERT_DAY, start, start, end);
+        });
+    }
+
+    /**
+     * Buckets before this instant no longer receive new payments.
+     */
+    private Instant closedUntil() {
+        return Instant.now().minus(delay).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private void count(String granularity, String outcome) {
+        meterRegistry.counter("rollup.rebuilds", "granularity", granularity, "outcome", outcome).increment();
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
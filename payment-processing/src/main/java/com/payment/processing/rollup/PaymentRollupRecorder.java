@@ -0,0 +1,144 @@
+package com.payment.processing.rollup;
+
+import com.payment.processing.domain.entity.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps {@code payment_rollup_hourly} and {@code payment_rollup_daily} up to date as payments are written.
+ * <p>
+ * Services hand over each saved payment or refund; its contribution is added to an in-memory bucket
+ * once the surrounding transaction commits, so rolled back work is never counted. Every
+ * {@code rollup.flush-interval-ms} the buckets are drained and added to both tables with one batched
+ * upsert each, so the cost on the primary is a handful of row updates per flush instead of a write per
+ * payment. A failed flush puts its deltas back for the next one. Counts of a node that dies before
+ * flushing are lost until {@link PaymentRollupRebuilder} recomputes the hour.
+ */
+@Component
+@Slf4j
+public class PaymentRollupRecorder {
+
+    // Standard MERGE, understood by PostgreSQL 15 and H2. Additive, so concurrent flushes of other nodes
+    // combine; two nodes inserting the same new bucket at once make one flush fail and retry.
+    private static final String UPSERT = """
+            MERGE INTO %s r
+            USING (SELECT CAST(? AS TIMESTAMP WITH TIME ZONE) AS bucket_start, CAST(? AS VARCHAR(3)) AS currency,
+                          CAST(? AS VARCHAR(30)) AS card_brand, CAST(? AS BIGINT) AS payment_count,
+                          CAST(? AS BIGINT) AS approved_count, CAST(? AS NUMERIC(19, 4)) AS approved_amount,
+                          CAST(? AS BIGINT) AS refund_count, CAST(? AS NUMERIC(19, 4)) AS refunded_amount) d
+            ON r.bucket_start = d.bucket_start AND r.currency = d.currency AND r.card_brand = d.card_brand
+            WHEN MATCHED THEN UPDATE SET payment_count = r.payment_count + d.payment_count,
+                approved_count = r.approved_count + d.approved_count,
+                approved_amount = r.approved_amount + d.approved_amount,
+                refund_count = r.refund_count + d.refund_count,
+                refunded_amount = r.refunded_amount + d.refunded_amount
+            WHEN NOT MATCHED THEN INSERT (bucket_start, currency, card_brand, payment_count, approved_count,
+                    approved_amount, refund_count, refunded_amount)
+                VALUES (d.bucket_start, d.currency, d.card_brand, d.payment_count, d.approved_count,
+                    d.approved_amount, d.refund_count, d.refunded_amount)
+            """;
+
+    private final Map<RollupBucket, RollupDelta> pending = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final Counter flushes;
+    private final Counter failedFlushes;
+
+    public PaymentRollupRecorder(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.flushes = Counter.builder("rollup.flushes").tag("outcome", "success").register(meterRegistry);
+        this.failedFlushes = Counter.builder("rollup.flushes").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("rollup.pending.buckets", pending, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Counts a saved transaction once the current transaction commits (immediately if there is none).
+     * Transactions that change no measure are ignored.
+     */
+    public void record(Transaction transaction) {
+        RollupDelta delta = RollupDelta.of(transaction);
+        if (delta == null) {
+            return;
+        }
+        RollupBucket bucket = RollupBucket.hourOf(transaction);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(bucket, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(bucket, delta);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${rollup.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<RollupBucket, RollupDelta> hourly = new TreeMap<>(RollupBucket.ORDER);
+        for (RollupBucket bucket : List.copyOf(pending.keySet())) {
+            RollupDelta delta = pending.remove(bucket);
+            if (delta != null) {
+                hourly.merge(bucket, delta, RollupDelta::plus);
+            }
+        }
+        Map<RollupBucket, RollupDelta> daily = new TreeMap<>(RollupBucket.ORDER);
+        hourly.forEach((bucket, delta) -> daily.merge(bucket.day(), delta, RollupDelta::plus));
+
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                upsert("payment_rollup_hourly", hourly);
+                upsert("payment_rollup_daily", daily);
+            });
+            flushes.increment();
+            log.debug("Flushed {} hourly rollup buckets", hourly.size());
+        } catch (RuntimeException e) {
+            hourly.forEach(this::add);
+            failedFlushes.increment();
+            log.warn("Rollup flush of {} buckets failed, retrying with the next flush", hourly.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void add(RollupBucket bucket, RollupDelta delta) {
+        pending.merge(bucket, delta, RollupDelta::plus);
+    }
+
+    private void upsert(String table, Map<RollupBucket, RollupDelta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((bucket, delta) -> rows.add(new Object[]{
+                Timestamp.from(bucket.start()), bucket.currency(), bucket.cardBrand(),
+                delta.paymentCount(), delta.approvedCount(), delta.approvedAmount(),
+                delta.refundCount(), delta.refundedAmount()}));
+        jdbcTemplate.batchUpdate(UPSERT.formatted(table), rows);
+    }
+}
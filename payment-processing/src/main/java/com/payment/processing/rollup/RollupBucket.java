@@ -0,0 +1,35 @@
+package com.payment.processing.rollup;
+
+import com.payment.processing.domain.entity.Transaction;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+
+/**
+ * Key of a rollup row: bucket start (UTC hour or day), currency and card brand.
+ */
+record RollupBucket(Instant start, String currency, String cardBrand) {
+
+    static final String UNKNOWN_BRAND = "UNKNOWN";
+
+    /**
+     * Primary key order; batches are written in this order so concurrent flushes lock rows in the same order.
+     */
+    static final Comparator<RollupBucket> ORDER = Comparator.comparing(RollupBucket::start)
+            .thenComparing(RollupBucket::currency)
+            .thenComparing(RollupBucket::cardBrand);
+
+    /**
+     * The hour a transaction is counted in: the hour its row was created.
+     */
+    static RollupBucket hourOf(Transaction transaction) {
+        Instant createdAt = transaction.getCreatedAt() != null ? transaction.getCreatedAt() : Instant.now();
+        String cardBrand = transaction.getCardBrand() != null ? transaction.getCardBrand() : UNKNOWN_BRAND;
+        return new RollupBucket(createdAt.truncatedTo(ChronoUnit.HOURS), transaction.getCurrency(), cardBrand);
+    }
+
+    RollupBucket day() {
+        return new RollupBucket(start.truncatedTo(ChronoUnit.DAYS), currency, cardBrand);
+    }
+}
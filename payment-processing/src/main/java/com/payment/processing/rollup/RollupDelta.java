@@ -0,0 +1,36 @@
+package com.payment.processing.rollup;
+
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * What one transaction adds to its bucket. A purchase or authorization is one attempt, and one
+ * approval of its amount if the gateway authorized it; a refund counts once it is refunded. Captures
+ * and voids change no measure. {@link PaymentRollupRebuilder} computes the same measures in SQL.
+ */
+record RollupDelta(long paymentCount, long approvedCount, BigDecimal approvedAmount,
+                   long refundCount, BigDecimal refundedAmount) {
+
+    /**
+     * @return null if the transaction does not count towards any measure
+     */
+    static RollupDelta of(Transaction transaction) {
+        return switch (transaction.getType()) {
+            case PURCHASE, AUTHORIZE -> transaction.getAuthorizedAt() != null
+                    ? new RollupDelta(1, 1, transaction.getAmount(), 0, BigDecimal.ZERO)
+                    : new RollupDelta(1, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+            case REFUND -> transaction.getStatus() == TransactionStatus.REFUNDED
+                    ? new RollupDelta(0, 0, BigDecimal.ZERO, 1, transaction.getAmount())
+                    : null;
+            default -> null;
+        };
+    }
+
+    RollupDelta plus(RollupDelta other) {
+        return new RollupDelta(paymentCount + other.paymentCount, approvedCount + other.approvedCount,
+                approvedAmount.add(other.approvedAmount), refundCount + other.refundCount,
+                refundedAmount.add(other.refundedAmount));
+    }
+}
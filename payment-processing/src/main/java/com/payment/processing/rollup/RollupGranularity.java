@@ -0,0 +1,21 @@
+package com.payment.processing.rollup;
+
+import java.time.Duration;
+
+public enum RollupGranularity {
+    HOUR(Duration.ofDays(31)),
+    DAY(Duration.ofDays(366));
+
+    private final Duration maxRange;
+
+    RollupGranularity(Duration maxRange) {
+        this.maxRange = maxRange;
+    }
+
+    /**
+     * Longest range one summary may cover at this granularity.
+     */
+    public Duration maxRange() {
+        return maxRange;
+    }
+}
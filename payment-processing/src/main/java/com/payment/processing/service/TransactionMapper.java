@@ -0,0 +1,65 @@
+package com.payment.processing.service;
+
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.dto.response.TransactionResponse;
+
+/**
+ * Maps transactions to their API representation, shared by the payment service and the customer timeline.
+ */
+public final class TransactionMapper {
+
+    private TransactionMapper() {
+    }
+
+    public static TransactionResponse toResponse(Transaction transaction) {
+        return TransactionResponse.builder()
+                .id(transaction.getId())
+                .orderId(transaction.getOrderId())
+                .customerId(transaction.getCustomerId())
+                .customerEmail(transaction.getCustomerEmail())
+                .type(transaction.getType())
+                .status(transaction.getStatus())
+                .amount(transaction.getAmount())
+                .currency(transaction.getCurrency())
+                .authorizedAmount(transaction.getAuthorizedAmount())
+                .capturedAmount(transaction.getCapturedAmount())
+                .refundedAmount(transaction.getRefundedAmount())
+                .refundableAmount(transaction.getRefundableAmount())
+                .gateway(transaction.getGateway())
+                .gatewayTransactionId(transaction.getGatewayTransactionId())
+                .gatewayAuthCode(transaction.getGatewayAuthCode())
+                .gatewayAvsResult(transaction.getGatewayAvsResult())
+                .gatewayCvvResult(transaction.getGatewayCvvResult())
+                .gatewayResponseCode(transaction.getGatewayResponseCode())
+                .gatewayResponseMessage(transaction.getGatewayResponseMessage())
+                .paymentMethodType(transaction.getPaymentMethodType())
+                .cardToken(transaction.getCardToken())
+                .cardLastFour(transaction.getCardLastFour())
+                .cardBrand(transaction.getCardBrand())
+                .cardCountry(transaction.getCardCountry())
+                .cardExpMonth(transaction.getCardExpMonth())
+                .cardExpYear(transaction.getCardExpYear())
+                .billingFirstName(transaction.getBillingFirstName())
+                .billingLastName(transaction.getBillingLastName())
+                .billingCity(transaction.getBillingCity())
+                .billingState(transaction.getBillingState())
+                .billingZip(transaction.getBillingZip())
+                .billingCountry(transaction.getBillingCountry())
+                .createdAt(transaction.getCreatedAt())
+                .authorizedAt(transaction.getAuthorizedAt())
+                .capturedAt(transaction.getCapturedAt())
+                .voidedAt(transaction.getVoidedAt())
+                .refundedAt(transaction.getRefundedAt())
+                .failedAt(transaction.getFailedAt())
+                .parentTransactionId(transaction.getParentTransactionId())
+                .subscriptionId(transaction.getSubscriptionId())
+                .errorCode(transaction.getErrorCode())
+                .errorMessage(transaction.getErrorMessage())
+                .description(transaction.getDescription())
+                .correlationId(transaction.getCorrelationId())
+                .canCapture(transaction.canCapture())
+                .canVoid(transaction.canVoid())
+                .canRefund(transaction.canRefund())
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.payment.processing.service;
+
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.dto.response.TransactionTreeResponse;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Loads payments with all their refunds as trees.
+ * <p>
+ * A refund copies the order and customer of the payment it refunds, so one query by order ids (or
+ * customer ids) returns whole hierarchies; they are linked by {@code parentTransactionId} in memory.
+ * Loading is one statement whatever the number of partial refunds, where walking the hierarchy
+ * costs a query per level and parent. Archived transactions are not included.
+ * <p>
+ * A customer's history grows without bound, so loading by customer ids is refused once it exceeds
+ * {@code transactions.tree.max-customer-rows} rows; such customers are read through the paged timeline.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TransactionTreeService {
+
+    public static final int MAX_IDS = 100;
+
+    /** Only these payments still hold captured funds that can be refunded. */
+    private static final Set<TransactionStatus> REFUNDABLE_STATUSES =
+            EnumSet.of(TransactionStatus.CAPTURED, TransactionStatus.SETTLED, TransactionStatus.PARTIALLY_REFUNDED);
+
+    private static final Comparator<Transaction> CREATION_ORDER =
+            Comparator.comparing(Transaction::getCreatedAt).thenComparing(Transaction::getId);
+
+    private final TransactionRepository transactionRepository;
+
+    @Value("${transactions.tree.max-customer-rows:5000}")
+    private int maxCustomerRows;
+
+    /**
+     * @return the payment trees of each order, keyed by order id, oldest payment first
+     */
+    public Map<String, List<TransactionTreeResponse>> loadByOrderIds(Collection<String> orderIds) {
+        checkIds(orderIds);
+        return assembleBy(transactionRepository.findByOrderIdIn(orderIds), Transaction::getOrderId);
+    }
+
+    /**
+     * @return the payment trees of each customer, keyed by customer id, oldest payment first
+     */
+    public Map<String, List<TransactionTreeResponse>> loadByCustomerIds(Collection<String> customerIds) {
+        checkIds(customerIds);
+        // One row over the cap tells a full result from a truncated one.
+        List<Transaction> transactions = transactionRepository.findByCustomerIdIn(customerIds,
+                PageRequest.of(0, maxCustomerRows + 1));
+        if (transactions.size() > maxCustomerRows) {
+            throw new PaymentException("TOO_MANY_TRANSACTIONS", "The customers have more than " + maxCustomerRows
+                    + " transactions; request fewer customers or use /payments/customer/{customerId}/timeline");
+        }
+        return assembleBy(transactions, Transaction::getCustomerId);
+    }
+
+    /**
+     * Links transactions into trees. A transaction whose parent is not among them is a root.
+     */
+    public static List<TransactionTreeResponse> assemble(Collection<Transaction> transactions) {
+        Map<UUID, Transaction> byId = new HashMap<>();
+        transactions.forEach(transaction -> byId.put(transaction.getId(), transaction));
+        Map<UUID, List<Transaction>> children = new HashMap<>();
+        List<Transaction> roots = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            UUID parentId = transaction.getParentTransactionId();
+            if (parentId != null && byId.containsKey(parentId) && !parentId.equals(transaction.getId())) {
+                children.computeIfAbsent(parentId, id -> new ArrayList<>()).add(transaction);
+            } else {
+                roots.add(transaction);
+            }
+        }
+        roots.sort(CREATION_ORDER);
+        children.values().forEach(list -> list.sort(CREATION_ORDER));
+        return roots.stream().map(root -> node(root, children)).toList();
+    }
+
+    private static TransactionTreeResponse node(Transaction transaction, Map<UUID, List<Transaction>> children) {
+        List<TransactionTreeResponse> childNodes = children.getOrDefault(transaction.getId(), List.of()).stream()
+                .map(child -> node(child, children))
+                .toList();
+        // Every refund below this node, settled ones only.
+        BigDecimal refundedTotal = childNodes.stream()
+                .map(child -> child.getRefundedTotal().add(settledRefund(child)))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return TransactionTreeResponse.builder()
+                .transaction(TransactionMapper.toResponse(transaction))
+                .refundedTotal(refundedTotal)
+                .refundableAmount(transaction.getType() == TransactionType.REFUND ? null : refundable(transaction, refundedTotal))
+                .children(childNodes)
+                .build();
+    }
+
+    private static BigDecimal refundable(Transaction transaction, BigDecimal refundedTotal) {
+        if (!REFUNDABLE_STATUSES.contains(transaction.getStatus())) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal captured = transaction.getCapturedAmount() != null ? transaction.getCapturedAmount() : transaction.getAmount();
+        return captured.subtract(refundedTotal).max(BigDecimal.ZERO);
+    }
+
+    private static BigDecimal settledRefund(TransactionTreeResponse node) {
+        return node.getTransaction().getType() == TransactionType.REFUND
+                && node.getTransaction().getStatus() == TransactionStatus.REFUNDED
+                ? node.getTransaction().getAmount() : BigDecimal.ZERO;
+    }
+
+    private static Map<String, List<TransactionTreeResponse>> assembleBy(List<Transaction> transactions,
+                                                                          Function<Transaction, String> key) {
+        Map<String, List<Transaction>> groups = new LinkedHashMap<>();
+        transactions.forEach(transaction -> groups.computeIfAbsent(key.apply(transaction), k -> new ArrayList<>()).add(transaction));
+        Map<String, List<TransactionTreeResponse>> trees = new LinkedHashMap<>();
+        groups.forEach((id, group) -> trees.put(id, assemble(group)));
+        return trees;
+    }
+
+    private static void checkIds(Collection<String> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            throw new PaymentException("INVALID_ID_COUNT", "Between 1 and " + MAX_IDS + " ids are required");
+        }
+    }
+}
@@ -1,18 +1,29 @@
 package com.payment.processing.service.impl;
 
+import com.payment.processing.archive.TransactionArchiveService;
 import com.payment.processing.audit.AuditService;
+import com.payment.processing.card.BinInfo;
+import com.payment.processing.card.BinLookupService;
+import com.payment.processing.concurrency.PaymentLaneExecutor;
+import com.payment.processing.config.FraudProperties;
+import com.payment.processing.domain.entity.CardToken;
 import com.payment.processing.domain.entity.Transaction;
-import com.payment.processing.domain.enums.PaymentMethodType;
 import com.payment.processing.domain.enums.TransactionStatus;
 import com.payment.processing.domain.enums.TransactionType;
 import com.payment.processing.dto.request.*;
 import com.payment.processing.dto.response.TransactionResponse;
 import com.payment.processing.exception.*;
+import com.payment.processing.fraud.VelocityEngine;
+import com.payment.processing.gateway.CustomerProfileRef;
 import com.payment.processing.gateway.GatewayResponse;
 import com.payment.processing.gateway.PaymentGateway;
 import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.rollup.PaymentRollupRecorder;
 import com.payment.processing.service.IdempotencyService;
 import com.payment.processing.service.PaymentService;
+import com.payment.processing.service.TransactionMapper;
+import com.payment.processing.vault.CardVaultService;
+import com.payment.processing.vault.CustomerProfileService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -20,11 +31,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,16 +52,34 @@ public class PaymentServiceImpl implements PaymentService {
     private final PaymentGateway paymentGateway;
     private final IdempotencyService idempotencyService;
     private final AuditService auditService;
+    private final TransactionArchiveService transactionArchiveService;
+    private final PaymentLaneExecutor paymentLanes;
+    private final BinLookupService binLookup;
+    private final VelocityEngine velocityEngine;
+    private final CardVaultService cardVault;
+    private final CustomerProfileService customerProfiles;
+    private final PaymentRollupRecorder rollupRecorder;
     private final Counter purchaseCounter;
     private final Counter authorizeCounter;
 
     public PaymentServiceImpl(TransactionRepository transactionRepository, PaymentGateway paymentGateway,
                               IdempotencyService idempotencyService, AuditService auditService,
+                              TransactionArchiveService transactionArchiveService,
+                              PaymentLaneExecutor paymentLanes, BinLookupService binLookup,
+                              VelocityEngine velocityEngine, CardVaultService cardVault,
+                              CustomerProfileService customerProfiles, PaymentRollupRecorder rollupRecorder,
                               MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
         this.paymentGateway = paymentGateway;
         this.idempotencyService = idempotencyService;
         this.auditService = auditService;
+        this.transactionArchiveService = transactionArchiveService;
+        this.paymentLanes = paymentLanes;
+        this.binLookup = binLookup;
+        this.velocityEngine = velocityEngine;
+        this.cardVault = cardVault;
+        this.customerProfiles = customerProfiles;
+        this.rollupRecorder = rollupRecorder;
 
         this.purchaseCounter = Counter.builder("payment.transactions").tag("type", "purchase").register(meterRegistry);
         this.authorizeCounter = Counter.builder("payment.transactions").tag("type", "authorize").register(meterRegistry);
@@ -57,12 +91,20 @@ public class PaymentServiceImpl implements PaymentService {
         purchaseCounter.increment();
         checkIdempotency(idempotencyKey);
 
-        Transaction transaction = createTransaction(request, TransactionType.PURCHASE, idempotencyKey, correlationId);
-        transaction = transactionRepository.save(transaction);
+        // The row is persisted once, after the gateway call, so the whole operation is a single insert.
+        CardToken card = resolveCard(request);
+        String fingerprint = card != null ? card.getFingerprint() : cardVault.fingerprint(request.getCardNumber());
+        Transaction transaction = createTransaction(request, card, TransactionType.PURCHASE, idempotencyKey, correlationId);
+        Optional<FraudProperties.Rule> velocityRule = screen(request, card, fingerprint);
+        if (velocityRule.isPresent()) {
+            return blocked(transaction, velocityRule.get(), "PURCHASE_BLOCKED", correlationId);
+        }
 
         try {
-            GatewayResponse gatewayResponse = paymentGateway.purchase(request);
+            GatewayResponse gatewayResponse = submit(request, card, fingerprint, true);
+            transaction.setGateway(gatewayResponse.getGateway());
 
+            String auditAction;
             if (gatewayResponse.isSuccess()) {
                 transaction.markAuthorized(gatewayResponse.getTransactionId(), gatewayResponse.getAuthCode());
                 transaction.markCaptured(request.getAmount());
@@ -70,13 +112,15 @@ public class PaymentServiceImpl implements PaymentService {
                 transaction.setGatewayCvvResult(gatewayResponse.getCvvResult());
                 transaction.setGatewayResponseCode(gatewayResponse.getResponseCode());
                 transaction.setGatewayResponseMessage(gatewayResponse.getResponseMessage());
-                auditService.logTransaction(transaction, "PURCHASE_SUCCESS", correlationId);
+                auditAction = "PURCHASE_SUCCESS";
             } else {
                 transaction.markFailed(gatewayResponse.getErrorCode(), gatewayResponse.getErrorMessage());
-                auditService.logTransaction(transaction, "PURCHASE_FAILED", correlationId);
+                auditAction = "PURCHASE_FAILED";
             }
 
             transaction = transactionRepository.save(transaction);
+            rollupRecorder.record(transaction);
+            auditService.logTransaction(transaction, auditAction, correlationId);
             return mapToResponse(transaction);
 
         } catch (Exception e) {
@@ -93,23 +137,32 @@ public class PaymentServiceImpl implements PaymentService {
         authorizeCounter.increment();
         checkIdempotency(idempotencyKey);
 
-        Transaction transaction = createTransaction(request, TransactionType.AUTHORIZE, idempotencyKey, correlationId);
-        transaction = transactionRepository.save(transaction);
+        CardToken card = resolveCard(request);
+        String fingerprint = card != null ? card.getFingerprint() : cardVault.fingerprint(request.getCardNumber());
+        Transaction transaction = createTransaction(request, card, TransactionType.AUTHORIZE, idempotencyKey, correlationId);
+        Optional<FraudProperties.Rule> velocityRule = screen(request, card, fingerprint);
+        if (velocityRule.isPresent()) {
+            return blocked(transaction, velocityRule.get(), "AUTHORIZE_BLOCKED", correlationId);
+        }
 
         try {
-            GatewayResponse gatewayResponse = paymentGateway.authorize(request);
+            GatewayResponse gatewayResponse = submit(request, card, fingerprint, false);
+            transaction.setGateway(gatewayResponse.getGateway());
 
+            String auditAction;
             if (gatewayResponse.isSuccess()) {
                 transaction.markAuthorized(gatewayResponse.getTransactionId(), gatewayResponse.getAuthCode());
                 transaction.setGatewayAvsResult(gatewayResponse.getAvsResult());
                 transaction.setGatewayCvvResult(gatewayResponse.getCvvResult());
-                auditService.logTransaction(transaction, "AUTHORIZE_SUCCESS", correlationId);
+                auditAction = "AUTHORIZE_SUCCESS";
             } else {
                 transaction.markFailed(gatewayResponse.getErrorCode(), gatewayResponse.getErrorMessage());
-                auditService.logTransaction(transaction, "AUTHORIZE_FAILED", correlationId);
+                auditAction = "AUTHORIZE_FAILED";
             }
 
             transaction = transactionRepository.save(transaction);
+            rollupRecorder.record(transaction);
+            auditService.logTransaction(transaction, auditAction, correlationId);
             return mapToResponse(transaction);
 
         } catch (Exception e) {
@@ -120,12 +173,29 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    // capture, cancel and refund run on the payment's lane, so state checks and transitions for one
+    // payment apply in order. The gateway is called between the check and the apply transaction, and a
+    // redo (batch rollback or version conflict) re-applies its result to a fresh copy instead of
+    // calling the gateway again.
+
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TransactionResponse capture(CaptureRequest request, String idempotencyKey, String correlationId) {
+        UUID transactionId = UUID.fromString(request.getTransactionId());
+        return paymentLanes.execute("capture", transactionId,
+                () -> checkCapture(transactionId, request, idempotencyKey),
+                this::callCapture,
+                captureAmount -> apply(transactionId, "CAPTURE_SUCCESS", correlationId, transaction -> {
+                    if (transaction.getStatus() != TransactionStatus.CAPTURED) {
+                        transaction.markCaptured(captureAmount);
+                    }
+                }));
+    }
+
+    private GatewayCall checkCapture(UUID transactionId, CaptureRequest request, String idempotencyKey) {
         log.info("Processing capture for transaction: {}", request.getTransactionId());
         checkIdempotency(idempotencyKey);
 
-        UUID transactionId = UUID.fromString(request.getTransactionId());
         Transaction originalTransaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new TransactionNotFoundException(request.getTransactionId()));
 
@@ -134,52 +204,63 @@ public class PaymentServiceImpl implements PaymentService {
         }
 
         BigDecimal captureAmount = request.getAmount() != null ? request.getAmount() : originalTransaction.getAuthorizedAmount();
+        return new GatewayCall(originalTransaction, captureAmount);
+    }
 
+    private BigDecimal callCapture(GatewayCall checked) {
+        Transaction originalTransaction = checked.transaction();
         try {
-            GatewayResponse gatewayResponse = paymentGateway.capture(originalTransaction.getGatewayTransactionId(), captureAmount);
+            GatewayResponse gatewayResponse = paymentGateway.processorOf(originalTransaction.getGateway())
+                    .capture(originalTransaction.getGatewayTransactionId(), checked.amount());
 
-            if (gatewayResponse.isSuccess()) {
-                originalTransaction.markCaptured(captureAmount);
-                auditService.logTransaction(originalTransaction, "CAPTURE_SUCCESS", correlationId);
-            } else {
+            if (!gatewayResponse.isSuccess()) {
                 throw new GatewayException(gatewayResponse.getErrorCode(), gatewayResponse.getErrorMessage());
             }
-
-            originalTransaction = transactionRepository.save(originalTransaction);
-            return mapToResponse(originalTransaction);
+            return checked.amount();
 
         } catch (GatewayException e) {
-            log.error("Capture failed for transaction: {}", request.getTransactionId(), e);
+            log.error("Capture failed for transaction: {}", originalTransaction.getId(), e);
             throw e;
         }
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TransactionResponse cancel(CancelRequest request, String idempotencyKey, String correlationId) {
+        UUID transactionId = UUID.fromString(request.getTransactionId());
+        return paymentLanes.execute("void", transactionId,
+                () -> checkCancel(transactionId, request, idempotencyKey),
+                checked -> callCancel(checked, request),
+                voided -> apply(transactionId, "VOID_SUCCESS", correlationId, transaction -> {
+                    if (transaction.getStatus() != TransactionStatus.VOIDED) {
+                        transaction.markVoided();
+                        transaction.setDescription(request.getReason());
+                    }
+                }));
+    }
+
+    private Transaction checkCancel(UUID transactionId, CancelRequest request, String idempotencyKey) {
         log.info("Processing void for transaction: {}", request.getTransactionId());
         checkIdempotency(idempotencyKey);
 
-        UUID transactionId = UUID.fromString(request.getTransactionId());
         Transaction originalTransaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new TransactionNotFoundException(request.getTransactionId()));
 
         if (!originalTransaction.canVoid()) {
             throw new InvalidTransactionStateException("Transaction cannot be voided. Current status: " + originalTransaction.getStatus());
         }
+        return originalTransaction;
+    }
 
+    private Boolean callCancel(Transaction originalTransaction, CancelRequest request) {
         try {
-            GatewayResponse gatewayResponse = paymentGateway.voidTransaction(originalTransaction.getGatewayTransactionId());
+            GatewayResponse gatewayResponse = paymentGateway.processorOf(originalTransaction.getGateway())
+                    .voidTransaction(originalTransaction.getGatewayTransactionId());
 
-            if (gatewayResponse.isSuccess()) {
-                originalTransaction.markVoided();
-                originalTransaction.setDescription(request.getReason());
-                auditService.logTransaction(originalTransaction, "VOID_SUCCESS", correlationId);
-            } else {
+            if (!gatewayResponse.isSuccess()) {
                 throw new GatewayException(gatewayResponse.getErrorCode(), gatewayResponse.getErrorMessage());
             }
-
-            originalTransaction = transactionRepository.save(originalTransaction);
-            return mapToResponse(originalTransaction);
+            return true;
 
         } catch (GatewayException e) {
             log.error("Void failed for transaction: {}", request.getTransactionId(), e);
@@ -188,11 +269,19 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public TransactionResponse refund(RefundRequest request, String idempotencyKey, String correlationId) {
+        UUID transactionId = UUID.fromString(request.getTransactionId());
+        return paymentLanes.execute("refund", transactionId,
+                () -> checkRefund(transactionId, request, idempotencyKey),
+                checked -> callRefund(checked, request, idempotencyKey, correlationId),
+                refundTransaction -> applyRefund(transactionId, refundTransaction, correlationId));
+    }
+
+    private GatewayCall checkRefund(UUID transactionId, RefundRequest request, String idempotencyKey) {
         log.info("Processing refund for transaction: {}", request.getTransactionId());
         checkIdempotency(idempotencyKey);
 
-        UUID transactionId = UUID.fromString(request.getTransactionId());
         Transaction originalTransaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new TransactionNotFoundException(request.getTransactionId()));
 
@@ -209,53 +298,112 @@ public class PaymentServiceImpl implements PaymentService {
         if (!originalTransaction.canRefund()) {
             throw new InvalidTransactionStateException("Transaction cannot be refunded. Current status: " + originalTransaction.getStatus());
         }
+        return new GatewayCall(originalTransaction, refundAmount);
+    }
 
+    /**
+     * Calls the gateway and returns the refund row, refunded or failed; it is saved by the apply step.
+     */
+    private Transaction callRefund(GatewayCall checked, RefundRequest request, String idempotencyKey,
+                                   String correlationId) {
+        Transaction originalTransaction = checked.transaction();
         Transaction refundTransaction = Transaction.builder()
                 .orderId(originalTransaction.getOrderId())
                 .customerId(originalTransaction.getCustomerId())
                 .customerEmail(originalTransaction.getCustomerEmail())
                 .type(TransactionType.REFUND)
                 .status(TransactionStatus.PENDING)
-                .amount(refundAmount)
+                .amount(checked.amount())
                 .currency(originalTransaction.getCurrency())
                 .parentTransactionId(originalTransaction.getId())
+                .gateway(originalTransaction.getGateway())
                 .idempotencyKey(idempotencyKey)
                 .correlationId(correlationId)
                 .description(request.getReason())
                 .cardLastFour(originalTransaction.getCardLastFour())
                 .cardBrand(originalTransaction.getCardBrand())
+                .cardCountry(originalTransaction.getCardCountry())
                 .build();
-        refundTransaction = transactionRepository.save(refundTransaction);
 
         try {
-            GatewayResponse gatewayResponse = paymentGateway.refund(
-                    originalTransaction.getGatewayTransactionId(), refundAmount, originalTransaction.getCardLastFour());
+            GatewayResponse gatewayResponse = paymentGateway.processorOf(originalTransaction.getGateway()).refund(
+                    originalTransaction.getGatewayTransactionId(), checked.amount(), originalTransaction.getCardLastFour());
 
             if (gatewayResponse.isSuccess()) {
                 refundTransaction.setStatus(TransactionStatus.REFUNDED);
                 refundTransaction.setGatewayTransactionId(gatewayResponse.getTransactionId());
-                originalTransaction.addRefund(refundAmount);
-                transactionRepository.save(originalTransaction);
-                auditService.logTransaction(refundTransaction, "REFUND_SUCCESS", correlationId);
             } else {
                 refundTransaction.markFailed(gatewayResponse.getErrorCode(), gatewayResponse.getErrorMessage());
             }
-
-            refundTransaction = transactionRepository.save(refundTransaction);
-            return mapToResponse(refundTransaction);
+            return refundTransaction;
 
         } catch (Exception e) {
             log.error("Refund failed for transaction: {}", request.getTransactionId(), e);
-            refundTransaction.markFailed("SYSTEM_ERROR", e.getMessage());
-            transactionRepository.save(refundTransaction);
             throw new PaymentException("REFUND_FAILED", "Refund failed: " + e.getMessage());
         }
     }
 
+    /**
+     * Saves the refund row and, if the gateway accepted it, adds its amount to a freshly loaded
+     * payment; adding a refund commutes with any concurrent change to the payment.
+     */
+    private TransactionResponse applyRefund(UUID transactionId, Transaction refundTransaction, String correlationId) {
+        boolean refunded = refundTransaction.getStatus() == TransactionStatus.REFUNDED;
+        if (refunded) {
+            Transaction originalTransaction = transactionRepository.findById(transactionId)
+                    .orElseThrow(() -> new TransactionNotFoundException(transactionId.toString()));
+            originalTransaction.addRefund(refundTransaction.getAmount());
+        }
+
+        // A rolled back insert leaves an id and version behind; clear them so the row is inserted again.
+        refundTransaction.setId(null);
+        refundTransaction.setVersion(null);
+        Transaction saved = transactionRepository.save(refundTransaction);
+        if (refunded) {
+            rollupRecorder.record(saved);
+            auditAfterCommit(saved, "REFUND_SUCCESS", correlationId);
+        }
+        return mapToResponse(saved);
+    }
+
+    /**
+     * Applies a state change that the gateway already accepted to a freshly loaded copy and audits it
+     * once the change commits.
+     */
+    private TransactionResponse apply(UUID transactionId, String auditAction, String correlationId,
+                                      Consumer<Transaction> change) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new TransactionNotFoundException(transactionId.toString()));
+        change.accept(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        auditAfterCommit(saved, auditAction, correlationId);
+        return mapToResponse(saved);
+    }
+
+    /**
+     * Audits once the current transaction commits, so a redone apply step is audited once.
+     */
+    private void auditAfterCommit(Transaction transaction, String action, String correlationId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            auditService.logTransaction(transaction, action, correlationId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                auditService.logTransaction(transaction, action, correlationId);
+            }
+        });
+    }
+
+    private record GatewayCall(Transaction transaction, BigDecimal amount) {
+    }
+
     @Override
     @Transactional(readOnly = true)
     public TransactionResponse getTransaction(UUID transactionId) {
         Transaction transaction = transactionRepository.findById(transactionId)
+                .or(() -> transactionArchiveService.findArchived(transactionId))
                 .orElseThrow(() -> new TransactionNotFoundException(transactionId.toString()));
         return mapToResponse(transaction);
     }
@@ -285,8 +433,65 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private Transaction createTransaction(PaymentRequest request, TransactionType type, String idempotencyKey, String correlationId) {
-        return Transaction.builder()
+    /**
+     * Loads the vaulted card of a token request and fills in its expiry for the gateway.
+     * The card number stays in the vault until the gateway builds its request.
+     */
+    private CardToken resolveCard(PaymentRequest request) {
+        if (request.getCardToken() == null) {
+            return null;
+        }
+        CardToken card = cardVault.resolve(request.getCardToken(), request.getCustomerId());
+        request.setExpMonth(card.getCardExpMonth());
+        request.setExpYear(card.getCardExpYear());
+        return card;
+    }
+
+    private Optional<FraudProperties.Rule> screen(PaymentRequest request, CardToken card, String fingerprint) {
+        String bin = card != null ? card.getCardBin()
+                : request.getCardNumber().length() >= 6 ? request.getCardNumber().substring(0, 6) : null;
+        return velocityEngine.screen(request, fingerprint, bin);
+    }
+
+    /**
+     * Charges the stored payment profile of the card if there is one, otherwise the card itself.
+     * Profiles live at the primary gateway; when it cannot be reached the card is routed like any
+     * other. A vaulted card charged successfully without a profile gets one for next time.
+     */
+    private GatewayResponse submit(PaymentRequest request, CardToken card, String fingerprint, boolean capture) {
+        Optional<CustomerProfileRef> profile = customerProfiles.find(request, fingerprint, card);
+        if (profile.isPresent()) {
+            GatewayResponse response = capture
+                    ? paymentGateway.purchaseWithProfile(request, profile.get())
+                    : paymentGateway.authorizeWithProfile(request, profile.get());
+            if (!GatewayResponse.UNAVAILABLE.equals(response.getErrorCode())
+                    && !customerProfiles.isStale(response, request.getCustomerId(), fingerprint, card)) {
+                return response;
+            }
+        }
+        GatewayResponse response = capture ? paymentGateway.purchase(request) : paymentGateway.authorize(request);
+        if (response.isSuccess() && card != null) {
+            customerProfiles.provisionAsync(card, request);
+        }
+        return response;
+    }
+
+    /**
+     * Records a payment stopped by pre-screening; the gateway is never called.
+     */
+    private TransactionResponse blocked(Transaction transaction, FraudProperties.Rule rule, String auditAction,
+                                        String correlationId) {
+        transaction.markFailed("VELOCITY_LIMIT", "Payment blocked by fraud screening rule: " + rule.getName());
+        transaction.setStatus(TransactionStatus.DECLINED);
+        transaction = transactionRepository.save(transaction);
+        rollupRecorder.record(transaction);
+        auditService.logTransaction(transaction, auditAction, correlationId);
+        return mapToResponse(transaction);
+    }
+
+    private Transaction createTransaction(PaymentRequest request, CardToken card, TransactionType type,
+                                          String idempotencyKey, String correlationId) {
+        Transaction transaction = Transaction.builder()
                 .orderId(request.getOrderId())
                 .customerId(request.getCustomerId())
                 .customerEmail(request.getCustomerEmail())
@@ -294,9 +499,6 @@ public class PaymentServiceImpl implements PaymentService {
                 .status(TransactionStatus.PENDING)
                 .amount(request.getAmount())
                 .currency(request.getCurrency())
-                .paymentMethodType(PaymentMethodType.CREDIT_CARD)
-                .cardLastFour(request.getCardNumber().substring(request.getCardNumber().length() - 4))
-                .cardBrand(detectCardBrand(request.getCardNumber()))
                 .cardExpMonth(request.getExpMonth())
                 .cardExpYear(request.getExpYear())
                 .billingFirstName(request.getBillingFirstName())
@@ -311,63 +513,27 @@ public class PaymentServiceImpl implements PaymentService {
                 .idempotencyKey(idempotencyKey)
                 .correlationId(correlationId)
                 .build();
-    }
 
-    private String detectCardBrand(String cardNumber) {
-        if (cardNumber.startsWith("4")) return "VISA";
-        else if (cardNumber.startsWith("5") || cardNumber.startsWith("2")) return "MASTERCARD";
-        else if (cardNumber.startsWith("34") || cardNumber.startsWith("37")) return "AMEX";
-        else if (cardNumber.startsWith("6011") || cardNumber.startsWith("65")) return "DISCOVER";
-        else return "UNKNOWN";
+        if (card != null) {
+            transaction.setCardToken(request.getCardToken());
+            transaction.setPaymentMethodType(card.getPaymentMethodType());
+            transaction.setCardLastFour(card.getCardLastFour());
+            transaction.setCardBrand(card.getCardBrand());
+            transaction.setCardCountry(card.getCardCountry());
+            request.setCardCountry(card.getCardCountry());
+        } else {
+            BinInfo bin = binLookup.lookup(request.getCardNumber());
+            transaction.setPaymentMethodType(bin.paymentMethodType());
+            transaction.setCardLastFour(request.getCardNumber().substring(request.getCardNumber().length() - 4));
+            transaction.setCardBrand(bin.brand());
+            transaction.setCardCountry(bin.country());
+            request.setCardCountry(bin.country());
+        }
+        return transaction;
     }
 
     private TransactionResponse mapToResponse(Transaction transaction) {
-        return TransactionResponse.builder()
-                .id(transaction.getId())
-                .orderId(transaction.getOrderId())
-                .customerId(transaction.getCustomerId())
-                .customerEmail(transaction.getCustomerEmail())
-                .type(transaction.getType())
-                .status(transaction.getStatus())
-                .amount(transaction.getAmount())
-                .currency(transaction.getCurrency())
-                .authorizedAmount(transaction.getAuthorizedAmount())
-                .capturedAmount(transaction.getCapturedAmount())
-                .refundedAmount(transaction.getRefundedAmount())
-                .refundableAmount(transaction.getRefundableAmount())
-                .gatewayTransactionId(transaction.getGatewayTransactionId())
-                .gatewayAuthCode(transaction.getGatewayAuthCode())
-                .gatewayAvsResult(transaction.getGatewayAvsResult())
-                .gatewayCvvResult(transaction.getGatewayCvvResult())
-                .gatewayResponseCode(transaction.getGatewayResponseCode())
-                .gatewayResponseMessage(transaction.getGatewayResponseMessage())
-                .paymentMethodType(transaction.getPaymentMethodType())
-                .cardLastFour(transaction.getCardLastFour())
-                .cardBrand(transaction.getCardBrand())
-                .cardExpMonth(transaction.getCardExpMonth())
-                .cardExpYear(transaction.getCardExpYear())
-                .billingFirstName(transaction.getBillingFirstName())
-                .billingLastName(transaction.getBillingLastName())
-                .billingCity(transaction.getBillingCity())
-                .billingState(transaction.getBillingState())
-                .billingZip(transaction.getBillingZip())
-                .billingCountry(transaction.getBillingCountry())
-                .createdAt(transaction.getCreatedAt())
-                .authorizedAt(transaction.getAuthorizedAt())
-                .capturedAt(transaction.getCapturedAt())
-                .voidedAt(transaction.getVoidedAt())
-                .refundedAt(transaction.getRefundedAt())
-                .failedAt(transaction.getFailedAt())
-                .parentTransactionId(transaction.getParentTransactionId())
-                .subscriptionId(transaction.getSubscriptionId())
-                .errorCode(transaction.getErrorCode())
-                .errorMessage(transaction.getErrorMessage())
-                .description(transaction.getDescription())
-                .correlationId(transaction.getCorrelationId())
-                .canCapture(transaction.canCapture())
-                .canVoid(transaction.canVoid())
-                .canRefund(transaction.canRefund())
-                .build();
+        return TransactionMapper.toResponse(transaction);
     }
 }
 
@@ -1,16 +1,22 @@
 package com.payment.processing.service.impl;
 
 import com.payment.processing.audit.AuditService;
+import com.payment.processing.card.BinLookupService;
+import com.payment.processing.domain.entity.CardToken;
 import com.payment.processing.domain.entity.Subscription;
 import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.dto.request.PaymentRequest;
 import com.payment.processing.dto.request.SubscriptionRequest;
 import com.payment.processing.dto.request.SubscriptionUpdateRequest;
 import com.payment.processing.dto.response.SubscriptionResponse;
 import com.payment.processing.exception.*;
+import com.payment.processing.gateway.CustomerProfileRef;
 import com.payment.processing.gateway.GatewayResponse;
 import com.payment.processing.gateway.PaymentGateway;
 import com.payment.processing.repository.SubscriptionRepository;
 import com.payment.processing.service.SubscriptionService;
+import com.payment.processing.vault.CardVaultService;
+import com.payment.processing.vault.CustomerProfileService;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -33,14 +39,21 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     private final SubscriptionRepository subscriptionRepository;
     private final PaymentGateway paymentGateway;
     private final AuditService auditService;
+    private final BinLookupService binLookup;
+    private final CardVaultService cardVault;
+    private final CustomerProfileService customerProfiles;
     private final Counter subscriptionCreatedCounter;
     private final Counter subscriptionCanceledCounter;
 
     public SubscriptionServiceImpl(SubscriptionRepository subscriptionRepository, PaymentGateway paymentGateway,
-                                   AuditService auditService, MeterRegistry meterRegistry) {
+                                   AuditService auditService, BinLookupService binLookup, CardVaultService cardVault,
+                                   CustomerProfileService customerProfiles, MeterRegistry meterRegistry) {
         this.subscriptionRepository = subscriptionRepository;
         this.paymentGateway = paymentGateway;
         this.auditService = auditService;
+        this.binLookup = binLookup;
+        this.cardVault = cardVault;
+        this.customerProfiles = customerProfiles;
         this.subscriptionCreatedCounter = Counter.builder("subscription.operations").tag("type", "created").register(meterRegistry);
         this.subscriptionCanceledCounter = Counter.builder("subscription.operations").tag("type", "canceled").register(meterRegistry);
     }
@@ -54,9 +67,25 @@ public class SubscriptionServiceImpl implements SubscriptionService {
             throw new DuplicateRequestException(idempotencyKey);
         }
 
-        Subscription subscription = createSubscriptionEntity(request, idempotencyKey, correlationId);
+        CardToken card = null;
+        if (request.getCardToken() != null) {
+            card = cardVault.resolve(request.getCardToken(), request.getCustomerId());
+            request.setExpMonth(card.getCardExpMonth());
+            request.setExpYear(card.getCardExpYear());
+        }
+
+        Subscription subscription = createSubscriptionEntity(request, card, idempotencyKey, correlationId);
         subscription = subscriptionRepository.save(subscription);
 
+        if (Boolean.TRUE.equals(request.getLocalBilling())) {
+            // Charged by SubscriptionBillingScheduler; no ARB schedule at the gateway.
+            attachProfile(subscription, card);
+            subscription.setStatus(SubscriptionStatus.ACTIVE);
+            calculateNextBillingDate(subscription);
+            auditService.logSubscription(subscription, "SUBSCRIPTION_CREATED", correlationId);
+            return mapToResponse(subscriptionRepository.save(subscription));
+        }
+
         try {
             GatewayResponse gatewayResponse = paymentGateway.createSubscription(request);
 
@@ -102,11 +131,30 @@ public class SubscriptionServiceImpl implements SubscriptionService {
             throw new IllegalStateException("Subscription cannot be updated in status: " + subscription.getStatus());
         }
 
+        CardToken card = null;
+        if (request.getCardToken() != null) {
+            card = cardVault.resolve(request.getCardToken(), subscription.getCustomerId());
+            if (request.getExpMonth() == null) request.setExpMonth(card.getCardExpMonth());
+            if (request.getExpYear() == null) request.setExpYear(card.getCardExpYear());
+        }
+
+        if (isBilledLocally(subscription)) {
+            if (request.getCardNumber() != null) {
+                throw new PaymentException("CARD_TOKEN_REQUIRED", "Locally billed subscriptions take a card token");
+            }
+            updateSubscriptionFields(subscription, request, card);
+            if (card != null) {
+                attachProfile(subscription, card);
+            }
+            auditService.logSubscription(subscription, "SUBSCRIPTION_UPDATED", correlationId);
+            return mapToResponse(subscriptionRepository.save(subscription));
+        }
+
         try {
             GatewayResponse gatewayResponse = paymentGateway.updateSubscription(subscription.getGatewaySubscriptionId(), request);
 
             if (gatewayResponse.isSuccess()) {
-                updateSubscriptionFields(subscription, request);
+                updateSubscriptionFields(subscription, request, card);
                 auditService.logSubscription(subscription, "SUBSCRIPTION_UPDATED", correlationId);
             } else {
                 throw new GatewayException(gatewayResponse.getErrorCode(), gatewayResponse.getErrorMessage());
@@ -133,6 +181,13 @@ public class SubscriptionServiceImpl implements SubscriptionService {
             throw new IllegalStateException("Subscription cannot be canceled in status: " + subscription.getStatus());
         }
 
+        if (isBilledLocally(subscription)) {
+            subscription.setStatus(SubscriptionStatus.CANCELED);
+            subscription.setEndDate(LocalDate.now());
+            auditService.logSubscription(subscription, "SUBSCRIPTION_CANCELED", correlationId);
+            return mapToResponse(subscriptionRepository.save(subscription));
+        }
+
         try {
             GatewayResponse gatewayResponse = paymentGateway.cancelSubscription(subscription.getGatewaySubscriptionId());
 
@@ -162,7 +217,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         return new PageImpl<>(responses, pageable, subscriptions.getTotalElements());
     }
 
-    private Subscription createSubscriptionEntity(SubscriptionRequest request, String idempotencyKey, String correlationId) {
+    private Subscription createSubscriptionEntity(SubscriptionRequest request, CardToken card, String idempotencyKey,
+                                                  String correlationId) {
         LocalDate startDate = request.getStartDate() != null ? request.getStartDate() : LocalDate.now().plusDays(1);
         return Subscription.builder()
                 .name(request.getName())
@@ -179,8 +235,10 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                 .startDate(startDate)
                 .endDate(request.getEndDate())
                 .totalCycles(request.getTotalCycles())
-                .cardLastFour(request.getCardNumber().substring(request.getCardNumber().length() - 4))
-                .cardBrand(detectCardBrand(request.getCardNumber()))
+                .cardToken(card != null ? request.getCardToken() : null)
+                .cardLastFour(card != null ? card.getCardLastFour()
+                        : request.getCardNumber().substring(request.getCardNumber().length() - 4))
+                .cardBrand(card != null ? card.getCardBrand() : binLookup.lookup(request.getCardNumber()).brand())
                 .cardExpMonth(request.getExpMonth())
                 .cardExpYear(request.getExpYear())
                 .billingFirstName(request.getBillingFirstName())
@@ -195,6 +253,33 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                 .build();
     }
 
+    /**
+     * Points a locally billed subscription at the card's payment profile, creating the profile if the
+     * card has none yet.
+     */
+    private void attachProfile(Subscription subscription, CardToken card) {
+        PaymentRequest billing = PaymentRequest.builder()
+                .customerId(subscription.getCustomerId())
+                .customerEmail(subscription.getCustomerEmail())
+                .billingFirstName(subscription.getBillingFirstName())
+                .billingLastName(subscription.getBillingLastName())
+                .billingAddress(subscription.getBillingAddress())
+                .billingCity(subscription.getBillingCity())
+                .billingState(subscription.getBillingState())
+                .billingZip(subscription.getBillingZip())
+                .billingCountry(subscription.getBillingCountry())
+                .build();
+        CustomerProfileRef profile = customerProfiles.provision(card, billing)
+                .orElseThrow(() -> new PaymentException("PAYMENT_PROFILE_UNAVAILABLE",
+                        "Could not create a payment profile for card token " + card.getToken()));
+        subscription.setGatewayCustomerProfileId(profile.customerProfileId());
+        subscription.setGatewayPaymentProfileId(profile.paymentProfileId());
+    }
+
+    private static boolean isBilledLocally(Subscription subscription) {
+        return subscription.getGatewaySubscriptionId() == null && subscription.getGatewayPaymentProfileId() != null;
+    }
+
     private void calculateNextBillingDate(Subscription subscription) {
         LocalDate startDate = subscription.getStartDate();
         if (subscription.getTrialDays() != null && subscription.getTrialDays() > 0) {
@@ -205,7 +290,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         }
     }
 
-    private void updateSubscriptionFields(Subscription subscription, SubscriptionUpdateRequest request) {
+    private void updateSubscriptionFields(Subscription subscription, SubscriptionUpdateRequest request, CardToken card) {
         if (request.getName() != null) subscription.setName(request.getName());
         if (request.getDescription() != null) subscription.setDescription(request.getDescription());
         if (request.getAmount() != null) subscription.setAmount(request.getAmount());
@@ -213,9 +298,14 @@ public class SubscriptionServiceImpl implements SubscriptionService {
         if (request.getIntervalCount() != null) subscription.setIntervalCount(request.getIntervalCount());
         if (request.getEndDate() != null) subscription.setEndDate(request.getEndDate());
         if (request.getTotalCycles() != null) subscription.setTotalCycles(request.getTotalCycles());
-        if (request.getCardNumber() != null) {
+        if (card != null) {
+            subscription.setCardToken(request.getCardToken());
+            subscription.setCardLastFour(card.getCardLastFour());
+            subscription.setCardBrand(card.getCardBrand());
+        } else if (request.getCardNumber() != null) {
+            subscription.setCardToken(null);
             subscription.setCardLastFour(request.getCardNumber().substring(request.getCardNumber().length() - 4));
-            subscription.setCardBrand(detectCardBrand(request.getCardNumber()));
+            subscription.setCardBrand(binLookup.lookup(request.getCardNumber()).brand());
         }
         if (request.getExpMonth() != null) subscription.setCardExpMonth(request.getExpMonth());
         if (request.getExpYear() != null) subscription.setCardExpYear(request.getExpYear());
@@ -239,14 +329,6 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                subscription.getStatus() == SubscriptionStatus.TRIAL;
     }
 
-    private String detectCardBrand(String cardNumber) {
-        if (cardNumber.startsWith("4")) return "VISA";
-        else if (cardNumber.startsWith("5") || cardNumber.startsWith("2")) return "MASTERCARD";
-        else if (cardNumber.startsWith("34") || cardNumber.startsWith("37")) return "AMEX";
-        else if (cardNumber.startsWith("6011") || cardNumber.startsWith("65")) return "DISCOVER";
-        else return "UNKNOWN";
-    }
-
     private SubscriptionResponse mapToResponse(Subscription subscription) {
         Integer remainingCycles = null;
         if (subscription.getTotalCycles() != null) {
@@ -276,6 +358,7 @@ public class SubscriptionServiceImpl implements SubscriptionService {
                 .failedCycles(subscription.getFailedCycles())
                 .remainingCycles(remainingCycles)
                 .gatewaySubscriptionId(subscription.getGatewaySubscriptionId())
+                .cardToken(subscription.getCardToken())
                 .cardLastFour(subscription.getCardLastFour())
                 .cardBrand(subscription.getCardBrand())
                 .cardExpMonth(subscription.getCardExpMonth())
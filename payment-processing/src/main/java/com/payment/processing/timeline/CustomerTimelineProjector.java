@@ -0,0 +1,256 @@
+package com.payment.processing.timeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.dto.response.TimelineEntryResponse;
+import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.service.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Projects payments into {@code customer_timeline_entries}.
+ * <p>
+ * {@link TimelineChangeListener} reports every committed change to a transaction; the payment it
+ * belongs to (the refund's parent for a refund) is queued, and every {@code timeline.projection.interval-ms}
+ * queued payments are reloaded from {@code transactions} with their refunds, up to
+ * {@code timeline.projection.batch-size} at a time, and upserted as one JSON row each. Repeated
+ * changes to one payment between runs are projected once. Reads go to the primary so a projection
+ * never sees state older than the change that queued it; an upsert only replaces a row with
+ * the same or newer source state, so projections from several nodes cannot go back in time. Payments
+ * queued on a node that stops before projecting them are repaired by {@link #startRebuild}.
+ * <p>
+ * Until a backfill is recorded in {@code customer_timeline_backfills}, the read model only holds
+ * payments changed since deployment, so a node that finds none at startup projects every payment
+ * created before it started and then records one. Concurrent backfills from several nodes only
+ * repeat idempotent upserts.
+ */
+@Component
+@Slf4j
+public class CustomerTimelineProjector {
+
+    private static final String UPSERT = """
+            MERGE INTO customer_timeline_entries r
+            USING (SELECT CAST(? AS UUID) AS transaction_id, CAST(? AS VARCHAR(100)) AS customer_id,
+                          CAST(? AS TIMESTAMP WITH TIME ZONE) AS created_at,
+                          CAST(? AS TIMESTAMP WITH TIME ZONE) AS source_updated_at,
+                          CAST(? AS TIMESTAMP WITH TIME ZONE) AS projected_at, CAST(? AS TEXT) AS payload) d
+            ON r.transaction_id = d.transaction_id
+            WHEN MATCHED AND r.source_updated_at <= d.source_updated_at THEN UPDATE SET
+                source_updated_at = d.source_updated_at, projected_at = d.projected_at, payload = d.payload
+            WHEN NOT MATCHED THEN INSERT (transaction_id, customer_id, created_at, source_updated_at, projected_at, payload)
+                VALUES (d.transaction_id, d.customer_id, d.created_at, d.source_updated_at, d.projected_at, d.payload)
+            """;
+
+    // Payment id -> System.nanoTime() of its oldest unprojected change.
+    private final Map<UUID, Long> pending = new ConcurrentHashMap<>();
+    private final TransactionRepository transactionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+    private final Executor asyncExecutor;
+    private final int batchSize;
+    private final boolean backfillOnStartup;
+    private volatile boolean backfilled;
+    private final Timer lagTimer;
+    private final Counter projected;
+    private final Counter failures;
+
+    public CustomerTimelineProjector(TransactionRepository transactionRepository, JdbcTemplate jdbcTemplate,
+                                     ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                     @Qualifier("asyncExecutor") Executor asyncExecutor,
+                                     @Value("${timeline.projection.batch-size:500}") int batchSize,
+                                     @Value("${timeline.read-model.backfill-on-startup:true}") boolean backfillOnStartup,
+                                     MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.asyncExecutor = asyncExecutor;
+        this.batchSize = batchSize;
+        this.backfillOnStartup = backfillOnStartup;
+
+        this.lagTimer = Timer.builder("timeline.projection.lag").register(meterRegistry);
+        this.projected = Counter.builder("timeline.projections").tag("outcome", "success").register(meterRegistry);
+        this.failures = Counter.builder("timeline.projections").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("timeline.pending", pending, Map::size).register(meterRegistry);
+        Gauge.builder("timeline.lag.oldest", this, projector -> projector.oldestPendingMillis() / 1000.0)
+                .baseUnit("seconds").register(meterRegistry);
+    }
+
+    /**
+     * Queues the payment a committed transaction change belongs to.
+     */
+    void changed(Transaction transaction) {
+        UUID paymentId = transaction.getParentTransactionId() != null ? transaction.getParentTransactionId() : transaction.getId();
+        pending.putIfAbsent(paymentId, System.nanoTime());
+    }
+
+    /**
+     * Age of the oldest change not yet projected on this node; 0 when the read model is caught up.
+     */
+    public long oldestPendingMillis() {
+        long now = System.nanoTime();
+        return pending.values().stream().mapToLong(queuedAt -> TimeUnit.NANOSECONDS.toMillis(now - queuedAt))
+                .max().orElse(0);
+    }
+
+    /**
+     * Whether a backfill has completed, so the read model holds every payment and not only recent changes.
+     */
+    public boolean isBackfilled() {
+        if (!backfilled) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer_timeline_backfills", Long.class);
+            backfilled = count != null && count > 0;
+        }
+        return backfilled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (backfillOnStartup && !isBackfilled()) {
+            startBackfill();
+        }
+    }
+
+    /**
+     * Projects every payment created before now in the background and records the backfill. Later
+     * changes are queued by {@link TimelineChangeListener}, which is registered by then.
+     */
+    public void startBackfill() {
+        Instant to = Instant.now();
+        asyncExecutor.execute(() -> {
+            try {
+                Timestamp oldest = jdbcTemplate.queryForObject(
+                        "SELECT MIN(created_at) FROM transactions WHERE parent_transaction_id IS NULL", Timestamp.class);
+                long count = oldest != null ? rebuild(oldest.toInstant(), to) : 0;
+                writeTransaction.executeWithoutResult(status -> jdbcTemplate.update(
+                        "INSERT INTO customer_timeline_backfills (id, backfilled_to, completed_at) VALUES (?, ?, ?)",
+                        UUID.randomUUID(), Timestamp.from(to), Timestamp.from(Instant.now())));
+                backfilled = true;
+                log.info("Backfilled {} timeline entries created before {}", count, to);
+            } catch (RuntimeException e) {
+                log.error("Timeline backfill failed; timelines are built from transactions until one completes", e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${timeline.projection.interval-ms:250}")
+    public synchronized void projectPending() {
+        // Only what is queued now, so a steady stream of changes cannot keep the scheduler thread here.
+        List<UUID> queued = List.copyOf(pending.keySet());
+        for (int i = 0; i < queued.size(); i += batchSize) {
+            Map<UUID, Long> batch = new HashMap<>();
+            for (UUID paymentId : queued.subList(i, Math.min(i + batchSize, queued.size()))) {
+                Long queuedAt = pending.remove(paymentId);
+                if (queuedAt != null) {
+                    batch.put(paymentId, queuedAt);
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                project(batch.keySet());
+            } catch (RuntimeException e) {
+                // Keep the original queue times so the lag keeps counting from the first change.
+                batch.forEach((paymentId, queuedAt) -> pending.merge(paymentId, queuedAt, Math::min));
+                failures.increment(batch.size());
+                log.warn("Timeline projection of {} payments failed, retrying with the next run", batch.size(), e);
+                return;
+            }
+            long now = System.nanoTime();
+            batch.values().forEach(queuedAt -> lagTimer.record(now - queuedAt, TimeUnit.NANOSECONDS));
+            projected.increment(batch.size());
+        }
+    }
+
+    /**
+     * Re-projects every payment created in {@code [from, to)} in the background, to backfill the read
+     * model or repair it after a node stopped with queued changes.
+     */
+    public void startRebuild(Instant from, Instant to) {
+        asyncExecutor.execute(() -> {
+            long count = rebuild(from, to);
+            log.info("Re-projected {} timeline entries created in [{}, {})", count, from, to);
+        });
+    }
+
+    private long rebuild(Instant from, Instant to) {
+        long count = 0;
+        // An hour of ids at a time keeps memory flat however long the range is.
+        for (Instant start = from; start.isBefore(to); start = start.plus(Duration.ofHours(1))) {
+            Instant end = start.plus(Duration.ofHours(1)).isBefore(to) ? start.plus(Duration.ofHours(1)) : to;
+            List<UUID> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM transactions WHERE created_at >= ? AND created_at < ? AND parent_transaction_id IS NULL ORDER BY id",
+                    UUID.class, Timestamp.from(start), Timestamp.from(end));
+            for (int i = 0; i < ids.size(); i += batchSize) {
+                project(ids.subList(i, Math.min(i + batchSize, ids.size())));
+            }
+            count += ids.size();
+        }
+        return count;
+    }
+
+    private void project(Collection<UUID> paymentIds) {
+        writeTransaction.executeWithoutResult(status -> {
+            List<Transaction> payments = transactionRepository.findAllById(paymentIds);
+            Map<UUID, List<Transaction>> refunds = transactionRepository.findByParentTransactionIdIn(paymentIds).stream()
+                    .collect(Collectors.groupingBy(Transaction::getParentTransactionId));
+            Instant now = Instant.now();
+            List<Object[]> rows = new ArrayList<>(payments.size());
+            for (Transaction payment : payments) {
+                List<Transaction> children = refunds.getOrDefault(payment.getId(), List.of()).stream()
+                        .sorted(Comparator.comparing(Transaction::getCreatedAt)).toList();
+                Instant sourceUpdatedAt = children.stream().map(Transaction::getUpdatedAt)
+                        .reduce(payment.getUpdatedAt(), (a, b) -> a.isAfter(b) ? a : b);
+                rows.add(new Object[]{payment.getId(), payment.getCustomerId(), Timestamp.from(payment.getCreatedAt()),
+                        Timestamp.from(sourceUpdatedAt), Timestamp.from(now), payload(payment, children)});
+            }
+            // Payments no longer in the table (archived) keep their last projection.
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        });
+    }
+
+    private String payload(Transaction payment, List<Transaction> refunds) {
+        TimelineEntryResponse entry = TimelineEntryResponse.builder()
+                .payment(TransactionMapper.toResponse(payment))
+                .refunds(refunds.stream().map(TransactionMapper::toResponse).toList())
+                .build();
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize timeline entry " + payment.getId(), e);
+        }
+    }
+}
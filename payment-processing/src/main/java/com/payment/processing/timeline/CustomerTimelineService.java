@@ -0,0 +1,101 @@
+package com.payment.processing.timeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.dto.response.TimelineEntryResponse;
+import com.payment.processing.repository.CustomerTimelineEntryRepository;
+import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.service.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * A customer's payments, newest first, each with its refunds.
+ * <p>
+ * Served from the {@code customer_timeline_entries} read model: one index range per page and no join.
+ * When the read model is switched off ({@code timeline.read-model.enabled}), has not been backfilled
+ * yet, or this node's projection lags more than {@code timeline.read-model.max-lag-ms} behind, the page
+ * is built from {@code transactions} instead, as before the read model existed.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CustomerTimelineService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+    private static final Sort NEWEST_ENTRY_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "transactionId");
+
+    private final CustomerTimelineEntryRepository timelineRepository;
+    private final TransactionRepository transactionRepository;
+    private final CustomerTimelineProjector projector;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long maxLagMillis;
+    private final Counter readModelReads;
+    private final Counter fallbackReads;
+
+    public CustomerTimelineService(CustomerTimelineEntryRepository timelineRepository,
+                                   TransactionRepository transactionRepository, CustomerTimelineProjector projector,
+                                   ObjectMapper objectMapper,
+                                   @Value("${timeline.read-model.enabled:true}") boolean enabled,
+                                   @Value("${timeline.read-model.max-lag-ms:30000}") long maxLagMillis,
+                                   MeterRegistry meterRegistry) {
+        this.timelineRepository = timelineRepository;
+        this.transactionRepository = transactionRepository;
+        this.projector = projector;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxLagMillis = maxLagMillis;
+
+        this.readModelReads = Counter.builder("timeline.reads").tag("source", "read_model").register(meterRegistry);
+        this.fallbackReads = Counter.builder("timeline.reads").tag("source", "transactions").register(meterRegistry);
+    }
+
+    public Page<TimelineEntryResponse> getTimeline(String customerId, Pageable pageable) {
+        if (!enabled || !projector.isBackfilled() || projector.oldestPendingMillis() > maxLagMillis) {
+            fallbackReads.increment();
+            return fromTransactions(customerId, pageable);
+        }
+        readModelReads.increment();
+        return timelineRepository.findByCustomerId(customerId,
+                        PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_ENTRY_FIRST))
+                .map(entry -> read(entry.getPayload()));
+    }
+
+    private Page<TimelineEntryResponse> fromTransactions(String customerId, Pageable pageable) {
+        Page<Transaction> payments = transactionRepository.findByCustomerIdAndParentTransactionIdIsNull(customerId,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_FIRST));
+        List<UUID> ids = payments.getContent().stream().map(Transaction::getId).toList();
+        Map<UUID, List<Transaction>> refunds = ids.isEmpty() ? Map.of()
+                : transactionRepository.findByParentTransactionIdIn(ids).stream()
+                        .collect(Collectors.groupingBy(Transaction::getParentTransactionId));
+        return payments.map(payment -> TimelineEntryResponse.builder()
+                .payment(TransactionMapper.toResponse(payment))
+                .refunds(refunds.getOrDefault(payment.getId(), List.of()).stream()
+                        .sorted(Comparator.comparing(Transaction::getCreatedAt))
+                        .map(TransactionMapper::toResponse)
+                        .toList())
+                .build());
+    }
+
+    private TimelineEntryResponse read(String payload) {
+        try {
+            return objectMapper.readValue(payload, TimelineEntryResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable timeline entry", e);
+        }
+    }
+}
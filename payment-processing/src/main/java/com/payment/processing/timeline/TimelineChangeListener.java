@@ -0,0 +1,65 @@
+package com.payment.processing.timeline;
+
+import com.payment.processing.domain.entity.Transaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the customer timeline from Hibernate's post-commit events, so every committed insert or
+ * update of a transaction reaches the read model whichever service wrote it, and rolled back writes
+ * never do. Bulk deletes (archival) raise no event; archived payments keep their timeline entry.
+ */
+@Component
+@RequiredArgsConstructor
+public class TimelineChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CustomerTimelineProjector projector;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Transaction transaction) {
+            projector.changed(transaction);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Transaction transaction) {
+            projector.changed(transaction);
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Nothing was committed, so there is nothing to project.
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Nothing was committed, so there is nothing to project.
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return Transaction.class.equals(persister.getMappedClass());
+    }
+}
@@ -0,0 +1,7 @@
+package com.payment.processing.vault;
+
+/**
+ * Published by {@link CardVaultService#delete(String, String)} within the deleting transaction.
+ */
+public record CardTokenDeletedEvent(String customerId, String fingerprint) {
+}
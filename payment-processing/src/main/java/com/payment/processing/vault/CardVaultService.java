@@ -0,0 +1,285 @@
+package com.payment.processing.vault;
+
+import com.payment.processing.card.BinInfo;
+import com.payment.processing.card.BinLookupService;
+import com.payment.processing.domain.entity.CardToken;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.CardTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Exchanges card numbers for {@link CardToken}s.
+ * <p>
+ * PANs are encrypted with AES-GCM, using the owner and fingerprint as associated data so a
+ * ciphertext cannot be moved to another customer or card. Tokens are deduplicated per customer by
+ * an HMAC-SHA256 fingerprint, so the same card tokenized twice yields the same token. The PAN is
+ * only decrypted by {@link #detokenize(String)}, which the gateway calls while building its request.
+ * <p>
+ * Startup fails without {@code vault.encryption-key} and {@code vault.fingerprint-key}, unless
+ * {@code vault.allow-generated-keys} is set (the {@code local} profile does): random per-process keys
+ * would make every vaulted card unreadable after a restart.
+ */
+@Service
+@Slf4j
+public class CardVaultService {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    private final CardTokenRepository cardTokenRepository;
+    private final BinLookupService binLookup;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SecretKeySpec encryptionKey;
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(CardVaultService::newCipher);
+    private final ThreadLocal<Mac> macs;
+    private final SecureRandom random = new SecureRandom();
+
+    public CardVaultService(CardTokenRepository cardTokenRepository, BinLookupService binLookup,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${vault.encryption-key:}") String encryptionKey,
+                            @Value("${vault.fingerprint-key:}") String fingerprintKey,
+                            @Value("${vault.allow-generated-keys:false}") boolean allowGeneratedKeys) {
+        this.cardTokenRepository = cardTokenRepository;
+        this.binLookup = binLookup;
+        this.eventPublisher = eventPublisher;
+        this.encryptionKey = new SecretKeySpec(
+                decodeKey("vault.encryption-key", encryptionKey, allowGeneratedKeys), "AES");
+        SecretKeySpec macKey = new SecretKeySpec(
+                decodeKey("vault.fingerprint-key", fingerprintKey, allowGeneratedKeys), FINGERPRINT_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> newMac(macKey));
+    }
+
+    /**
+     * Vaults a card for the customer, or returns the existing token (with the expiry refreshed)
+     * if the customer already vaulted it.
+     */
+    @Transactional
+    public CardToken tokenize(String customerId, String cardNumber, String expMonth, String expYear) {
+        String pan = normalize(cardNumber);
+        String fingerprint = fingerprint(pan);
+
+        CardToken existing = cardTokenRepository.findByCustomerIdAndFingerprint(customerId, fingerprint).orElse(null);
+        if (existing != null) {
+            existing.setCardExpMonth(expMonth);
+            existing.setCardExpYear(expYear);
+            return existing;
+        }
+
+        BinInfo bin = binLookup.lookup(pan);
+        CardToken token = CardToken.builder()
+                .customerId(customerId)
+                .fingerprint(fingerprint)
+                .cardBin(pan.substring(0, 6))
+                .cardLastFour(pan.substring(pan.length() - 4))
+                .cardBrand(bin.brand())
+                .cardCountry(bin.country())
+                .paymentMethodType(bin.paymentMethodType())
+                .cardExpMonth(expMonth)
+                .cardExpYear(expYear)
+                .build();
+        token.setEncryptedPan(encrypt(pan, token));
+        log.info("Vaulted {} card ending {} for customer {}", token.getCardBrand(), token.getCardLastFour(), customerId);
+        return cardTokenRepository.save(token);
+    }
+
+    /**
+     * Loads a token on behalf of a customer; tokens of other customers are reported as missing.
+     */
+    @Transactional
+    public CardToken resolve(String token, String customerId) {
+        CardToken cardToken = find(token);
+        if (!cardToken.getCustomerId().equals(customerId)) {
+            throw notFound(token);
+        }
+        cardToken.setLastUsedAt(Instant.now());
+        return cardToken;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CardToken> getTokens(String customerId) {
+        return cardTokenRepository.findByCustomerIdOrderByCreatedAtDesc(customerId);
+    }
+
+    @Transactional
+    public void delete(String token, String customerId) {
+        CardToken cardToken = find(token);
+        if (!cardToken.getCustomerId().equals(customerId)) {
+            throw notFound(token);
+        }
+        cardTokenRepository.delete(cardToken);
+        // An event, as CustomerProfileService depends on this service through the gateway.
+        eventPublisher.publishEvent(new CardTokenDeletedEvent(customerId, cardToken.getFingerprint()));
+    }
+
+    /**
+     * Decrypts the PAN of a token. Only for building gateway requests; the result must not be logged or stored.
+     */
+    @Transactional(readOnly = true)
+    public String detokenize(String token) {
+        CardToken cardToken = find(token);
+        return decrypt(cardToken);
+    }
+
+    /**
+     * Keyed fingerprint of a card number, stable across tokens and customers.
+     */
+    public String fingerprint(String cardNumber) {
+        Mac mac = macs.get();
+        byte[] digest = mac.doFinal(digits(cardNumber).getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    private CardToken find(String token) {
+        UUID id = parse(token);
+        if (id == null) {
+            throw notFound(token);
+        }
+        // By id, so repeated lookups within one transaction are served from the persistence context.
+        return cardTokenRepository.findById(id).orElseThrow(() -> notFound(token));
+    }
+
+    private static UUID parse(String token) {
+        if (token == null || token.length() != CardToken.PREFIX.length() + 32 || !token.startsWith(CardToken.PREFIX)) {
+            return null;
+        }
+        try {
+            String hex = token.substring(CardToken.PREFIX.length());
+            return new UUID(Long.parseUnsignedLong(hex.substring(0, 16), 16), Long.parseUnsignedLong(hex.substring(16), 16));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] encrypt(String pan, CardToken token) {
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(associatedData(token));
+            byte[] sealed = cipher.doFinal(pan.getBytes(StandardCharsets.US_ASCII));
+            return ByteBuffer.allocate(IV_LENGTH + sealed.length).put(iv).put(sealed).array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt card number", e);
+        }
+    }
+
+    private String decrypt(CardToken token) {
+        byte[] encrypted = token.getEncryptedPan();
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new GCMParameterSpec(TAG_BITS, encrypted, 0, IV_LENGTH));
+            cipher.updateAAD(associatedData(token));
+            byte[] pan = cipher.doFinal(encrypted, IV_LENGTH, encrypted.length - IV_LENGTH);
+            try {
+                return new String(pan, StandardCharsets.US_ASCII);
+            } finally {
+                Arrays.fill(pan, (byte) 0);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new PaymentException("CARD_TOKEN_UNREADABLE", "Card token cannot be decrypted with the configured key");
+        }
+    }
+
+    private static byte[] associatedData(CardToken token) {
+        return (token.getCustomerId() + ':' + token.getFingerprint()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String normalize(String cardNumber) {
+        for (int i = 0; i < cardNumber.length(); i++) {
+            char c = cardNumber.charAt(i);
+            if ((c < '0' || c > '9') && c != ' ' && c != '-') {
+                throw new PaymentException("INVALID_CARD_NUMBER", "Card number may only contain digits");
+            }
+        }
+        String digits = digits(cardNumber);
+        if (digits.length() < 12 || digits.length() > 19 || !luhn(digits)) {
+            throw new PaymentException("INVALID_CARD_NUMBER", "Card number is not valid");
+        }
+        return digits;
+    }
+
+    private static String digits(String cardNumber) {
+        StringBuilder digits = new StringBuilder(cardNumber.length());
+        for (int i = 0; i < cardNumber.length(); i++) {
+            char c = cardNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static boolean luhn(CharSequence digits) {
+        int sum = 0;
+        for (int i = digits.length() - 1, pos = 0; i >= 0; i--, pos++) {
+            int d = digits.charAt(i) - '0';
+            if (pos % 2 == 1) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static byte[] decodeKey(String property, String value, boolean allowGenerated) {
+        if (value == null || value.isBlank()) {
+            if (!allowGenerated) {
+                throw new IllegalStateException(property + " is not configured; set it to a Base64 encoded key, "
+                        + "or set vault.allow-generated-keys for local development");
+            }
+            log.warn("{} not configured, using a random key; vaulted cards will not survive a restart", property);
+            byte[] key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            return key;
+        }
+        byte[] key = Base64.getDecoder().decode(value.trim());
+        if (key.length != 16 && key.length != 24 && key.length != 32) {
+            throw new IllegalStateException(property + " must be a Base64 encoded 128, 192 or 256 bit key");
+        }
+        return key;
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(CIPHER);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + CIPHER, e);
+        }
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize " + FINGERPRINT_ALGORITHM, e);
+        }
+    }
+
+    private static PaymentException notFound(String token) {
+        return new PaymentException("CARD_TOKEN_NOT_FOUND", "Card token not found: " + token);
+    }
+}
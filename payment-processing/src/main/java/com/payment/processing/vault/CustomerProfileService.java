@@ -0,0 +1,301 @@
+package com.payment.processing.vault;
+
+import com.payment.processing.domain.entity.CardToken;
+import com.payment.processing.dto.request.PaymentRequest;
+import com.payment.processing.gateway.CustomerProfileRef;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.CardTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Authorize.Net CIM payment profiles for vaulted cards, so repeat charges send profile ids instead
+ * of card data.
+ * <p>
+ * Profile ids live on the {@link CardToken} row, which is keyed by customer and card fingerprint.
+ * A card number charged without a token is matched to the customer's vaulted card through a bounded
+ * in-memory cache in front of {@code card_tokens}. Profiles are cached for {@code positive-ttl-minutes}
+ * and cards that have no profile for {@code negative-ttl-minutes}; deleting a token evicts its entry.
+ * The profile is only reused if the payment's expiry matches the vaulted card's, since the profile
+ * charges the card data it was created with. A profile is created in the background after the first
+ * successful card charge of a token.
+ */
+@Service
+@Slf4j
+public class CustomerProfileService {
+
+    /** Authorize.Net "record cannot be found": the profile was deleted at the gateway. */
+    private static final String PROFILE_NOT_FOUND = "E00040";
+    // Rough per-entry footprint: linked map entry, key of customer id and fingerprint, cached value.
+    private static final int ESTIMATED_ENTRY_BYTES = 300;
+
+    private final CardTokenRepository cardTokenRepository;
+    private final PaymentGateway paymentGateway;
+    private final Executor asyncExecutor;
+    private final TransactionTemplate writeTransaction;
+    private final Map<String, Cached> cache;
+    private final Set<UUID> provisioning = ConcurrentHashMap.newKeySet();
+    private final boolean enabled;
+    private final long positiveTtlMillis;
+    private final long negativeTtlMillis;
+    private final int maxEntries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter createdCounter;
+    private final Counter failedCounter;
+    private final Counter staleCounter;
+
+    public CustomerProfileService(CardTokenRepository cardTokenRepository, PaymentGateway paymentGateway,
+                                  @Qualifier("asyncExecutor") Executor asyncExecutor,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${vault.profiles.enabled:true}") boolean enabled,
+                                  @Value("${vault.profiles.positive-ttl-minutes:60}") long positiveTtlMinutes,
+                                  @Value("${vault.profiles.negative-ttl-minutes:10}") long negativeTtlMinutes,
+                                  @Value("${vault.profiles.memory-budget-mb:16}") long memoryBudgetMb,
+                                  MeterRegistry meterRegistry) {
+        this.cardTokenRepository = cardTokenRepository;
+        this.paymentGateway = paymentGateway;
+        this.asyncExecutor = asyncExecutor;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.positiveTtlMillis = Duration.ofMinutes(positiveTtlMinutes).toMillis();
+        this.negativeTtlMillis = Duration.ofMinutes(negativeTtlMinutes).toMillis();
+        this.maxEntries = (int) Math.min(Integer.MAX_VALUE, memoryBudgetMb * 1024 * 1024 / ESTIMATED_ENTRY_BYTES);
+        // Least recently used first; evicting inside the map keeps removals and the order in step.
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > maxEntries;
+            }
+        });
+
+        this.hitCounter = Counter.builder("gateway.profiles").tag("outcome", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("gateway.profiles").tag("outcome", "miss").register(meterRegistry);
+        this.createdCounter = Counter.builder("gateway.profiles").tag("outcome", "created").register(meterRegistry);
+        this.failedCounter = Counter.builder("gateway.profiles").tag("outcome", "failed").register(meterRegistry);
+        this.staleCounter = Counter.builder("gateway.profiles").tag("outcome", "stale").register(meterRegistry);
+        Gauge.builder("gateway.profiles.cache.size", cache, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * The profile to charge for a payment: the token's own, or for a bare card number, the profile of
+     * the customer's vaulted copy of that card if the payment carries the same expiry.
+     */
+    public Optional<CustomerProfileRef> find(PaymentRequest request, String fingerprint, CardToken card) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        if (card != null) {
+            return count(profileOf(card));
+        }
+        String key = key(request.getCustomerId(), fingerprint);
+        Cached cached = cache.get(key);
+        long now = System.currentTimeMillis();
+        if (cached == null || now > cached.expiresAt()) {
+            cached = cardTokenRepository.findByCustomerIdAndFingerprint(request.getCustomerId(), fingerprint)
+                    .filter(token -> profileOf(token).isPresent())
+                    .map(token -> cached(token, now + positiveTtlMillis))
+                    .orElseGet(() -> new Cached(null, null, null, now + negativeTtlMillis));
+            cache.put(key, cached);
+        }
+        if (cached.profile() != null && !cached.matchesExpiry(request)) {
+            // The profile would charge the vaulted expiry, not the one the customer entered.
+            return count(Optional.empty());
+        }
+        return count(Optional.ofNullable(cached.profile()));
+    }
+
+    /**
+     * Drops the cached profile of a deleted token once the deletion has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenDeleted(CardTokenDeletedEvent event) {
+        cache.remove(key(event.customerId(), event.fingerprint()));
+    }
+
+    /**
+     * Whether a profile charge failed because the profile no longer exists at the gateway, in which
+     * case the profile is dropped and the caller should charge the card instead.
+     */
+    public boolean isStale(GatewayResponse response, String customerId, String fingerprint, CardToken card) {
+        if (response.isSuccess() || !PROFILE_NOT_FOUND.equals(response.getErrorCode())) {
+            return false;
+        }
+        staleCounter.increment();
+        log.warn("Payment profile for customer {} no longer exists at the gateway", customerId);
+        cache.remove(key(customerId, fingerprint));
+        if (card != null) {
+            // Loaded by the caller's transaction, which writes the change with the payment.
+            card.setGatewayCustomerProfileId(null);
+            card.setGatewayPaymentProfileId(null);
+        } else {
+            writeTransaction.executeWithoutResult(status -> cardTokenRepository.clearGatewayProfile(customerId, fingerprint));
+        }
+        return true;
+    }
+
+    /**
+     * Creates a payment profile for a token after its card was charged, unless it has one already.
+     * Runs in the background; the request's CVV is not passed on.
+     */
+    public void provisionAsync(CardToken card, PaymentRequest request) {
+        if (!enabled || card.getGatewayPaymentProfileId() != null || !provisioning.add(card.getId())) {
+            return;
+        }
+        PaymentRequest profileRequest = profileRequest(card, request);
+        UUID tokenId = card.getId();
+        String fingerprint = card.getFingerprint();
+        Runnable submit = () -> {
+            try {
+                asyncExecutor.execute(() -> {
+                    try {
+                        provision(tokenId, fingerprint, profileRequest);
+                    } finally {
+                        provisioning.remove(tokenId);
+                    }
+                });
+            } catch (RuntimeException e) {
+                provisioning.remove(tokenId);
+                log.warn("Could not schedule payment profile creation for token {}: {}", tokenId, e.getMessage());
+            }
+        };
+        // Once the payment's transaction has finished, so its own write of the token cannot undo the attach.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    submit.run();
+                }
+            });
+        } else {
+            submit.run();
+        }
+    }
+
+    /**
+     * Creates a payment profile for a token now, unless it has one already, and sets it on the token
+     * for the caller's transaction to write. Empty if profiles are disabled or the gateway refused.
+     */
+    public Optional<CustomerProfileRef> provision(CardToken card, PaymentRequest request) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<CustomerProfileRef> existing = profileOf(card);
+        if (existing.isPresent()) {
+            return existing;
+        }
+        Optional<CustomerProfileRef> created = create(profileRequest(card, request));
+        created.ifPresent(profile -> {
+            card.setGatewayCustomerProfileId(profile.customerProfileId());
+            card.setGatewayPaymentProfileId(profile.paymentProfileId());
+            // Not cached until the caller commits; drop a cached miss so the next lookup reads the row.
+            cache.remove(key(card.getCustomerId(), card.getFingerprint()));
+        });
+        return created;
+    }
+
+    private void provision(UUID tokenId, String fingerprint, PaymentRequest request) {
+        create(request).ifPresent(profile -> {
+            try {
+                writeTransaction.executeWithoutResult(status -> cardTokenRepository.attachGatewayProfile(
+                        tokenId, profile.customerProfileId(), profile.paymentProfileId()));
+                cache.put(key(request.getCustomerId(), fingerprint), new Cached(profile, request.getExpMonth(),
+                        request.getExpYear(), System.currentTimeMillis() + positiveTtlMillis));
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                log.warn("Could not attach payment profile {} to token {}", profile.paymentProfileId(), tokenId, e);
+            }
+        });
+    }
+
+    private Optional<CustomerProfileRef> create(PaymentRequest request) {
+        try {
+            String customerProfileId = cardTokenRepository
+                    .findFirstByCustomerIdAndGatewayCustomerProfileIdIsNotNull(request.getCustomerId())
+                    .map(CardToken::getGatewayCustomerProfileId)
+                    .orElse(null);
+            GatewayResponse response = paymentGateway.createPaymentProfile(customerProfileId, request);
+            if (!response.isSuccess()) {
+                failedCounter.increment();
+                log.warn("Payment profile creation failed for customer {}: {} - {}",
+                        request.getCustomerId(), response.getErrorCode(), response.getErrorMessage());
+                return Optional.empty();
+            }
+            createdCounter.increment();
+            log.info("Created payment profile {} for customer {}", response.getPaymentProfileId(), request.getCustomerId());
+            return Optional.of(new CustomerProfileRef(response.getCustomerProfileId(), response.getPaymentProfileId()));
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.warn("Payment profile creation failed for customer {}", request.getCustomerId(), e);
+            return Optional.empty();
+        }
+    }
+
+    private static PaymentRequest profileRequest(CardToken card, PaymentRequest request) {
+        return PaymentRequest.builder()
+                .customerId(card.getCustomerId())
+                .customerEmail(request.getCustomerEmail())
+                .cardToken(card.getToken())
+                .expMonth(card.getCardExpMonth())
+                .expYear(card.getCardExpYear())
+                .billingFirstName(request.getBillingFirstName())
+                .billingLastName(request.getBillingLastName())
+                .billingAddress(request.getBillingAddress())
+                .billingCity(request.getBillingCity())
+                .billingState(request.getBillingState())
+                .billingZip(request.getBillingZip())
+                .billingCountry(request.getBillingCountry())
+                .build();
+    }
+
+    private Optional<CustomerProfileRef> count(Optional<CustomerProfileRef> profile) {
+        (profile.isPresent() ? hitCounter : missCounter).increment();
+        return profile;
+    }
+
+    private static Optional<CustomerProfileRef> profileOf(CardToken card) {
+        if (card.getGatewayCustomerProfileId() == null || card.getGatewayPaymentProfileId() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CustomerProfileRef(card.getGatewayCustomerProfileId(), card.getGatewayPaymentProfileId()));
+    }
+
+    private static Cached cached(CardToken card, long expiresAt) {
+        return new Cached(profileOf(card).orElseThrow(), card.getCardExpMonth(), card.getCardExpYear(), expiresAt);
+    }
+
+    private static String key(String customerId, String fingerprint) {
+        return customerId + ':' + fingerprint;
+    }
+
+    private record Cached(CustomerProfileRef profile, String expMonth, String expYear, long expiresAt) {
+
+        boolean matchesExpiry(PaymentRequest request) {
+            return Objects.equals(expMonth, request.getExpMonth()) && Objects.equals(expYear, request.getExpYear());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.payment.processing.webhook;
+
+import com.payment.processing.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Gateway subscription id to local subscription id. The mapping never changes once assigned, so
+ * entries only leave the cache when it is full; unknown ids are not cached because the subscription
+ * may still be committing.
+ */
+@Component
+public class SubscriptionIdCache {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final Map<String, UUID> ids = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public SubscriptionIdCache(SubscriptionRepository subscriptionRepository,
+                               @Value("${webhook.subscription-cache.max-entries:100000}") int maxEntries,
+                               MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.maxEntries = maxEntries;
+        this.hitCounter = Counter.builder("webhook.subscription_cache").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("webhook.subscription_cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("webhook.subscription_cache.size", ids, Map::size).register(meterRegistry);
+    }
+
+    public Optional<UUID> resolve(String gatewaySubscriptionId) {
+        if (gatewaySubscriptionId == null) {
+            return Optional.empty();
+        }
+        UUID id = ids.get(gatewaySubscriptionId);
+        if (id != null) {
+            hitCounter.increment();
+            return Optional.of(id);
+        }
+        missCounter.increment();
+        List<UUID> found = subscriptionRepository.findIdsByGatewaySubscriptionId(gatewaySubscriptionId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        if (ids.putIfAbsent(gatewaySubscriptionId, found.get(0)) == null) {
+            insertionOrder.add(gatewaySubscriptionId);
+            while (ids.size() > maxEntries) {
+                String eldest = insertionOrder.poll();
+                if (eldest == null) break;
+                ids.remove(eldest);
+            }
+        }
+        return Optional.of(found.get(0));
+    }
+}
@@ -1,7 +1,5 @@
 package com.payment.processing.webhook;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.payment.processing.domain.entity.WebhookEvent;
 import com.payment.processing.domain.enums.WebhookEventType;
 import com.payment.processing.gateway.PaymentGateway;
@@ -9,10 +7,13 @@ import com.payment.processing.repository.WebhookEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.UUID;
 
 @RestController
@@ -21,29 +22,32 @@ import java.util.UUID;
 @Slf4j
 public class WebhookController {
 
+    private static final String UNIQUE_VIOLATION = "23505";
+
     private final WebhookEventRepository webhookEventRepository;
     private final PaymentGateway paymentGateway;
     private final RabbitTemplate rabbitTemplate;
-    private final ObjectMapper objectMapper;
+    private final WebhookEnvelopeParser envelopeParser;
+    private final WebhookDedupeCache dedupeCache;
 
     @PostMapping("/authorize-net")
     public ResponseEntity<String> handleAuthorizeNetWebhook(
-            @RequestBody String payload,
+            @RequestBody byte[] body,
             @RequestHeader(value = "X-ANET-Signature", required = false) String signature) {
 
         log.info("Received webhook from Authorize.Net");
 
         try {
-            if (!paymentGateway.validateWebhookSignature(payload, signature)) {
+            if (!paymentGateway.validateWebhookSignature(body, signature)) {
                 log.warn("Invalid webhook signature");
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid signature");
             }
 
-            JsonNode jsonNode = objectMapper.readTree(payload);
-            String eventId = jsonNode.has("notificationId") ? jsonNode.get("notificationId").asText() : UUID.randomUUID().toString();
-            String eventTypeRaw = jsonNode.has("eventType") ? jsonNode.get("eventType").asText() : "UNKNOWN";
+            WebhookEnvelope envelope = envelopeParser.parse(body);
+            String eventId = envelope.notificationId() != null ? envelope.notificationId() : UUID.randomUUID().toString();
+            String eventTypeRaw = envelope.eventType() != null ? envelope.eventType() : "UNKNOWN";
 
-            if (webhookEventRepository.existsByEventId(eventId)) {
+            if (dedupeCache.isDuplicate(eventId)) {
                 log.info("Duplicate webhook event received: {}", eventId);
                 return ResponseEntity.ok("Already processed");
             }
@@ -54,20 +58,28 @@ public class WebhookController {
                     .eventId(eventId)
                     .eventType(eventType)
                     .eventTypeRaw(eventTypeRaw)
-                    .payload(payload)
+                    .payload(new String(body, StandardCharsets.UTF_8))
                     .signature(signature)
                     .processed(false)
+                    .transactionId(envelope.id())
+                    .subscriptionId(envelope.subscriptionId())
                     .correlationId(UUID.randomUUID().toString())
                     .build();
 
-            if (jsonNode.has("payload")) {
-                JsonNode payloadNode = jsonNode.get("payload");
-                if (payloadNode.has("id")) webhookEvent.setTransactionId(payloadNode.get("id").asText());
-                if (payloadNode.has("subscriptionId")) webhookEvent.setSubscriptionId(payloadNode.get("subscriptionId").asText());
+            try {
+                webhookEventRepository.saveAndFlush(webhookEvent);
+            } catch (DataIntegrityViolationException e) {
+                if (!isDuplicateEventId(e, eventId)) {
+                    throw e;
+                }
+                dedupeCache.markSeen(eventId);
+                log.info("Duplicate webhook event received: {}", eventId);
+                return ResponseEntity.ok("Already processed");
             }
+            dedupeCache.markSeen(eventId);
 
-            webhookEventRepository.save(webhookEvent);
-            rabbitTemplate.convertAndSend("payment.exchange", "webhook.event", webhookEvent.getId().toString());
+            rabbitTemplate.convertAndSend("payment.exchange", "webhook.event",
+                    envelope.toBuilder().webhookEventId(webhookEvent.getId()).notificationId(eventId).build());
 
             log.info("Webhook event queued for processing: {}", eventId);
             return ResponseEntity.ok("Accepted");
@@ -78,6 +90,19 @@ public class WebhookController {
         }
     }
 
+    /**
+     * Only a unique violation for an event id that is already stored is a redelivery; any other
+     * integrity error (length, not-null) fails the request so the gateway retries it.
+     */
+    private boolean isDuplicateEventId(DataIntegrityViolationException e, String eventId) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+                return webhookEventRepository.existsByEventId(eventId);
+            }
+        }
+        return false;
+    }
+
     private WebhookEventType parseEventType(String eventTypeRaw) {
         if (eventTypeRaw == null) return WebhookEventType.UNKNOWN;
         return switch (eventTypeRaw.toUpperCase()) {
@@ -0,0 +1,85 @@
+package com.payment.processing.webhook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Time-bounded set of recently accepted Authorize.Net notification ids, so redeliveries are
+ * answered without touching the database. A miss is not authoritative: the unique
+ * {@code event_id} constraint on {@code webhook_events} still decides duplicates.
+ */
+@Component
+@Slf4j
+public class WebhookDedupeCache {
+
+    // Rough per-entry footprint: map node + boxed Long + queue node + a ~36 char id.
+    private static final int ESTIMATED_ENTRY_BYTES = 200;
+
+    private final Map<String, Long> seenAt = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public WebhookDedupeCache(@Value("${webhook.dedupe.ttl-minutes:60}") long ttlMinutes,
+                              @Value("${webhook.dedupe.memory-budget-mb:16}") long memoryBudgetMb,
+                              MeterRegistry meterRegistry) {
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.maxEntries = (int) Math.min(Integer.MAX_VALUE, memoryBudgetMb * 1024 * 1024 / ESTIMATED_ENTRY_BYTES);
+        this.hitCounter = Counter.builder("webhook.dedupe").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("webhook.dedupe").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("webhook.dedupe.size", seenAt, Map::size).register(meterRegistry);
+    }
+
+    public boolean isDuplicate(String eventId) {
+        Long seen = seenAt.get(eventId);
+        if (seen != null && System.currentTimeMillis() - seen < ttlMillis) {
+            hitCounter.increment();
+            return true;
+        }
+        missCounter.increment();
+        return false;
+    }
+
+    public void markSeen(String eventId) {
+        if (seenAt.put(eventId, System.currentTimeMillis()) == null) {
+            insertionOrder.add(eventId);
+            while (seenAt.size() > maxEntries) {
+                String eldest = insertionOrder.poll();
+                if (eldest == null) break;
+                seenAt.remove(eldest);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${webhook.dedupe.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        int purged = 0;
+        String eventId;
+        while ((eventId = insertionOrder.peek()) != null) {
+            Long seen = seenAt.get(eventId);
+            if (seen != null && seen >= cutoff) break;
+            insertionOrder.poll();
+            if (seen != null) {
+                seenAt.remove(eventId, seen);
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.debug("Purged {} expired webhook dedupe entries", purged);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.payment.processing.webhook;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * The subset of an Authorize.Net notification the service acts on. Built once from the raw body
+ * by {@link WebhookEnvelopeParser} and carried through the queue to {@link WebhookProcessor}.
+ */
+@Builder(toBuilder = true)
+public record WebhookEnvelope(
+        UUID webhookEventId,
+        String notificationId,
+        String eventType,
+        String eventDate,
+        String entityName,
+        String id,
+        String subscriptionId,
+        String responseCode,
+        String status,
+        BigDecimal authAmount,
+        String refTransId) {
+
+    /**
+     * The ARB subscription this event concerns: the entity itself for subscription events, or the
+     * subscription a payment was charged for.
+     */
+    public String gatewaySubscriptionId() {
+        if (subscriptionId != null) {
+            return subscriptionId;
+        }
+        return "subscription".equalsIgnoreCase(entityName) ? id : null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.payment.processing.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass streaming reader for webhook bodies. Only the fields in {@link WebhookEnvelope}
+ * are materialized; everything else is skipped without building a tree.
+ */
+@Component
+public class WebhookEnvelopeParser {
+
+    private final JsonFactory jsonFactory;
+
+    public WebhookEnvelopeParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public WebhookEnvelope parse(String payload) throws IOException {
+        return parse(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public WebhookEnvelope parse(byte[] body) throws IOException {
+        WebhookEnvelope.WebhookEnvelopeBuilder envelope = WebhookEnvelope.builder();
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Webhook payload must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "notificationId" -> envelope.notificationId(readText(parser));
+                    case "eventType" -> envelope.eventType(readText(parser));
+                    case "eventDate" -> envelope.eventDate(readText(parser));
+                    case "payload" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            readPayload(parser, envelope);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return envelope.build();
+    }
+
+    private void readPayload(JsonParser parser, WebhookEnvelope.WebhookEnvelopeBuilder envelope) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "entityName" -> envelope.entityName(readText(parser));
+                case "id" -> envelope.id(readText(parser));
+                case "subscriptionId" -> envelope.subscriptionId(readText(parser));
+                case "responseCode" -> envelope.responseCode(readText(parser));
+                case "status" -> envelope.status(readText(parser));
+                case "authAmount" -> envelope.authAmount(readDecimal(parser, value));
+                case "refTransId" -> envelope.refTransId(readText(parser));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * The current scalar value as text; an object or array in its place is skipped and read as absent,
+     * so the parser stays on the field that follows it.
+     */
+    private String readText(JsonParser parser) throws IOException {
+        if (!parser.currentToken().isScalarValue()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    private BigDecimal readDecimal(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        String text = readText(parser);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package com.payment.processing.webhook;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.processing.domain.entity.Subscription;
 import com.payment.processing.domain.entity.Transaction;
 import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.enums.SubscriptionStatus;
 import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
 import com.payment.processing.domain.enums.WebhookEventType;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.SubscriptionRepository;
 import com.payment.processing.repository.TransactionRepository;
 import com.payment.processing.repository.WebhookEventRepository;
+import com.payment.processing.rollup.PaymentRollupRecorder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @Slf4j
@@ -23,52 +35,85 @@ public class WebhookProcessor {
 
     private final WebhookEventRepository webhookEventRepository;
     private final TransactionRepository transactionRepository;
-    private final ObjectMapper objectMapper;
+    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionIdCache subscriptionIdCache;
+    private final PaymentGateway paymentGateway;
+    private final WebhookEnvelopeParser envelopeParser;
+    private final PaymentRollupRecorder rollupRecorder;
 
+    /**
+     * Processes a stored event by id, re-reading its envelope from the persisted payload.
+     *
+     * @return false if processing failed and the failure was recorded on the event
+     */
     @Transactional
-    public void processWebhookEvent(String webhookEventId) {
-        log.info("Processing webhook event: {}", webhookEventId);
-
-        WebhookEvent event = webhookEventRepository.findById(java.util.UUID.fromString(webhookEventId))
+    public boolean processWebhookEvent(String webhookEventId) {
+        WebhookEvent event = webhookEventRepository.findById(UUID.fromString(webhookEventId))
                 .orElseThrow(() -> new IllegalArgumentException("Webhook event not found: " + webhookEventId));
+        return process(event, null);
+    }
+
+    /**
+     * Processes a queued event using the envelope parsed at ingestion; the payload is not parsed again.
+     *
+     * @return false if processing failed and the failure was recorded on the event
+     */
+    @Transactional
+    public boolean processWebhookEvent(WebhookEnvelope envelope) {
+        WebhookEvent event = webhookEventRepository.findById(envelope.webhookEventId())
+                .orElseThrow(() -> new IllegalArgumentException("Webhook event not found: " + envelope.webhookEventId()));
+        return process(event, envelope);
+    }
+
+    /**
+     * Re-applies an already loaded event's handlers regardless of its processed flag. Used by
+     * {@link WebhookReplayService}; the event row itself is not reloaded or updated.
+     */
+    @Transactional
+    public void replayWebhookEvent(WebhookEvent event) throws IOException {
+        processEvent(event, envelopeParser.parse(event.getPayload()));
+    }
+
+    private boolean process(WebhookEvent event, WebhookEnvelope envelope) {
+        log.info("Processing webhook event: {}", event.getId());
 
         if (event.getProcessed()) {
-            log.info("Webhook event already processed: {}", webhookEventId);
-            return;
+            log.info("Webhook event already processed: {}", event.getId());
+            return true;
         }
 
+        boolean processed;
         try {
-            processEvent(event);
+            processEvent(event, envelope != null ? envelope : envelopeParser.parse(event.getPayload()));
             event.markProcessed();
-            log.info("Webhook event processed successfully: {}", webhookEventId);
+            processed = true;
+            log.info("Webhook event processed successfully: {}", event.getId());
         } catch (Exception e) {
-            log.error("Error processing webhook event: {}", webhookEventId, e);
+            log.error("Error processing webhook event: {}", event.getId(), e);
             event.recordFailure(e.getMessage());
+            processed = false;
         }
 
         webhookEventRepository.save(event);
+        return processed;
     }
 
-    private void processEvent(WebhookEvent event) throws Exception {
+    private void processEvent(WebhookEvent event, WebhookEnvelope envelope) {
         WebhookEventType eventType = event.getEventType();
-        JsonNode payload = objectMapper.readTree(event.getPayload());
 
         switch (eventType) {
-            case PAYMENT_CREATED, PAYMENT_AUTHORIZED, PAYMENT_CAPTURED -> processPaymentEvent(event, payload);
-            case REFUND_CREATED -> processRefundEvent(event, payload);
-            case PAYMENT_VOIDED -> processVoidEvent(event, payload);
-            case FRAUD_HELD, FRAUD_APPROVED, FRAUD_DECLINED -> processFraudEvent(event, payload);
-            case SUBSCRIPTION_CREATED, SUBSCRIPTION_UPDATED, SUBSCRIPTION_CANCELLED, SUBSCRIPTION_SUSPENDED, SUBSCRIPTION_TERMINATED, SUBSCRIPTION_EXPIRING -> processSubscriptionEvent(event, payload);
+            case PAYMENT_CREATED, PAYMENT_AUTHORIZED, PAYMENT_CAPTURED -> processPaymentEvent(event, envelope);
+            case REFUND_CREATED -> processRefundEvent(event, envelope);
+            case PAYMENT_VOIDED -> processVoidEvent(event, envelope);
+            case FRAUD_HELD, FRAUD_APPROVED, FRAUD_DECLINED -> processFraudEvent(event, envelope);
+            case SUBSCRIPTION_CREATED, SUBSCRIPTION_UPDATED, SUBSCRIPTION_CANCELLED, SUBSCRIPTION_SUSPENDED, SUBSCRIPTION_TERMINATED, SUBSCRIPTION_EXPIRING -> processSubscriptionEvent(event, envelope);
             default -> log.warn("Unknown webhook event type: {}", eventType);
         }
     }
 
-    private void processPaymentEvent(WebhookEvent event, JsonNode payload) {
+    private void processPaymentEvent(WebhookEvent event, WebhookEnvelope envelope) {
         log.info("Processing payment event: {}", event.getEventType());
-        if (!payload.has("payload")) return;
-
-        JsonNode payloadData = payload.get("payload");
-        String transactionId = payloadData.has("id") ? payloadData.get("id").asText() : null;
+        String transactionId = envelope.id();
 
         if (transactionId != null) {
             Optional<Transaction> transactionOpt = transactionRepository.findByGatewayTransactionId(transactionId);
@@ -80,20 +125,115 @@ public class WebhookProcessor {
                     transactionRepository.save(transaction);
                     log.info("Transaction status updated to CAPTURED: {}", transaction.getId());
                 }
+            } else if (event.getEventType() == WebhookEventType.PAYMENT_CREATED && envelope.gatewaySubscriptionId() != null) {
+                recordSubscriptionCharge(envelope);
             }
         }
     }
 
-    private void processRefundEvent(WebhookEvent event, JsonNode payload) {
+    /**
+     * A charge Authorize.Net made on its own for an ARB subscription: counts the cycle and records the payment.
+     */
+    private void recordSubscriptionCharge(WebhookEnvelope envelope) {
+        Optional<Subscription> subscriptionOpt = findSubscription(envelope);
+        if (subscriptionOpt.isEmpty()) {
+            log.warn("ARB charge {} for unknown subscription {}", envelope.id(), envelope.gatewaySubscriptionId());
+            return;
+        }
+        Subscription subscription = subscriptionOpt.get();
+        boolean approved = "1".equals(envelope.responseCode());
+        if (approved) {
+            subscription.setCompletedCycles(subscription.getCompletedCycles() + 1);
+            subscription.setLastBillingDate(eventDate(envelope));
+        } else {
+            subscription.setFailedCycles(subscription.getFailedCycles() + 1);
+        }
+        subscriptionRepository.save(subscription);
+
+        BigDecimal amount = envelope.authAmount() != null ? envelope.authAmount() : subscription.getAmount();
+        Transaction charge = transactionRepository.save(Transaction.builder()
+                .orderId("subscription-" + subscription.getId())
+                .customerId(subscription.getCustomerId())
+                .customerEmail(subscription.getCustomerEmail())
+                .type(TransactionType.PURCHASE)
+                .status(approved ? TransactionStatus.CAPTURED : TransactionStatus.DECLINED)
+                .amount(amount)
+                .currency(subscription.getCurrency())
+                .authorizedAmount(approved ? amount : null)
+                .capturedAmount(approved ? amount : null)
+                .authorizedAt(approved ? Instant.now() : null)
+                .capturedAt(approved ? Instant.now() : null)
+                .gatewayTransactionId(envelope.id())
+                .gatewayResponseCode(envelope.responseCode())
+                .cardLastFour(subscription.getCardLastFour())
+                .cardBrand(subscription.getCardBrand())
+                .subscriptionId(subscription.getId())
+                .build());
+        rollupRecorder.record(charge);
+        log.info("ARB charge {} recorded for subscription {} (approved: {})", envelope.id(), subscription.getId(), approved);
+    }
+
+    /**
+     * Records a refund issued outside this service (e.g. from the merchant interface) as a child of the
+     * original transaction. Refunds made through the API already have their row and are skipped.
+     */
+    private void processRefundEvent(WebhookEvent event, WebhookEnvelope envelope) {
         log.info("Processing refund event: {}", event.getEventId());
+        String refundId = envelope.id();
+        if (refundId == null || !"1".equals(envelope.responseCode())) {
+            return;
+        }
+        if (transactionRepository.findByGatewayTransactionId(refundId).isPresent()) {
+            log.debug("Refund {} already recorded", refundId);
+            return;
+        }
+
+        String parentGatewayId = refundParentId(envelope);
+        Optional<Transaction> parentOpt = parentGatewayId != null
+                ? transactionRepository.findByGatewayTransactionId(parentGatewayId) : Optional.empty();
+        if (parentOpt.isEmpty()) {
+            log.warn("Refund {} references unknown transaction {}", refundId, parentGatewayId);
+            return;
+        }
+        Transaction parent = parentOpt.get();
+        BigDecimal amount = envelope.authAmount() != null ? envelope.authAmount() : parent.getRefundableAmount();
+
+        Transaction refund = transactionRepository.save(Transaction.builder()
+                .orderId(parent.getOrderId())
+                .customerId(parent.getCustomerId())
+                .customerEmail(parent.getCustomerEmail())
+                .type(TransactionType.REFUND)
+                .status(TransactionStatus.REFUNDED)
+                .amount(amount)
+                .currency(parent.getCurrency())
+                .gatewayTransactionId(refundId)
+                .gatewayResponseCode(envelope.responseCode())
+                .parentTransactionId(parent.getId())
+                .subscriptionId(parent.getSubscriptionId())
+                .cardLastFour(parent.getCardLastFour())
+                .cardBrand(parent.getCardBrand())
+                .description("Refund issued at gateway")
+                .build());
+        rollupRecorder.record(refund);
+        parent.addRefund(amount);
+        transactionRepository.save(parent);
+        log.info("Gateway refund {} of {} recorded for transaction {}", refundId, amount, parent.getId());
     }
 
-    private void processVoidEvent(WebhookEvent event, JsonNode payload) {
-        log.info("Processing void event: {}", event.getEventId());
-        if (!payload.has("payload")) return;
+    /**
+     * Gateway id of the transaction a refund event refunds, asking the gateway when the payload does not say.
+     */
+    public String refundParentId(WebhookEnvelope envelope) {
+        if (envelope.refTransId() != null || envelope.id() == null) {
+            return envelope.refTransId();
+        }
+        GatewayResponse details = paymentGateway.getTransactionDetails(envelope.id());
+        return details.isSuccess() ? details.getReferenceTransactionId() : null;
+    }
 
-        JsonNode payloadData = payload.get("payload");
-        String transactionId = payloadData.has("id") ? payloadData.get("id").asText() : null;
+    private void processVoidEvent(WebhookEvent event, WebhookEnvelope envelope) {
+        log.info("Processing void event: {}", event.getEventId());
+        String transactionId = envelope.id();
 
         if (transactionId != null) {
             Optional<Transaction> transactionOpt = transactionRepository.findByGatewayTransactionId(transactionId);
@@ -109,12 +249,9 @@ public class WebhookProcessor {
         }
     }
 
-    private void processFraudEvent(WebhookEvent event, JsonNode payload) {
+    private void processFraudEvent(WebhookEvent event, WebhookEnvelope envelope) {
         log.info("Processing fraud event: {} - {}", event.getEventType(), event.getEventId());
-        if (!payload.has("payload")) return;
-
-        JsonNode payloadData = payload.get("payload");
-        String transactionId = payloadData.has("id") ? payloadData.get("id").asText() : null;
+        String transactionId = envelope.id();
 
         if (transactionId != null) {
             Optional<Transaction> transactionOpt = transactionRepository.findByGatewayTransactionId(transactionId);
@@ -130,8 +267,53 @@ public class WebhookProcessor {
         }
     }
 
-    private void processSubscriptionEvent(WebhookEvent event, JsonNode payload) {
+    /**
+     * Applies gateway-side subscription changes. Events are consumed one at a time, so changes to one
+     * subscription apply in arrival order.
+     */
+    private void processSubscriptionEvent(WebhookEvent event, WebhookEnvelope envelope) {
         log.info("Processing subscription event: {} - {}", event.getEventType(), event.getEventId());
+        Optional<Subscription> subscriptionOpt = findSubscription(envelope);
+        if (subscriptionOpt.isEmpty()) {
+            log.warn("Subscription event {} for unknown subscription {}", event.getEventId(), envelope.gatewaySubscriptionId());
+            return;
+        }
+        Subscription subscription = subscriptionOpt.get();
+        SubscriptionStatus target = switch (event.getEventType()) {
+            case SUBSCRIPTION_CANCELLED -> SubscriptionStatus.CANCELED;
+            case SUBSCRIPTION_SUSPENDED -> SubscriptionStatus.SUSPENDED;
+            case SUBSCRIPTION_TERMINATED -> SubscriptionStatus.TERMINATED;
+            case SUBSCRIPTION_CREATED, SUBSCRIPTION_UPDATED -> SubscriptionStatus.fromArbStatus(envelope.status());
+            default -> null;
+        };
+        if (target == null || target == subscription.getStatus()
+                || (target == SubscriptionStatus.ACTIVE && subscription.getStatus() == SubscriptionStatus.TRIAL)) {
+            return;
+        }
+        subscription.setStatus(target);
+        if (target == SubscriptionStatus.CANCELED || target == SubscriptionStatus.TERMINATED) {
+            subscription.setNextBillingDate(null);
+            if (subscription.getEndDate() == null) {
+                subscription.setEndDate(eventDate(envelope));
+            }
+        }
+        subscriptionRepository.save(subscription);
+        log.info("Subscription {} status updated to {} via webhook", subscription.getId(), target);
+    }
+
+    private Optional<Subscription> findSubscription(WebhookEnvelope envelope) {
+        return subscriptionIdCache.resolve(envelope.gatewaySubscriptionId())
+                .flatMap(subscriptionRepository::findById);
     }
-}
 
+    private LocalDate eventDate(WebhookEnvelope envelope) {
+        if (envelope.eventDate() != null) {
+            try {
+                return OffsetDateTime.parse(envelope.eventDate()).withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+            } catch (DateTimeParseException e) {
+                log.debug("Unparseable webhook event date: {}", envelope.eventDate());
+            }
+        }
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+}
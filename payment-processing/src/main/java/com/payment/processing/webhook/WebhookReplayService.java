@@ -0,0 +1,280 @@
+package com.payment.processing.webhook;
+
+import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.entity.WebhookReplayJob;
+import com.payment.processing.domain.enums.ReplayJobStatus;
+import com.payment.processing.domain.enums.WebhookEventType;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.WebhookEventRepository;
+import com.payment.processing.repository.WebhookReplayJobRepository;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bulk reprocessing of stored webhook events, e.g. after a {@link WebhookProcessor} fix.
+ * <p>
+ * Events are read through a forward-only cursor in {@code (created_at, id)} order and fanned out to
+ * single-threaded partitions keyed by gateway transaction id, so events for one payment are still
+ * applied in order. Work proceeds in chunks; after each chunk completes the job checkpoints its
+ * keyset position, which is where {@link #resumeReplay(UUID)} picks up.
+ * <p>
+ * Jobs run on the bounded {@code webhookReplayExecutor}; each job's partitions are threads of its own,
+ * shut down when the job ends.
+ */
+@Service
+@Slf4j
+public class WebhookReplayService {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final WebhookReplayJobRepository replayJobRepository;
+    private final WebhookProcessor webhookProcessor;
+    private final EntityManager entityManager;
+    private final TransactionTemplate cursorTransaction;
+    private final TransactionTemplate checkpointTransaction;
+    private final Executor jobExecutor;
+    private final Set<UUID> activeJobs = ConcurrentHashMap.newKeySet();
+    private final Counter replayedCounter;
+    private final Counter failedCounter;
+
+    @Value("${webhook.replay.chunk-size:1000}")
+    private int chunkSize;
+
+    // A running job that has not checkpointed for this long is considered abandoned.
+    @Value("${webhook.replay.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    public WebhookReplayService(WebhookEventRepository webhookEventRepository, WebhookReplayJobRepository replayJobRepository,
+                                WebhookProcessor webhookProcessor, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("webhookReplayExecutor") Executor jobExecutor, MeterRegistry meterRegistry) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.jobExecutor = jobExecutor;
+        this.replayJobRepository = replayJobRepository;
+        this.webhookProcessor = webhookProcessor;
+        this.entityManager = entityManager;
+
+        this.cursorTransaction = new TransactionTemplate(transactionManager);
+        this.cursorTransaction.setReadOnly(true);
+        this.checkpointTransaction = new TransactionTemplate(transactionManager);
+        this.checkpointTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.replayedCounter = Counter.builder("webhook.replay.events").tag("result", "success").register(meterRegistry);
+        this.failedCounter = Counter.builder("webhook.replay.events").tag("result", "failed").register(meterRegistry);
+    }
+
+    public WebhookReplayJob startReplay(Instant from, Instant to, WebhookEventType eventType, int partitions, int ratePerSecond) {
+        WebhookReplayJob job = replayJobRepository.save(WebhookReplayJob.builder()
+                .fromTime(from)
+                .toTime(to)
+                .eventType(eventType)
+                .partitions(partitions)
+                .ratePerSecond(ratePerSecond)
+                .build());
+        submit(job);
+        return job;
+    }
+
+    /**
+     * Resumes a failed job, or a running one whose worker stopped checkpointing (its node went away),
+     * from its last checkpoint. Ownership is taken with a conditional update, so a job is never run by
+     * two workers; a worker whose job was taken over stops at its next checkpoint.
+     */
+    public WebhookReplayJob resumeReplay(UUID jobId) {
+        WebhookReplayJob job = getJob(jobId);
+        if (job.getStatus() == ReplayJobStatus.COMPLETED) {
+            return job;
+        }
+        if (activeJobs.contains(jobId)) {
+            throw new PaymentException("REPLAY_JOB_RUNNING", "Replay job is still running: " + jobId);
+        }
+        Instant now = Instant.now();
+        WebhookReplayJob claimed = checkpointTransaction.execute(status ->
+                replayJobRepository.claimForResume(jobId, ReplayJobStatus.RUNNING, ReplayJobStatus.FAILED, now,
+                        now.minus(Duration.ofMinutes(staleAfterMinutes))) == 0 ? null : replayJobRepository.findById(jobId).orElseThrow());
+        if (claimed == null) {
+            throw new PaymentException("REPLAY_JOB_RUNNING", "Replay job is still running: " + jobId);
+        }
+        submit(claimed);
+        return claimed;
+    }
+
+    public WebhookReplayJob getJob(UUID jobId) {
+        return replayJobRepository.findById(jobId)
+                .orElseThrow(() -> new PaymentException("REPLAY_JOB_NOT_FOUND", "Replay job not found: " + jobId));
+    }
+
+    private void submit(WebhookReplayJob job) {
+        if (!activeJobs.add(job.getId())) {
+            log.info("Replay job already running: {}", job.getId());
+            return;
+        }
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    activeJobs.remove(job.getId());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            activeJobs.remove(job.getId());
+            job.markFailed("Not started: too many replay jobs");
+            saveJob(job);
+            throw new PaymentException("REPLAY_CAPACITY_EXCEEDED",
+                    "Too many webhook replay jobs; resume job " + job.getId() + " later");
+        }
+    }
+
+    private void run(WebhookReplayJob initial) {
+        log.info("Starting webhook replay job {} from checkpoint {}", initial.getId(), initial.getCheckpointCreatedAt());
+        ExecutorService[] lanes = new ExecutorService[initial.getPartitions()];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "webhook-replay-" + initial.getId() + "-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, name));
+        }
+        Bucket rateLimit = Bucket.builder()
+                .addLimit(Bandwidth.classic(initial.getRatePerSecond(),
+                        Refill.greedy(initial.getRatePerSecond(), Duration.ofSeconds(1))))
+                .build();
+
+        WebhookReplayJob[] job = {initial};
+        try {
+            cursorTransaction.executeWithoutResult(status -> {
+                Instant afterCreatedAt = initial.getCheckpointCreatedAt() != null
+                        ? initial.getCheckpointCreatedAt() : initial.getFromTime().minusNanos(1);
+                UUID afterId = initial.getCheckpointEventId() != null ? initial.getCheckpointEventId() : MIN_UUID;
+
+                try (Stream<WebhookEvent> events = webhookEventRepository.streamForReplay(
+                        afterCreatedAt, afterId, initial.getToTime(), initial.getEventType())) {
+                    List<WebhookEvent> chunk = new ArrayList<>(chunkSize);
+                    events.forEach(event -> {
+                        entityManager.detach(event);
+                        chunk.add(event);
+                        if (chunk.size() >= chunkSize) {
+                            job[0] = replayChunk(job[0], chunk, lanes, rateLimit);
+                            chunk.clear();
+                        }
+                    });
+                    if (!chunk.isEmpty()) {
+                        job[0] = replayChunk(job[0], chunk, lanes, rateLimit);
+                    }
+                }
+            });
+            job[0].markCompleted();
+            saveJob(job[0]);
+            log.info("Webhook replay job {} completed: {} processed, {} failed",
+                    job[0].getId(), job[0].getProcessedCount(), job[0].getFailedCount());
+        } catch (OwnershipLostException e) {
+            log.warn("Webhook replay job {} was resumed elsewhere, stopping at checkpoint {}",
+                    job[0].getId(), job[0].getCheckpointCreatedAt());
+        } catch (Exception e) {
+            log.error("Webhook replay job {} failed at checkpoint {}", job[0].getId(), job[0].getCheckpointCreatedAt(), e);
+            job[0].markFailed(e.getMessage());
+            saveJob(job[0]);
+        } finally {
+            for (ExecutorService lane : lanes) {
+                lane.shutdownNow();
+            }
+            awaitTermination(lanes);
+        }
+    }
+
+    private WebhookReplayJob replayChunk(WebhookReplayJob job, List<WebhookEvent> chunk, ExecutorService[] lanes,
+                                         Bucket rateLimit) {
+        AtomicLong processed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<Future<?>> pending = new ArrayList<>(chunk.size());
+
+        for (WebhookEvent event : chunk) {
+            consumeRateLimit(rateLimit);
+            pending.add(lanes[partitionOf(event, lanes.length)].submit(() -> {
+                try {
+                    webhookProcessor.replayWebhookEvent(event);
+                    processed.incrementAndGet();
+                    replayedCounter.increment();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    failedCounter.increment();
+                    log.warn("Replay failed for webhook event {}: {}", event.getId(), e.getMessage());
+                }
+            }));
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Replay interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Replay partition failed", e.getCause());
+            }
+        }
+
+        job.advanceCheckpoint(chunk.get(chunk.size() - 1), processed.get(), failed.get());
+        return saveJob(job);
+    }
+
+    private static void awaitTermination(ExecutorService[] lanes) {
+        try {
+            for (ExecutorService lane : lanes) {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int partitionOf(WebhookEvent event, int partitions) {
+        String key = event.getTransactionId() != null ? event.getTransactionId()
+                : event.getSubscriptionId() != null ? event.getSubscriptionId() : event.getEventId();
+        return Math.floorMod(key.hashCode(), partitions);
+    }
+
+    private void consumeRateLimit(Bucket rateLimit) {
+        try {
+            rateLimit.asBlocking().consume(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replay interrupted", e);
+        }
+    }
+
+    private WebhookReplayJob saveJob(WebhookReplayJob job) {
+        try {
+            return checkpointTransaction.execute(status -> replayJobRepository.save(job));
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new OwnershipLostException(e);
+        }
+    }
+
+    private static class OwnershipLostException extends RuntimeException {
+        OwnershipLostException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+-- Hourly and daily payment aggregates per currency and card brand (PaymentRollupRecorder,
+-- PaymentRollupRebuilder), served by /reports/summary instead of GROUP BY over transactions.
+
+CREATE TABLE payment_rollup_hourly (
+    bucket_start    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    currency        VARCHAR(3)                  NOT NULL,
+    card_brand      VARCHAR(30)                 NOT NULL,
+    payment_count   BIGINT                      NOT NULL,
+    approved_count  BIGINT                      NOT NULL,
+    approved_amount NUMERIC(19, 4)              NOT NULL,
+    refund_count    BIGINT                      NOT NULL,
+    refunded_amount NUMERIC(19, 4)              NOT NULL,
+    PRIMARY KEY (bucket_start, currency, card_brand)
+);
+
+CREATE TABLE payment_rollup_daily (
+    bucket_start    TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    currency        VARCHAR(3)                  NOT NULL,
+    card_brand      VARCHAR(30)                 NOT NULL,
+    payment_count   BIGINT                      NOT NULL,
+    approved_count  BIGINT                      NOT NULL,
+    approved_amount NUMERIC(19, 4)              NOT NULL,
+    refund_count    BIGINT                      NOT NULL,
+    refunded_amount NUMERIC(19, 4)              NOT NULL,
+    PRIMARY KEY (bucket_start, currency, card_brand)
+);
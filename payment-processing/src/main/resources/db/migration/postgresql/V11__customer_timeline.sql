@@ -0,0 +1,11 @@
+-- Customer timeline read model: one row per payment with its refunds embedded (CustomerTimelineProjector).
+
+CREATE TABLE customer_timeline_entries (
+    transaction_id    UUID                        NOT NULL PRIMARY KEY,
+    customer_id       VARCHAR(100)                NOT NULL,
+    created_at        TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    source_updated_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    projected_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    payload           TEXT                        NOT NULL
+);
+CREATE INDEX idx_customer_timeline_customer ON customer_timeline_entries (customer_id, created_at DESC, transaction_id DESC);
@@ -0,0 +1,32 @@
+-- DEFAULT partitions catch rows whose month has no partition yet, so a missed PartitionMaintenanceJob
+-- run no longer fails inserts. The job reports rows found there (partitions.default.rows) and moves
+-- them out by creating the missing month through create_monthly_partition below.
+
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
+CREATE TABLE webhook_events_default PARTITION OF webhook_events DEFAULT;
+
+-- PARTITION OF fails while the DEFAULT partition holds rows of the new range, so a missing month is
+-- built as a plain table, filled with those rows and then attached.
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent_table TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := parent_table || '_p' || to_char(partition_start, 'YYYYMM');
+    range_start TIMESTAMPTZ := partition_start::TIMESTAMP AT TIME ZONE 'UTC';
+    range_end TIMESTAMPTZ := (partition_start + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC';
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN partition_name;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                   partition_name, parent_table);
+    EXECUTE format('WITH moved AS (DELETE FROM %I WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved',
+                   parent_table || '_default', range_start, range_end, partition_name);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   parent_table, partition_name, range_start, range_end);
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
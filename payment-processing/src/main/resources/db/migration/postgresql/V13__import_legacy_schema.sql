@@ -0,0 +1,47 @@
+-- Cutover from a schema Hibernate created with ddl-auto. LegacySchemaCutover moves such tables into
+-- the legacy schema before the first migration; this copies their rows into the Flyway tables.
+-- Only columns present on both sides are copied; the legacy schema is left in place for
+-- verification and is dropped by hand (DROP SCHEMA legacy CASCADE).
+
+DO $$
+DECLARE
+    legacy_table TEXT;
+    partitioned TEXT[] := ARRAY['transactions', 'audit_logs', 'webhook_events'];
+    month_start DATE;
+    columns TEXT;
+    copied BIGINT;
+BEGIN
+    IF to_regnamespace('legacy') IS NULL THEN
+        RETURN;
+    END IF;
+
+    FOREACH legacy_table IN ARRAY ARRAY['users', 'idempotency_keys', 'subscriptions', 'transactions',
+                                        'audit_logs', 'webhook_events', 'webhook_replay_jobs'] LOOP
+        IF to_regclass('legacy.' || legacy_table) IS NULL THEN
+            CONTINUE;
+        END IF;
+
+        IF legacy_table = ANY (partitioned) THEN
+            FOR month_start IN EXECUTE format(
+                    'SELECT DISTINCT date_trunc(''month'', created_at AT TIME ZONE ''UTC'')::DATE FROM legacy.%I',
+                    legacy_table) LOOP
+                PERFORM create_monthly_partition(legacy_table, month_start);
+            END LOOP;
+        END IF;
+
+        SELECT string_agg(quote_ident(target.column_name), ', ' ORDER BY target.ordinal_position)
+        INTO columns
+        FROM information_schema.columns target
+        JOIN information_schema.columns source
+          ON source.table_schema = 'legacy'
+         AND source.table_name = target.table_name
+         AND source.column_name = target.column_name
+        WHERE target.table_schema = current_schema()
+          AND target.table_name = legacy_table;
+
+        EXECUTE format('INSERT INTO %I (%s) SELECT %s FROM legacy.%I', legacy_table, columns, columns, legacy_table);
+        GET DIAGNOSTICS copied = ROW_COUNT;
+        RAISE NOTICE 'Imported % rows into %', copied, legacy_table;
+    END LOOP;
+END;
+$$;
@@ -0,0 +1,10 @@
+-- At most one RUNNING subscription sync sweep. Nodes that race to start a sweep get a unique
+-- violation and resume the winner's (SubscriptionStatusReconciler.currentOrNextSweep).
+
+UPDATE subscription_sync_sweeps s
+SET status = 'FAILED', leased_until = NULL
+WHERE s.status = 'RUNNING'
+  AND EXISTS (SELECT 1 FROM subscription_sync_sweeps newer
+              WHERE newer.status = 'RUNNING' AND newer.created_at > s.created_at);
+
+CREATE UNIQUE INDEX uq_subscription_sync_running ON subscription_sync_sweeps (status) WHERE status = 'RUNNING';
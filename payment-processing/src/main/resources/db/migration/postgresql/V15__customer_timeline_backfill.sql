@@ -0,0 +1,8 @@
+-- Completed customer timeline backfills. The read model is only served once one is recorded;
+-- until then timelines are built from transactions (CustomerTimelineService).
+
+CREATE TABLE customer_timeline_backfills (
+    id            UUID                        NOT NULL PRIMARY KEY,
+    backfilled_to TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    completed_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
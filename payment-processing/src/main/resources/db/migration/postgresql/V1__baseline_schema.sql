@@ -0,0 +1,277 @@
+-- Baseline schema. transactions, audit_logs and webhook_events are range-partitioned by month
+-- on created_at; PartitionMaintenanceJob keeps future partitions created and old ones detached.
+-- Partitioned tables carry created_at in their primary key, so globally unique business keys
+-- (transactions.idempotency_key, webhook_events.event_id) are enforced through small
+-- non-partitioned key tables populated by triggers.
+
+CREATE OR REPLACE FUNCTION create_monthly_partition(parent_table TEXT, month_start DATE)
+RETURNS TEXT AS $$
+DECLARE
+    partition_start DATE := date_trunc('month', month_start)::DATE;
+    partition_name TEXT := parent_table || '_p' || to_char(partition_start, 'YYYYMM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, parent_table,
+                   partition_start::TIMESTAMP AT TIME ZONE 'UTC',
+                   (partition_start + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC');
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TABLE users (
+    id          UUID                        NOT NULL PRIMARY KEY,
+    created_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version     BIGINT,
+    username    VARCHAR(100)                NOT NULL UNIQUE,
+    password    VARCHAR(255)                NOT NULL,
+    email       VARCHAR(255),
+    roles       VARCHAR(500),
+    enabled     BOOLEAN                     NOT NULL
+);
+
+CREATE TABLE idempotency_keys (
+    id               UUID                        NOT NULL PRIMARY KEY,
+    created_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version          BIGINT,
+    idempotency_key  VARCHAR(100)                NOT NULL UNIQUE,
+    request_path     VARCHAR(500),
+    request_method   VARCHAR(10),
+    request_hash     VARCHAR(64),
+    response_status  INTEGER,
+    response_body    TEXT,
+    processing       BOOLEAN                     NOT NULL,
+    completed        BOOLEAN                     NOT NULL,
+    completed_at     TIMESTAMP(6) WITH TIME ZONE,
+    expires_at       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    correlation_id   VARCHAR(100)
+);
+CREATE INDEX idx_idempotency_expires_at ON idempotency_keys (expires_at);
+
+CREATE TABLE subscriptions (
+    id                          UUID                        NOT NULL PRIMARY KEY,
+    created_at                  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at                  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version                     BIGINT,
+    name                        VARCHAR(100)                NOT NULL,
+    description                 VARCHAR(500),
+    customer_id                 VARCHAR(100)                NOT NULL,
+    customer_email              VARCHAR(255),
+    status                      VARCHAR(30)                 NOT NULL,
+    amount                      NUMERIC(19, 4)              NOT NULL,
+    currency                    VARCHAR(3)                  NOT NULL,
+    billing_interval            VARCHAR(20)                 NOT NULL,
+    interval_count              INTEGER                     NOT NULL,
+    trial_days                  INTEGER,
+    trial_amount                NUMERIC(19, 4),
+    trial_end_date              DATE,
+    start_date                  DATE                        NOT NULL,
+    end_date                    DATE,
+    next_billing_date           DATE,
+    last_billing_date           DATE,
+    total_cycles                INTEGER,
+    completed_cycles            INTEGER,
+    failed_cycles               INTEGER,
+    gateway_subscription_id     VARCHAR(100),
+    gateway_customer_profile_id VARCHAR(100),
+    gateway_payment_profile_id  VARCHAR(100),
+    card_last_four              VARCHAR(4),
+    card_brand                  VARCHAR(30),
+    card_exp_month              VARCHAR(2),
+    card_exp_year               VARCHAR(4),
+    billing_first_name          VARCHAR(100),
+    billing_last_name           VARCHAR(100),
+    billing_address             VARCHAR(255),
+    billing_city                VARCHAR(100),
+    billing_state               VARCHAR(50),
+    billing_zip                 VARCHAR(20),
+    billing_country             VARCHAR(3),
+    idempotency_key             VARCHAR(100)                UNIQUE,
+    correlation_id              VARCHAR(100)
+);
+CREATE INDEX idx_subscription_customer_id ON subscriptions (customer_id);
+CREATE INDEX idx_subscription_gateway_id ON subscriptions (gateway_subscription_id);
+CREATE INDEX idx_subscription_status ON subscriptions (status);
+
+CREATE TABLE transactions (
+    id                       UUID                        NOT NULL,
+    created_at               TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at               TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version                  BIGINT,
+    order_id                 VARCHAR(100)                NOT NULL,
+    customer_id              VARCHAR(100)                NOT NULL,
+    customer_email           VARCHAR(255),
+    type                     VARCHAR(30)                 NOT NULL,
+    status                   VARCHAR(30)                 NOT NULL,
+    amount                   NUMERIC(19, 4)              NOT NULL,
+    currency                 VARCHAR(3)                  NOT NULL,
+    authorized_amount        NUMERIC(19, 4),
+    captured_amount          NUMERIC(19, 4),
+    refunded_amount          NUMERIC(19, 4),
+    gateway_transaction_id   VARCHAR(100),
+    gateway_auth_code        VARCHAR(50),
+    gateway_avs_result       VARCHAR(10),
+    gateway_cvv_result       VARCHAR(10),
+    gateway_response_code    VARCHAR(20),
+    gateway_response_message VARCHAR(500),
+    payment_method_type      VARCHAR(30),
+    card_last_four           VARCHAR(4),
+    card_brand               VARCHAR(30),
+    card_exp_month           VARCHAR(2),
+    card_exp_year            VARCHAR(4),
+    billing_first_name       VARCHAR(100),
+    billing_last_name        VARCHAR(100),
+    billing_address          VARCHAR(255),
+    billing_city             VARCHAR(100),
+    billing_state            VARCHAR(50),
+    billing_zip              VARCHAR(20),
+    billing_country          VARCHAR(3),
+    authorized_at            TIMESTAMP(6) WITH TIME ZONE,
+    captured_at              TIMESTAMP(6) WITH TIME ZONE,
+    voided_at                TIMESTAMP(6) WITH TIME ZONE,
+    refunded_at              TIMESTAMP(6) WITH TIME ZONE,
+    failed_at                TIMESTAMP(6) WITH TIME ZONE,
+    parent_transaction_id    UUID,
+    subscription_id          UUID,
+    idempotency_key          VARCHAR(100),
+    correlation_id           VARCHAR(100),
+    error_code               VARCHAR(50),
+    error_message            VARCHAR(2000),
+    description              VARCHAR(500),
+    metadata                 TEXT,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+CREATE INDEX idx_transaction_id ON transactions (id);
+CREATE INDEX idx_transaction_order_id ON transactions (order_id);
+CREATE INDEX idx_transaction_customer_id ON transactions (customer_id);
+CREATE INDEX idx_transaction_status ON transactions (status);
+CREATE INDEX idx_transaction_gateway_id ON transactions (gateway_transaction_id);
+CREATE INDEX idx_transaction_idempotency_key ON transactions (idempotency_key);
+CREATE INDEX idx_transaction_parent_id ON transactions (parent_transaction_id);
+
+CREATE TABLE transaction_idempotency_keys (
+    idempotency_key VARCHAR(100)                NOT NULL PRIMARY KEY,
+    transaction_id  UUID                        NOT NULL,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_transaction_idempotency_keys_created_at ON transaction_idempotency_keys (created_at);
+
+CREATE OR REPLACE FUNCTION register_transaction_idempotency_key()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.idempotency_key IS NOT NULL THEN
+        INSERT INTO transaction_idempotency_keys (idempotency_key, transaction_id, created_at)
+        VALUES (NEW.idempotency_key, NEW.id, NEW.created_at);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_transactions_idempotency_key
+    BEFORE INSERT ON transactions
+    FOR EACH ROW EXECUTE FUNCTION register_transaction_idempotency_key();
+
+CREATE TABLE audit_logs (
+    id              UUID                        NOT NULL,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version         BIGINT,
+    entity_type     VARCHAR(100)                NOT NULL,
+    entity_id       VARCHAR(100),
+    action          VARCHAR(50)                 NOT NULL,
+    user_id         VARCHAR(100),
+    user_ip         VARCHAR(50),
+    user_agent      VARCHAR(500),
+    old_value       TEXT,
+    new_value       TEXT,
+    success         BOOLEAN                     NOT NULL,
+    error_message   VARCHAR(2000),
+    correlation_id  VARCHAR(100),
+    timestamp       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    additional_data TEXT,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+CREATE INDEX idx_audit_entity_type ON audit_logs (entity_type);
+CREATE INDEX idx_audit_entity_id ON audit_logs (entity_id);
+CREATE INDEX idx_audit_correlation_id ON audit_logs (correlation_id);
+
+CREATE TABLE webhook_events (
+    id                  UUID                        NOT NULL,
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version             BIGINT,
+    event_id            VARCHAR(100)                NOT NULL,
+    event_type          VARCHAR(100)                NOT NULL,
+    event_type_raw      VARCHAR(100),
+    payload             TEXT                        NOT NULL,
+    signature           VARCHAR(500),
+    processed           BOOLEAN                     NOT NULL,
+    processed_at        TIMESTAMP(6) WITH TIME ZONE,
+    processing_attempts INTEGER,
+    processing_error    VARCHAR(2000),
+    last_attempt_at     TIMESTAMP(6) WITH TIME ZONE,
+    quarantined         BOOLEAN                     NOT NULL,
+    quarantined_at      TIMESTAMP(6) WITH TIME ZONE,
+    transaction_id      VARCHAR(100),
+    subscription_id     VARCHAR(100),
+    correlation_id      VARCHAR(100),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+CREATE INDEX idx_webhook_id ON webhook_events (id);
+CREATE INDEX idx_webhook_event_id ON webhook_events (event_id);
+CREATE INDEX idx_webhook_event_type ON webhook_events (event_type);
+CREATE INDEX idx_webhook_processed ON webhook_events (processed);
+CREATE INDEX idx_webhook_quarantined ON webhook_events (quarantined);
+
+CREATE TABLE webhook_event_keys (
+    event_id   VARCHAR(100)                NOT NULL PRIMARY KEY,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+CREATE INDEX idx_webhook_event_keys_created_at ON webhook_event_keys (created_at);
+
+CREATE OR REPLACE FUNCTION register_webhook_event_key()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO webhook_event_keys (event_id, created_at) VALUES (NEW.event_id, NEW.created_at);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_webhook_events_event_key
+    BEFORE INSERT ON webhook_events
+    FOR EACH ROW EXECUTE FUNCTION register_webhook_event_key();
+
+CREATE TABLE webhook_replay_jobs (
+    id                    UUID                        NOT NULL PRIMARY KEY,
+    created_at            TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at            TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version               BIGINT,
+    from_time             TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    to_time               TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    event_type            VARCHAR(100),
+    status                VARCHAR(20)                 NOT NULL,
+    partitions            INTEGER                     NOT NULL,
+    rate_per_second       INTEGER                     NOT NULL,
+    checkpoint_created_at TIMESTAMP(6) WITH TIME ZONE,
+    checkpoint_event_id   UUID,
+    processed_count       BIGINT                      NOT NULL,
+    failed_count          BIGINT                      NOT NULL,
+    last_error            VARCHAR(2000),
+    completed_at          TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE INDEX idx_webhook_replay_status ON webhook_replay_jobs (status);
+
+-- Partitions for the previous month through three months ahead; the maintenance job extends this.
+DO $$
+DECLARE
+    month_offset INTEGER;
+    parent TEXT;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY['transactions', 'audit_logs', 'webhook_events'] LOOP
+        FOR month_offset IN -1..3 LOOP
+            PERFORM create_monthly_partition(parent, (date_trunc('month', now()) + make_interval(months => month_offset))::DATE);
+        END LOOP;
+    END LOOP;
+END;
+$$;
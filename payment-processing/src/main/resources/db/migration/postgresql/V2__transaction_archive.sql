@@ -0,0 +1,25 @@
+-- Cold storage for settled transactions moved out of the partitioned transactions table
+-- by TransactionArchiveService.
+
+CREATE TABLE transaction_archive_segments (
+    id              UUID                        NOT NULL PRIMARY KEY,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version         BIGINT,
+    from_created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    to_created_at   TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    row_count       INTEGER                     NOT NULL,
+    format          VARCHAR(30)                 NOT NULL,
+    data            BYTEA                       NOT NULL
+);
+CREATE INDEX idx_archive_segment_from ON transaction_archive_segments (from_created_at);
+
+-- Segments are already compressed; skip TOAST compression.
+ALTER TABLE transaction_archive_segments ALTER COLUMN data SET STORAGE EXTERNAL;
+
+CREATE TABLE transaction_archive_entries (
+    transaction_id UUID    NOT NULL PRIMARY KEY,
+    segment_id     UUID    NOT NULL REFERENCES transaction_archive_segments (id),
+    row_index      INTEGER NOT NULL
+);
+CREATE INDEX idx_archive_entry_segment ON transaction_archive_entries (segment_id);
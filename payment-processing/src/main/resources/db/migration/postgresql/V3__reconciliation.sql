@@ -0,0 +1,35 @@
+-- Settlement reconciliation runs and the mismatches they found (ReconciliationService).
+
+CREATE TABLE reconciliation_runs (
+    id              UUID                        NOT NULL PRIMARY KEY,
+    created_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version         BIGINT,
+    settlement_date DATE                        NOT NULL,
+    status          VARCHAR(20)                 NOT NULL,
+    gateway_count   BIGINT                      NOT NULL,
+    local_count     BIGINT                      NOT NULL,
+    matched_count   BIGINT                      NOT NULL,
+    mismatch_count  BIGINT                      NOT NULL,
+    last_error      VARCHAR(2000),
+    completed_at    TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE INDEX idx_reconciliation_settlement_date ON reconciliation_runs (settlement_date);
+
+CREATE TABLE reconciliation_mismatches (
+    id                     UUID                        NOT NULL PRIMARY KEY,
+    created_at             TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at             TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version                BIGINT,
+    run_id                 UUID                        NOT NULL REFERENCES reconciliation_runs (id),
+    type                   VARCHAR(30)                 NOT NULL,
+    gateway_transaction_id VARCHAR(100)                NOT NULL,
+    transaction_id         UUID,
+    batch_id               VARCHAR(50),
+    local_status           VARCHAR(30),
+    gateway_status         VARCHAR(50),
+    local_amount           NUMERIC(19, 4),
+    gateway_amount         NUMERIC(19, 4)
+);
+CREATE INDEX idx_reconciliation_mismatch_run ON reconciliation_mismatches (run_id);
+CREATE INDEX idx_reconciliation_mismatch_gateway_id ON reconciliation_mismatches (gateway_transaction_id);
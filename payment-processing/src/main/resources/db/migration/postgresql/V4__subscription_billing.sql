@@ -0,0 +1,5 @@
+-- Lease / retry marker for SubscriptionBillingScheduler, and the index its claim query walks.
+
+ALTER TABLE subscriptions ADD COLUMN next_billing_attempt_at TIMESTAMP(6) WITH TIME ZONE;
+
+CREATE INDEX idx_subscription_billing_due ON subscriptions (status, next_billing_date);
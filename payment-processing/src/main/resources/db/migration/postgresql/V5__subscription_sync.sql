@@ -0,0 +1,16 @@
+-- Checkpointed sweeps of SubscriptionStatusReconciler.
+
+CREATE TABLE subscription_sync_sweeps (
+    id                         UUID                        NOT NULL PRIMARY KEY,
+    created_at                 TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at                 TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version                    BIGINT,
+    status                     VARCHAR(20)                 NOT NULL,
+    checkpoint_subscription_id UUID,
+    leased_until               TIMESTAMP(6) WITH TIME ZONE,
+    scanned_count              BIGINT                      NOT NULL,
+    changed_count              BIGINT                      NOT NULL,
+    failed_count               BIGINT                      NOT NULL,
+    completed_at               TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE INDEX idx_subscription_sync_status ON subscription_sync_sweeps (status);
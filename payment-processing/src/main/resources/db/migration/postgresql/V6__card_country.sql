@@ -0,0 +1,3 @@
+-- Issuing country from the BIN lookup (BinLookupService).
+
+ALTER TABLE transactions ADD COLUMN card_country VARCHAR(3);
@@ -0,0 +1,23 @@
+-- Card vault (CardVaultService) and token references on payments and subscriptions.
+
+CREATE TABLE card_tokens (
+    id                  UUID                        NOT NULL PRIMARY KEY,
+    created_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at          TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    version             BIGINT,
+    customer_id         VARCHAR(100)                NOT NULL,
+    fingerprint         VARCHAR(64)                 NOT NULL,
+    encrypted_pan       BYTEA                       NOT NULL,
+    card_bin            VARCHAR(6)                  NOT NULL,
+    card_last_four      VARCHAR(4)                  NOT NULL,
+    card_brand          VARCHAR(30),
+    card_country        VARCHAR(3),
+    payment_method_type VARCHAR(30),
+    card_exp_month      VARCHAR(2)                  NOT NULL,
+    card_exp_year       VARCHAR(4)                  NOT NULL,
+    last_used_at        TIMESTAMP(6) WITH TIME ZONE
+);
+CREATE UNIQUE INDEX idx_card_token_customer_fingerprint ON card_tokens (customer_id, fingerprint);
+
+ALTER TABLE transactions ADD COLUMN card_token VARCHAR(36);
+ALTER TABLE subscriptions ADD COLUMN card_token VARCHAR(36);
@@ -0,0 +1,4 @@
+-- Authorize.Net CIM payment profiles of vaulted cards (CustomerProfileService).
+
+ALTER TABLE card_tokens ADD COLUMN gateway_customer_profile_id VARCHAR(100);
+ALTER TABLE card_tokens ADD COLUMN gateway_payment_profile_id VARCHAR(100);
@@ -0,0 +1,3 @@
+-- Gateway that processed each payment (RoutingPaymentGateway); null means the primary gateway.
+
+ALTER TABLE transactions ADD COLUMN gateway VARCHAR(30);
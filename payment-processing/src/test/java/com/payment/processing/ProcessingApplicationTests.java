@@ -3,7 +3,7 @@ package com.payment.processing;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "vault.allow-generated-keys=true")
 class ProcessingApplicationTests {
 
 	@Test
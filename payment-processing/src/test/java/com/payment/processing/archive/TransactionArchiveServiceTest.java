@@ -0,0 +1,154 @@
+package com.payment.processing.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.entity.TransactionArchiveSegment;
+import com.payment.processing.domain.enums.PaymentMethodType;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.repository.TransactionArchiveEntryRepository;
+import com.payment.processing.repository.TransactionArchiveSegmentRepository;
+import com.payment.processing.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Archival runs in its own transactions, so rows are committed here and the run sees them; a zero
+ * minimum age makes everything created before the run old enough.
+ */
+@DataJpaTest(properties = "archive.transactions.min-age-days=0")
+@Import({JpaAuditingConfig.class, TransactionArchiveService.class, TransactionArchiveServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionArchiveServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().registerModule(new JavaTimeModule());
+        }
+    }
+
+    @Autowired
+    private TransactionArchiveService archiveService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionArchiveSegmentRepository segmentRepository;
+
+    @Autowired
+    private TransactionArchiveEntryRepository entryRepository;
+
+    @AfterEach
+    void tearDown() {
+        entryRepository.deleteAll();
+        segmentRepository.deleteAll();
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    void segmentRowsReadBackAsWritten() {
+        Transaction payment = transaction(TransactionType.PURCHASE, TransactionStatus.PARTIALLY_REFUNDED, "120.5000", null);
+        payment.setId(UUID.randomUUID());
+        payment.setCreatedAt(Instant.parse("2025-03-01T10:15:30.123456Z"));
+        payment.setUpdatedAt(Instant.parse("2025-03-02T08:00:00Z"));
+        payment.setVersion(3L);
+        payment.setCapturedAt(Instant.parse("2025-03-01T10:15:31Z"));
+        payment.setPaymentMethodType(PaymentMethodType.CREDIT_CARD);
+        payment.setCardBrand("VISA");
+        payment.setMetadata("{\"channel\":\"web\"}");
+        Transaction refund = transaction(TransactionType.REFUND, TransactionStatus.REFUNDED, "20.10", payment.getId());
+        refund.setId(UUID.randomUUID());
+        refund.setCreatedAt(Instant.parse("2025-03-05T00:00:00Z"));
+        refund.setUpdatedAt(refund.getCreatedAt());
+        refund.setVersion(0L);
+
+        TransactionArchiveSegment segment = TransactionArchiveSegment.builder()
+                .data(archiveService.encode(List.of(payment, refund)))
+                .build();
+
+        assertThat(archiveService.readRow(segment, 0)).usingRecursiveComparison().isEqualTo(payment);
+        assertThat(archiveService.readRow(segment, 1)).usingRecursiveComparison().isEqualTo(refund);
+        assertThat(archiveService.readRow(segment, 0).getAmount()).hasToString("120.5000");
+    }
+
+    @Test
+    void archivesPaymentTogetherWithItsRefunds() {
+        Transaction payment = save(TransactionType.PURCHASE, TransactionStatus.PARTIALLY_REFUNDED, "100.00", null);
+        Transaction refund = save(TransactionType.REFUND, TransactionStatus.REFUNDED, "25.00", payment.getId());
+        Transaction failedRefund = save(TransactionType.REFUND, TransactionStatus.FAILED, "80.00", payment.getId());
+
+        assertThat(archiveService.archive()).isEqualTo(3);
+
+        assertThat(transactionRepository.count()).isZero();
+        assertThat(archiveService.findArchived(payment.getId())).hasValueSatisfying(archived ->
+                assertThat(archived.getStatus()).isEqualTo(TransactionStatus.PARTIALLY_REFUNDED));
+        assertThat(archiveService.findArchived(refund.getId())).hasValueSatisfying(archived ->
+                assertThat(archived.getParentTransactionId()).isEqualTo(payment.getId()));
+        assertThat(archiveService.findArchived(failedRefund.getId())).isPresent();
+    }
+
+    @Test
+    void refundOfLivePaymentStaysLive() {
+        Transaction authorized = save(TransactionType.AUTHORIZE, TransactionStatus.AUTHORIZED, "50.00", null);
+        save(TransactionType.REFUND, TransactionStatus.REFUNDED, "10.00", authorized.getId());
+
+        assertThat(archiveService.archive()).isZero();
+        assertThat(transactionRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void paymentWithPendingRefundStaysLive() {
+        Transaction payment = save(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "50.00", null);
+        save(TransactionType.REFUND, TransactionStatus.PENDING, "10.00", payment.getId());
+        Transaction settled = save(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "70.00", null);
+
+        assertThat(archiveService.archive()).isEqualTo(1);
+
+        assertThat(transactionRepository.findById(payment.getId())).isPresent();
+        assertThat(transactionRepository.findById(settled.getId())).isEmpty();
+        assertThat(archiveService.findArchived(settled.getId())).isPresent();
+    }
+
+    private Transaction save(TransactionType type, TransactionStatus status, String amount, UUID parentId) {
+        return transactionRepository.save(transaction(type, status, amount, parentId));
+    }
+
+    private static Transaction transaction(TransactionType type, TransactionStatus status, String amount,
+                                           UUID parentId) {
+        return Transaction.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .type(type)
+                .status(status)
+                .amount(new BigDecimal(amount))
+                .currency("USD")
+                .parentTransactionId(parentId)
+                .build();
+    }
+}
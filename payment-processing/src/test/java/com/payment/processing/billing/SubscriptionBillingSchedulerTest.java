@@ -0,0 +1,191 @@
+package com.payment.processing.billing;
+
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.Subscription;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.BillingInterval;
+import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.SubscriptionRepository;
+import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.rollup.PaymentRollupRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Claims and results are committed in the scheduler's own transactions, so rows are committed here too.
+ */
+@DataJpaTest
+@Import(JpaAuditingConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SubscriptionBillingSchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final PaymentGateway paymentGateway = mock(PaymentGateway.class);
+    private final PaymentRollupRecorder rollupRecorder = mock(PaymentRollupRecorder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SubscriptionBillingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new SubscriptionBillingScheduler(subscriptionRepository, transactionRepository, paymentGateway,
+                rollupRecorder, transactionManager, 2, meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 200);
+        ReflectionTestUtils.setField(scheduler, "leaseMinutes", 15L);
+        ReflectionTestUtils.setField(scheduler, "retryDelayHours", 24L);
+        ReflectionTestUtils.setField(scheduler, "maxFailedCycles", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        transactionRepository.deleteAll();
+        subscriptionRepository.deleteAll();
+    }
+
+    @Test
+    void chargesOnlyDueLocallyBilledSubscriptions() {
+        Subscription due = save(local("pay-due"));
+        Subscription arb = local("pay-arb");
+        arb.setGatewaySubscriptionId("arb-1");
+        save(arb);
+        Subscription future = local("pay-future");
+        future.setNextBillingDate(TODAY.plusDays(1));
+        save(future);
+        Subscription leased = local("pay-leased");
+        leased.setNextBillingAttemptAt(Instant.now().plus(Duration.ofMinutes(10)));
+        save(leased);
+        Subscription noProfile = local(null);
+        save(noProfile);
+        when(paymentGateway.chargeCustomerProfile(any(), any(), any(), any()))
+                .thenReturn(GatewayResponse.success("60001", "A1"));
+
+        scheduler.billDueSubscriptions();
+
+        verify(paymentGateway).chargeCustomerProfile(eq("cust-1"), eq("pay-due"), any(), anyString());
+        verify(paymentGateway, times(1)).chargeCustomerProfile(any(), any(), any(), any());
+        Subscription charged = subscriptionRepository.findById(due.getId()).orElseThrow();
+        assertThat(charged.getCompletedCycles()).isEqualTo(1);
+        assertThat(charged.getLastBillingDate()).isEqualTo(TODAY);
+        assertThat(charged.getNextBillingDate()).isEqualTo(TODAY.plusMonths(1));
+        assertThat(charged.getNextBillingAttemptAt()).isNull();
+        assertThat(transactionRepository.findByIdempotencyKey("subscription:" + due.getId() + ":1"))
+                .hasValueSatisfying(transaction -> {
+                    assertThat(transaction.getStatus()).isEqualTo(TransactionStatus.CAPTURED);
+                    assertThat(transaction.getGatewayTransactionId()).isEqualTo("60001");
+                    assertThat(transaction.getSubscriptionId()).isEqualTo(due.getId());
+                });
+    }
+
+    @Test
+    void declinedChargeIsRetriedLaterAndSuspendsAfterMaxFailures() {
+        Subscription retried = save(local("pay-retried"));
+        Subscription exhausted = local("pay-exhausted");
+        exhausted.setFailedCycles(2);
+        save(exhausted);
+        when(paymentGateway.chargeCustomerProfile(any(), any(), any(), any()))
+                .thenReturn(GatewayResponse.failure("2", "This transaction has been declined."));
+
+        scheduler.billDueSubscriptions();
+
+        Subscription retry = subscriptionRepository.findById(retried.getId()).orElseThrow();
+        assertThat(retry.getStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+        assertThat(retry.getFailedCycles()).isEqualTo(1);
+        assertThat(retry.getNextBillingAttemptAt()).isAfter(Instant.now().plus(Duration.ofHours(23)));
+        Subscription suspended = subscriptionRepository.findById(exhausted.getId()).orElseThrow();
+        assertThat(suspended.getStatus()).isEqualTo(SubscriptionStatus.SUSPENDED);
+        assertThat(suspended.getNextBillingAttemptAt()).isNull();
+        assertThat(transactionRepository.findAll()).extracting(Transaction::getStatus)
+                .containsOnly(TransactionStatus.DECLINED).hasSize(2);
+    }
+
+    @Test
+    void chargeRecordedWithoutSubscriptionUpdateIsNotChargedAgain() {
+        Subscription subscription = save(local("pay-1"));
+        when(paymentGateway.chargeCustomerProfile(any(), any(), any(), any()))
+                .thenReturn(GatewayResponse.success("60002", "A2"));
+        // Fails the batched and the individual update; the charge is then recorded on its own.
+        doThrow(new IllegalStateException("rollup unavailable"))
+                .doThrow(new IllegalStateException("rollup unavailable"))
+                .doNothing()
+                .when(rollupRecorder).record(any());
+
+        scheduler.billDueSubscriptions();
+
+        Subscription leased = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+        assertThat(leased.getCompletedCycles()).isZero();
+        assertThat(leased.getNextBillingAttemptAt()).isAfter(Instant.now());
+        assertThat(transactionRepository.findByIdempotencyKey("subscription:" + subscription.getId() + ":1"))
+                .hasValueSatisfying(transaction -> assertThat(transaction.getGatewayTransactionId()).isEqualTo("60002"));
+
+        leased.setNextBillingAttemptAt(Instant.now().minusSeconds(1));
+        subscriptionRepository.save(leased);
+        scheduler.billDueSubscriptions();
+
+        verify(paymentGateway, times(1)).chargeCustomerProfile(any(), any(), any(), any());
+        Subscription completed = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+        assertThat(completed.getCompletedCycles()).isEqualTo(1);
+        assertThat(completed.getNextBillingDate()).isEqualTo(TODAY.plusMonths(1));
+        assertThat(completed.getNextBillingAttemptAt()).isNull();
+        assertThat(transactionRepository.count()).isEqualTo(1);
+        assertThat(meterRegistry.get("subscription.billing").tag("outcome", "recovered").counter().count())
+                .isEqualTo(1);
+    }
+
+    private Subscription save(Subscription subscription) {
+        return subscriptionRepository.save(subscription);
+    }
+
+    private static Subscription local(String paymentProfileId) {
+        return Subscription.builder()
+                .name("Monthly plan")
+                .customerId("customer-1")
+                .status(SubscriptionStatus.ACTIVE)
+                .amount(new BigDecimal("19.99"))
+                .billingInterval(BillingInterval.MONTHLY)
+                .startDate(TODAY)
+                .nextBillingDate(TODAY)
+                .gatewayCustomerProfileId("cust-1")
+                .gatewayPaymentProfileId(paymentProfileId)
+                .build();
+    }
+}
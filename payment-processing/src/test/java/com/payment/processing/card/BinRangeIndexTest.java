@@ -0,0 +1,48 @@
+package com.payment.processing.card;
+
+import com.payment.processing.domain.enums.CardFundingType;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinRangeIndexTest {
+
+    private final BinLookupService builtIn = new BinLookupService("");
+
+    @Test
+    void detectsNetworkBrands() {
+        assertThat(builtIn.lookup("4111111111111111").brand()).isEqualTo("VISA");
+        assertThat(builtIn.lookup("5555555555554444").brand()).isEqualTo("MASTERCARD");
+        assertThat(builtIn.lookup("2223000048400011").brand()).isEqualTo("MASTERCARD");
+        assertThat(builtIn.lookup("378282246310005").brand()).isEqualTo("AMEX");
+        assertThat(builtIn.lookup("6011111111111117").brand()).isEqualTo("DISCOVER");
+        assertThat(builtIn.lookup("3530111333300000").brand()).isEqualTo("JCB");
+        assertThat(builtIn.lookup("30569309025904").brand()).isEqualTo("DINERS");
+        assertThat(builtIn.lookup("6200000000000005").brand()).isEqualTo("UNIONPAY");
+    }
+
+    @Test
+    void doesNotTreatEveryTwoOrFiveAsMastercard() {
+        assertThat(builtIn.lookup("2000000000000000")).isSameAs(BinInfo.UNKNOWN);
+        assertThat(builtIn.lookup("5000000000000000")).isSameAs(BinInfo.UNKNOWN);
+        assertThat(builtIn.lookup("")).isSameAs(BinInfo.UNKNOWN);
+        assertThat(builtIn.lookup("abc")).isSameAs(BinInfo.UNKNOWN);
+    }
+
+    @Test
+    void narrowerRangeWinsAndOuterRangeResumesAfterIt() {
+        BinInfo network = new BinInfo("VISA", CardFundingType.UNKNOWN, null, null);
+        BinInfo issuer = new BinInfo("VISA", CardFundingType.DEBIT, "Example Bank", "GB");
+        BinRangeIndex index = BinRangeIndex.builder()
+                .add("411111", "411112", issuer)
+                .add("4", "4", network)
+                .build();
+
+        assertThat(index.lookup("4111110000000000")).isSameAs(issuer);
+        assertThat(index.lookup("4111129999999999")).isSameAs(issuer);
+        assertThat(index.lookup("4111130000000000")).isSameAs(network);
+        assertThat(index.lookup("4000000000000000")).isSameAs(network);
+        assertThat(index.lookup("5000000000000000")).isSameAs(BinInfo.UNKNOWN);
+        assertThat(index.lookup("4111 1100 0000 0000").paymentMethodType().name()).isEqualTo("DEBIT_CARD");
+    }
+}
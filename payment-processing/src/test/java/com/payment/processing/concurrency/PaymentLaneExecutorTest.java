@@ -0,0 +1,233 @@
+package com.payment.processing.concurrency;
+
+import com.payment.processing.exception.ConcurrentUpdateException;
+import com.payment.processing.exception.PaymentException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * One lane, a transaction manager that only counts, and a task parked on the lane so that the tasks
+ * queued behind it are drained together.
+ */
+class PaymentLaneExecutorTest {
+
+    private static final UUID KEY = UUID.randomUUID();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> steps = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PaymentLaneExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        TransactionConflictResolver resolver = new TransactionConflictResolver(transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(resolver, "maxAttempts", 3);
+        executor = new PaymentLaneExecutor(1, 10, transactionManager, resolver, meterRegistry);
+        ReflectionTestUtils.setField(executor, "timeoutMs", 5000L);
+        ReflectionTestUtils.setField(executor, "runningTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(executor, "maxBatch", 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void queuedTasksForOnePaymentShareOneTransaction() {
+        CompletableFuture<String> parked = parkLane();
+        List<CompletableFuture<String>> results = List.of(
+                submit(() -> step("a")), submit(() -> step("b")), submit(() -> step("c")));
+        awaitQueued(3);
+
+        release.countDown();
+
+        assertThat(parked.join()).isEqualTo("parked");
+        assertThat(results).extracting(CompletableFuture::join).containsExactly("a", "b", "c");
+        // One transaction for the parked task and one for the batch behind it.
+        verify(transactionManager, times(2)).getTransaction(any());
+        assertThat(meterRegistry.get("payment.lanes.batch.size").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void failedTaskRollsBackItsBatchAndCompletedOnesAreReapplied() {
+        parkLane();
+        CompletableFuture<String> applied = CompletableFuture.supplyAsync(() ->
+                executor.execute("refund", KEY, () -> step("refund"), () -> step("refund-reapplied")));
+        awaitQueued(1);
+        CompletableFuture<String> failed = submit(() -> {
+            steps.add("declined");
+            throw new IllegalStateException("declined");
+        });
+        awaitQueued(2);
+        CompletableFuture<String> pending = submit(() -> step("webhook"));
+        awaitQueued(3);
+
+        release.countDown();
+
+        assertThat(applied.join()).isEqualTo("refund-reapplied");
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(pending.join()).isEqualTo("webhook");
+        assertThat(steps).containsExactly("parked", "refund", "declined", "refund-reapplied", "webhook");
+    }
+
+    @Test
+    void conflictingCaptureReappliesWithoutCallingGatewayAgain() {
+        // Commits: the check, then the apply (conflicts), then the reapply.
+        doNothing()
+                .doThrow(new ObjectOptimisticLockingFailureException("Transaction", KEY))
+                .doNothing()
+                .when(transactionManager).commit(any());
+        AtomicInteger applies = new AtomicInteger();
+
+        String result = executor.execute("capture", KEY,
+                () -> step("check"),
+                checked -> step("gateway"),
+                captured -> step("apply-" + applies.incrementAndGet()));
+
+        assertThat(result).isEqualTo("apply-2");
+        assertThat(steps).containsExactly("check", "gateway", "apply-1", "apply-2");
+        assertThat(meterRegistry.get("transaction.conflicts").tag("outcome", "retried").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void gatewayCheckSeesEarlierQueuedWorkCommitted() {
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger seenByCheck = new AtomicInteger(-1);
+        parkLane();
+        CompletableFuture<String> webhook = submit(() -> {
+            committed.incrementAndGet();
+            return step("webhook");
+        });
+        awaitQueued(1);
+        CompletableFuture<String> refund = CompletableFuture.supplyAsync(() -> executor.execute("refund", KEY,
+                () -> {
+                    seenByCheck.set(committed.get());
+                    return step("check");
+                },
+                checked -> step("gateway"),
+                refunded -> step("apply")));
+        awaitQueued(2);
+        CompletableFuture<String> after = submit(() -> step("after"));
+        awaitQueued(3);
+
+        release.countDown();
+
+        assertThat(webhook.join()).isEqualTo("webhook");
+        assertThat(refund.join()).isEqualTo("apply");
+        assertThat(after.join()).isEqualTo("after");
+        assertThat(seenByCheck).hasValue(1);
+        assertThat(steps).containsExactly("parked", "webhook", "check", "gateway", "apply", "after");
+        // parked, webhook, the check, then the refund's apply batched with the task behind it.
+        verify(transactionManager, times(4)).getTransaction(any());
+    }
+
+    @Test
+    void queuedTaskIsWithdrawnWhenCallerTimesOut() {
+        ReflectionTestUtils.setField(executor, "timeoutMs", 50L);
+        parkLane();
+
+        assertThatThrownBy(() -> executor.execute("void", KEY, () -> step("void")))
+                .isInstanceOf(ConcurrentUpdateException.class);
+
+        release.countDown();
+        assertThat(executor.execute("capture", KEY, () -> step("capture"))).isEqualTo("capture");
+        assertThat(steps).containsExactly("parked", "capture");
+        assertThat(meterRegistry.get("transaction.conflicts").tag("outcome", "lane_timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void runningTaskStopsBlockingCallerButCompletes() {
+        ReflectionTestUtils.setField(executor, "timeoutMs", 50L);
+        ReflectionTestUtils.setField(executor, "runningTimeoutMs", 50L);
+
+        assertThatThrownBy(() -> executor.execute("refund", KEY, () -> {
+            awaitRelease();
+            return step("refund");
+        }))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("OPERATION_PENDING"));
+
+        release.countDown();
+        waitUntil(() -> steps.contains("refund"));
+    }
+
+    private CompletableFuture<String> parkLane() {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> parked = submit(() -> {
+            started.countDown();
+            awaitRelease();
+            return step("parked");
+        });
+        try {
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return parked;
+    }
+
+    private CompletableFuture<String> submit(Supplier<String> action) {
+        return CompletableFuture.supplyAsync(() -> executor.execute("webhook", KEY, action));
+    }
+
+    private void awaitQueued(int tasks) {
+        waitUntil(() -> meterRegistry.get("payment.lanes.queued").gauge().value() == tasks);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String step(String name) {
+        steps.add(name);
+        return name;
+    }
+}
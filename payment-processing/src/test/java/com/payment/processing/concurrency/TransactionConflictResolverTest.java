@@ -0,0 +1,103 @@
+package com.payment.processing.concurrency;
+
+import com.payment.processing.dto.response.ApiResponse;
+import com.payment.processing.exception.ConcurrentUpdateException;
+import com.payment.processing.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionConflictResolverTest {
+
+    private static final UUID KEY = UUID.randomUUID();
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionConflictResolver resolver = new TransactionConflictResolver(transactionManager, meterRegistry);
+    private final List<String> steps = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(resolver, "maxAttempts", 3);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void conflictRunsReapplyStepInFreshTransaction() {
+        String result = resolver.execute("refund", KEY,
+                () -> {
+                    steps.add("action");
+                    throw new ObjectOptimisticLockingFailureException("Transaction", KEY);
+                },
+                () -> {
+                    steps.add("reapply");
+                    return "reapplied";
+                });
+
+        assertThat(result).isEqualTo("reapplied");
+        assertThat(steps).containsExactly("action", "reapply");
+        verify(transactionManager, times(2)).getTransaction(any());
+        assertThat(conflicts("retried")).isEqualTo(1);
+    }
+
+    @Test
+    void exhaustedConflictsAreReportedAs409() {
+        assertThatThrownBy(() -> resolver.execute("capture", KEY,
+                () -> {
+                    steps.add("action");
+                    throw new OptimisticLockException("stale");
+                },
+                () -> {
+                    steps.add("reapply");
+                    throw new ObjectOptimisticLockingFailureException("Transaction", KEY);
+                }))
+                .isInstanceOfSatisfying(ConcurrentUpdateException.class, e -> {
+                    ResponseEntity<ApiResponse<Void>> response = new GlobalExceptionHandler().handleConcurrentUpdate(e);
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+                    assertThat(response.getBody().getError().getCode()).isEqualTo("CONCURRENT_UPDATE");
+                });
+
+        assertThat(steps).containsExactly("action", "reapply", "reapply");
+        assertThat(conflicts("retried")).isEqualTo(2);
+        assertThat(conflicts("exhausted")).isEqualTo(1);
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        assertThatThrownBy(() -> resolver.execute("void", KEY,
+                () -> {
+                    steps.add("action");
+                    throw new IllegalStateException("declined");
+                },
+                () -> {
+                    steps.add("reapply");
+                    return "reapplied";
+                }))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(steps).containsExactly("action");
+    }
+
+    private double conflicts(String outcome) {
+        return meterRegistry.get("transaction.conflicts").tag("outcome", outcome).counter().count();
+    }
+}
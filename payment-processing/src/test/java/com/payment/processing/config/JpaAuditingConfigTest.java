@@ -0,0 +1,41 @@
+package com.payment.processing.config;
+
+import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.enums.WebhookEventType;
+import com.payment.processing.repository.WebhookEventRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(JpaAuditingConfig.class)
+class JpaAuditingConfigTest {
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @Test
+    void insertAndUpdateStampTheEntity() throws InterruptedException {
+        WebhookEvent event = webhookEventRepository.saveAndFlush(WebhookEvent.builder()
+                .eventId("n-1")
+                .eventType(WebhookEventType.PAYMENT_CREATED)
+                .payload("{}")
+                .build());
+
+        Instant createdAt = event.getCreatedAt();
+        assertThat(createdAt).isNotNull();
+        assertThat(event.getUpdatedAt()).isNotNull();
+
+        Thread.sleep(5);
+        event.markProcessed();
+        event = webhookEventRepository.saveAndFlush(event);
+
+        assertThat(event.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(event.getUpdatedAt()).isAfter(createdAt);
+    }
+}
@@ -0,0 +1,89 @@
+package com.payment.processing.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes against two independent in-memory H2 databases, each tagged with its role.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("routing_primary", "primary");
+        DataSource replica = database("routing_replica", "replica");
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+                primary, replica, new ReadYourWritesTracker(60_000), new SimpleMeterRegistry());
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertThat(readOnly.execute(status -> currentRole())).isEqualTo("replica");
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimary() {
+        assertThat(readWrite.execute(status -> currentRole())).isEqualTo("primary");
+    }
+
+    @Test
+    void clientReadsItsOwnWritesFromPrimary() {
+        authenticate("alice");
+        readWrite.execute(status -> currentRole());
+        assertThat(readOnly.execute(status -> currentRole())).isEqualTo("primary");
+
+        authenticate("bob");
+        assertThat(readOnly.execute(status -> currentRole())).isEqualTo("replica");
+    }
+
+    private String currentRole() {
+        return jdbcTemplate.queryForObject("SELECT role FROM db_role", String.class);
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private static DataSource database(String name, String role) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS db_role (role VARCHAR(20))");
+        jdbc.update("DELETE FROM db_role");
+        jdbc.update("INSERT INTO db_role (role) VALUES (?)", role);
+        return dataSource;
+    }
+}
@@ -0,0 +1,115 @@
+package com.payment.processing.domain.id;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Insert throughput into a table keyed by random (v4) or time-ordered (v7) UUIDs, in JDBC batches
+ * of {@value #BATCH} rows on top of {@code preloadRows} existing rows.
+ * <p>
+ * Runs against in-memory H2 in PostgreSQL mode by default; pass {@code -Dbenchmark.jdbc.url},
+ * {@code -Dbenchmark.jdbc.user} and {@code -Dbenchmark.jdbc.password} to measure the docker-compose
+ * PostgreSQL instead. Not part of the test run (see README).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UuidInsertBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"v4", "v7"})
+    private String keys;
+
+    @Param({"1000000"})
+    private int preloadRows;
+
+    private Connection connection;
+    private PreparedStatement insert;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:uuid_bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""));
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS uuid_bench");
+            statement.execute("CREATE TABLE uuid_bench (id UUID PRIMARY KEY, created_at TIMESTAMP WITH TIME ZONE NOT NULL, "
+                    + "payload VARCHAR(100) NOT NULL)");
+        }
+        connection.commit();
+        insert = connection.prepareStatement("INSERT INTO uuid_bench (id, created_at, payload) VALUES (?, ?, ?)");
+        for (int i = 0; i < preloadRows; i += BATCH) {
+            insertBatch();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insert() throws SQLException {
+        insertBatch();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE uuid_bench");
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    private void insertBatch() throws SQLException {
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < BATCH; i++) {
+            insert.setObject(1, "v7".equals(keys) ? UuidV7.next() : UUID.randomUUID());
+            insert.setTimestamp(2, now);
+            insert.setString(3, "payload-" + i);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        // The forked benchmark JVM does not inherit system properties set on this one.
+        String[] jdbcProperties = Stream.of("benchmark.jdbc.url", "benchmark.jdbc.user", "benchmark.jdbc.password")
+                .filter(name -> System.getProperty(name) != null)
+                .map(name -> "-D" + name + "=" + System.getProperty(name))
+                .toArray(String[]::new);
+        new Runner(new OptionsBuilder()
+                .include(UuidInsertBenchmark.class.getSimpleName())
+                .jvmArgsAppend(jdbcProperties)
+                .build()).run();
+    }
+}
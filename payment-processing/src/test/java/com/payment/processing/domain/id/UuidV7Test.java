@@ -0,0 +1,76 @@
+package com.payment.processing.domain.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7Test {
+
+    private static final long NOW = 1_760_000_000_000L;
+
+    @Test
+    void setsVersionAndVariantBits() {
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UuidV7.next();
+            assertThat(id.version()).isEqualTo(7);
+            assertThat(id.variant()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void carriesTheMillisecondTimestamp() {
+        UUID id = new UuidV7(() -> NOW).generate();
+
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(NOW);
+    }
+
+    @Test
+    void idsWithinOneMillisecondAreStrictlyIncreasing() {
+        UuidV7 generator = new UuidV7(() -> NOW);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(generator.generate());
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(ids.get(i).getMostSignificantBits()).isGreaterThan(ids.get(i - 1).getMostSignificantBits());
+            assertThat(ids.get(i).getMostSignificantBits() >>> 16).isEqualTo(NOW);
+        }
+        assertThat(ids.get(0).getMostSignificantBits() & 0xFFF).isZero();
+        assertThat(ids.get(99).getMostSignificantBits() & 0xFFF).isEqualTo(99);
+    }
+
+    @Test
+    void fullSequenceRollsIntoTheNextMillisecond() {
+        UuidV7 generator = new UuidV7(() -> NOW);
+        UUID last = null;
+        for (int i = 0; i < 4096; i++) {
+            last = generator.generate();
+        }
+        assertThat(last.getMostSignificantBits() >>> 16).isEqualTo(NOW);
+        assertThat(last.getMostSignificantBits() & 0xFFF).isEqualTo(0xFFF);
+
+        UUID overflow = generator.generate();
+
+        assertThat(overflow.getMostSignificantBits() >>> 16).isEqualTo(NOW + 1);
+        assertThat(overflow.getMostSignificantBits() & 0xFFF).isZero();
+        assertThat(overflow.getMostSignificantBits()).isGreaterThan(last.getMostSignificantBits());
+    }
+
+    @Test
+    void clockGoingBackwardsDoesNotReorderIds() {
+        long[] clock = {NOW};
+        UuidV7 generator = new UuidV7(() -> clock[0]);
+        UUID before = generator.generate();
+        clock[0] = NOW - 5_000;
+
+        UUID after = generator.generate();
+
+        assertThat(after.getMostSignificantBits()).isGreaterThan(before.getMostSignificantBits());
+        assertThat(after.getMostSignificantBits() >>> 16).isEqualTo(NOW);
+    }
+}
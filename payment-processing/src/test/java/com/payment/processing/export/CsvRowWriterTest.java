@@ -0,0 +1,36 @@
+package com.payment.processing.export;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CsvRowWriterTest {
+
+    @Test
+    void quotesSeparatorsAndNeutralizesFormulas() throws Exception {
+        StringWriter out = new StringWriter();
+        CsvRowWriter writer = new CsvRowWriter(out, new String[]{"id", "description", "formula", "amount", "created_at", "empty"});
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1)).thenReturn("order-1");
+        when(rs.getObject(2)).thenReturn("Refund, \"partial\"");
+        when(rs.getObject(3)).thenReturn("=HYPERLINK(\"x\")");
+        when(rs.getObject(4)).thenReturn(new BigDecimal("-12.5000"));
+        when(rs.getObject(5)).thenReturn(Timestamp.from(Instant.parse("2026-01-31T23:59:59Z")));
+        when(rs.getObject(6)).thenReturn(null);
+        writer.writeRow(rs);
+        writer.finish();
+
+        assertThat(out.toString()).isEqualTo(
+                "id,description,formula,amount,created_at,empty\r\n"
+                        + "order-1,\"Refund, \"\"partial\"\"\",\"'=HYPERLINK(\"\"x\"\")\",-12.5000,2026-01-31T23:59:59Z,\r\n");
+    }
+}
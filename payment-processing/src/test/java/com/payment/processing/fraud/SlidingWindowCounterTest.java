@@ -0,0 +1,74 @@
+package com.payment.processing.fraud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCounterTest {
+
+    private static final long BUCKET = 1000;
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(5, BUCKET);
+
+    @Test
+    void sumsBucketsOverlappingTheWindow() {
+        counter.add(0, 1);
+        counter.add(1500, 2);
+        counter.add(2500, 3);
+        counter.add(2900, 4);
+
+        assertThat(counter.sum(2900, 1000)).isEqualTo(7);
+        assertThat(counter.sum(2900, 2000)).isEqualTo(9);
+        assertThat(counter.sum(2900, 3000)).isEqualTo(10);
+        // Windows are rounded up to whole buckets.
+        assertThat(counter.sum(2900, 1001)).isEqualTo(9);
+    }
+
+    @Test
+    void bucketsOutsideTheWindowAreNotCounted() {
+        counter.add(0, 5);
+        counter.add(3000, 1);
+
+        assertThat(counter.sum(4000, 2000)).isEqualTo(1);
+        assertThat(counter.sum(4999, 5000)).isEqualTo(6);
+        assertThat(counter.sum(5000, 5000)).isEqualTo(1);
+    }
+
+    @Test
+    void recycledSlotStartsFromZero() {
+        counter.add(0, 5);
+        // Epoch 5 maps to the same slot as epoch 0.
+        counter.add(5000, 1);
+
+        assertThat(counter.sum(5000, 5000)).isEqualTo(1);
+        assertThat(counter.sum(5000, 1000)).isEqualTo(1);
+    }
+
+    @Test
+    void windowIsCappedAtTheRing() {
+        for (long t = 0; t < 10 * BUCKET; t += BUCKET) {
+            counter.add(t, 1);
+        }
+
+        assertThat(counter.sum(9 * BUCKET, 60 * BUCKET)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() {
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int n = 0; n < 10_000; n++) {
+                    counter.add(100, 1);
+                }
+            }));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        assertThat(counter.sum(100, BUCKET)).isEqualTo(40_000);
+    }
+}
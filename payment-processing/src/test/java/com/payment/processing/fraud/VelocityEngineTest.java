@@ -0,0 +1,150 @@
+package com.payment.processing.fraud;
+
+import com.payment.processing.config.FraudProperties;
+import com.payment.processing.config.FraudProperties.Dimension;
+import com.payment.processing.config.FraudProperties.Rule;
+import com.payment.processing.dto.request.PaymentRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VelocityEngineTest {
+
+    private final FraudProperties properties = new FraudProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void blocksCardOnceAttemptsExceedMaxCount() {
+        VelocityEngine engine = engine(rule("card-attempts", Dimension.CARD, 3L, null));
+
+        assertThat(engine.screen(payment("customer-1", "10.00"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-2", "10.00"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-3", "10.00"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-4", "10.00"), "fp-1", "411111"))
+                .hasValueSatisfying(rule -> assertThat(rule.getName()).isEqualTo("card-attempts"));
+        // Other cards have their own counters.
+        assertThat(engine.screen(payment("customer-4", "10.00"), "fp-2", "411111")).isEmpty();
+        assertThat(meterRegistry.get("fraud.screening").tag("outcome", "blocked").tag("rule", "card-attempts")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void blocksCustomerOnceAttemptedAmountExceedsMaxAmount() {
+        VelocityEngine engine = engine(rule("customer-amount", Dimension.CUSTOMER, null, "100.00"));
+
+        assertThat(engine.screen(payment("customer-1", "60.00"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-1", "40.00"), "fp-2", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-1", "0.01"), "fp-3", "411111")).isPresent();
+        assertThat(engine.screen(payment("customer-2", "99.00"), "fp-1", "411111")).isEmpty();
+    }
+
+    @Test
+    void ipDimensionUsesRemoteAddressNotForwardedHeader() {
+        VelocityEngine engine = engine(rule("ip-attempts", Dimension.IP, 2L, null));
+
+        assertThat(engine.screen(fromClient("203.0.113.7", "198.51.100.1"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(fromClient("203.0.113.7", "198.51.100.2"), "fp-2", "411111")).isEmpty();
+        assertThat(engine.screen(fromClient("203.0.113.7", "198.51.100.3"), "fp-3", "411111")).isPresent();
+        assertThat(engine.screen(fromClient("203.0.113.8", "198.51.100.1"), "fp-4", "411111")).isEmpty();
+    }
+
+    @Test
+    void ipRulesAreSkippedOutsideRequests() {
+        VelocityEngine engine = engine(rule("ip-attempts", Dimension.IP, 1L, null));
+
+        assertThat(engine.screen(payment("customer-1", "10.00"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-1", "10.00"), "fp-1", "411111")).isEmpty();
+    }
+
+    @Test
+    void disabledEngineNeverBlocks() {
+        properties.setEnabled(false);
+        VelocityEngine engine = engine(rule("card-attempts", Dimension.CARD, 1L, null));
+
+        assertThat(engine.screen(payment("customer-1", "10.00"), "fp-1", "411111")).isEmpty();
+        assertThat(engine.screen(payment("customer-1", "10.00"), "fp-1", "411111")).isEmpty();
+    }
+
+    @Test
+    void purgedKeyCreatedAgainIsNotEvictedByItsStaleQueueEntry() throws InterruptedException {
+        properties.setIdleTimeout(Duration.ZERO);
+        VelocityEngine engine = engine(rule("card-attempts", Dimension.CARD, 1L, null));
+        ReflectionTestUtils.setField(engine, "maxKeys", 3);
+
+        assertThat(engine.screen(payment("customer-1", "10.00"), "fp-1", "411111")).isEmpty();
+        Thread.sleep(5);
+        engine.purgeIdle();
+        assertThat((Collection<?>) ReflectionTestUtils.getField(engine, "insertionOrder")).isEmpty();
+
+        assertThat(engine.screen(payment("customer-2", "10.00"), "fp-2", "422222")).isEmpty();
+        // Re-creates fp-1 as the fourth key; the eldest live key, fp-2, is the one evicted.
+        assertThat(engine.screen(payment("customer-2", "10.00"), "fp-1", "422222")).isEmpty();
+        assertThat(engine.screen(payment("customer-2", "10.00"), "fp-1", "422222")).isPresent();
+        assertThat(engine.screen(payment("customer-2", "10.00"), "fp-2", "422222")).isEmpty();
+    }
+
+    @Test
+    void rejectsRuleWindowLongerThanTheRing() {
+        properties.setBuckets(10);
+        Rule rule = rule("too-long", Dimension.CARD, 1L, null);
+        rule.setWindow(Duration.ofMinutes(11));
+
+        assertThatThrownBy(() -> engine(rule))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("too-long");
+    }
+
+    private VelocityEngine engine(Rule... rules) {
+        properties.setRules(List.of(rules));
+        return new VelocityEngine(properties, meterRegistry);
+    }
+
+    private static Rule rule(String name, Dimension dimension, Long maxCount, String maxAmount) {
+        Rule rule = new Rule();
+        rule.setName(name);
+        rule.setDimension(dimension);
+        rule.setWindow(Duration.ofMinutes(10));
+        rule.setMaxCount(maxCount);
+        rule.setMaxAmount(maxAmount != null ? new BigDecimal(maxAmount) : null);
+        return rule;
+    }
+
+    private static PaymentRequest fromClient(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return payment("customer-1", "10.00");
+    }
+
+    private static PaymentRequest payment(String customerId, String amount) {
+        return PaymentRequest.builder()
+                .orderId("order-1")
+                .customerId(customerId)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.config.GatewayRoutingProperties;
+import com.payment.processing.dto.request.PaymentRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoutingPaymentGatewayTest {
+
+    private final PaymentGateway primary = mock(PaymentGateway.class);
+    private final StubPaymentGateway stub = new StubPaymentGateway(0);
+    private GatewayRoutingProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        when(primary.name()).thenReturn(AuthorizeNetGateway.NAME);
+        properties = new GatewayRoutingProperties();
+        properties.getCircuit().setMinimumCalls(4);
+        properties.getCircuit().setOpenDuration(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void matchingRuleRoutesToItsGateway() {
+        GatewayRoutingProperties.Rule rule = new GatewayRoutingProperties.Rule();
+        rule.setName("eur");
+        rule.setCurrencies(List.of("EUR"));
+        rule.setGateways(List.of(StubPaymentGateway.NAME, AuthorizeNetGateway.NAME));
+        properties.getRules().add(rule);
+        RoutingPaymentGateway router = router();
+
+        GatewayResponse response = router.purchase(request("eur"));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getGateway()).isEqualTo(StubPaymentGateway.NAME);
+        verify(primary, never()).purchase(any());
+    }
+
+    @Test
+    void unmatchedPaymentGoesToPrimary() {
+        when(primary.purchase(any())).thenReturn(GatewayResponse.success("gw-1", "AUTH01"));
+        RoutingPaymentGateway router = router();
+
+        GatewayResponse response = router.purchase(request("USD"));
+
+        assertThat(response.getGateway()).isEqualTo(AuthorizeNetGateway.NAME);
+    }
+
+    @Test
+    void openCircuitFailsOverToNextCandidate() {
+        properties.setDefaultGateways(List.of(AuthorizeNetGateway.NAME, StubPaymentGateway.NAME));
+        when(primary.purchase(any())).thenReturn(GatewayResponse.failure("NULL_RESPONSE", "No response from gateway"));
+        RoutingPaymentGateway router = router();
+
+        // The failing primary keeps its traffic until the circuit opens; its error average is not yet
+        // enough to outweigh the preference penalty against a gateway that has never been called.
+        for (int i = 0; i < properties.getCircuit().getMinimumCalls(); i++) {
+            router.purchase(request("USD"));
+        }
+        assertThat(router.circuitState(AuthorizeNetGateway.NAME)).isEqualTo(GatewayHealth.State.OPEN);
+
+        GatewayResponse response = router.purchase(request("USD"));
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getGateway()).isEqualTo(StubPaymentGateway.NAME);
+    }
+
+    @Test
+    void declinesDoNotOpenTheCircuit() {
+        when(primary.purchase(any())).thenReturn(GatewayResponse.failure("2", "This transaction has been declined"));
+        RoutingPaymentGateway router = router();
+
+        for (int i = 0; i < properties.getCircuit().getMinimumCalls() * 2; i++) {
+            router.purchase(request("USD"));
+        }
+
+        assertThat(router.circuitState(AuthorizeNetGateway.NAME)).isEqualTo(GatewayHealth.State.CLOSED);
+    }
+
+    @Test
+    void noAvailableGatewayIsReportedAsUnavailable() {
+        when(primary.purchase(any())).thenThrow(new IllegalStateException("connection reset"));
+        RoutingPaymentGateway router = router();
+
+        for (int i = 0; i < properties.getCircuit().getMinimumCalls(); i++) {
+            try {
+                router.purchase(request("USD"));
+            } catch (IllegalStateException expected) {
+                // counted as a failure
+            }
+        }
+
+        GatewayResponse response = router.purchase(request("USD"));
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorCode()).isEqualTo(GatewayResponse.UNAVAILABLE);
+    }
+
+    @Test
+    void followUpOperationsGoToTheProcessingGateway() {
+        RoutingPaymentGateway router = router();
+
+        GatewayResponse response = router.processorOf(StubPaymentGateway.NAME).refund("stub-1", BigDecimal.TEN, "1111");
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getGateway()).isEqualTo(StubPaymentGateway.NAME);
+        verify(primary, never()).refund(anyString(), any(), anyString());
+    }
+
+    private RoutingPaymentGateway router() {
+        return new RoutingPaymentGateway(List.of(primary, stub), properties, new SimpleMeterRegistry());
+    }
+
+    private static PaymentRequest request(String currency) {
+        return PaymentRequest.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .amount(new BigDecimal("25.00"))
+                .currency(currency)
+                .cardNumber("4111111111111111")
+                .expMonth("12")
+                .expYear("2030")
+                .cvv("123")
+                .build();
+    }
+}
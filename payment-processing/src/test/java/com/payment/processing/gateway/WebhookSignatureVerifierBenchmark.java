@@ -0,0 +1,84 @@
+package com.payment.processing.gateway;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Webhook signature check per request: the previous per-call {@code Mac.getInstance} over a re-encoded
+ * String with a Base64 string compare, against {@link WebhookSignatureVerifier}.
+ * <p>
+ * Not part of the test run. Run with the GC profiler for allocations per operation:
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>} (see README).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebhookSignatureVerifierBenchmark {
+
+    private static final String KEY = "0123456789ABCDEF";
+
+    @Param({"512", "8192"})
+    private int bodySize;
+
+    private byte[] body;
+    private String bodyString;
+    private String base64Signature;
+    private String hexSignature;
+    private WebhookSignatureVerifier verifier;
+
+    @Setup
+    public void setUp() {
+        char[] chars = new char[bodySize];
+        Arrays.fill(chars, 'x');
+        bodyString = new String(chars);
+        body = bodyString.getBytes(StandardCharsets.UTF_8);
+        byte[] digest = WebhookSignatureVerifierTest.digest(body);
+        base64Signature = Base64.getEncoder().encodeToString(digest);
+        hexSignature = "sha512=" + HexFormat.of().withUpperCase().formatHex(digest);
+        verifier = WebhookSignatureVerifierTest.verifier(KEY);
+    }
+
+    @Benchmark
+    public boolean perCallMac() throws Exception {
+        Mac hmac = Mac.getInstance("HmacSHA512");
+        hmac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+        byte[] hash = hmac.doFinal(bodyString.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash).equals(base64Signature);
+    }
+
+    @Benchmark
+    public boolean perThreadMac() {
+        return verifier.verify(body, hexSignature);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WebhookSignatureVerifierBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.payment.processing.gateway;
+
+import com.payment.processing.config.AuthorizeNetProperties;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookSignatureVerifierTest {
+
+    private static final String KEY = "0123456789ABCDEF";
+    private static final byte[] BODY = "{\"eventType\":\"net.authorize.payment.authcapture.created\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final WebhookSignatureVerifier verifier = verifier(KEY);
+
+    @Test
+    void acceptsPrefixedHexInEitherCase() {
+        String hex = HexFormat.of().formatHex(digest(BODY));
+
+        assertThat(verifier.verify(BODY, "sha512=" + hex.toUpperCase())).isTrue();
+        assertThat(verifier.verify(BODY, "SHA512=" + hex)).isTrue();
+    }
+
+    @Test
+    void acceptsBareHexAndBase64() {
+        assertThat(verifier.verify(BODY, HexFormat.of().formatHex(digest(BODY)))).isTrue();
+        assertThat(verifier.verify(BODY, Base64.getEncoder().encodeToString(digest(BODY)))).isTrue();
+        assertThat(verifier.verify(BODY, "sha512=" + Base64.getEncoder().encodeToString(digest(BODY)))).isTrue();
+    }
+
+    @Test
+    void rejectsWrongLengthAndMalformedSignatures() {
+        String hex = HexFormat.of().formatHex(digest(BODY));
+
+        assertThat(verifier.verify(BODY, "sha512=" + hex.substring(2))).isFalse();
+        assertThat(verifier.verify(BODY, "sha512=" + hex + "00")).isFalse();
+        assertThat(verifier.verify(BODY, "sha512=" + "zz" + hex.substring(2))).isFalse();
+        assertThat(verifier.verify(BODY, Base64.getEncoder().encodeToString(new byte[32]))).isFalse();
+        assertThat(verifier.verify(BODY, "sha512=")).isFalse();
+        assertThat(verifier.verify(BODY, "")).isFalse();
+        assertThat(verifier.verify(BODY, null)).isFalse();
+        assertThat(verifier.verify(null, "sha512=" + hex)).isFalse();
+    }
+
+    @Test
+    void rejectsDigestDifferingInAnyByte() {
+        byte[] digest = digest(BODY);
+        for (int i : new int[]{0, digest.length / 2, digest.length - 1}) {
+            byte[] tampered = digest.clone();
+            tampered[i] ^= 1;
+            assertThat(verifier.verify(BODY, "sha512=" + HexFormat.of().formatHex(tampered))).isFalse();
+        }
+        assertThat(verifier.verify("{}".getBytes(StandardCharsets.UTF_8), "sha512=" + HexFormat.of().formatHex(digest)))
+                .isFalse();
+    }
+
+    @Test
+    void reusedMacDoesNotCarryStateBetweenCalls() {
+        String hex = "sha512=" + HexFormat.of().formatHex(digest(BODY));
+
+        assertThat(verifier.verify(BODY, "sha512=00")).isFalse();
+        assertThat(verifier.verify(BODY, hex)).isTrue();
+        assertThat(verifier.verify(BODY, hex)).isTrue();
+    }
+
+    @Test
+    void acceptsAnythingWithoutAKey() {
+        assertThat(verifier(null).verify(BODY, "whatever")).isTrue();
+        assertThat(verifier("").verify(BODY, null)).isTrue();
+    }
+
+    static WebhookSignatureVerifier verifier(String key) {
+        AuthorizeNetProperties properties = new AuthorizeNetProperties();
+        properties.setSignatureKey(key);
+        return new WebhookSignatureVerifier(properties);
+    }
+
+    static byte[] digest(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+            return mac.doFinal(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
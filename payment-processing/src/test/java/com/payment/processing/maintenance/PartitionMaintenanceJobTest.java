@@ -0,0 +1,98 @@
+package com.payment.processing.maintenance;
+
+import com.payment.processing.config.PartitioningProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionMaintenanceJobTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2026, 10);
+    private static final String CREATE = "SELECT create_monthly_partition(?, ?)";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PartitioningProperties properties = new PartitioningProperties();
+    private PartitionMaintenanceJob job;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMonthsAhead(2);
+        properties.setRetentionMonths(new LinkedHashMap<>(Map.of("webhook_events", 12)));
+        when(jdbcTemplate.queryForObject(contains("count(*)"), eq(Long.class))).thenReturn(0L);
+        job = new PartitionMaintenanceJob(jdbcTemplate, properties, meterRegistry);
+    }
+
+    @Test
+    void createsCurrentAndFutureMonths() {
+        job.maintainPartitions(CURRENT);
+
+        verify(jdbcTemplate).queryForObject(CREATE, String.class, "webhook_events", LocalDate.of(2026, 10, 1));
+        verify(jdbcTemplate).queryForObject(CREATE, String.class, "webhook_events", LocalDate.of(2026, 11, 1));
+        verify(jdbcTemplate).queryForObject(CREATE, String.class, "webhook_events", LocalDate.of(2026, 12, 1));
+        verify(jdbcTemplate, never()).queryForObject(CREATE, String.class, "webhook_events", LocalDate.of(2027, 1, 1));
+        assertThat(defaultRowsGauge()).isZero();
+    }
+
+    @Test
+    void movesRowsOutOfDefaultPartitionAndReportsThem() {
+        when(jdbcTemplate.queryForObject("SELECT count(*) FROM webhook_events_default", Long.class))
+                .thenReturn(7L, 0L);
+        when(jdbcTemplate.queryForList(contains("FROM webhook_events_default"), eq(LocalDate.class)))
+                .thenReturn(List.of(LocalDate.of(2027, 6, 1)));
+
+        job.maintainPartitions(CURRENT);
+
+        verify(jdbcTemplate).queryForObject(CREATE, String.class, "webhook_events", LocalDate.of(2027, 6, 1));
+        assertThat(meterRegistry.get("partitions.default.rows.moved").tag("table", "webhook_events").counter().count())
+                .isEqualTo(7);
+        assertThat(defaultRowsGauge()).isZero();
+    }
+
+    @Test
+    void gaugeKeepsRowsThatCouldNotBeMoved() {
+        when(jdbcTemplate.queryForObject("SELECT count(*) FROM webhook_events_default", Long.class))
+                .thenReturn(3L);
+        when(jdbcTemplate.queryForList(contains("FROM webhook_events_default"), eq(LocalDate.class)))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        job.maintainPartitions(CURRENT);
+
+        assertThat(defaultRowsGauge()).isEqualTo(3);
+    }
+
+    @Test
+    void detachesOnlyMonthlyPartitionsPastRetention() {
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), eq("webhook_events")))
+                .thenReturn(List.of("webhook_events_default", "webhook_events_p202509",
+                        "webhook_events_p202510", "webhook_events_p202610"));
+
+        job.maintainPartitions(CURRENT);
+
+        verify(jdbcTemplate).execute("ALTER TABLE webhook_events DETACH PARTITION webhook_events_p202509");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE webhook_events DETACH PARTITION webhook_events_p202510");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE webhook_events DETACH PARTITION webhook_events_default");
+        verify(jdbcTemplate).update(contains("DELETE FROM webhook_event_keys"), any(), any());
+        verify(jdbcTemplate, never()).execute("DROP TABLE webhook_events_p202509");
+    }
+
+    private double defaultRowsGauge() {
+        return meterRegistry.get("partitions.default.rows").tag("table", "webhook_events").gauge().value();
+    }
+}
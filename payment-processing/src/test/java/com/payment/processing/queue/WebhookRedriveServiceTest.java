@@ -0,0 +1,156 @@
+package com.payment.processing.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.enums.WebhookEventType;
+import com.payment.processing.repository.WebhookEventRepository;
+import com.payment.processing.webhook.WebhookEnvelope;
+import com.payment.processing.webhook.WebhookEnvelopeParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+
+/**
+ * Replays run on the calling thread and commit, so the conditional release is exercised for real.
+ */
+@DataJpaTest
+@Import({JpaAuditingConfig.class, WebhookRedriveService.class, WebhookEnvelopeParser.class,
+        WebhookRedriveServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WebhookRedriveServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean(name = "asyncExecutor")
+        Executor asyncExecutor() {
+            return Runnable::run;
+        }
+    }
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private WebhookRedriveService redriveService;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    private final List<UUID> published = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        webhookEventRepository.deleteAll();
+    }
+
+    @Test
+    void publishFailureMidBatchLeavesUnpublishedEventsQuarantined() {
+        List<UUID> ids = quarantine(3);
+        doAnswer(invocation -> {
+            WebhookEnvelope envelope = invocation.getArgument(2);
+            if (envelope.webhookEventId().equals(ids.get(1))) {
+                throw new AmqpException("broker unavailable");
+            }
+            published.add(envelope.webhookEventId());
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        redriveService.replayQuarantined(10, 1000);
+
+        assertThat(published).containsExactly(ids.get(0));
+        WebhookEvent first = webhookEventRepository.findById(ids.get(0)).orElseThrow();
+        assertThat(first.getQuarantined()).isFalse();
+        assertThat(first.getProcessingAttempts()).isZero();
+        WebhookEvent failed = webhookEventRepository.findById(ids.get(1)).orElseThrow();
+        assertThat(failed.getQuarantined()).isTrue();
+        assertThat(failed.getProcessingAttempts()).isEqualTo(5);
+        assertThat(webhookEventRepository.findById(ids.get(2)).orElseThrow().getQuarantined()).isTrue();
+        assertThat(redriveService.countQuarantined()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentReplaysPublishEachEventOnce() {
+        List<UUID> ids = quarantine(3);
+        // The first publish starts a second replay while the first still holds its page of events.
+        doAnswer(invocation -> {
+            WebhookEnvelope envelope = invocation.getArgument(2);
+            published.add(envelope.webhookEventId());
+            if (published.size() == 1) {
+                redriveService.replayQuarantined(10, 1000);
+            }
+            return null;
+        }).when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        redriveService.replayQuarantined(10, 1000);
+
+        assertThat(published).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(redriveService.countQuarantined()).isZero();
+    }
+
+    @Test
+    void unparseableEventStaysQuarantinedAndOthersReplay() {
+        List<UUID> ids = quarantine(2);
+        WebhookEvent broken = webhookEventRepository.findById(ids.get(0)).orElseThrow();
+        broken.setPayload("not json");
+        webhookEventRepository.save(broken);
+        doNothing().when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class));
+
+        redriveService.replayQuarantined(10, 1000);
+
+        assertThat(webhookEventRepository.findById(ids.get(0)).orElseThrow().getQuarantined()).isTrue();
+        assertThat(webhookEventRepository.findById(ids.get(1)).orElseThrow().getQuarantined()).isFalse();
+    }
+
+    /**
+     * @return the ids in the order a replay visits them
+     */
+    private List<UUID> quarantine(int count) {
+        for (int i = 0; i < count; i++) {
+            WebhookEvent event = WebhookEvent.builder()
+                    .eventId("n-" + i)
+                    .eventType(WebhookEventType.PAYMENT_CREATED)
+                    .payload("{\"notificationId\":\"n-" + i + "\",\"payload\":{\"id\":\"6000" + i + "\"}}")
+                    .processingAttempts(5)
+                    .build();
+            event.quarantine();
+            webhookEventRepository.save(event);
+        }
+        return webhookEventRepository.findQuarantinedAfter(new UUID(0, 0), PageRequest.of(0, count)).stream()
+                .map(WebhookEvent::getId)
+                .toList();
+    }
+}
@@ -0,0 +1,190 @@
+package com.payment.processing.reconciliation;
+
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.ReconciliationMismatch;
+import com.payment.processing.domain.entity.ReconciliationRun;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.MismatchType;
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.repository.ReconciliationMismatchRepository;
+import com.payment.processing.repository.ReconciliationRunRepository;
+import com.payment.processing.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Runs the sorted merge against committed rows and a stub report. Rows are created now, so the
+ * reconciled day is today; a page size of 2 makes both sides span several pages.
+ */
+@DataJpaTest
+@Import(JpaAuditingConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReconciliationServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+    private static final Instant DAY_START = TODAY.atStartOfDay().toInstant(ZoneOffset.UTC);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ReconciliationRunRepository runRepository;
+
+    @Autowired
+    private ReconciliationMismatchRepository mismatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    private Path report;
+    private ReconciliationService service;
+
+    @BeforeEach
+    void setUp() {
+        report = dir.resolve("settlements.csv");
+        service = new ReconciliationService(new StubSettlementReportSource(report), transactionRepository,
+                runRepository, mismatchRepository, Runnable::run, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "lookbackDays", 30);
+        ReflectionTestUtils.setField(service, "settlementGraceHours", 6);
+        ReflectionTestUtils.setField(service, "writeChunkSize", 500);
+        ReflectionTestUtils.setField(service, "primaryGateway", "authorize_net");
+    }
+
+    @AfterEach
+    void tearDown() {
+        mismatchRepository.deleteAll();
+        runRepository.deleteAll();
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    void mergesBatchesAndLocalRowsInGatewayIdOrder() throws IOException {
+        save("999", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "7.00", DAY_START.plusSeconds(60));
+        save("1001", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "10.00", DAY_START.plusSeconds(60));
+        save("1002", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "20.00", DAY_START.plusSeconds(60));
+        save("1003", TransactionType.PURCHASE, TransactionStatus.VOIDED, "5.00", null);
+        save("1004", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "40.00", DAY_START.plusSeconds(3600));
+        save("1010", TransactionType.REFUND, TransactionStatus.REFUNDED, "3.00", null);
+        // Settled two days ago: read by the lookback but not expected in today's report.
+        save("1005", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "50.00", DAY_START.minus(Duration.ofDays(2)));
+        Files.writeString(report, String.join("\n",
+                "b1,1001,settledSuccessfully,10.00",
+                "b2,999,settledSuccessfully,7.00",
+                "b1,1003,settledSuccessfully,5.00",
+                "b2,1002,settledSuccessfully,25.00",
+                "b1,1010,refundSettledSuccessfully,3.00",
+                "b2,1006,settledSuccessfully,60.00"));
+
+        ReconciliationRun run = service.reconcile(TODAY);
+
+        assertThat(run.getStatus()).isEqualTo(ReconciliationRunStatus.COMPLETED);
+        assertThat(run.getGatewayCount()).isEqualTo(6);
+        assertThat(run.getLocalCount()).isEqualTo(6);
+        assertThat(run.getMatchedCount()).isEqualTo(3);
+        assertThat(run.getMismatchCount()).isEqualTo(4);
+        assertThat(mismatches(run))
+                .extracting(ReconciliationMismatch::getGatewayTransactionId, ReconciliationMismatch::getType)
+                .containsExactlyInAnyOrder(
+                        tuple("1002", MismatchType.AMOUNT_MISMATCH),
+                        tuple("1003", MismatchType.STATUS_DRIFT),
+                        tuple("1004", MismatchType.MISSING_AT_GATEWAY),
+                        tuple("1006", MismatchType.MISSING_LOCALLY));
+    }
+
+    @Test
+    void amountMismatchKeepsBothAmounts() throws IOException {
+        save("2001", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "20.00", DAY_START.plusSeconds(60));
+        Files.writeString(report, "b1,2001,settledSuccessfully,25.00");
+
+        ReconciliationRun run = service.reconcile(TODAY);
+
+        assertThat(mismatches(run)).singleElement().satisfies(mismatch -> {
+            assertThat(mismatch.getType()).isEqualTo(MismatchType.AMOUNT_MISMATCH);
+            assertThat(mismatch.getLocalAmount()).isEqualByComparingTo("20.00");
+            assertThat(mismatch.getGatewayAmount()).isEqualByComparingTo("25.00");
+            assertThat(mismatch.getBatchId()).isEqualTo("b1");
+        });
+    }
+
+    @Test
+    void captureInsideGracePeriodIsNotYetMissing() throws IOException {
+        save("3001", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "20.00",
+                DAY_START.plus(Duration.ofHours(23)));
+        Files.writeString(report, "");
+
+        ReconciliationRun run = service.reconcile(TODAY);
+
+        assertThat(run.getLocalCount()).isEqualTo(1);
+        assertThat(run.getMismatchCount()).isZero();
+    }
+
+    @Test
+    void paymentsRoutedToOtherGatewaysAreNotReconciled() throws IOException {
+        save("4001", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "10.00", DAY_START.plusSeconds(60));
+        Transaction primary = save("4002", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "20.00",
+                DAY_START.plusSeconds(60));
+        primary.setGateway("authorize_net");
+        transactionRepository.save(primary);
+        // Settles in another gateway's report.
+        Transaction routed = save("4003", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "30.00",
+                DAY_START.plusSeconds(60));
+        routed.setGateway("stub");
+        transactionRepository.save(routed);
+        Files.writeString(report, "b1,4001,settledSuccessfully,10.00\nb1,4002,settledSuccessfully,20.00");
+
+        ReconciliationRun run = service.reconcile(TODAY);
+
+        assertThat(run.getLocalCount()).isEqualTo(2);
+        assertThat(run.getMatchedCount()).isEqualTo(2);
+        assertThat(run.getMismatchCount()).isZero();
+    }
+
+    private List<ReconciliationMismatch> mismatches(ReconciliationRun run) {
+        return service.getMismatches(run.getId(), Pageable.unpaged()).getContent();
+    }
+
+    private Transaction save(String gatewayTransactionId, TransactionType type, TransactionStatus status,
+                             String amount, Instant capturedAt) {
+        return transactionRepository.save(Transaction.builder()
+                .orderId("order-" + gatewayTransactionId)
+                .customerId("customer-1")
+                .type(type)
+                .status(status)
+                .amount(new BigDecimal(amount))
+                .capturedAmount(capturedAt != null ? new BigDecimal(amount) : null)
+                .capturedAt(capturedAt)
+                .currency("USD")
+                .gatewayTransactionId(gatewayTransactionId)
+                .build());
+    }
+}
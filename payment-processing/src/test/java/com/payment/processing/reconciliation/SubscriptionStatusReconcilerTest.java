@@ -0,0 +1,138 @@
+package com.payment.processing.reconciliation;
+
+import com.payment.processing.domain.entity.SubscriptionSyncSweep;
+import com.payment.processing.domain.enums.ReconciliationRunStatus;
+import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.SubscriptionRepository;
+import com.payment.processing.repository.SubscriptionSyncSweepRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionStatusReconcilerTest {
+
+    private final SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+    private final SubscriptionSyncSweepRepository sweepRepository = mock(SubscriptionSyncSweepRepository.class);
+    private final PaymentGateway paymentGateway = mock(PaymentGateway.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private SubscriptionStatusReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        reconciler = new SubscriptionStatusReconciler(subscriptionRepository, sweepRepository, paymentGateway,
+                transactionManager, 1, 100, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reconciler, "enabled", true);
+        ReflectionTestUtils.setField(reconciler, "pageSize", 10);
+        ReflectionTestUtils.setField(reconciler, "sweepIntervalHours", 24L);
+        ReflectionTestUtils.setField(reconciler, "leaseMinutes", 10L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciler.shutdown();
+    }
+
+    @Test
+    void nodeLosingTheStartRaceResumesTheWinnersSweep() {
+        SubscriptionSyncSweep winner = sweep(ReconciliationRunStatus.RUNNING);
+        when(sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.RUNNING))
+                .thenReturn(Optional.empty(), Optional.of(winner));
+        when(sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.COMPLETED))
+                .thenReturn(Optional.empty());
+        when(sweepRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("uq_subscription_sync_running"));
+
+        reconciler.sweep();
+
+        verify(sweepRepository).acquireLease(eq(winner.getId()), isNull(), any(), any());
+    }
+
+    @Test
+    void runningSweepIsResumedWithoutStartingAnother() {
+        SubscriptionSyncSweep running = sweep(ReconciliationRunStatus.RUNNING);
+        when(sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.RUNNING))
+                .thenReturn(Optional.of(running));
+
+        reconciler.sweep();
+
+        verify(sweepRepository, never()).saveAndFlush(any());
+        verify(sweepRepository).acquireLease(eq(running.getId()), isNull(), any(), any());
+    }
+
+    @Test
+    void noSweepStartsWithinTheIntervalOfTheLastOne() {
+        SubscriptionSyncSweep last = sweep(ReconciliationRunStatus.COMPLETED);
+        last.setCompletedAt(Instant.now().minus(Duration.ofHours(1)));
+        when(sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.RUNNING))
+                .thenReturn(Optional.empty());
+        when(sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.COMPLETED))
+                .thenReturn(Optional.of(last));
+
+        reconciler.sweep();
+
+        verify(sweepRepository, never()).saveAndFlush(any());
+        verify(sweepRepository, never()).acquireLease(any(), any(), any(), any());
+    }
+
+    @Test
+    void sweepAppliesGatewayStatusesAndCompletes() {
+        SubscriptionSyncSweep sweep = sweep(ReconciliationRunStatus.RUNNING);
+        SubscriptionStatusRow canceled = new SubscriptionStatusRow(UUID.randomUUID(), "arb-1", SubscriptionStatus.ACTIVE);
+        SubscriptionStatusRow unchanged = new SubscriptionStatusRow(UUID.randomUUID(), "arb-2", SubscriptionStatus.TRIAL);
+        when(sweepRepository.findFirstByStatusOrderByCreatedAtDesc(ReconciliationRunStatus.RUNNING))
+                .thenReturn(Optional.of(sweep));
+        when(sweepRepository.findById(sweep.getId())).thenReturn(Optional.of(sweep));
+        when(sweepRepository.acquireLease(any(), any(), any(), any())).thenReturn(1);
+        when(subscriptionRepository.findStatusSweepPage(any(), any(), any()))
+                .thenReturn(List.of(canceled, unchanged), List.of());
+        when(paymentGateway.getSubscriptionStatus("arb-1")).thenReturn(arbStatus("canceled"));
+        when(paymentGateway.getSubscriptionStatus("arb-2")).thenReturn(arbStatus("active"));
+        when(subscriptionRepository.endSubscriptions(any(), any(), any(), any(), any())).thenReturn(1);
+
+        reconciler.sweep();
+
+        verify(subscriptionRepository).endSubscriptions(eq(List.of(canceled.id())), eq(SubscriptionStatus.ACTIVE),
+                eq(SubscriptionStatus.CANCELED), any(), eq(LocalDate.now(ZoneOffset.UTC)));
+        verify(subscriptionRepository, never()).transitionStatus(any(), any(), any(), any());
+        verify(subscriptionRepository, never()).endSubscriptions(any(), eq(SubscriptionStatus.TRIAL), any(), any(), any());
+        assertThat(sweep.getStatus()).isEqualTo(ReconciliationRunStatus.COMPLETED);
+        assertThat(sweep.getCheckpointSubscriptionId()).isEqualTo(unchanged.id());
+        assertThat(sweep.getScannedCount()).isEqualTo(2);
+        assertThat(sweep.getChangedCount()).isEqualTo(1);
+    }
+
+    private static SubscriptionSyncSweep sweep(ReconciliationRunStatus status) {
+        SubscriptionSyncSweep sweep = SubscriptionSyncSweep.builder().status(status).build();
+        sweep.setId(UUID.randomUUID());
+        return sweep;
+    }
+
+    private static GatewayResponse arbStatus(String status) {
+        return GatewayResponse.builder().success(true).responseMessage(status).build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.payment.processing.repository;
+
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.Subscription;
+import com.payment.processing.domain.enums.BillingInterval;
+import com.payment.processing.domain.enums.SubscriptionStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(JpaAuditingConfig.class)
+class SubscriptionRepositoryTest {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void endingSubscriptionsStopsBillingAndKeepsAnExistingEndDate() {
+        Subscription open = subscriptionRepository.save(subscription(null));
+        Subscription ending = subscriptionRepository.save(subscription(TODAY.plusDays(3)));
+        Subscription suspended = subscription(null);
+        suspended.setStatus(SubscriptionStatus.SUSPENDED);
+        subscriptionRepository.save(suspended);
+        entityManager.flush();
+
+        int changed = subscriptionRepository.endSubscriptions(List.of(open.getId(), ending.getId(), suspended.getId()),
+                SubscriptionStatus.ACTIVE, SubscriptionStatus.CANCELED, Instant.now(), TODAY);
+        entityManager.clear();
+
+        assertThat(changed).isEqualTo(2);
+        Subscription canceled = subscriptionRepository.findById(open.getId()).orElseThrow();
+        assertThat(canceled.getStatus()).isEqualTo(SubscriptionStatus.CANCELED);
+        assertThat(canceled.getNextBillingDate()).isNull();
+        assertThat(canceled.getEndDate()).isEqualTo(TODAY);
+        assertThat(subscriptionRepository.findById(ending.getId()).orElseThrow().getEndDate())
+                .isEqualTo(TODAY.plusDays(3));
+        Subscription untouched = subscriptionRepository.findById(suspended.getId()).orElseThrow();
+        assertThat(untouched.getStatus()).isEqualTo(SubscriptionStatus.SUSPENDED);
+        assertThat(untouched.getNextBillingDate()).isEqualTo(TODAY);
+    }
+
+    @Test
+    void nonTerminalTransitionKeepsTheBillingSchedule() {
+        Subscription subscription = subscriptionRepository.save(subscription(null));
+        entityManager.flush();
+
+        subscriptionRepository.transitionStatus(List.of(subscription.getId()), SubscriptionStatus.ACTIVE,
+                SubscriptionStatus.SUSPENDED, Instant.now());
+        entityManager.clear();
+
+        Subscription suspended = subscriptionRepository.findById(subscription.getId()).orElseThrow();
+        assertThat(suspended.getStatus()).isEqualTo(SubscriptionStatus.SUSPENDED);
+        assertThat(suspended.getNextBillingDate()).isEqualTo(TODAY);
+        assertThat(suspended.getEndDate()).isNull();
+    }
+
+    private static Subscription subscription(LocalDate endDate) {
+        return Subscription.builder()
+                .name("Monthly plan")
+                .customerId("customer-1")
+                .status(SubscriptionStatus.ACTIVE)
+                .amount(new BigDecimal("19.99"))
+                .billingInterval(BillingInterval.MONTHLY)
+                .startDate(TODAY)
+                .nextBillingDate(TODAY)
+                .endDate(endDate)
+                .gatewaySubscriptionId("arb-" + System.nanoTime())
+                .build();
+    }
+}
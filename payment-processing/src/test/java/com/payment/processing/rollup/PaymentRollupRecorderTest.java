@@ -0,0 +1,112 @@
+package com.payment.processing.rollup;
+
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.PaymentRollupDaily;
+import com.payment.processing.domain.entity.PaymentRollupHourly;
+import com.payment.processing.domain.entity.PaymentRollupKey;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.repository.PaymentRollupDailyRepository;
+import com.payment.processing.repository.PaymentRollupHourlyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the flush upsert against H2; test methods are not transactional so records apply immediately
+ * and each flush commits.
+ */
+@DataJpaTest
+@Import({JpaAuditingConfig.class, PaymentRollupRecorder.class, PaymentRollupRecorderTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentRollupRecorderTest {
+
+    private static final Instant HOUR = Instant.parse("2024-03-05T10:00:00Z");
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private PaymentRollupRecorder recorder;
+
+    @Autowired
+    private PaymentRollupHourlyRepository hourlyRepository;
+
+    @Autowired
+    private PaymentRollupDailyRepository dailyRepository;
+
+    @AfterEach
+    void tearDown() {
+        hourlyRepository.deleteAll();
+        dailyRepository.deleteAll();
+    }
+
+    @Test
+    void flushAddsToHourlyAndDailyBuckets() {
+        recorder.record(transaction(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "25.00", HOUR.plusSeconds(60)));
+        recorder.record(transaction(TransactionType.AUTHORIZE, TransactionStatus.DECLINED, "10.00", HOUR.plusSeconds(120)));
+        recorder.flush();
+        recorder.record(transaction(TransactionType.REFUND, TransactionStatus.REFUNDED, "5.00", HOUR.plusSeconds(1800)));
+        recorder.record(transaction(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "40.00", HOUR.plus(Duration.ofHours(1))));
+        recorder.flush();
+
+        PaymentRollupHourly hour = hourlyRepository.findById(new PaymentRollupKey(HOUR, "USD", "VISA")).orElseThrow();
+        assertThat(hour.getPaymentCount()).isEqualTo(2);
+        assertThat(hour.getApprovedCount()).isEqualTo(1);
+        assertThat(hour.getApprovedAmount()).isEqualByComparingTo("25.00");
+        assertThat(hour.getRefundCount()).isEqualTo(1);
+        assertThat(hour.getRefundedAmount()).isEqualByComparingTo("5.00");
+
+        PaymentRollupDaily day = dailyRepository.findById(
+                new PaymentRollupKey(HOUR.truncatedTo(ChronoUnit.DAYS), "USD", "VISA")).orElseThrow();
+        assertThat(day.getPaymentCount()).isEqualTo(3);
+        assertThat(day.getApprovedCount()).isEqualTo(2);
+        assertThat(day.getApprovedAmount()).isEqualByComparingTo("65.00");
+        assertThat(day.getRefundedAmount()).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    void failedRefundsAndCapturesAreNotCounted() {
+        recorder.record(transaction(TransactionType.REFUND, TransactionStatus.FAILED, "5.00", HOUR));
+        recorder.record(transaction(TransactionType.CAPTURE, TransactionStatus.CAPTURED, "5.00", HOUR));
+        recorder.flush();
+
+        assertThat(hourlyRepository.count()).isZero();
+    }
+
+    private static Transaction transaction(TransactionType type, TransactionStatus status, String amount, Instant createdAt) {
+        Transaction transaction = Transaction.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .type(type)
+                .status(status)
+                .amount(new BigDecimal(amount))
+                .currency("USD")
+                .cardBrand("VISA")
+                .authorizedAt(status == TransactionStatus.CAPTURED ? createdAt : null)
+                .build();
+        transaction.setCreatedAt(createdAt);
+        return transaction;
+    }
+}
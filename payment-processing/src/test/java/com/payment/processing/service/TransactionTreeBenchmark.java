@@ -0,0 +1,193 @@
+package com.payment.processing.service;
+
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.dto.response.TransactionTreeResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading the payment trees of {@code orders} orders with {@code refundsPerOrder} partial refunds each:
+ * every row in one statement and assembled with {@link TransactionTreeService#assemble}, against the
+ * payments first and then the refunds of each payment, one statement per payment.
+ * <p>
+ * Runs against in-memory H2 in PostgreSQL mode by default; pass {@code -Dbenchmark.jdbc.url},
+ * {@code -Dbenchmark.jdbc.user} and {@code -Dbenchmark.jdbc.password} to measure the docker-compose
+ * PostgreSQL instead. Not part of the test run (see README); {@code TransactionTreeServiceTest} checks
+ * the statement counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionTreeBenchmark {
+
+    private static final String COLUMNS = "id, order_id, parent_transaction_id, type, status, amount, created_at";
+
+    @Param({"50"})
+    private int orders;
+
+    @Param({"1", "20"})
+    private int refundsPerOrder;
+
+    private Connection connection;
+    private List<String> orderIds;
+    private PreparedStatement byOrderIds;
+    private PreparedStatement paymentsByOrderIds;
+    private PreparedStatement byParentId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:tree_bench;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""));
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS tree_bench");
+            statement.execute("CREATE TABLE tree_bench (id UUID PRIMARY KEY, order_id VARCHAR(100) NOT NULL, "
+                    + "parent_transaction_id UUID, type VARCHAR(20) NOT NULL, status VARCHAR(30) NOT NULL, "
+                    + "amount DECIMAL(19, 4) NOT NULL, created_at TIMESTAMP WITH TIME ZONE NOT NULL)");
+            statement.execute("CREATE INDEX idx_tree_bench_order_id ON tree_bench (order_id)");
+            statement.execute("CREATE INDEX idx_tree_bench_parent_id ON tree_bench (parent_transaction_id)");
+        }
+        seed();
+        connection.commit();
+
+        String placeholders = String.join(", ", Collections.nCopies(orders, "?"));
+        byOrderIds = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM tree_bench WHERE order_id IN (" + placeholders + ")");
+        paymentsByOrderIds = connection.prepareStatement("SELECT " + COLUMNS + " FROM tree_bench WHERE order_id IN ("
+                + placeholders + ") AND parent_transaction_id IS NULL");
+        byParentId = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM tree_bench WHERE parent_transaction_id = ?");
+    }
+
+    @Benchmark
+    public List<TransactionTreeResponse> oneStatement() throws SQLException {
+        bindOrderIds(byOrderIds);
+        return TransactionTreeService.assemble(read(byOrderIds));
+    }
+
+    @Benchmark
+    public List<TransactionTreeResponse> parentByParent() throws SQLException {
+        bindOrderIds(paymentsByOrderIds);
+        List<Transaction> transactions = read(paymentsByOrderIds);
+        for (Transaction payment : List.copyOf(transactions)) {
+            byParentId.setObject(1, payment.getId());
+            transactions.addAll(read(byParentId));
+        }
+        return TransactionTreeService.assemble(transactions);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE tree_bench");
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    private void seed() throws SQLException {
+        orderIds = new ArrayList<>();
+        Instant createdAt = Instant.now();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO tree_bench (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < orders; i++) {
+                String orderId = "order-" + i;
+                orderIds.add(orderId);
+                UUID paymentId = UUID.randomUUID();
+                add(insert, paymentId, orderId, null, TransactionType.PURCHASE, TransactionStatus.PARTIALLY_REFUNDED,
+                        "100.00", createdAt);
+                for (int r = 0; r < refundsPerOrder; r++) {
+                    add(insert, UUID.randomUUID(), orderId, paymentId, TransactionType.REFUND, TransactionStatus.REFUNDED,
+                            "1.00", createdAt.plusMillis(r + 1));
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void add(PreparedStatement insert, UUID id, String orderId, UUID parentId, TransactionType type,
+                            TransactionStatus status, String amount, Instant createdAt) throws SQLException {
+        insert.setObject(1, id);
+        insert.setString(2, orderId);
+        insert.setObject(3, parentId);
+        insert.setString(4, type.name());
+        insert.setString(5, status.name());
+        insert.setBigDecimal(6, new BigDecimal(amount));
+        insert.setTimestamp(7, Timestamp.from(createdAt));
+        insert.addBatch();
+    }
+
+    private void bindOrderIds(PreparedStatement statement) throws SQLException {
+        for (int i = 0; i < orderIds.size(); i++) {
+            statement.setString(i + 1, orderIds.get(i));
+        }
+    }
+
+    private static List<Transaction> read(PreparedStatement statement) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                Transaction transaction = Transaction.builder()
+                        .orderId(rows.getString("order_id"))
+                        .parentTransactionId(rows.getObject("parent_transaction_id", UUID.class))
+                        .type(TransactionType.valueOf(rows.getString("type")))
+                        .status(TransactionStatus.valueOf(rows.getString("status")))
+                        .amount(rows.getBigDecimal("amount"))
+                        .currency("USD")
+                        .build();
+                transaction.setId(rows.getObject("id", UUID.class));
+                transaction.setCreatedAt(rows.getTimestamp("created_at").toInstant());
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        // The forked benchmark JVM does not inherit system properties set on this one.
+        String[] jdbcProperties = Stream.of("benchmark.jdbc.url", "benchmark.jdbc.user", "benchmark.jdbc.password")
+                .filter(name -> System.getProperty(name) != null)
+                .map(name -> "-D" + name + "=" + System.getProperty(name))
+                .toArray(String[]::new);
+        new Runner(new OptionsBuilder()
+                .include(TransactionTreeBenchmark.class.getSimpleName())
+                .jvmArgsAppend(jdbcProperties)
+                .build()).run();
+    }
+}
@@ -0,0 +1,201 @@
+package com.payment.processing.service;
+
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.dto.response.TransactionTreeResponse;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Guards that whole refund hierarchies load in one statement rather than parent by parent; the
+ * timings of both are measured by {@link TransactionTreeBenchmark}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({JpaAuditingConfig.class, TransactionTreeService.class})
+class TransactionTreeServiceTest {
+
+    private static final int ORDERS = 50;
+    private static final int REFUNDS_PER_ORDER = 20;
+
+    @Autowired
+    private TransactionTreeService treeService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void treeCarriesRefundedAndRefundableTotals() {
+        Transaction payment = persist("order-1", TransactionType.PURCHASE, TransactionStatus.PARTIALLY_REFUNDED, "100.00", null);
+        persist("order-1", TransactionType.REFUND, TransactionStatus.REFUNDED, "10.00", payment.getId());
+        persist("order-1", TransactionType.REFUND, TransactionStatus.REFUNDED, "15.00", payment.getId());
+        persist("order-1", TransactionType.REFUND, TransactionStatus.FAILED, "30.00", payment.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<TransactionTreeResponse> trees = treeService.loadByOrderIds(List.of("order-1")).get("order-1");
+
+        assertThat(trees).hasSize(1);
+        TransactionTreeResponse root = trees.get(0);
+        assertThat(root.getTransaction().getId()).isEqualTo(payment.getId());
+        assertThat(root.getChildren()).hasSize(3);
+        assertThat(root.getRefundedTotal()).isEqualByComparingTo("25.00");
+        assertThat(root.getRefundableAmount()).isEqualByComparingTo("75.00");
+        assertThat(root.getChildren().get(0).getRefundableAmount()).isNull();
+    }
+
+    @Test
+    void onlyCapturedPaymentsAreRefundable() {
+        persist("order-1", TransactionType.PURCHASE, TransactionStatus.DECLINED, "10.00", null);
+        persist("order-1", TransactionType.PURCHASE, TransactionStatus.FAILED, "20.00", null);
+        persist("order-1", TransactionType.PURCHASE, TransactionStatus.VOIDED, "30.00", null);
+        persist("order-1", TransactionType.AUTHORIZE, TransactionStatus.AUTHORIZED, "40.00", null);
+        persist("order-1", TransactionType.PURCHASE, TransactionStatus.SETTLED, "50.00", null);
+        Transaction refunded = persist("order-1", TransactionType.PURCHASE, TransactionStatus.REFUNDED, "60.00", null);
+        persist("order-1", TransactionType.REFUND, TransactionStatus.REFUNDED, "60.00", refunded.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<TransactionStatus, BigDecimal> refundable = treeService.loadByOrderIds(List.of("order-1")).get("order-1").stream()
+                .collect(Collectors.toMap(tree -> tree.getTransaction().getStatus(), TransactionTreeResponse::getRefundableAmount));
+
+        assertThat(refundable).hasSize(6);
+        assertThat(refundable.get(TransactionStatus.DECLINED)).isEqualByComparingTo("0");
+        assertThat(refundable.get(TransactionStatus.FAILED)).isEqualByComparingTo("0");
+        assertThat(refundable.get(TransactionStatus.VOIDED)).isEqualByComparingTo("0");
+        assertThat(refundable.get(TransactionStatus.AUTHORIZED)).isEqualByComparingTo("0");
+        assertThat(refundable.get(TransactionStatus.SETTLED)).isEqualByComparingTo("50.00");
+        assertThat(refundable.get(TransactionStatus.REFUNDED)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void customerTreesAreRefusedAboveTheRowCap() {
+        Object maxCustomerRows = ReflectionTestUtils.getField(treeService, "maxCustomerRows");
+        ReflectionTestUtils.setField(treeService, "maxCustomerRows", 3);
+        try {
+            assertCustomerRowCap();
+        } finally {
+            ReflectionTestUtils.setField(treeService, "maxCustomerRows", maxCustomerRows);
+        }
+    }
+
+    private void assertCustomerRowCap() {
+        Transaction payment = persist("order-1", TransactionType.PURCHASE, TransactionStatus.PARTIALLY_REFUNDED, "100.00", null);
+        persist("order-1", TransactionType.REFUND, TransactionStatus.REFUNDED, "10.00", payment.getId());
+        persist("order-2", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "20.00", null);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(treeService.loadByCustomerIds(List.of("customer-1")).get("customer-1")).hasSize(2);
+
+        persist("order-3", TransactionType.PURCHASE, TransactionStatus.CAPTURED, "30.00", null);
+        entityManager.flush();
+
+        assertThatThrownBy(() -> treeService.loadByCustomerIds(List.of("customer-1")))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("TOO_MANY_TRANSACTIONS"));
+    }
+
+    @Test
+    void manyPartialRefundsLoadInOneStatement() {
+        List<String> orderIds = seedOrders();
+
+        statistics.clear();
+        Map<String, List<TransactionTreeResponse>> trees = treeService.loadByOrderIds(orderIds);
+        long bulkStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        int naiveRefunds = loadParentByParent(orderIds);
+        long naiveStatements = statistics.getPrepareStatementCount();
+
+        assertThat(bulkStatements).isEqualTo(1);
+        assertThat(naiveStatements).isEqualTo(ORDERS + 1L);
+        assertThat(trees).hasSize(ORDERS);
+        assertThat(naiveRefunds).isEqualTo(ORDERS * REFUNDS_PER_ORDER);
+        trees.values().forEach(orderTrees -> {
+            assertThat(orderTrees).hasSize(1);
+            assertThat(orderTrees.get(0).getChildren()).hasSize(REFUNDS_PER_ORDER);
+            assertThat(orderTrees.get(0).getRefundedTotal()).isEqualByComparingTo("20.00");
+            assertThat(orderTrees.get(0).getRefundableAmount()).isEqualByComparingTo("80.00");
+        });
+    }
+
+    /**
+     * What a caller without the tree API does: the payments, then the refunds of each.
+     */
+    private int loadParentByParent(List<String> orderIds) {
+        int refunds = 0;
+        for (Transaction payment : transactionRepository.findByOrderIdIn(orderIds)) {
+            if (payment.getParentTransactionId() == null) {
+                refunds += transactionRepository.findByParentTransactionIdIn(List.of(payment.getId())).size();
+            }
+        }
+        return refunds;
+    }
+
+    private List<String> seedOrders() {
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            String orderId = "order-" + i;
+            Transaction payment = persist(orderId, TransactionType.PURCHASE, TransactionStatus.PARTIALLY_REFUNDED, "100.00", null);
+            IntStream.range(0, REFUNDS_PER_ORDER).forEach(r ->
+                    persist(orderId, TransactionType.REFUND, TransactionStatus.REFUNDED, "1.00", payment.getId()));
+            orderIds.add(orderId);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return orderIds;
+    }
+
+    private Transaction persist(String orderId, TransactionType type, TransactionStatus status, String amount,
+                                UUID parentTransactionId) {
+        Transaction transaction = Transaction.builder()
+                .orderId(orderId)
+                .customerId("customer-1")
+                .type(type)
+                .status(status)
+                .amount(new BigDecimal(amount))
+                .capturedAmount(type == TransactionType.REFUND ? null : new BigDecimal(amount))
+                .currency("USD")
+                .parentTransactionId(parentTransactionId)
+                .build();
+        entityManager.persist(transaction);
+        return transaction;
+    }
+}
@@ -0,0 +1,153 @@
+package com.payment.processing.service.impl;
+
+import com.payment.processing.archive.TransactionArchiveService;
+import com.payment.processing.audit.AuditService;
+import com.payment.processing.card.BinLookupService;
+import com.payment.processing.concurrency.PaymentLaneExecutor;
+import com.payment.processing.concurrency.TransactionConflictResolver;
+import com.payment.processing.config.FraudProperties;
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.dto.request.PaymentRequest;
+import com.payment.processing.dto.request.RefundRequest;
+import com.payment.processing.fraud.VelocityEngine;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.rollup.PaymentRollupRecorder;
+import com.payment.processing.service.IdempotencyService;
+import com.payment.processing.service.PaymentService;
+import com.payment.processing.vault.CardVaultService;
+import com.payment.processing.vault.CustomerProfileService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Guards the number of JDBC statements each write operation issues.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({JpaAuditingConfig.class, PaymentServiceImpl.class, PaymentLaneExecutor.class, TransactionConflictResolver.class,
+        BinLookupService.class, VelocityEngine.class, FraudProperties.class, CardVaultService.class,
+        PaymentServiceImplStatementCountTest.Config.class})
+class PaymentServiceImplStatementCountTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    // Real default methods, so processorOf() hands back the mock itself.
+    @MockBean(answer = Answers.CALLS_REAL_METHODS)
+    private PaymentGateway paymentGateway;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private AuditService auditService;
+
+    @MockBean
+    private TransactionArchiveService transactionArchiveService;
+
+    @MockBean
+    private CustomerProfileService customerProfileService;
+
+    @MockBean
+    private PaymentRollupRecorder rollupRecorder;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void purchaseIssuesSingleInsert() {
+        when(paymentGateway.purchase(any())).thenReturn(GatewayResponse.success("gw-1", "AUTH01"));
+
+        statistics.clear();
+        paymentService.purchase(paymentRequest(), null, "corr-1");
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refundIssuesOneLookupOneInsertAndOneUpdate() {
+        Transaction captured = Transaction.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .type(TransactionType.PURCHASE)
+                .status(TransactionStatus.CAPTURED)
+                .amount(new BigDecimal("100.00"))
+                .capturedAmount(new BigDecimal("100.00"))
+                .gatewayTransactionId("gw-1")
+                .cardLastFour("1111")
+                .build();
+        entityManager.persist(captured);
+        entityManager.flush();
+        entityManager.clear();
+
+        when(paymentGateway.refund(anyString(), any(), anyString())).thenReturn(GatewayResponse.success("gw-2", null));
+
+        statistics.clear();
+        paymentService.refund(RefundRequest.builder()
+                .transactionId(captured.getId().toString())
+                .amount(new BigDecimal("10.00"))
+                .build(), null, "corr-2");
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    private PaymentRequest paymentRequest() {
+        return PaymentRequest.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .amount(new BigDecimal("100.00"))
+                .currency("USD")
+                .cardNumber("4111111111111111")
+                .expMonth("12")
+                .expYear("2030")
+                .cvv("123")
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.payment.processing.timeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.dto.response.TimelineEntryResponse;
+import com.payment.processing.repository.CustomerTimelineEntryRepository;
+import com.payment.processing.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Saves go through committed transactions so Hibernate's post-commit events reach the projector.
+ */
+@DataJpaTest
+@Import({JpaAuditingConfig.class, CustomerTimelineProjector.class, TimelineChangeListener.class,
+        CustomerTimelineService.class, CustomerTimelineProjectorTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerTimelineProjectorTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+
+        @Bean(name = "asyncExecutor")
+        Executor asyncExecutor() {
+            return Runnable::run;
+        }
+    }
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CustomerTimelineEntryRepository timelineRepository;
+
+    @Autowired
+    private CustomerTimelineProjector projector;
+
+    @Autowired
+    private CustomerTimelineService timelineService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        timelineRepository.deleteAll();
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    void committedChangesAreProjectedWithRefundsEmbedded() {
+        Transaction payment = transactionRepository.save(transaction(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "100.00", null));
+        transactionRepository.save(transaction(TransactionType.REFUND, TransactionStatus.REFUNDED, "10.00", payment.getId()));
+        assertThat(timelineRepository.count()).isZero();
+
+        projector.projectPending();
+
+        Page<TimelineEntryResponse> timeline = timelineService.getTimeline("customer-1", PageRequest.of(0, 10));
+        assertThat(timeline.getTotalElements()).isEqualTo(1);
+        TimelineEntryResponse entry = timeline.getContent().get(0);
+        assertThat(entry.getPayment().getId()).isEqualTo(payment.getId());
+        assertThat(entry.getRefunds()).hasSize(1);
+        assertThat(entry.getRefunds().get(0).getAmount()).isEqualByComparingTo("10.00");
+        assertThat(projector.oldestPendingMillis()).isZero();
+    }
+
+    @Test
+    void fallbackBuildsTheSameTimelineFromTransactions() {
+        Transaction payment = transactionRepository.save(transaction(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "100.00", null));
+        transactionRepository.save(transaction(TransactionType.REFUND, TransactionStatus.REFUNDED, "10.00", payment.getId()));
+        CustomerTimelineService fallback = new CustomerTimelineService(timelineRepository, transactionRepository, projector,
+                objectMapper, false, 30000, new SimpleMeterRegistry());
+
+        Page<TimelineEntryResponse> timeline = fallback.getTimeline("customer-1", PageRequest.of(0, 10));
+
+        assertThat(timeline.getContent()).hasSize(1);
+        assertThat(timeline.getContent().get(0).getRefunds()).hasSize(1);
+    }
+
+    @Test
+    void timelineIsBuiltFromTransactionsUntilABackfillIsRecorded() {
+        jdbcTemplate.update("DELETE FROM customer_timeline_backfills");
+        Transaction payment = transactionRepository.save(transaction(TransactionType.PURCHASE, TransactionStatus.CAPTURED, "100.00", null));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CustomerTimelineProjector deployed = new CustomerTimelineProjector(transactionRepository, jdbcTemplate, objectMapper,
+                transactionManager, Runnable::run, 500, true, meterRegistry);
+        CustomerTimelineService service = new CustomerTimelineService(timelineRepository, transactionRepository, deployed,
+                objectMapper, true, 30000, meterRegistry);
+
+        // Nothing is queued on the new node, so only the missing backfill keeps the empty read model unused.
+        assertThat(deployed.oldestPendingMillis()).isZero();
+        assertThat(service.getTimeline("customer-1", PageRequest.of(0, 10)).getContent())
+                .extracting(entry -> entry.getPayment().getId()).containsExactly(payment.getId());
+        assertThat(reads(meterRegistry, "transactions")).isEqualTo(1);
+
+        deployed.onStartup();
+
+        assertThat(deployed.isBackfilled()).isTrue();
+        assertThat(timelineRepository.findById(payment.getId())).isPresent();
+        assertThat(service.getTimeline("customer-1", PageRequest.of(0, 10)).getContent())
+                .extracting(entry -> entry.getPayment().getId()).containsExactly(payment.getId());
+        assertThat(reads(meterRegistry, "read_model")).isEqualTo(1);
+    }
+
+    private static double reads(MeterRegistry meterRegistry, String source) {
+        return meterRegistry.get("timeline.reads").tag("source", source).counter().count();
+    }
+
+    private static Transaction transaction(TransactionType type, TransactionStatus status, String amount,
+                                           UUID parentTransactionId) {
+        return Transaction.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .type(type)
+                .status(status)
+                .amount(new BigDecimal(amount))
+                .currency("USD")
+                .parentTransactionId(parentTransactionId)
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package com.payment.processing.vault;
+
+import com.payment.processing.card.BinLookupService;
+import com.payment.processing.domain.entity.CardToken;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.CardTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CardVaultServiceTest {
+
+    private static final String VISA = "4111111111111111";
+    private static final String ENCRYPTION_KEY = key(1);
+    private static final String FINGERPRINT_KEY = key(2);
+
+    private final CardTokenRepository repository = mock(CardTokenRepository.class);
+    private final BinLookupService binLookup = new BinLookupService("");
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private final Map<UUID, CardToken> saved = new HashMap<>();
+    private CardVaultService vault;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any())).thenAnswer(invocation -> {
+            CardToken token = invocation.getArgument(0);
+            token.setId(UUID.randomUUID());
+            saved.put(token.getId(), token);
+            return token;
+        });
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(saved.get(invocation.<UUID>getArgument(0))));
+        when(repository.findByCustomerIdAndFingerprint(any(), any())).thenReturn(Optional.empty());
+        vault = new CardVaultService(repository, binLookup, events, ENCRYPTION_KEY, FINGERPRINT_KEY, false);
+    }
+
+    @Test
+    void tokenizedCardDecryptsToTheSameNumber() {
+        CardToken token = vault.tokenize("customer-1", "4111 1111-1111 1111", "12", "2030");
+
+        assertThat(token.getEncryptedPan()).isNotNull();
+        assertThat(new String(token.getEncryptedPan(), StandardCharsets.ISO_8859_1)).doesNotContain(VISA);
+        assertThat(token.getCardBin()).isEqualTo("411111");
+        assertThat(token.getCardLastFour()).isEqualTo("1111");
+        assertThat(vault.detokenize(token.getToken())).isEqualTo(VISA);
+    }
+
+    @Test
+    void ciphertextIsBoundToCustomerAndFingerprint() {
+        CardToken token = vault.tokenize("customer-1", VISA, "12", "2030");
+
+        CardToken otherCustomer = copy(token, "customer-2", token.getFingerprint());
+        CardToken otherCard = copy(token, "customer-1", vault.fingerprint("5555555555554444"));
+
+        assertThatThrownBy(() -> vault.detokenize(otherCustomer.getToken()))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("CARD_TOKEN_UNREADABLE"));
+        assertThatThrownBy(() -> vault.detokenize(otherCard.getToken()))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("CARD_TOKEN_UNREADABLE"));
+    }
+
+    @Test
+    void rejectsNumbersFailingLuhnOrLength() {
+        assertInvalid("4111111111111112");
+        assertInvalid("41111111111");
+        assertInvalid("41111111111111111111");
+        assertInvalid("4111a11111111111");
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void fingerprintIgnoresFormattingAndDependsOnKey() {
+        CardVaultService otherKey = new CardVaultService(repository, binLookup, events, ENCRYPTION_KEY, key(3), false);
+
+        assertThat(vault.fingerprint("4111 1111 1111 1111")).isEqualTo(vault.fingerprint(VISA));
+        assertThat(otherKey.fingerprint(VISA)).isNotEqualTo(vault.fingerprint(VISA));
+    }
+
+    @Test
+    void tokenOfAnotherCustomerIsReportedAsNotFound() {
+        CardToken token = vault.tokenize("customer-1", VISA, "12", "2030");
+
+        assertThatThrownBy(() -> vault.resolve(token.getToken(), "customer-2"))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("CARD_TOKEN_NOT_FOUND"));
+        assertThatThrownBy(() -> vault.delete(token.getToken(), "customer-2"))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("CARD_TOKEN_NOT_FOUND"));
+        verify(repository, never()).delete(any());
+        verify(events, never()).publishEvent(any(Object.class));
+        assertThat(vault.resolve(token.getToken(), "customer-1")).isSameAs(token);
+    }
+
+    @Test
+    void deletingATokenPublishesItsCustomerAndFingerprint() {
+        CardToken token = vault.tokenize("customer-1", VISA, "12", "2030");
+
+        vault.delete(token.getToken(), "customer-1");
+
+        verify(repository).delete(token);
+        verify(events).publishEvent(new CardTokenDeletedEvent("customer-1", token.getFingerprint()));
+    }
+
+    @Test
+    void malformedTokenIsReportedAsNotFound() {
+        assertThatThrownBy(() -> vault.detokenize("tok_not-a-token"))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("CARD_TOKEN_NOT_FOUND"));
+    }
+
+    @Test
+    void startupFailsWithoutKeysUnlessGeneratedKeysAreAllowed() {
+        assertThatThrownBy(() -> new CardVaultService(repository, binLookup, events, "", FINGERPRINT_KEY, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("vault.encryption-key");
+        assertThatThrownBy(() -> new CardVaultService(repository, binLookup, events, ENCRYPTION_KEY, " ", false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("vault.fingerprint-key");
+
+        CardVaultService generated = new CardVaultService(repository, binLookup, events, "", "", true);
+        CardToken token = generated.tokenize("customer-1", VISA, "12", "2030");
+        assertThat(generated.detokenize(token.getToken())).isEqualTo(VISA);
+    }
+
+    private void assertInvalid(String cardNumber) {
+        assertThatThrownBy(() -> vault.tokenize("customer-1", cardNumber, "12", "2030"))
+                .isInstanceOfSatisfying(PaymentException.class,
+                        e -> assertThat(e.getErrorCode()).isEqualTo("INVALID_CARD_NUMBER"));
+    }
+
+    private CardToken copy(CardToken token, String customerId, String fingerprint) {
+        CardToken copy = CardToken.builder()
+                .customerId(customerId)
+                .fingerprint(fingerprint)
+                .encryptedPan(token.getEncryptedPan())
+                .build();
+        copy.setId(UUID.randomUUID());
+        saved.put(copy.getId(), copy);
+        return copy;
+    }
+
+    private static String key(int seed) {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) seed);
+        return Base64.getEncoder().encodeToString(key);
+    }
+}
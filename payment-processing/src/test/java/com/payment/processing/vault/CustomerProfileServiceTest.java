@@ -0,0 +1,216 @@
+package com.payment.processing.vault;
+
+import com.payment.processing.domain.entity.CardToken;
+import com.payment.processing.dto.request.PaymentRequest;
+import com.payment.processing.gateway.CustomerProfileRef;
+import com.payment.processing.gateway.GatewayResponse;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.CardTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerProfileServiceTest {
+
+    private static final String CUSTOMER = "customer-1";
+    private static final String FINGERPRINT = "fp-1";
+    private static final CustomerProfileRef PROFILE = new CustomerProfileRef("cust-1", "pay-1");
+
+    private final CardTokenRepository repository = mock(CardTokenRepository.class);
+    private final PaymentGateway paymentGateway = mock(PaymentGateway.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerProfileService profiles;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        profiles = service(60);
+    }
+
+    @Test
+    void tokenPaymentUsesTheTokensOwnProfile() {
+        CardToken card = card("12", "2030", PROFILE);
+
+        assertThat(profiles.find(payment("01", "2031"), FINGERPRINT, card)).contains(PROFILE);
+        verify(repository, never()).findByCustomerIdAndFingerprint(any(), any());
+    }
+
+    @Test
+    void rawCardReusesTheVaultedProfileOnlyWithTheSameExpiry() {
+        when(repository.findByCustomerIdAndFingerprint(CUSTOMER, FINGERPRINT))
+                .thenReturn(Optional.of(card("12", "2030", PROFILE)));
+
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).contains(PROFILE);
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).contains(PROFILE);
+        assertThat(profiles.find(payment("01", "2032"), FINGERPRINT, null)).isEmpty();
+
+        verify(repository, times(1)).findByCustomerIdAndFingerprint(CUSTOMER, FINGERPRINT);
+        assertThat(outcome("hit")).isEqualTo(2);
+        assertThat(outcome("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void cachedProfileIsReloadedAfterItsTtl() {
+        profiles = service(0);
+        when(repository.findByCustomerIdAndFingerprint(CUSTOMER, FINGERPRINT))
+                .thenReturn(Optional.of(card("12", "2030", PROFILE)), Optional.empty());
+
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).contains(PROFILE);
+        sleep();
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).isEmpty();
+    }
+
+    @Test
+    void deletedTokenIsEvictedFromTheCache() {
+        when(repository.findByCustomerIdAndFingerprint(CUSTOMER, FINGERPRINT))
+                .thenReturn(Optional.of(card("12", "2030", PROFILE)), Optional.empty());
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).contains(PROFILE);
+
+        profiles.onTokenDeleted(new CardTokenDeletedEvent(CUSTOMER, FINGERPRINT));
+
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).isEmpty();
+    }
+
+    @Test
+    void keyEvictedAndCachedAgainIsNotEvictedAheadOfOlderEntries() {
+        ReflectionTestUtils.setField(profiles, "maxEntries", 2);
+        when(repository.findByCustomerIdAndFingerprint(any(), any()))
+                .thenAnswer(invocation -> Optional.of(card("12", "2030", PROFILE)));
+
+        profiles.find(payment("12", "2030"), "fp-a", null);
+        profiles.onTokenDeleted(new CardTokenDeletedEvent(CUSTOMER, "fp-a"));
+        profiles.find(payment("12", "2030"), "fp-b", null);
+        profiles.find(payment("12", "2030"), "fp-a", null);
+        // Over the limit: fp-b is the eldest entry.
+        profiles.find(payment("12", "2030"), "fp-c", null);
+
+        profiles.find(payment("12", "2030"), "fp-a", null);
+        profiles.find(payment("12", "2030"), "fp-c", null);
+        verify(repository, times(2)).findByCustomerIdAndFingerprint(CUSTOMER, "fp-a");
+        verify(repository, times(1)).findByCustomerIdAndFingerprint(CUSTOMER, "fp-c");
+        profiles.find(payment("12", "2030"), "fp-b", null);
+        verify(repository, times(2)).findByCustomerIdAndFingerprint(CUSTOMER, "fp-b");
+    }
+
+    @Test
+    void profileMissingAtTheGatewayIsDroppedFromTokenAndCache() {
+        CardToken card = card("12", "2030", PROFILE);
+        when(repository.findByCustomerIdAndFingerprint(CUSTOMER, FINGERPRINT))
+                .thenReturn(Optional.of(card("12", "2030", PROFILE)), Optional.empty());
+        profiles.find(payment("12", "2030"), FINGERPRINT, null);
+
+        assertThat(profiles.isStale(GatewayResponse.failure("2", "declined"), CUSTOMER, FINGERPRINT, card)).isFalse();
+        assertThat(profiles.isStale(GatewayResponse.failure("E00040", "Record not found"), CUSTOMER, FINGERPRINT, card))
+                .isTrue();
+
+        assertThat(card.getGatewayCustomerProfileId()).isNull();
+        assertThat(card.getGatewayPaymentProfileId()).isNull();
+        verify(repository, never()).clearGatewayProfile(any(), any());
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null)).isEmpty();
+    }
+
+    @Test
+    void staleProfileOfARawCardIsClearedOnTheRow() {
+        assertThat(profiles.isStale(GatewayResponse.failure("E00040", "Record not found"), CUSTOMER, FINGERPRINT, null))
+                .isTrue();
+
+        verify(repository).clearGatewayProfile(CUSTOMER, FINGERPRINT);
+        assertThat(outcome("stale")).isEqualTo(1);
+    }
+
+    @Test
+    void provisionAsyncCreatesAndAttachesAProfileWithoutTheCvv() {
+        CardToken card = card("12", "2030", null);
+        when(repository.findFirstByCustomerIdAndGatewayCustomerProfileIdIsNotNull(CUSTOMER)).thenReturn(Optional.empty());
+        when(paymentGateway.createPaymentProfile(any(), any())).thenReturn(GatewayResponse.builder()
+                .success(true).customerProfileId("cust-2").paymentProfileId("pay-2").build());
+
+        profiles.provisionAsync(card, payment("12", "2030"));
+
+        verify(paymentGateway).createPaymentProfile(isNull(),
+                argThat(request -> request.getCvv() == null && card.getToken().equals(request.getCardToken())));
+        verify(repository).attachGatewayProfile(card.getId(), "cust-2", "pay-2");
+        assertThat(outcome("created")).isEqualTo(1);
+        // The attached profile is cached for raw card payments.
+        assertThat(profiles.find(payment("12", "2030"), FINGERPRINT, null))
+                .contains(new CustomerProfileRef("cust-2", "pay-2"));
+        verify(repository, never()).findByCustomerIdAndFingerprint(any(), any());
+    }
+
+    @Test
+    void provisionAsyncSkipsTokensThatHaveAProfile() {
+        profiles.provisionAsync(card("12", "2030", PROFILE), payment("12", "2030"));
+
+        verify(paymentGateway, never()).createPaymentProfile(any(), any());
+    }
+
+    @Test
+    void failedProfileCreationAttachesNothing() {
+        CardToken card = card("12", "2030", null);
+        when(repository.findFirstByCustomerIdAndGatewayCustomerProfileIdIsNotNull(CUSTOMER)).thenReturn(Optional.empty());
+        when(paymentGateway.createPaymentProfile(any(), any()))
+                .thenReturn(GatewayResponse.failure("E00027", "The transaction was unsuccessful."));
+
+        profiles.provisionAsync(card, payment("12", "2030"));
+
+        verify(repository, never()).attachGatewayProfile(any(), any(), any());
+        assertThat(outcome("failed")).isEqualTo(1);
+    }
+
+    private CustomerProfileService service(long positiveTtlMinutes) {
+        return new CustomerProfileService(repository, paymentGateway, Runnable::run, transactionManager,
+                true, positiveTtlMinutes, 10, 16, meterRegistry);
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.get("gateway.profiles").tag("outcome", outcome).counter().count();
+    }
+
+    private static CardToken card(String expMonth, String expYear, CustomerProfileRef profile) {
+        CardToken card = CardToken.builder()
+                .customerId(CUSTOMER)
+                .fingerprint(FINGERPRINT)
+                .cardExpMonth(expMonth)
+                .cardExpYear(expYear)
+                .gatewayCustomerProfileId(profile != null ? profile.customerProfileId() : null)
+                .gatewayPaymentProfileId(profile != null ? profile.paymentProfileId() : null)
+                .build();
+        card.setId(UUID.randomUUID());
+        return card;
+    }
+
+    private static PaymentRequest payment(String expMonth, String expYear) {
+        return PaymentRequest.builder()
+                .customerId(CUSTOMER)
+                .cardNumber("4111111111111111")
+                .expMonth(expMonth)
+                .expYear(expYear)
+                .cvv("123")
+                .build();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.payment.processing.webhook;
+
+import com.payment.processing.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionIdCacheTest {
+
+    private final SubscriptionRepository repository = mock(SubscriptionRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void resolvedIdIsServedFromTheCache() {
+        UUID id = UUID.randomUUID();
+        when(repository.findIdsByGatewaySubscriptionId("arb-1")).thenReturn(List.of(id));
+        SubscriptionIdCache cache = cache(10);
+
+        assertThat(cache.resolve("arb-1")).contains(id);
+        assertThat(cache.resolve("arb-1")).contains(id);
+
+        verify(repository, times(1)).findIdsByGatewaySubscriptionId("arb-1");
+        assertThat(result("hit")).isEqualTo(1);
+        assertThat(result("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void unknownIdIsLookedUpAgain() {
+        UUID id = UUID.randomUUID();
+        when(repository.findIdsByGatewaySubscriptionId("arb-1")).thenReturn(List.of(), List.of(id));
+        SubscriptionIdCache cache = cache(10);
+
+        assertThat(cache.resolve("arb-1")).isEmpty();
+        // The subscription committed after the first lookup.
+        assertThat(cache.resolve("arb-1")).contains(id);
+    }
+
+    @Test
+    void missingGatewayIdResolvesToNothing() {
+        assertThat(cache(10).resolve(null)).isEmpty();
+
+        verify(repository, never()).findIdsByGatewaySubscriptionId(any());
+    }
+
+    @Test
+    void eldestEntryIsEvictedWhenFull() {
+        when(repository.findIdsByGatewaySubscriptionId(any())).thenAnswer(invocation -> List.of(UUID.randomUUID()));
+        SubscriptionIdCache cache = cache(2);
+
+        cache.resolve("arb-1");
+        cache.resolve("arb-2");
+        cache.resolve("arb-3");
+        cache.resolve("arb-2");
+        cache.resolve("arb-3");
+        cache.resolve("arb-1");
+
+        verify(repository, times(2)).findIdsByGatewaySubscriptionId("arb-1");
+        verify(repository, times(1)).findIdsByGatewaySubscriptionId("arb-2");
+        verify(repository, times(1)).findIdsByGatewaySubscriptionId("arb-3");
+        assertThat(meterRegistry.get("webhook.subscription_cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    private SubscriptionIdCache cache(int maxEntries) {
+        return new SubscriptionIdCache(repository, maxEntries, meterRegistry);
+    }
+
+    private double result(String result) {
+        return meterRegistry.get("webhook.subscription_cache").tag("result", result).counter().count();
+    }
+}
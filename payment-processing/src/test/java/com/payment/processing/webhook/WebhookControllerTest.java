@@ -0,0 +1,98 @@
+package com.payment.processing.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.WebhookEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookControllerTest {
+
+    private static final byte[] BODY = """
+            {"notificationId":"n-1","eventType":"net.authorize.payment.authcapture.created",
+             "payload":{"entityName":"transaction","id":"60001"}}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final WebhookEventRepository repository = mock(WebhookEventRepository.class);
+    private final PaymentGateway gateway = mock(PaymentGateway.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final WebhookDedupeCache dedupeCache = new WebhookDedupeCache(60, 1, new SimpleMeterRegistry());
+    private final WebhookController controller = new WebhookController(repository, gateway, rabbitTemplate,
+            new WebhookEnvelopeParser(new ObjectMapper()), dedupeCache);
+
+    @BeforeEach
+    void setUp() {
+        when(gateway.validateWebhookSignature(any(), any())).thenReturn(true);
+    }
+
+    @Test
+    void redeliveryIsAnsweredFromTheCache() {
+        assertThat(controller.handleAuthorizeNetWebhook(BODY, "sig").getBody()).isEqualTo("Accepted");
+        assertThat(controller.handleAuthorizeNetWebhook(BODY, "sig").getBody()).isEqualTo("Already processed");
+
+        verify(repository, times(1)).saveAndFlush(any());
+        verify(rabbitTemplate, times(1)).convertAndSend(anyString(), anyString(), any(Object.class));
+        assertThat(dedupeCache.isDuplicate("n-1")).isTrue();
+    }
+
+    @Test
+    void eventIdUniqueViolationIsADuplicate() {
+        when(repository.saveAndFlush(any())).thenThrow(violation("23505"));
+        when(repository.existsByEventId("n-1")).thenReturn(true);
+
+        ResponseEntity<String> response = controller.handleAuthorizeNetWebhook(BODY, "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("Already processed");
+        assertThat(dedupeCache.isDuplicate("n-1")).isTrue();
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void otherIntegrityViolationsFailSoTheGatewayRetries() {
+        when(repository.saveAndFlush(any())).thenThrow(violation("22001"));
+
+        ResponseEntity<String> response = controller.handleAuthorizeNetWebhook(BODY, "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(dedupeCache.isDuplicate("n-1")).isFalse();
+        verify(repository, never()).existsByEventId(anyString());
+        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void uniqueViolationWithoutAStoredEventIsNotADuplicate() {
+        when(repository.saveAndFlush(any())).thenThrow(violation("23505"));
+        when(repository.existsByEventId(eq("n-1"))).thenReturn(false);
+
+        ResponseEntity<String> response = controller.handleAuthorizeNetWebhook(BODY, "sig");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(dedupeCache.isDuplicate("n-1")).isFalse();
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState) {
+        SQLException sqlException = new SQLException("constraint violated", sqlState);
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sqlException, "constraint"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.payment.processing.webhook;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebhookEnvelopeParserTest {
+
+    private final WebhookEnvelopeParser parser = new WebhookEnvelopeParser(new ObjectMapper());
+
+    @Test
+    void readsKnownFieldsAndSkipsNestedUnknownOnes() throws IOException {
+        WebhookEnvelope envelope = parser.parse("""
+                {"notificationId":"n-1","extra":{"a":[1,{"b":"c"}],"eventType":"ignored"},
+                 "eventType":"net.authorize.payment.refund.created","eventDate":"2026-01-01T00:00:00Z",
+                 "webhookId":"w-1",
+                 "payload":{"responseCode":1,"authCode":"X","avsResponse":{"code":"Y"},"authAmount":12.50,
+                            "entityName":"transaction","id":"60001","refTransId":"50001","lineItems":[{"id":"li"}]}}
+                """);
+
+        assertThat(envelope.notificationId()).isEqualTo("n-1");
+        assertThat(envelope.eventType()).isEqualTo("net.authorize.payment.refund.created");
+        assertThat(envelope.eventDate()).isEqualTo("2026-01-01T00:00:00Z");
+        assertThat(envelope.responseCode()).isEqualTo("1");
+        assertThat(envelope.entityName()).isEqualTo("transaction");
+        assertThat(envelope.id()).isEqualTo("60001");
+        assertThat(envelope.refTransId()).isEqualTo("50001");
+        assertThat(envelope.authAmount()).isEqualByComparingTo("12.50");
+    }
+
+    @Test
+    void nonScalarKnownFieldIsSkippedWithoutDesyncing() throws IOException {
+        WebhookEnvelope envelope = parser.parse("""
+                {"notificationId":{"nested":"n-1"},"eventType":["a","b"],
+                 "payload":{"id":{"value":"60001","status":"wrong"},"status":["wrong"],
+                            "authAmount":{"amount":1},"entityName":"subscription","subscriptionId":"S-1"},
+                 "eventDate":"2026-01-01T00:00:00Z"}
+                """);
+
+        assertThat(envelope.notificationId()).isNull();
+        assertThat(envelope.eventType()).isNull();
+        assertThat(envelope.id()).isNull();
+        assertThat(envelope.status()).isNull();
+        assertThat(envelope.authAmount()).isNull();
+        assertThat(envelope.entityName()).isEqualTo("subscription");
+        assertThat(envelope.subscriptionId()).isEqualTo("S-1");
+        assertThat(envelope.eventDate()).isEqualTo("2026-01-01T00:00:00Z");
+    }
+
+    @Test
+    void readsDecimalAuthAmountExactly() throws IOException {
+        assertThat(parser.parse("{\"payload\":{\"authAmount\":0.1}}").authAmount()).isEqualTo("0.1");
+        assertThat(parser.parse("{\"payload\":{\"authAmount\":19.999}}").authAmount()).isEqualTo("19.999");
+        assertThat(parser.parse("{\"payload\":{\"authAmount\":25}}").authAmount()).isEqualByComparingTo("25");
+        assertThat(parser.parse("{\"payload\":{\"authAmount\":\"7.35\"}}").authAmount()).isEqualTo("7.35");
+        assertThat(parser.parse("{\"payload\":{\"authAmount\":\"n/a\"}}").authAmount()).isNull();
+        assertThat(parser.parse("{\"payload\":{\"authAmount\":null}}").authAmount()).isNull();
+    }
+
+    @Test
+    void nonObjectPayloadIsIgnored() throws IOException {
+        WebhookEnvelope envelope = parser.parse("{\"payload\":[{\"id\":\"1\"}],\"eventType\":\"e\"}");
+
+        assertThat(envelope.id()).isNull();
+        assertThat(envelope.eventType()).isEqualTo("e");
+    }
+
+    @Test
+    void rejectsNonObjectBody() {
+        assertThatThrownBy(() -> parser.parse("[]")).isInstanceOf(JsonParseException.class);
+    }
+}
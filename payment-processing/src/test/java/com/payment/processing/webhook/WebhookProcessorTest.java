@@ -0,0 +1,241 @@
+package com.payment.processing.webhook;
+
+import com.payment.processing.domain.entity.Subscription;
+import com.payment.processing.domain.entity.Transaction;
+import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.enums.SubscriptionStatus;
+import com.payment.processing.domain.enums.TransactionStatus;
+import com.payment.processing.domain.enums.TransactionType;
+import com.payment.processing.domain.enums.WebhookEventType;
+import com.payment.processing.gateway.PaymentGateway;
+import com.payment.processing.repository.SubscriptionRepository;
+import com.payment.processing.repository.TransactionRepository;
+import com.payment.processing.repository.WebhookEventRepository;
+import com.payment.processing.rollup.PaymentRollupRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookProcessorTest {
+
+    private static final String ARB_ID = "arb-1";
+    private static final String EVENT_DATE = "2026-03-01T10:00:00Z";
+
+    private final WebhookEventRepository webhookEventRepository = mock(WebhookEventRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final SubscriptionRepository subscriptionRepository = mock(SubscriptionRepository.class);
+    private final SubscriptionIdCache subscriptionIdCache = mock(SubscriptionIdCache.class);
+    private final PaymentRollupRecorder rollupRecorder = mock(PaymentRollupRecorder.class);
+    private WebhookProcessor processor;
+    private Subscription subscription;
+
+    @BeforeEach
+    void setUp() {
+        processor = new WebhookProcessor(webhookEventRepository, transactionRepository, subscriptionRepository,
+                subscriptionIdCache, mock(PaymentGateway.class), mock(WebhookEnvelopeParser.class), rollupRecorder);
+        subscription = Subscription.builder()
+                .customerId("customer-1")
+                .status(SubscriptionStatus.ACTIVE)
+                .amount(new BigDecimal("19.99"))
+                .nextBillingDate(LocalDate.of(2026, 3, 15))
+                .build();
+        subscription.setId(UUID.randomUUID());
+        when(subscriptionIdCache.resolve(ARB_ID)).thenReturn(Optional.of(subscription.getId()));
+        when(subscriptionRepository.findById(subscription.getId())).thenReturn(Optional.of(subscription));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void cancellationStopsBillingAndEndsTheSubscriptionOnTheEventDate() {
+        WebhookEvent event = event(WebhookEventType.SUBSCRIPTION_CANCELLED);
+
+        assertThat(processor.processWebhookEvent(subscriptionEnvelope(event, null))).isTrue();
+
+        assertThat(subscription.getStatus()).isEqualTo(SubscriptionStatus.CANCELED);
+        assertThat(subscription.getNextBillingDate()).isNull();
+        assertThat(subscription.getEndDate()).isEqualTo(LocalDate.of(2026, 3, 1));
+        assertThat(event.getProcessed()).isTrue();
+        verify(subscriptionRepository).save(subscription);
+    }
+
+    @Test
+    void suspensionKeepsTheBillingSchedule() {
+        processor.processWebhookEvent(subscriptionEnvelope(event(WebhookEventType.SUBSCRIPTION_SUSPENDED), null));
+
+        assertThat(subscription.getStatus()).isEqualTo(SubscriptionStatus.SUSPENDED);
+        assertThat(subscription.getNextBillingDate()).isEqualTo(LocalDate.of(2026, 3, 15));
+        assertThat(subscription.getEndDate()).isNull();
+    }
+
+    @Test
+    void activeUpdateLeavesATrialSubscriptionInTrial() {
+        subscription.setStatus(SubscriptionStatus.TRIAL);
+
+        processor.processWebhookEvent(subscriptionEnvelope(event(WebhookEventType.SUBSCRIPTION_UPDATED), "active"));
+
+        assertThat(subscription.getStatus()).isEqualTo(SubscriptionStatus.TRIAL);
+        verify(subscriptionRepository, never()).save(any());
+    }
+
+    @Test
+    void eventForAnUnknownSubscriptionChangesNothing() {
+        when(subscriptionIdCache.resolve(ARB_ID)).thenReturn(Optional.empty());
+        WebhookEvent event = event(WebhookEventType.SUBSCRIPTION_CANCELLED);
+
+        assertThat(processor.processWebhookEvent(subscriptionEnvelope(event, null))).isTrue();
+
+        assertThat(subscription.getStatus()).isEqualTo(SubscriptionStatus.ACTIVE);
+        verify(subscriptionRepository, never()).save(any());
+    }
+
+    @Test
+    void gatewayRefundIsRecordedUnderTheRefundedPayment() {
+        Transaction payment = payment();
+        when(transactionRepository.findByGatewayTransactionId("refund-1")).thenReturn(Optional.empty());
+        when(transactionRepository.findByGatewayTransactionId("payment-1")).thenReturn(Optional.of(payment));
+
+        processor.processWebhookEvent(refundEnvelope(event(WebhookEventType.REFUND_CREATED)));
+
+        ArgumentCaptor<Transaction> saved = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(2)).save(saved.capture());
+        Transaction refund = saved.getAllValues().get(0);
+        assertThat(refund.getType()).isEqualTo(TransactionType.REFUND);
+        assertThat(refund.getParentTransactionId()).isEqualTo(payment.getId());
+        assertThat(refund.getGatewayTransactionId()).isEqualTo("refund-1");
+        assertThat(refund.getAmount()).isEqualByComparingTo("30.00");
+        assertThat(saved.getAllValues().get(1)).isSameAs(payment);
+        assertThat(payment.getStatus()).isEqualTo(TransactionStatus.PARTIALLY_REFUNDED);
+        assertThat(payment.getRefundedAmount()).isEqualByComparingTo("30.00");
+        verify(rollupRecorder).record(refund);
+    }
+
+    @Test
+    void refundAlreadyRecordedIsNotRecordedAgain() {
+        Transaction payment = payment();
+        when(transactionRepository.findByGatewayTransactionId("refund-1"))
+                .thenReturn(Optional.of(Transaction.builder().type(TransactionType.REFUND).build()));
+        when(transactionRepository.findByGatewayTransactionId("payment-1")).thenReturn(Optional.of(payment));
+
+        assertThat(processor.processWebhookEvent(refundEnvelope(event(WebhookEventType.REFUND_CREATED)))).isTrue();
+
+        verify(transactionRepository, never()).save(any());
+        verify(rollupRecorder, never()).record(any());
+        assertThat(payment.getRefundedAmount()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void approvedArbChargeCountsTheCycleAndRecordsACapturedPayment() {
+        when(transactionRepository.findByGatewayTransactionId("charge-1")).thenReturn(Optional.empty());
+
+        processor.processWebhookEvent(chargeEnvelope(event(WebhookEventType.PAYMENT_CREATED), "1"));
+
+        assertThat(subscription.getCompletedCycles()).isEqualTo(1);
+        assertThat(subscription.getFailedCycles()).isZero();
+        assertThat(subscription.getLastBillingDate()).isEqualTo(LocalDate.of(2026, 3, 1));
+        ArgumentCaptor<Transaction> charge = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository).save(charge.capture());
+        assertThat(charge.getValue().getStatus()).isEqualTo(TransactionStatus.CAPTURED);
+        assertThat(charge.getValue().getSubscriptionId()).isEqualTo(subscription.getId());
+        assertThat(charge.getValue().getCapturedAmount()).isEqualByComparingTo("19.99");
+        verify(rollupRecorder).record(charge.getValue());
+    }
+
+    @Test
+    void declinedArbChargeCountsAFailedCycle() {
+        when(transactionRepository.findByGatewayTransactionId("charge-1")).thenReturn(Optional.empty());
+
+        processor.processWebhookEvent(chargeEnvelope(event(WebhookEventType.PAYMENT_CREATED), "2"));
+
+        assertThat(subscription.getCompletedCycles()).isZero();
+        assertThat(subscription.getFailedCycles()).isEqualTo(1);
+        ArgumentCaptor<Transaction> charge = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository).save(charge.capture());
+        assertThat(charge.getValue().getStatus()).isEqualTo(TransactionStatus.DECLINED);
+        assertThat(charge.getValue().getCapturedAmount()).isNull();
+    }
+
+    @Test
+    void knownChargeIsNotCountedAsAnArbCycle() {
+        Transaction payment = payment();
+        payment.setGatewayTransactionId("charge-1");
+        when(transactionRepository.findByGatewayTransactionId("charge-1")).thenReturn(Optional.of(payment));
+
+        processor.processWebhookEvent(chargeEnvelope(event(WebhookEventType.PAYMENT_CREATED), "1"));
+
+        assertThat(subscription.getCompletedCycles()).isZero();
+        verify(subscriptionRepository, never()).save(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    private WebhookEvent event(WebhookEventType type) {
+        WebhookEvent event = WebhookEvent.builder()
+                .eventId("notification-" + type)
+                .eventType(type)
+                .payload("{}")
+                .build();
+        event.setId(UUID.randomUUID());
+        when(webhookEventRepository.findById(event.getId())).thenReturn(Optional.of(event));
+        return event;
+    }
+
+    private static WebhookEnvelope subscriptionEnvelope(WebhookEvent event, String status) {
+        return WebhookEnvelope.builder()
+                .webhookEventId(event.getId())
+                .eventDate(EVENT_DATE)
+                .entityName("subscription")
+                .id(ARB_ID)
+                .status(status)
+                .build();
+    }
+
+    private static WebhookEnvelope refundEnvelope(WebhookEvent event) {
+        return WebhookEnvelope.builder()
+                .webhookEventId(event.getId())
+                .eventType("net.authorize.payment.refund.created")
+                .entityName("transaction")
+                .id("refund-1")
+                .responseCode("1")
+                .authAmount(new BigDecimal("30.00"))
+                .refTransId("payment-1")
+                .build();
+    }
+
+    private static WebhookEnvelope chargeEnvelope(WebhookEvent event, String responseCode) {
+        return WebhookEnvelope.builder()
+                .webhookEventId(event.getId())
+                .eventDate(EVENT_DATE)
+                .entityName("transaction")
+                .id("charge-1")
+                .subscriptionId(ARB_ID)
+                .responseCode(responseCode)
+                .authAmount(new BigDecimal("19.99"))
+                .build();
+    }
+
+    private static Transaction payment() {
+        Transaction payment = Transaction.builder()
+                .orderId("order-1")
+                .customerId("customer-1")
+                .type(TransactionType.PURCHASE)
+                .status(TransactionStatus.CAPTURED)
+                .amount(new BigDecimal("100.00"))
+                .capturedAmount(new BigDecimal("100.00"))
+                .gatewayTransactionId("payment-1")
+                .build();
+        payment.setId(UUID.randomUUID());
+        return payment;
+    }
+}
@@ -0,0 +1,193 @@
+package com.payment.processing.webhook;
+
+import com.payment.processing.config.JpaAuditingConfig;
+import com.payment.processing.domain.entity.WebhookEvent;
+import com.payment.processing.domain.entity.WebhookReplayJob;
+import com.payment.processing.domain.enums.ReplayJobStatus;
+import com.payment.processing.domain.enums.WebhookEventType;
+import com.payment.processing.exception.PaymentException;
+import com.payment.processing.repository.WebhookEventRepository;
+import com.payment.processing.repository.WebhookReplayJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Jobs run on the service's own workers and commit their checkpoints, so tests wait for completion.
+ */
+@DataJpaTest
+@Import({JpaAuditingConfig.class, WebhookReplayService.class, WebhookReplayServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WebhookReplayServiceTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean(name = "webhookReplayExecutor")
+        Executor webhookReplayExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(2);
+            executor.setMaxPoolSize(2);
+            executor.setQueueCapacity(10);
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    @MockBean
+    private WebhookProcessor webhookProcessor;
+
+    @Autowired
+    private WebhookReplayService replayService;
+
+    @Autowired
+    private WebhookReplayJobRepository replayJobRepository;
+
+    @Autowired
+    private WebhookEventRepository webhookEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<UUID> replayed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        replayJobRepository.deleteAll();
+        webhookEventRepository.deleteAll();
+    }
+
+    @Test
+    void runningJobCannotBeResumed() {
+        WebhookReplayJob job = replayJobRepository.save(job(ReplayJobStatus.RUNNING, null));
+
+        assertThatThrownBy(() -> replayService.resumeReplay(job.getId()))
+                .isInstanceOf(PaymentException.class)
+                .extracting("errorCode").isEqualTo("REPLAY_JOB_RUNNING");
+    }
+
+    @Test
+    void failedJobResumesFromItsCheckpointOnce() throws Exception {
+        List<WebhookEvent> events = events(3);
+        WebhookReplayJob job = replayJobRepository.save(job(ReplayJobStatus.FAILED, events.get(0)));
+        blockReplays();
+
+        WebhookReplayJob resumed = replayService.resumeReplay(job.getId());
+
+        assertThat(resumed.getStatus()).isEqualTo(ReplayJobStatus.RUNNING);
+        assertThatThrownBy(() -> replayService.resumeReplay(job.getId()))
+                .isInstanceOf(PaymentException.class)
+                .extracting("errorCode").isEqualTo("REPLAY_JOB_RUNNING");
+
+        release.countDown();
+        WebhookReplayJob completed = awaitCompletion(job.getId());
+        assertThat(replayed).containsExactlyInAnyOrder(events.get(1).getId(), events.get(2).getId());
+        assertThat(completed.getProcessedCount()).isEqualTo(2);
+        assertThat(completed.getLastError()).isNull();
+    }
+
+    @Test
+    void abandonedRunningJobIsTakenOver() throws Exception {
+        List<WebhookEvent> events = events(1);
+        WebhookReplayJob job = replayJobRepository.save(job(ReplayJobStatus.RUNNING, null));
+        jdbcTemplate.update("UPDATE webhook_replay_jobs SET updated_at = ? WHERE id = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofHours(1))), job.getId());
+        blockReplays();
+        release.countDown();
+
+        replayService.resumeReplay(job.getId());
+
+        awaitCompletion(job.getId());
+        assertThat(replayed).containsExactly(events.get(0).getId());
+    }
+
+    @Test
+    void completedJobIsReturnedAsIs() {
+        WebhookReplayJob job = replayJobRepository.save(job(ReplayJobStatus.COMPLETED, null));
+
+        assertThat(replayService.resumeReplay(job.getId()).getStatus()).isEqualTo(ReplayJobStatus.COMPLETED);
+    }
+
+    private void blockReplays() throws Exception {
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            replayed.add(invocation.<WebhookEvent>getArgument(0).getId());
+            return null;
+        }).when(webhookProcessor).replayWebhookEvent(any());
+    }
+
+    private WebhookReplayJob awaitCompletion(UUID jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            WebhookReplayJob job = replayService.getJob(jobId);
+            if (job.getStatus() != ReplayJobStatus.RUNNING) {
+                assertThat(job.getStatus()).isEqualTo(ReplayJobStatus.COMPLETED);
+                return job;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Replay job " + jobId + " did not finish");
+    }
+
+    /**
+     * @return the stored events in replay order
+     */
+    private List<WebhookEvent> events(int count) {
+        for (int i = 0; i < count; i++) {
+            webhookEventRepository.save(WebhookEvent.builder()
+                    .eventId("n-" + i)
+                    .eventType(WebhookEventType.PAYMENT_CREATED)
+                    .payload("{}")
+                    .transactionId("6000" + i)
+                    .build());
+        }
+        return webhookEventRepository.findAll().stream()
+                .sorted(Comparator.comparing(WebhookEvent::getCreatedAt).thenComparing(WebhookEvent::getId))
+                .toList();
+    }
+
+    private static WebhookReplayJob job(ReplayJobStatus status, WebhookEvent checkpoint) {
+        return WebhookReplayJob.builder()
+                .fromTime(Instant.now().minus(Duration.ofHours(1)))
+                .toTime(Instant.now().plus(Duration.ofHours(1)))
+                .partitions(2)
+                .ratePerSecond(1000)
+                .status(status)
+                .checkpointCreatedAt(checkpoint != null ? checkpoint.getCreatedAt() : null)
+                .checkpointEventId(checkpoint != null ? checkpoint.getId() : null)
+                .build();
+    }
+}